@@ -0,0 +1,47 @@
+package com.rsec.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks de `CipherService.encrypt` y `CipherService.decrypt`, en un hilo y en todos los núcleos.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CipherServiceBenchmark {
+
+    @Benchmark
+    @Threads(1)
+    public String encrypt(UserDataState state) throws Exception {
+        return state.cipherService.encrypt(state.username, state.email, state.name);
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public String encryptConcurrent(UserDataState state) throws Exception {
+        return state.cipherService.encrypt(state.username, state.email, state.name);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public String decrypt(UserDataState state) throws Exception {
+        return state.cipherService.decrypt(state.cipherData);
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public String decryptConcurrent(UserDataState state) throws Exception {
+        return state.cipherService.decrypt(state.cipherData);
+    }
+}
@@ -0,0 +1,62 @@
+package com.rsec.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks del enmascaramiento de los tres campos de un usuario, en un hilo y en todos los núcleos:
+ * con las políticas por campo que aplica la etapa `mask` al crear un usuario, y con
+ * `MaskingService.maskUserData` como referencia.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MaskingServiceBenchmark {
+
+    @Benchmark
+    @Threads(1)
+    public void maskUserData(UserDataState state, Blackhole blackhole) {
+        mask(state, blackhole);
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public void maskUserDataConcurrent(UserDataState state, Blackhole blackhole) {
+        mask(state, blackhole);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public void maskFieldPolicies(UserDataState state, Blackhole blackhole) {
+        maskFields(state, blackhole);
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public void maskFieldPoliciesConcurrent(UserDataState state, Blackhole blackhole) {
+        maskFields(state, blackhole);
+    }
+
+    private static void mask(UserDataState state, Blackhole blackhole) {
+        blackhole.consume(state.maskingService.maskUserData(state.username));
+        blackhole.consume(state.maskingService.maskUserData(state.email));
+        blackhole.consume(state.maskingService.maskUserData(state.name));
+    }
+
+    private static void maskFields(UserDataState state, Blackhole blackhole) {
+        blackhole.consume(state.maskingService.maskUsername(state.username));
+        blackhole.consume(state.maskingService.maskEmail(state.email));
+        blackhole.consume(state.maskingService.maskName(state.name));
+    }
+}
@@ -0,0 +1,48 @@
+package com.rsec.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks de `TokenService.tokenize` y `TokenService.detokenize`, en un hilo y en todos los núcleos.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TokenServiceBenchmark {
+
+    @Benchmark
+    @Threads(1)
+    public String tokenize(UserDataState state) throws Exception {
+        return state.tokenService.tokenize(state.username, state.email, state.name);
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public String tokenizeConcurrent(UserDataState state) throws Exception {
+        return state.tokenService.tokenize(state.username, state.email, state.name);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public Map<String, String> detokenize(UserDataState state) throws Exception {
+        return state.tokenService.detokenize(state.token);
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public Map<String, String> detokenizeConcurrent(UserDataState state) throws Exception {
+        return state.tokenService.detokenize(state.token);
+    }
+}
@@ -0,0 +1,80 @@
+package com.rsec.benchmark;
+
+import com.rsec.metrics.ProtectionMetrics;
+import com.rsec.service.keys.DataKeyService;
+import com.rsec.service.keys.KeyRing;
+import com.rsec.service.keys.LocalMasterKey;
+import com.rsec.service.CipherProviderSelector;
+import com.rsec.service.CipherService;
+import com.rsec.service.CryptoEngine;
+import com.rsec.service.MaskingService;
+import com.rsec.service.PlaintextCache;
+import com.rsec.service.TokenService;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.time.Duration;
+
+/**
+ * Estado compartido por los benchmarks: servicios construidos sin Spring y datos de usuario
+ * con tamaño realista o con el tamaño máximo de columna (255 caracteres por campo).
+ */
+@State(Scope.Benchmark)
+public class UserDataState {
+
+    /**
+     * `realistic`: valores típicos de un alta; `large`: cada campo con 255 caracteres.
+     */
+    @Param({"realistic", "large"})
+    public String fieldSize;
+
+    /**
+     * Proveedor JCE de AES-GCM, para comparar BouncyCastle con el de la JDK.
+     */
+    @Param({"BC", "SunJCE"})
+    public String provider;
+
+    public CipherService cipherService;
+    public TokenService tokenService;
+    public MaskingService maskingService;
+
+    public String username;
+    public String email;
+    public String name;
+
+    /**
+     * Datos ya cifrados y tokenizados, para los benchmarks de descifrado y detokenización.
+     */
+    public String cipherData;
+    public String token;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        CryptoEngine engine = new CryptoEngine();
+        KeyRing keys = KeyRing.generate();
+        // Sin caché: se mide el costo real de cada operación
+        PlaintextCache noCache = new PlaintextCache(false, 0, 0, Duration.ofMinutes(1));
+        CipherProviderSelector providers = CipherProviderSelector.of(engine, provider);
+        cipherService = new CipherService(engine, noCache, ProtectionMetrics.noop(), keys,
+                new DataKeyService(new LocalMasterKey(engine, keys), false, 1_000_000, Duration.ofHours(1), 1000),
+                providers);
+        tokenService = new TokenService(engine, noCache, ProtectionMetrics.noop(), keys, "compact", providers);
+        maskingService = new MaskingService(ProtectionMetrics.noop(), "first-last", "email", "words");
+
+        if ("large".equals(fieldSize)) {
+            username = "u".repeat(255);
+            email = "e".repeat(243) + "@example.com";
+            name = "Nombre Apellido ".repeat(16).substring(0, 255);
+        } else {
+            username = "maria.gonzalez";
+            email = "maria.gonzalez@example.com";
+            name = "María González Pérez";
+        }
+
+        cipherData = cipherService.encrypt(username, email, name);
+        token = tokenService.tokenize(username, email, name);
+    }
+}
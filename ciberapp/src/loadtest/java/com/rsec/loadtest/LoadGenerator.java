@@ -0,0 +1,356 @@
+package com.rsec.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.rsec.CiberappApplication;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.convert.DurationStyle;
+import org.springframework.boot.web.servlet.context.ServletWebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Generador de carga de extremo a extremo con los escenarios de la colección de Postman ({@link Scenario}).
+ *
+ * Es de lazo abierto: las solicitudes se programan a una tasa fija (`rate` por segundo) y se envían sin
+ * esperar a las anteriores, como llegarían de muchos clientes independientes. La latencia se mide desde
+ * el instante programado, no desde el envío, por lo que si el servidor se satura las solicitudes
+ * retrasadas también cuentan su espera (corrección de la omisión coordinada).
+ *
+ * Las solicitudes se reparten entre `clients` valores de `X-Client-Id` para no medir el límite de tasa por
+ * cliente. El servidor solo usa esa cabecera si la IP del generador está en `ciberapp.admission.trusted-proxies`;
+ * si no, todas cuentan como un mismo cliente. Sin `target`, arranca la aplicación en el mismo proceso con H2
+ * en memoria, el control de admisión desactivado y, si se activa, la IP local como proxy de confianza; con
+ * `target`, prueba un servidor ya iniciado. Si se descartan solicitudes por `max-in-flight`, se registran
+ * como agotadas en los percentiles. Al terminar imprime un resumen y escribe un informe JSON (`report`) con
+ * los percentiles y los histogramas de cada escenario, para comparar versiones.
+ *
+ * Argumentos `clave=valor` (los demás se pasan a la aplicación como propiedades):
+ * <pre>
+ * target=http://localhost:8080   rate=200   duration=60s   warmup=10s   seed-users=200
+ * mix=create:10,get:50,decrypt:20,detokenize:20   clients=1000   max-in-flight=10000
+ * timeout=30s   label=mi-rama   report=target/loadtest-report.json
+ * </pre>
+ *
+ * No forma parte de la suite de pruebas; se ejecuta con el perfil `loadtest` de Maven.
+ */
+public class LoadGenerator {
+
+    private static final Set<String> OPTIONS = Set.of("target", "rate", "duration", "warmup", "seed-users", "mix",
+            "clients", "max-in-flight", "timeout", "label", "report");
+
+    private final HttpClient client;
+    private final Scenario.Context context;
+    private final Scenario[] weighted;
+    private final double rate;
+    private final int clients;
+    private final int maxInFlight;
+    private final Duration timeout;
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    private LoadGenerator(HttpClient client, Scenario.Context context, Scenario[] weighted, double rate, int clients,
+                          int maxInFlight, Duration timeout) {
+        this.client = client;
+        this.context = context;
+        this.weighted = weighted;
+        this.rate = rate;
+        this.clients = clients;
+        this.maxInFlight = maxInFlight;
+        this.timeout = timeout;
+    }
+
+    /**
+     * Resultado de una fase.
+     */
+    private record Phase(Map<Scenario, OperationStats> stats, long scheduled, long dropped, double seconds) {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new LinkedHashMap<>();
+        List<String> properties = new ArrayList<>();
+        for (String arg : args) {
+            String option = arg.startsWith("--") ? arg.substring(2) : arg;
+            int eq = option.indexOf('=');
+            if (eq > 0 && OPTIONS.contains(option.substring(0, eq))) {
+                options.put(option.substring(0, eq), option.substring(eq + 1));
+            } else if (eq > 0) {
+                properties.add(option);
+            } else {
+                throw new IllegalArgumentException("Argumento no válido: " + arg + " (se esperaba clave=valor)");
+            }
+        }
+        double rate = Double.parseDouble(options.getOrDefault("rate", "200"));
+        Duration duration = DurationStyle.detectAndParse(options.getOrDefault("duration", "60s"));
+        Duration warmup = DurationStyle.detectAndParse(options.getOrDefault("warmup", "10s"));
+        Duration timeout = DurationStyle.detectAndParse(options.getOrDefault("timeout", "30s"));
+        int seedUsers = Integer.parseInt(options.getOrDefault("seed-users", "200"));
+        int clients = Integer.parseInt(options.getOrDefault("clients", "1000"));
+        int maxInFlight = Integer.parseInt(options.getOrDefault("max-in-flight", "10000"));
+        String mix = options.getOrDefault("mix", "create:10,get:50,decrypt:20,detokenize:20");
+        Path report = Path.of(options.getOrDefault("report", "target/loadtest-report.json"));
+        if (rate <= 0 || seedUsers < 1 || clients < 1 || maxInFlight < 1) {
+            throw new IllegalArgumentException("rate, seed-users, clients y max-in-flight deben ser positivos.");
+        }
+        Map<Scenario, Integer> weights = parseMix(mix);
+
+        ConfigurableApplicationContext application = null;
+        String target = options.get("target");
+        if (target == null) {
+            application = startApplication(properties);
+            target = "http://localhost:" + ((ServletWebServerApplicationContext) application).getWebServer().getPort();
+        }
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+             HttpClient client = HttpClient.newBuilder()
+                     .executor(executor)
+                     .version(HttpClient.Version.HTTP_1_1)
+                     .connectTimeout(Duration.ofSeconds(10))
+                     .build()) {
+            ObjectMapper objectMapper = new ObjectMapper();
+            Scenario.Context context = new Scenario.Context(target.replaceAll("/+$", ""),
+                    Long.toString(System.currentTimeMillis(), 36), new AtomicLong(), new UserPool(10_000), objectMapper);
+            LoadGenerator generator = new LoadGenerator(client, context, expand(weights), rate, clients, maxInFlight, timeout);
+
+            generator.seed(seedUsers);
+            System.out.printf("Calentamiento: %s a %.0f solicitudes/s%n", warmup, rate);
+            generator.run(warmup);
+            System.out.printf("Medición: %s a %.0f solicitudes/s contra %s (mezcla %s)%n", duration, rate, target, mix);
+            Instant startedAt = Instant.now();
+            Phase phase = generator.run(duration);
+
+            print(phase);
+            Map<String, Object> body = report(phase, options, startedAt, target, rate, duration, warmup, weights,
+                    application != null);
+            if (report.getParent() != null) {
+                Files.createDirectories(report.getParent());
+            }
+            objectMapper.enable(SerializationFeature.INDENT_OUTPUT).writeValue(report.toFile(), body);
+            System.out.println("Informe: " + report.toAbsolutePath());
+        } finally {
+            if (application != null) {
+                application.close();
+            }
+        }
+    }
+
+    /**
+     * Arranca la aplicación en un puerto libre, con una base de datos y una bitácora propias.
+     */
+    private static ConfigurableApplicationContext startApplication(List<String> properties) throws Exception {
+        List<String> props = new ArrayList<>(properties);
+        props.add("server.port=0");
+        props.add("spring.devtools.restart.enabled=false");
+        props.add("logging.level.root=WARN");
+        if (properties.stream().noneMatch(p -> p.startsWith("ciberapp.admission.enabled="))) {
+            props.add("ciberapp.admission.enabled=false"); // Se mide el servidor, no el límite de tasa
+        }
+        if (properties.stream().noneMatch(p -> p.startsWith("ciberapp.admission.trusted-proxies="))) {
+            // El generador actúa como proxy de confianza, para que el servidor use X-Client-Id
+            props.add("ciberapp.admission.trusted-proxies=127.0.0.1,0:0:0:0:0:0:0:1");
+        }
+        if (properties.stream().noneMatch(p -> p.startsWith("spring.datasource.url="))) {
+            props.add("spring.datasource.url=jdbc:h2:mem:loadtest");
+        }
+        if (properties.stream().noneMatch(p -> p.startsWith("ciberapp.audit.directory="))) {
+            props.add("ciberapp.audit.directory=" + Files.createTempDirectory("ciberapp-loadtest-audit"));
+        }
+        return new SpringApplicationBuilder(CiberappApplication.class)
+                .profiles("dev")
+                // Como argumentos de línea de comandos, para que prevalezcan sobre application.properties
+                .run(props.stream().map(p -> "--" + p).toArray(String[]::new));
+    }
+
+    /**
+     * Crea los usuarios iniciales de los escenarios de consulta, uno a uno.
+     */
+    private void seed(int users) throws Exception {
+        for (int i = 0; i < users; i++) {
+            HttpRequest request = Scenario.CREATE.request(context).header("X-Client-Id", clientId(i)).build();
+            HttpResponse<byte[]> response = client.send(request, HttpResponse.BodyHandlers.ofByteArray());
+            if (response.statusCode() >= 400) {
+                throw new IllegalStateException("No se pudo crear un usuario inicial: HTTP " + response.statusCode()
+                        + " " + new String(response.body()));
+            }
+            Scenario.CREATE.onSuccess(context, response.body());
+        }
+    }
+
+    /**
+     * Envía solicitudes a la tasa configurada durante `duration` y espera a que terminen todas.
+     * Si hay `max-in-flight` solicitudes en curso, las programadas no se envían: se cuentan y se
+     * registran con la latencia de `timeout`.
+     */
+    private Phase run(Duration duration) throws InterruptedException {
+        Map<Scenario, OperationStats> stats = new EnumMap<>(Scenario.class);
+        for (Scenario scenario : Scenario.values()) {
+            stats.put(scenario, new OperationStats());
+        }
+        long intervalNanos = Math.max(1, (long) (TimeUnit.SECONDS.toNanos(1) / rate));
+        long start = System.nanoTime();
+        long end = start + duration.toNanos();
+        long scheduled = 0;
+        long dropped = 0;
+        for (long i = 0; ; i++) {
+            long intended = start + i * intervalNanos;
+            if (intended >= end) {
+                break;
+            }
+            long wait;
+            while ((wait = intended - System.nanoTime()) > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            scheduled++;
+            Scenario scenario = weighted[ThreadLocalRandom.current().nextInt(weighted.length)];
+            if (inFlight.get() >= maxInFlight) {
+                stats.get(scenario).recordDropped(timeout.toNanos());
+                dropped++;
+                continue;
+            }
+            send(scenario, stats.get(scenario), intended, i);
+        }
+        while (inFlight.get() > 0) {
+            TimeUnit.MILLISECONDS.sleep(10);
+        }
+        return new Phase(stats, scheduled, dropped, (end - start) / 1e9);
+    }
+
+    private void send(Scenario scenario, OperationStats stats, long intended, long index) {
+        HttpRequest request = scenario.request(context)
+                .header("X-Client-Id", clientId(index))
+                .timeout(timeout)
+                .build();
+        inFlight.incrementAndGet();
+        long sent = System.nanoTime();
+        client.sendAsync(request, HttpResponse.BodyHandlers.ofByteArray()).whenComplete((response, error) -> {
+            long done = System.nanoTime();
+            try {
+                if (error != null) {
+                    stats.recordFailure(intended, done);
+                    return;
+                }
+                stats.record(intended, sent, done, response.statusCode());
+                if (response.statusCode() < 400) {
+                    scenario.onSuccess(context, response.body());
+                }
+            } finally {
+                inFlight.decrementAndGet();
+            }
+        });
+    }
+
+    private String clientId(long index) {
+        return "loadtest-" + (index % clients);
+    }
+
+    private static Map<Scenario, Integer> parseMix(String mix) {
+        Map<Scenario, Integer> weights = new EnumMap<>(Scenario.class);
+        for (String part : mix.split(",")) {
+            String[] entry = part.split(":");
+            if (entry.length != 2) {
+                throw new IllegalArgumentException("Mezcla no válida: " + mix + " (formato escenario:peso,...)");
+            }
+            int weight = Integer.parseInt(entry[1].strip());
+            if (weight < 0) {
+                throw new IllegalArgumentException("El peso de " + entry[0] + " no puede ser negativo.");
+            }
+            weights.put(Scenario.of(entry[0]), weight);
+        }
+        if (weights.values().stream().mapToInt(Integer::intValue).sum() == 0) {
+            throw new IllegalArgumentException("La mezcla debe tener al menos un escenario con peso.");
+        }
+        return weights;
+    }
+
+    /**
+     * Repite cada escenario tantas veces como su peso, para elegirlos con un índice al azar.
+     */
+    private static Scenario[] expand(Map<Scenario, Integer> weights) {
+        List<Scenario> expanded = new ArrayList<>();
+        weights.forEach((scenario, weight) -> {
+            for (int i = 0; i < weight; i++) {
+                expanded.add(scenario);
+            }
+        });
+        return expanded.toArray(Scenario[]::new);
+    }
+
+    private static void print(Phase phase) {
+        System.out.printf("%-12s %10s %10s %9s %9s %9s %9s %9s%n",
+                "escenario", "solicitudes", "errores", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms");
+        phase.stats().forEach((scenario, stats) -> {
+            if (stats.count() > 0) {
+                System.out.printf("%-12s %10d %10d %9.2f %9.2f %9.2f %9.2f %9.2f%n", scenario.key(), stats.count(),
+                        stats.errors(), stats.latencyMs(50), stats.latencyMs(90), stats.latencyMs(99),
+                        stats.latencyMs(99.9), stats.latencyMs(100));
+            }
+        });
+        if (phase.dropped() > 0) {
+            System.out.printf("Descartadas por max-in-flight: %d de %d (incluidas en los percentiles como agotadas)%n",
+                    phase.dropped(), phase.scheduled());
+        }
+    }
+
+    private static Map<String, Object> report(Phase phase, Map<String, String> options, Instant startedAt,
+                                              String target, double rate, Duration duration, Duration warmup,
+                                              Map<Scenario, Integer> weights, boolean inProcess) {
+        Map<String, Object> config = new LinkedHashMap<>();
+        config.put("target", target);
+        config.put("inProcess", inProcess);
+        config.put("rate", rate);
+        config.put("duration", duration.toString());
+        config.put("warmup", warmup.toString());
+        Map<String, Integer> mix = new LinkedHashMap<>();
+        weights.forEach((scenario, weight) -> mix.put(scenario.key(), weight));
+        config.put("mix", mix);
+        config.putAll(options);
+
+        Map<String, Object> environment = new LinkedHashMap<>();
+        environment.put("javaVersion", Runtime.version().toString());
+        environment.put("availableProcessors", Runtime.getRuntime().availableProcessors());
+        environment.put("maxMemory", Runtime.getRuntime().maxMemory());
+
+        long completed = phase.stats().values().stream().mapToLong(stats -> stats.count() - stats.dropped()).sum();
+        long errors = phase.stats().values().stream().mapToLong(OperationStats::errors).sum();
+        Map<String, Object> totals = new LinkedHashMap<>();
+        totals.put("scheduled", phase.scheduled());
+        totals.put("completed", completed);
+        totals.put("errors", errors);
+        totals.put("dropped", phase.dropped());
+        totals.put("achievedRate", completed / phase.seconds());
+
+        Map<String, Object> operations = new LinkedHashMap<>();
+        phase.stats().forEach((scenario, stats) -> {
+            if (stats.count() > 0) {
+                operations.put(scenario.key(), stats.report(phase.seconds()));
+            }
+        });
+
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("label", options.getOrDefault("label", ""));
+        body.put("startedAt", startedAt.toString());
+        body.put("config", config);
+        body.put("environment", environment);
+        body.put("totals", totals);
+        body.put("operations", operations);
+        return body;
+    }
+}
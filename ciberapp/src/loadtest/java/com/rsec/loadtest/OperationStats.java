@@ -0,0 +1,143 @@
+package com.rsec.loadtest;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latencias y resultados de un escenario en una fase de la prueba.
+ *
+ * Registra dos histogramas en microsegundos:
+ * <ul>
+ *     <li>`latency`: desde el instante en que la solicitud debía enviarse según la tasa programada hasta
+ *     la respuesta. Incluye la espera de las solicitudes que salieron tarde porque el generador o el
+ *     servidor estaban saturados, es decir, corrige la omisión coordinada.</li>
+ *     <li>`serviceTime`: desde el envío real hasta la respuesta, sin esa corrección.</li>
+ * </ul>
+ * Las solicitudes que el generador descarta por `max-in-flight` no llegan a enviarse, pero se registran
+ * en `latency` como agotadas (con la latencia de `timeout`): son justamente las del servidor saturado,
+ * y omitirlas mejoraría los percentiles.
+ */
+final class OperationStats {
+
+    private static final double[] PERCENTILES = {50, 90, 99, 99.9, 99.99};
+
+    private final Histogram latency = new ConcurrentHistogram(3);
+    private final Histogram serviceTime = new ConcurrentHistogram(3);
+    private final Map<Integer, LongAdder> statusCodes = new ConcurrentHashMap<>();
+    private final AtomicLong errors = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+
+    /**
+     * Registra una respuesta.
+     *
+     * @param intendedNanos Instante programado de envío.
+     * @param sentNanos     Instante real de envío.
+     * @param doneNanos     Instante de la respuesta.
+     * @param status        Código HTTP.
+     */
+    void record(long intendedNanos, long sentNanos, long doneNanos, int status) {
+        latency.recordValue(TimeUnit.NANOSECONDS.toMicros(doneNanos - intendedNanos));
+        serviceTime.recordValue(TimeUnit.NANOSECONDS.toMicros(doneNanos - sentNanos));
+        statusCodes.computeIfAbsent(status, s -> new LongAdder()).increment();
+        if (status >= 400) {
+            errors.incrementAndGet();
+        }
+    }
+
+    /**
+     * Registra una solicitud sin respuesta (error de conexión o tiempo de espera agotado).
+     */
+    void recordFailure(long intendedNanos, long doneNanos) {
+        latency.recordValue(TimeUnit.NANOSECONDS.toMicros(doneNanos - intendedNanos));
+        failures.incrementAndGet();
+    }
+
+    /**
+     * Registra una solicitud programada que no se envió porque había `max-in-flight` en curso.
+     *
+     * @param timeoutNanos Tiempo de espera de las solicitudes, que se registra como su latencia.
+     */
+    void recordDropped(long timeoutNanos) {
+        latency.recordValue(TimeUnit.NANOSECONDS.toMicros(timeoutNanos));
+        dropped.incrementAndGet();
+    }
+
+    /**
+     * @return Solicitudes registradas en la latencia, incluidas las descartadas.
+     */
+    long count() {
+        return latency.getTotalCount();
+    }
+
+    long errors() {
+        return errors.get() + failures.get();
+    }
+
+    long dropped() {
+        return dropped.get();
+    }
+
+    /**
+     * @param seconds Duración de la fase medida.
+     * @return Resumen de la operación para el informe JSON.
+     */
+    Map<String, Object> report(double seconds) {
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("count", count());
+        body.put("throughput", (count() - dropped.get()) / seconds);
+        body.put("errors", errors.get());
+        body.put("failures", failures.get());
+        body.put("dropped", dropped.get());
+        Map<String, Long> codes = new TreeMap<>();
+        statusCodes.forEach((status, count) -> codes.put(String.valueOf(status), count.sum()));
+        body.put("statusCodes", codes);
+        body.put("latencyMs", summary(latency));
+        body.put("serviceTimeMs", summary(serviceTime));
+        body.put("latencyHistogram", encode(latency));
+        return body;
+    }
+
+    /**
+     * @return Percentiles de la latencia corregida en milisegundos, para la tabla de la consola.
+     */
+    double latencyMs(double percentile) {
+        return latency.getTotalCount() == 0 ? 0 : latency.getValueAtPercentile(percentile) / 1000.0;
+    }
+
+    private static Map<String, Object> summary(Histogram histogram) {
+        Map<String, Object> body = new LinkedHashMap<>();
+        if (histogram.getTotalCount() == 0) {
+            return body;
+        }
+        body.put("min", histogram.getMinValue() / 1000.0);
+        body.put("mean", histogram.getMean() / 1000.0);
+        for (double percentile : PERCENTILES) {
+            body.put("p" + (percentile == Math.rint(percentile) ? String.valueOf((long) percentile) : String.valueOf(percentile)),
+                    histogram.getValueAtPercentile(percentile) / 1000.0);
+        }
+        body.put("max", histogram.getMaxValue() / 1000.0);
+        return body;
+    }
+
+    /**
+     * Histograma completo comprimido en Base64 (formato de HdrHistogram), para combinar o comparar
+     * ejecuciones con `Histogram.decodeFromCompressedByteBuffer`.
+     */
+    private static String encode(Histogram histogram) {
+        ByteBuffer buffer = ByteBuffer.allocate(histogram.getNeededByteBufferCapacity());
+        int length = histogram.encodeIntoCompressedByteBuffer(buffer);
+        return Base64.getEncoder().encodeToString(Arrays.copyOf(buffer.array(), length));
+    }
+}
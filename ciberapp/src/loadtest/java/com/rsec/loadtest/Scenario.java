@@ -0,0 +1,119 @@
+package com.rsec.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpRequest;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Escenarios de la colección de Postman (`src/main/resources/ciberapp.postman_collection.json`) que
+ * ejecuta el generador de carga. La colección usa valores de ejemplo (`tu_token`, `{tuid}`...), por lo
+ * que las solicitudes se construyen igual que en ella pero con usuarios creados durante la prueba.
+ */
+enum Scenario {
+
+    /**
+     * `POST /users` con un usuario nuevo. El usuario creado se añade al {@link UserPool}.
+     */
+    CREATE {
+        @Override
+        HttpRequest.Builder request(Context context) {
+            long n = context.sequence().incrementAndGet();
+            String user = "lt_" + context.runId() + "_" + n;
+            return json(context, "/users", Map.of("username", user, "email", user + "@example.com",
+                    "name", "Usuario Carga " + n));
+        }
+
+        @Override
+        void onSuccess(Context context, byte[] body) {
+            try {
+                JsonNode node = context.objectMapper().readTree(body);
+                context.pool().add(new UserPool.CreatedUser(node.path("id").asLong(),
+                        node.path("cipherData").asText(), node.path("token").asText()));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    },
+
+    /**
+     * `GET /users/{id}`.
+     */
+    GET {
+        @Override
+        HttpRequest.Builder request(Context context) {
+            return HttpRequest.newBuilder(URI.create(context.baseUrl() + "/users/" + context.pool().random().id())).GET();
+        }
+    },
+
+    /**
+     * `POST /users/decrypt` con el dato cifrado de un usuario.
+     */
+    DECRYPT {
+        @Override
+        HttpRequest.Builder request(Context context) {
+            return json(context, "/users/decrypt", Map.of("cipherData", context.pool().random().cipherData()));
+        }
+    },
+
+    /**
+     * `POST /users/detokenize` con el token de un usuario.
+     */
+    DETOKENIZE {
+        @Override
+        HttpRequest.Builder request(Context context) {
+            return json(context, "/users/detokenize", Map.of("token", context.pool().random().token()));
+        }
+    };
+
+    /**
+     * Datos compartidos por los escenarios.
+     *
+     * @param baseUrl      URL del servidor, sin barra final.
+     * @param runId        Identificador de la ejecución, para que los usuarios creados no se repitan.
+     * @param sequence     Contador de usuarios creados.
+     * @param pool         Usuarios disponibles para las consultas.
+     * @param objectMapper Mapper de Jackson.
+     */
+    record Context(String baseUrl, String runId, AtomicLong sequence, UserPool pool, ObjectMapper objectMapper) {
+    }
+
+    /**
+     * Construye la solicitud. Los escenarios distintos de {@link #CREATE} requieren al menos un
+     * usuario en el {@link UserPool}.
+     */
+    abstract HttpRequest.Builder request(Context context);
+
+    /**
+     * Procesa una respuesta correcta.
+     */
+    void onSuccess(Context context, byte[] body) {
+    }
+
+    /**
+     * @return Nombre del escenario en los argumentos y el informe.
+     */
+    String key() {
+        return name().toLowerCase(Locale.ROOT);
+    }
+
+    static Scenario of(String key) {
+        return valueOf(key.strip().toUpperCase(Locale.ROOT));
+    }
+
+    private static HttpRequest.Builder json(Context context, String path, Map<String, String> body) {
+        try {
+            return HttpRequest.newBuilder(URI.create(context.baseUrl() + path))
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofByteArray(context.objectMapper().writeValueAsBytes(body)));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
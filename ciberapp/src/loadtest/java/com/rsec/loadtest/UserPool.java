@@ -0,0 +1,49 @@
+package com.rsec.loadtest;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Usuarios creados durante la prueba, de los que los escenarios de consulta, descifrado y detokenización
+ * toman el identificador, el dato cifrado y el token. Conserva los últimos `capacity` usuarios.
+ */
+final class UserPool {
+
+    /**
+     * Usuario creado.
+     *
+     * @param id         Identificador.
+     * @param cipherData Datos cifrados devueltos al crearlo.
+     * @param token      Token devuelto al crearlo.
+     */
+    record CreatedUser(long id, String cipherData, String token) {
+    }
+
+    private final AtomicReferenceArray<CreatedUser> users;
+    private final AtomicLong added = new AtomicLong();
+
+    UserPool(int capacity) {
+        this.users = new AtomicReferenceArray<>(capacity);
+    }
+
+    void add(CreatedUser user) {
+        users.set((int) (added.getAndIncrement() % users.length()), user);
+    }
+
+    /**
+     * @return Un usuario al azar, o `null` si aún no hay ninguno.
+     */
+    CreatedUser random() {
+        int size = (int) Math.min(added.get(), users.length());
+        if (size == 0) {
+            return null;
+        }
+        CreatedUser user = users.get(ThreadLocalRandom.current().nextInt(size));
+        return user != null ? user : users.get(0);
+    }
+
+    int size() {
+        return (int) Math.min(added.get(), users.length());
+    }
+}
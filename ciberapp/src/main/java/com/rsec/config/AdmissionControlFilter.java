@@ -0,0 +1,113 @@
+package com.rsec.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rsec.exceptions.ResponseException;
+import com.rsec.service.admission.AdmissionControl;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.security.Principal;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Filtro que aplica {@link AdmissionControl} a las solicitudes `POST` de `ciberapp.admission.paths`
+ * (crear usuarios, descifrar y detokenizar) antes de que lleguen al controlador.
+ *
+ * El cliente se identifica con el usuario autenticado o, si no lo hay, con su dirección IP. La cabecera
+ * `ciberapp.admission.client-header` solo se tiene en cuenta cuando la solicitud llega desde uno de los
+ * `ciberapp.admission.trusted-proxies`: cualquier otro cliente podría enviar un valor distinto en cada
+ * solicitud para obtener un bucket nuevo y llenar la caché de clientes.
+ *
+ * Las solicitudes rechazadas reciben 429 (tasa del cliente superada) o 503 (límite global de
+ * concurrencia), con `Retry-After`, sin leer el cuerpo ni ejecutar ningún cifrado.
+ */
+@Component
+public class AdmissionControlFilter extends OncePerRequestFilter {
+
+    private final AdmissionControl admissionControl;
+    private final ObjectMapper objectMapper;
+    private final Set<String> paths;
+    private final String clientHeader;
+    private final Set<String> trustedProxies;
+
+    /**
+     * Constructor del filtro.
+     *
+     * @param admissionControl Control de admisión.
+     * @param objectMapper     Mapper de Jackson para el cuerpo de los rechazos.
+     * @param paths            Rutas protegidas.
+     * @param clientHeader     Cabecera que identifica al cliente, fijada por un proxy de confianza.
+     * @param trustedProxies   Direcciones IP de los proxies de confianza.
+     */
+    public AdmissionControlFilter(AdmissionControl admissionControl, ObjectMapper objectMapper,
+                                  @Value("${ciberapp.admission.paths:/users,/users/batch,/users/decrypt,/users/decrypt/batch,/users/detokenize,/users/detokenize/batch}") List<String> paths,
+                                  @Value("${ciberapp.admission.client-header:X-Client-Id}") String clientHeader,
+                                  @Value("${ciberapp.admission.trusted-proxies:}") List<String> trustedProxies) {
+        this.admissionControl = admissionControl;
+        this.objectMapper = objectMapper;
+        this.paths = Set.copyOf(paths.stream().map(String::strip).toList());
+        this.clientHeader = clientHeader;
+        this.trustedProxies = Set.copyOf(trustedProxies.stream().map(String::strip).filter(p -> !p.isEmpty()).toList());
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !admissionControl.isEnabled()
+                || !"POST".equals(request.getMethod())
+                || !paths.contains(request.getRequestURI().substring(request.getContextPath().length()));
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        AdmissionControl.Decision decision = admissionControl.tryAcquire(clientId(request));
+        if (!decision.admitted()) {
+            reject(response, decision);
+            return;
+        }
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            admissionControl.release();
+        }
+    }
+
+    /**
+     * Identifica al cliente: el usuario autenticado, la cabecera si la solicitud viene de un proxy de
+     * confianza, o la dirección IP.
+     */
+    private String clientId(HttpServletRequest request) {
+        Principal principal = request.getUserPrincipal();
+        if (principal != null) {
+            return "user:" + principal.getName();
+        }
+        String remoteAddr = request.getRemoteAddr();
+        if (trustedProxies.contains(remoteAddr)) {
+            String forwarded = request.getHeader(clientHeader);
+            if (forwarded != null && !forwarded.isBlank()) {
+                return forwarded.strip();
+            }
+        }
+        return remoteAddr;
+    }
+
+    private void reject(HttpServletResponse response, AdmissionControl.Decision decision) throws IOException {
+        boolean rateLimited = decision.result() == AdmissionControl.Result.RATE_LIMITED;
+        response.setStatus(rateLimited ? HttpStatus.TOO_MANY_REQUESTS.value() : HttpStatus.SERVICE_UNAVAILABLE.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, Long.toString(decision.retryAfter()));
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        objectMapper.writeValue(response.getOutputStream(), new ResponseException(rateLimited
+                ? "Demasiadas solicitudes; reintente en " + decision.retryAfter() + " s."
+                : "El servidor está saturado; reintente en " + decision.retryAfter() + " s."));
+    }
+}
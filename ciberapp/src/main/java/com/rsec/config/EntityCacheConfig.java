@@ -0,0 +1,56 @@
+package com.rsec.config;
+
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+import com.rsec.model.Usuario;
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import java.time.Duration;
+import java.util.OptionalLong;
+
+/**
+ * Configuración de la caché de segundo nivel de Hibernate.
+ *
+ * Las regiones se crean en un `CacheManager` de JCache respaldado por Caffeine, con el tamaño
+ * (`ciberapp.entity-cache.max-entries`) y el tiempo de vida (`ciberapp.entity-cache.ttl`) de la
+ * configuración de Spring, y se entregan a Hibernate en lugar de dejar que cree regiones sin límite.
+ */
+@Configuration
+public class EntityCacheConfig {
+
+    /**
+     * Crea el `CacheManager` de las regiones de entidades. Se cierra al detener la aplicación.
+     *
+     * @param maxEntries Número máximo de entidades por región.
+     * @param ttl        Tiempo de vida de una entidad en la caché desde que se escribe.
+     * @return El `CacheManager` con la región de {@link Usuario}.
+     */
+    @Bean
+    public CacheManager entityCacheManager(@Value("${ciberapp.entity-cache.max-entries:10000}") long maxEntries,
+                                           @Value("${ciberapp.entity-cache.ttl:10m}") Duration ttl) {
+        CacheManager cacheManager = Caching.getCachingProvider(CaffeineCachingProvider.class.getName())
+                .getCacheManager();
+        CaffeineConfiguration<Object, Object> configuration = new CaffeineConfiguration<>();
+        configuration.setMaximumSize(OptionalLong.of(maxEntries));
+        configuration.setExpireAfterWrite(OptionalLong.of(ttl.toNanos()));
+        configuration.setStatisticsEnabled(true);
+        if (cacheManager.getCache(Usuario.CACHE_REGION) == null) {
+            cacheManager.createCache(Usuario.CACHE_REGION, configuration);
+        }
+        return cacheManager;
+    }
+
+    /**
+     * Indica a Hibernate que use {@link #entityCacheManager} para la caché de segundo nivel.
+     */
+    @Bean
+    public HibernatePropertiesCustomizer entityCacheCustomizer(CacheManager entityCacheManager) {
+        return properties -> properties.put(ConfigSettings.CACHE_MANAGER, entityCacheManager);
+    }
+}
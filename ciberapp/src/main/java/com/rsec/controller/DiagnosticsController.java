@@ -0,0 +1,275 @@
+package com.rsec.controller;
+
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+import com.rsec.exceptions.ResponseException;
+import com.rsec.model.Usuario;
+import com.rsec.service.CipherProviderSelector;
+import com.rsec.service.PlaintextCache;
+import com.rsec.service.ReEncryptionService;
+import com.rsec.service.audit.AuditOperation;
+import com.rsec.service.audit.AuditQuery;
+import com.rsec.service.audit.AuditService;
+import com.rsec.service.keys.DataKeyService;
+import com.rsec.service.keys.KeyStoreKeyProvider;
+import com.rsec.service.pipeline.DataProtectionPipeline;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import javax.cache.Cache;
+import javax.cache.CacheManager;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Controlador REST con información de diagnóstico de la aplicación.
+ */
+@RestController
+@RequestMapping("/diagnostics")
+public class DiagnosticsController {
+
+    private final PlaintextCache plaintextCache;
+    private final KeyStoreKeyProvider keyProvider;
+    private final DataKeyService dataKeyService;
+    private final ReEncryptionService reEncryptionService;
+    private final EntityManagerFactory entityManagerFactory;
+    private final CacheManager entityCacheManager;
+    private final AuditService auditService;
+    private final CipherProviderSelector cipherProviderSelector;
+    private final DataProtectionPipeline protectionPipeline;
+
+    /**
+     * Constructor del controlador.
+     *
+     * @param plaintextCache Caché de resultados de descifrado y detokenización.
+     * @param keyProvider    Proveedor de claves respaldado por el almacén PKCS12.
+     * @param dataKeyService      Claves de datos del cifrado por sobre.
+     * @param reEncryptionService  Trabajo de re-cifrado tras una rotación de claves.
+     * @param entityManagerFactory Fábrica de JPA, de la que se obtienen las estadísticas de Hibernate.
+     * @param entityCacheManager   `CacheManager` de la caché de segundo nivel.
+     * @param auditService         Bitácora de auditoría.
+     * @param cipherProviderSelector Selector del proveedor JCE de AES-GCM.
+     * @param protectionPipeline   Pipeline de protección de los usuarios nuevos.
+     */
+    public DiagnosticsController(PlaintextCache plaintextCache, KeyStoreKeyProvider keyProvider,
+                                 DataKeyService dataKeyService, ReEncryptionService reEncryptionService,
+                                 EntityManagerFactory entityManagerFactory, CacheManager entityCacheManager,
+                                 AuditService auditService, CipherProviderSelector cipherProviderSelector,
+                                 DataProtectionPipeline protectionPipeline) {
+        this.plaintextCache = plaintextCache;
+        this.keyProvider = keyProvider;
+        this.dataKeyService = dataKeyService;
+        this.reEncryptionService = reEncryptionService;
+        this.entityManagerFactory = entityManagerFactory;
+        this.entityCacheManager = entityCacheManager;
+        this.auditService = auditService;
+        this.cipherProviderSelector = cipherProviderSelector;
+        this.protectionPipeline = protectionPipeline;
+    }
+
+    /**
+     * Obtiene las etapas de protección que se aplican al crear un usuario (`ciberapp.protection.stages`).
+     *
+     * @return Nombres de las etapas activas, en orden de ejecución.
+     */
+    @GetMapping("/protection")
+    public ResponseEntity<Map<String, Object>> protection() {
+        return ResponseEntity.ok(Map.of("stages", protectionPipeline.stageNames()));
+    }
+
+    /**
+     * Obtiene el proveedor JCE con el que se ejecuta AES-GCM, cómo se eligió y, si se calibró al
+     * arrancar, el rendimiento medido de cada proveedor candidato.
+     *
+     * @return Proveedor elegido y resultados de la calibración.
+     */
+    @GetMapping("/crypto-provider")
+    public ResponseEntity<Map<String, Object>> cryptoProvider() {
+        return ResponseEntity.ok(cipherProviderSelector.report());
+    }
+
+    /**
+     * Obtiene las estadísticas de la caché de descifrado y detokenización.
+     *
+     * @return Estado de la caché con sus contadores de aciertos, fallos y expulsiones.
+     */
+    @GetMapping("/cache")
+    public ResponseEntity<Map<String, Object>> cacheStats() {
+        CacheStats stats = plaintextCache.stats();
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("enabled", plaintextCache.isEnabled());
+        body.put("size", plaintextCache.size());
+        body.put("hits", stats.hitCount());
+        body.put("misses", stats.missCount());
+        body.put("hitRate", stats.hitRate());
+        body.put("evictions", stats.evictionCount());
+        return ResponseEntity.ok(body);
+    }
+
+    /**
+     * Vacía la caché de descifrado y detokenización, sobrescribiendo el texto en claro almacenado.
+     *
+     * @return Respuesta vacía.
+     */
+    @DeleteMapping("/cache")
+    public ResponseEntity<Void> clearCache() {
+        plaintextCache.invalidateAll();
+        return ResponseEntity.noContent().build();
+    }
+
+    /**
+     * Obtiene las estadísticas de la región de usuarios de la caché de segundo nivel de Hibernate,
+     * junto con su tamaño máximo y tiempo de vida, para dimensionarla.
+     *
+     * @return Estado de la caché de entidades con sus contadores de aciertos, fallos y escrituras.
+     */
+    @GetMapping("/entity-cache")
+    @SuppressWarnings("unchecked")
+    public ResponseEntity<Map<String, Object>> entityCacheStats() {
+        Map<String, Object> body = new LinkedHashMap<>();
+        Cache<Object, Object> cache = entityCacheManager.getCache(Usuario.CACHE_REGION);
+        if (cache != null) {
+            CaffeineConfiguration<Object, Object> configuration = cache.getConfiguration(CaffeineConfiguration.class);
+            body.put("maxEntries", configuration.getMaximumSize().orElse(-1));
+            body.put("ttl", Duration.ofNanos(configuration.getExpireAfterWrite().orElse(0)).toString());
+            body.put("size", cache.unwrap(com.github.benmanes.caffeine.cache.Cache.class).estimatedSize());
+        }
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        CacheRegionStatistics region = statistics.isStatisticsEnabled()
+                ? statistics.getCacheRegionStatistics(Usuario.CACHE_REGION) : null;
+        body.put("enabled", region != null);
+        if (region != null) {
+            long requests = region.getHitCount() + region.getMissCount();
+            body.put("hits", region.getHitCount());
+            body.put("misses", region.getMissCount());
+            body.put("puts", region.getPutCount());
+            body.put("hitRate", requests == 0 ? 0.0 : (double) region.getHitCount() / requests);
+        }
+        return ResponseEntity.ok(body);
+    }
+
+    /**
+     * Obtiene los identificadores de las claves cargadas y la clave activa de cada uso.
+     *
+     * @return Estado del almacén de claves, sin material de claves.
+     */
+    @GetMapping("/keys")
+    public ResponseEntity<Map<String, Object>> keys() {
+        return ResponseEntity.ok(keyProvider.describe());
+    }
+
+    /**
+     * Vuelve a leer el almacén de claves sin reiniciar la aplicación.
+     *
+     * @return El nuevo estado del almacén, o un mensaje de error si no pudo leerse; en ese caso
+     * se conservan las claves anteriores.
+     */
+    @PostMapping("/keys/reload")
+    public ResponseEntity<Object> reloadKeys() {
+        try {
+            keyProvider.reload();
+            return ResponseEntity.ok(keyProvider.describe());
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(new ResponseException("No se pudo recargar el almacén de claves: " + e.getMessage()));
+        }
+    }
+
+    /**
+     * Obtiene los contadores del cifrado por sobre: claves de datos generadas (`wraps`), descifradas
+     * con la clave maestra (`unwraps`) y el estado de la caché de claves de datos.
+     *
+     * @return Estadísticas de las claves de datos.
+     */
+    @GetMapping("/data-keys")
+    public ResponseEntity<Map<String, Object>> dataKeyStats() {
+        return ResponseEntity.ok(dataKeyService.stats());
+    }
+
+    /**
+     * Obtiene el estado del re-cifrado y su último punto de control.
+     *
+     * @return Estado del trabajo.
+     */
+    @GetMapping("/reencryption")
+    public ResponseEntity<Map<String, Object>> reEncryptionStatus() {
+        return ResponseEntity.ok(reEncryptionService.status());
+    }
+
+    /**
+     * Inicia el re-cifrado de todos los usuarios con las claves activas, por ejemplo tras
+     * añadir una clave nueva al almacén.
+     *
+     * @param restart Si es `true`, empieza desde el primer usuario en lugar de continuar la
+     *                ejecución interrumpida.
+     * @return Estado del trabajo, o un mensaje de error si ya estaba en ejecución.
+     */
+    @PostMapping("/reencryption")
+    public ResponseEntity<Object> startReEncryption(@RequestParam(defaultValue = "false") boolean restart) {
+        if (!reEncryptionService.start(restart)) {
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .body(new ResponseException("El re-cifrado ya está en ejecución."));
+        }
+        return ResponseEntity.accepted().body(reEncryptionService.status());
+    }
+
+    /**
+     * Detiene el re-cifrado al terminar el fragmento en curso; puede reanudarse después.
+     *
+     * @return Respuesta vacía.
+     */
+    @DeleteMapping("/reencryption")
+    public ResponseEntity<Void> stopReEncryption() {
+        reEncryptionService.stop();
+        return ResponseEntity.noContent().build();
+    }
+
+    /**
+     * Consulta la bitácora de auditoría de descifrados y detokenizaciones.
+     *
+     * @param from        Momento inicial (ISO-8601), inclusive.
+     * @param to          Momento final (ISO-8601), exclusive.
+     * @param operation   `decrypt` o `detokenize`.
+     * @param outcome     `success` o `failure`.
+     * @param subjectHash Hash SHA-256 en hexadecimal del dato cifrado o del token.
+     * @param limit       Número máximo de registros (1 a 1000).
+     * @return Estado de la bitácora y los registros encontrados, o un mensaje de error.
+     */
+    @GetMapping("/audit")
+    public ResponseEntity<Object> audit(@RequestParam(required = false) Instant from,
+                                        @RequestParam(required = false) Instant to,
+                                        @RequestParam(required = false) String operation,
+                                        @RequestParam(required = false) String outcome,
+                                        @RequestParam(required = false) String subjectHash,
+                                        @RequestParam(defaultValue = "100") int limit) {
+        try {
+            if (limit < 1 || limit > 1000) {
+                throw new IllegalArgumentException("El límite debe estar entre 1 y 1000.");
+            }
+            AuditQuery query = new AuditQuery(from, to,
+                    operation == null ? null : AuditOperation.of(operation),
+                    outcome == null ? null : "success".equalsIgnoreCase(outcome),
+                    subjectHash, limit);
+            Map<String, Object> body = auditService.stats();
+            body.put("entries", auditService.query(query));
+            return ResponseEntity.ok(body);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(new ResponseException(e.getMessage()));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(new ResponseException("No se pudo leer la bitácora de auditoría: " + e.getMessage()));
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package com.rsec.controller;
+
+import com.rsec.exceptions.ResponseException;
+import com.rsec.service.importer.ImportService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * Controlador REST de la importación masiva de usuarios desde archivos CSV o NDJSON.
+ */
+@RestController
+@RequestMapping("/users/import")
+public class ImportController {
+
+    private static final Logger logger = LoggerFactory.getLogger(ImportController.class);
+
+    private final ImportService importService;
+
+    /**
+     * Constructor del controlador.
+     *
+     * @param importService Servicio de importación.
+     */
+    public ImportController(ImportService importService) {
+        this.importService = importService;
+    }
+
+    /**
+     * Inicia en segundo plano la importación de un archivo de `ciberapp.import.directory`. Si existe una
+     * importación interrumpida del mismo archivo, continúa desde su último punto de control.
+     *
+     * @param file    Archivo a importar, relativo al directorio de importación.
+     * @param format  `csv` o `ndjson`; por defecto se deduce de la extensión.
+     * @param restart Si es `true`, empieza desde el principio del archivo.
+     * @param offset  Posición en bytes, al inicio de una línea, desde la que empezar.
+     * @return Estado de la importación, o un mensaje de error.
+     */
+    @PostMapping
+    public ResponseEntity<Object> start(@RequestParam String file,
+                                        @RequestParam(required = false) String format,
+                                        @RequestParam(defaultValue = "false") boolean restart,
+                                        @RequestParam(required = false) Long offset) {
+        try {
+            if (!importService.start(file, format, restart, offset)) {
+                return ResponseEntity.status(HttpStatus.CONFLICT)
+                        .body(new ResponseException("Ya hay una importación en ejecución."));
+            }
+            return ResponseEntity.accepted().body(importService.status());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(new ResponseException(e.getMessage()));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(new ResponseException(e.getMessage()));
+        } catch (IOException e) {
+            logger.error("No se pudo iniciar la importación de {}", file, e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(new ResponseException("No se pudo leer el archivo."));
+        }
+    }
+
+    /**
+     * Obtiene el progreso de la importación en curso o de la última.
+     *
+     * @return Bytes y filas procesados, filas importadas y rechazadas, ritmo y punto de control.
+     */
+    @GetMapping
+    public ResponseEntity<Map<String, Object>> status() {
+        return ResponseEntity.ok(importService.status());
+    }
+
+    /**
+     * Detiene la importación después de guardar las filas ya leídas; puede reanudarse después.
+     *
+     * @return Respuesta vacía.
+     */
+    @DeleteMapping
+    public ResponseEntity<Void> stop() {
+        importService.stop();
+        return ResponseEntity.noContent().build();
+    }
+}
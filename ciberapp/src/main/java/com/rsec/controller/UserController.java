@@ -1,16 +1,34 @@
 package com.rsec.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
 import com.rsec.exceptions.ResponseException;
 import com.rsec.exceptions.TokenizationException;
 import com.rsec.model.Usuario;
-import com.rsec.repository.UsuarioRepository;
+import com.rsec.repository.UsuarioSummary;
+import com.rsec.service.BulkOperationService;
 import com.rsec.service.CipherService;
-import com.rsec.service.MaskingService;
+import com.rsec.service.StreamingCipherService;
 import com.rsec.service.TokenService;
+import com.rsec.service.UsuarioService;
+import com.rsec.service.audit.AuditOperation;
+import com.rsec.service.audit.AuditService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.security.GeneralSecurityException;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -27,10 +45,15 @@ import org.slf4j.LoggerFactory;
 @RequestMapping("/users")
 public class UserController {
 
-    private final UsuarioRepository usuarioRepository;
     private final CipherService cipherService;
-    private final MaskingService maskingService;
+    private final UsuarioService usuarioService;
+    private final ObjectMapper objectMapper;
+    private final BulkOperationService bulkOperationService;
+    private final StreamingCipherService streamingCipherService;
+    private final AuditService auditService;
     private static final Logger logger = LoggerFactory.getLogger(UserController.class); // Configuración del logger
+    private static final MediaType NDJSON = MediaType.parseMediaType("application/x-ndjson");
+    private static final String AUDIT_UNAVAILABLE = "La bitácora de auditoría no está disponible; reintente más tarde.";
 
     @Autowired
     private TokenService tokenService;
@@ -38,14 +61,22 @@ public class UserController {
     /**
      * Constructor del controlador.
      *
-     * @param userRepository Repositorio para gestionar operaciones con la base de datos de usuarios.
      * @param cipherService Servicio para cifrar y descifrar datos sensibles.
-     * @param maskingService Servicio para aplicar enmascaramiento a datos sensibles.
+     * @param usuarioService Servicio para proteger y guardar usuarios.
+     * @param objectMapper Mapper de Jackson configurado por Spring, usado en las respuestas en streaming.
+     * @param bulkOperationService Servicio para ejecutar en paralelo las operaciones masivas.
+     * @param streamingCipherService Servicio de cifrado en streaming de datos de gran tamaño.
+     * @param auditService Bitácora de auditoría de los descifrados y detokenizaciones.
      */
-    public UserController(UsuarioRepository userRepository, CipherService cipherService, MaskingService maskingService) {
-        this.usuarioRepository = userRepository;
+    public UserController(CipherService cipherService, UsuarioService usuarioService, ObjectMapper objectMapper,
+                          BulkOperationService bulkOperationService, StreamingCipherService streamingCipherService,
+                          AuditService auditService) {
         this.cipherService = cipherService;
-        this.maskingService = maskingService;
+        this.usuarioService = usuarioService;
+        this.objectMapper = objectMapper;
+        this.bulkOperationService = bulkOperationService;
+        this.streamingCipherService = streamingCipherService;
+        this.auditService = auditService;
     }
 
     /**
@@ -57,48 +88,147 @@ public class UserController {
      */
     @PostMapping
     public Usuario createUser(@RequestBody Usuario user) throws Exception {
-        if (user.getUsername() == null || user.getUsername().isEmpty() ||
-                user.getEmail() == null || user.getEmail().isEmpty()) {
-            throw new IllegalArgumentException("El username y el email no pueden estar vacíos.");
+        return usuarioService.create(user);
+    }
+
+    /**
+     * Crea varios usuarios en una sola solicitud.
+     * La protección se ejecuta en paralelo y las inserciones se agrupan en batches JDBC.
+     * Un elemento inválido no hace fallar el lote: se informa el resultado de cada elemento.
+     *
+     * @param users Lista de usuarios a crear.
+     * @return El resultado de cada elemento o un mensaje de error si el lote es inválido.
+     */
+    @PostMapping("/batch")
+    public ResponseEntity<Object> createUsers(@RequestBody List<Usuario> users) {
+        try {
+            return ResponseEntity.ok(usuarioService.createBatch(users));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(new ResponseException(e.getMessage()));
         }
+    }
 
-        // Cifrar los datos sensibles
-        user.setCipherData(cipherService.encrypt(user.getUsername(), user.getEmail(), user.getName()));
+    /**
+     * Obtiene todos los usuarios de la base de datos.
+     *
+     * La respuesta es el mismo arreglo JSON de siempre, pero se escribe a medida que las filas
+     * se leen de la base de datos, por lo que la memoria utilizada no depende del tamaño de la tabla.
+     *
+     * @param view Vista de los usuarios: `full` (por defecto) o `summary`, sin datos cifrados ni token.
+     * @return Arreglo JSON con todos los usuarios, escrito en streaming.
+     */
+    @GetMapping(value = "/obtenerUsuarios", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> getAllUsers(@RequestParam(defaultValue = UsuarioService.VIEW_FULL) String view) {
+        boolean summary = streamViewType(view) == UsuarioSummary.class;
+        StreamingResponseBody body = out -> {
+            try (SequenceWriter writer = streamWriter().writeValuesAsArray(out)) {
+                writeAllUsers(writer, summary);
+            }
+        };
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(body);
+    }
 
-        // Generar un token
-        String token = TokenService.tokenize(user.getUsername(), user.getEmail(), user.getName());
-        user.setToken(token);
+    /**
+     * Obtiene una página de usuarios mediante paginación por cursor (keyset).
+     *
+     * @param after Identificador del último usuario recibido; se omite para la primera página.
+     * @param size  Número de usuarios por página.
+     * @param view  Vista de los usuarios: `full` (por defecto) o `summary`, sin datos cifrados ni token.
+     * @return La página de usuarios con el cursor `nextCursor` para la siguiente solicitud.
+     */
+    @GetMapping("/page")
+    public ResponseEntity<Object> getUsersPage(@RequestParam(required = false) Long after,
+                                               @RequestParam(defaultValue = "100") int size,
+                                               @RequestParam(defaultValue = UsuarioService.VIEW_FULL) String view) {
+        try {
+            return ResponseEntity.ok(usuarioService.findPage(after, size, usuarioService.viewType(view)));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(new ResponseException(e.getMessage()));
+        }
+    }
 
-        // Aplicar enmascaramiento
-        user.setUsername(maskingService.maskUserData(user.getUsername()));
-        user.setEmail(maskingService.maskUserData(user.getEmail()));
-        user.setName(maskingService.maskUserData(user.getName()));
+    /**
+     * Exporta todos los usuarios en formato NDJSON (un objeto JSON por línea).
+     * Las filas se escriben a medida que se leen de la base de datos, con memoria constante.
+     *
+     * @param view Vista de los usuarios: `full` (por defecto) o `summary`, sin datos cifrados ni token.
+     * @return Flujo NDJSON con todos los usuarios.
+     */
+    @GetMapping(value = "/stream", produces = "application/x-ndjson")
+    public ResponseEntity<StreamingResponseBody> streamUsers(@RequestParam(defaultValue = UsuarioService.VIEW_FULL) String view) {
+        boolean summary = streamViewType(view) == UsuarioSummary.class;
+        StreamingResponseBody body = out -> {
+            try (SequenceWriter writer = streamWriter().withRootValueSeparator("\n").writeValues(out)) {
+                writeAllUsers(writer, summary);
+            }
+        };
+        return ResponseEntity.ok().contentType(NDJSON).body(body);
+    }
 
-        // Guardar el usuario en la base de datos
-        return usuarioRepository.save(user);
+    /**
+     * Busca un usuario por su correo electrónico real, usando el índice ciego.
+     * No se descifra ningún registro.
+     *
+     * @param email Correo electrónico en claro.
+     * @param view  Vista del usuario: `full` (por defecto) o `summary`, sin datos cifrados ni token.
+     * @return El usuario encontrado o un mensaje de error si no existe.
+     */
+    @GetMapping("/by-email")
+    public ResponseEntity<Object> getUserByEmail(@RequestParam String email,
+                                                 @RequestParam(defaultValue = UsuarioService.VIEW_FULL) String view) {
+        try {
+            return found(usuarioService.findByEmail(email, usuarioService.viewType(view)),
+                    "Usuario con el email indicado no encontrado.");
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(new ResponseException(e.getMessage()));
+        }
     }
 
     /**
-     * Obtiene todos los usuarios de la base de datos.
+     * Busca un usuario por su nombre de usuario real, usando el índice ciego.
+     * No se descifra ningún registro.
      *
-     * @return Lista de todos los usuarios.
+     * @param username Nombre de usuario en claro.
+     * @param view     Vista del usuario: `full` (por defecto) o `summary`, sin datos cifrados ni token.
+     * @return El usuario encontrado o un mensaje de error si no existe.
      */
-    @GetMapping("/obtenerUsuarios")
-    public List<Usuario> getAllUsers() {
-        return usuarioRepository.findAll();
+    @GetMapping("/by-username")
+    public ResponseEntity<Object> getUserByUsername(@RequestParam String username,
+                                                    @RequestParam(defaultValue = UsuarioService.VIEW_FULL) String view) {
+        try {
+            return found(usuarioService.findByUsername(username, usuarioService.viewType(view)),
+                    "Usuario con el username indicado no encontrado.");
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(new ResponseException(e.getMessage()));
+        }
     }
 
     /**
      * Obtiene un usuario por su ID.
      *
-     * @param id Identificador único del usuario.
-     * @return El usuario encontrado o un mensaje de error si no existe.
+     * La respuesta incluye un `ETag` basado en la versión del registro. Si la solicitud envía
+     * `If-None-Match` con ese valor, se responde 304 sin cuerpo. El cliente debe revalidar
+     * siempre (`Cache-Control: private, no-cache`).
+     *
+     * @param id   Identificador único del usuario.
+     * @param view Vista del usuario: `full` (por defecto) o `summary`, sin datos cifrados ni token.
+     * @return El usuario encontrado, 304 si no cambió, o un mensaje de error si no existe.
      */
     @GetMapping("/{id}")
-    public ResponseEntity<Object> getUserById(@PathVariable Long id) {
-        Optional<Usuario> user = usuarioRepository.findById(id);
+    public ResponseEntity<Object> getUserById(@PathVariable Long id,
+                                              @RequestParam(defaultValue = UsuarioService.VIEW_FULL) String view) {
+        Optional<?> user;
+        try {
+            user = usuarioService.findById(id, usuarioService.viewType(view));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(new ResponseException(e.getMessage()));
+        }
         if (user.isPresent()) {
-            return ResponseEntity.ok(user.get());
+            // Con If-None-Match coincidente, Spring responde 304 sin serializar el cuerpo
+            return ResponseEntity.ok()
+                    .eTag(usuarioService.etag(user.get()))
+                    .cacheControl(CacheControl.noCache().cachePrivate())
+                    .body(user.get());
         } else {
             ResponseException errorResponse = new ResponseException("Usuario con ID " + id + " no encontrado.");
             return ResponseEntity.status(HttpStatus.NOT_FOUND).body(errorResponse);
@@ -107,6 +237,8 @@ public class UserController {
 
     /**
      * Desencripta datos cifrados proporcionados en el cuerpo de la solicitud.
+     * Cada llamada se registra en la bitácora de auditoría; si la bitácora no está disponible se
+     * responde 503 sin descifrar.
      *
      * @param payload Mapa que contiene los datos cifrados bajo la clave `cipherData`.
      * @return Los datos descifrados o un mensaje de error si falla el proceso.
@@ -117,31 +249,211 @@ public class UserController {
         if (cipherData == null || cipherData.isEmpty()) {
             return ResponseEntity.badRequest().body("Error: El campo 'cipherData' no puede estar vacío.");
         }
+        if (!auditService.isAvailable()) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body("Error: " + AUDIT_UNAVAILABLE);
+        }
+        boolean success = false;
         try {
             String decryptedJson = cipherService.decrypt(cipherData);
+            success = true;
             return ResponseEntity.ok(decryptedJson);
         } catch (Exception e) {
             return ResponseEntity.badRequest().body("Error al descifrar los datos: " + e.getMessage());
+        } finally {
+            auditService.record(AuditOperation.DECRYPT, cipherData, success);
         }
     }
 
     /**
      * Detokeniza un token proporcionado y devuelve los datos originales.
+     * Cada llamada se registra en la bitácora de auditoría; si la bitácora no está disponible se
+     * responde 503 sin detokenizar.
      *
      * @param requestBody Mapa que contiene el token bajo la clave `token`.
      * @return Los datos originales del token o un mensaje de error si falla el proceso.
      */
     @PostMapping("/detokenize")
     public ResponseEntity<Map<String, String>> detokenize(@RequestBody Map<String, String> requestBody) {
+        String token = requestBody.get("token");
+        if (token == null || token.isEmpty()) {
+            return ResponseEntity.badRequest().body(Map.of("error", "El campo 'token' no puede estar vacío."));
+        }
+        if (!auditService.isAvailable()) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(Map.of("error", AUDIT_UNAVAILABLE));
+        }
+        boolean success = false;
         try {
-            String token = requestBody.get("token");
-            if (token == null || token.isEmpty()) {
-                return ResponseEntity.badRequest().body(Map.of("error", "El campo 'token' no puede estar vacío."));
-            }
             Map<String, String> result = tokenService.detokenize(token);
+            success = true;
             return ResponseEntity.ok(result);
         } catch (TokenizationException e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(Map.of("error", e.getMessage()));
+        } finally {
+            auditService.record(AuditOperation.DETOKENIZE, token, success);
+        }
+    }
+
+    /**
+     * Desencripta varios datos cifrados en paralelo. Cada elemento se registra en la bitácora de auditoría.
+     *
+     * @param payload Mapa que contiene la lista de datos cifrados bajo la clave `cipherData`.
+     * @return Los datos descifrados o el error de cada elemento, en el orden de la solicitud.
+     */
+    @PostMapping("/decrypt/batch")
+    public ResponseEntity<Object> decryptBatch(@RequestBody Map<String, List<String>> payload) {
+        if (!auditService.isAvailable()) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(new ResponseException(AUDIT_UNAVAILABLE));
+        }
+        try {
+            return ResponseEntity.ok(bulkOperationService.process(payload.get("cipherData"),
+                    audited(AuditOperation.DECRYPT, cipherService::decryptToMap)));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(new ResponseException(e.getMessage()));
+        }
+    }
+
+    /**
+     * Detokeniza varios tokens en paralelo. Cada elemento se registra en la bitácora de auditoría.
+     *
+     * @param payload Mapa que contiene la lista de tokens bajo la clave `tokens`.
+     * @return Los datos originales o el error de cada token, en el orden de la solicitud.
+     */
+    @PostMapping("/detokenize/batch")
+    public ResponseEntity<Object> detokenizeBatch(@RequestBody Map<String, List<String>> payload) {
+        if (!auditService.isAvailable()) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(new ResponseException(AUDIT_UNAVAILABLE));
+        }
+        try {
+            return ResponseEntity.ok(bulkOperationService.process(payload.get("tokens"),
+                    audited(AuditOperation.DETOKENIZE, tokenService::detokenize)));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(new ResponseException(e.getMessage()));
+        }
+    }
+
+    /**
+     * Cifra en streaming el cuerpo binario de la solicitud, por ejemplo un documento adjunto.
+     * El cuerpo se lee y la respuesta se escribe por segmentos, por lo que la memoria utilizada
+     * no depende del tamaño del documento.
+     *
+     * @param request  Solicitud con el documento en claro (`application/octet-stream`).
+     * @param response Respuesta en la que se escribe el documento cifrado.
+     * @throws IOException Si falla la lectura o la escritura, o el cifrado falla una vez iniciada la respuesta.
+     */
+    @PostMapping(value = "/encrypt/stream", consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public void encryptStream(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        response.setContentType(MediaType.APPLICATION_OCTET_STREAM_VALUE);
+        try {
+            streamingCipherService.encrypt(Channels.newChannel(request.getInputStream()),
+                    Channels.newChannel(response.getOutputStream()));
+        } catch (GeneralSecurityException e) {
+            streamFailure(response, HttpStatus.INTERNAL_SERVER_ERROR, "Error al cifrar los datos: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Descifra en streaming un documento cifrado con `/users/encrypt/stream`.
+     * Cada segmento se autentica antes de escribirse en la respuesta.
+     *
+     * Si el documento no es válido desde el primer segmento se responde 400. Si un segmento
+     * posterior no supera la autenticación, la respuesta ya iniciada se interrumpe sin completarse
+     * y el cliente debe descartar lo recibido.
+     *
+     * @param request  Solicitud con el documento cifrado (`application/octet-stream`).
+     * @param response Respuesta en la que se escribe el documento en claro.
+     * @throws IOException Si falla la lectura o la escritura, o el descifrado falla una vez iniciada la respuesta.
+     */
+    @PostMapping(value = "/decrypt/stream", consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public void decryptStream(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        response.setContentType(MediaType.APPLICATION_OCTET_STREAM_VALUE);
+        try {
+            streamingCipherService.decrypt(Channels.newChannel(request.getInputStream()),
+                    Channels.newChannel(response.getOutputStream()));
+        } catch (GeneralSecurityException e) {
+            streamFailure(response, HttpStatus.BAD_REQUEST, "Error al descifrar los datos: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Responde con un error si la respuesta en streaming aún no se ha enviado; si ya se envió una
+     * parte, lanza la excepción para que el contenedor interrumpa la respuesta sin completarla.
+     */
+    private void streamFailure(HttpServletResponse response, HttpStatus status, String message,
+                               GeneralSecurityException cause) throws IOException {
+        if (response.isCommitted()) {
+            throw new IOException(message, cause);
+        }
+        response.reset();
+        response.setStatus(status.value());
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        objectMapper.writeValue(response.getOutputStream(), new ResponseException(message));
+    }
+
+    /**
+     * Envuelve una operación para registrar cada llamada y su resultado en la bitácora de auditoría.
+     */
+    private <T> BulkOperationService.BulkFunction<T> audited(AuditOperation operation,
+                                                             BulkOperationService.BulkFunction<T> function) {
+        return input -> {
+            boolean success = false;
+            try {
+                T result = function.apply(input);
+                success = true;
+                return result;
+            } finally {
+                auditService.record(operation, input, success);
+            }
+        };
+    }
+
+    /**
+     * Crea un escritor de secuencias JSON que no vacía el buffer tras cada elemento; los buffers
+     * de Jackson y del contenedor se vacían solos al llenarse, manteniendo la memoria acotada.
+     */
+    private ObjectWriter streamWriter() {
+        return objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+    }
+
+    /**
+     * Escribe todos los usuarios en el flujo de respuesta con la vista indicada.
+     */
+    private void writeAllUsers(SequenceWriter writer, boolean summary) {
+        if (summary) {
+            usuarioService.forEachSummary(user -> writeStreamed(writer, user));
+        } else {
+            usuarioService.forEachUser(user -> writeStreamed(writer, user));
+        }
+    }
+
+    /**
+     * Obtiene la vista solicitada para un endpoint en streaming, respondiendo 400 si no es válida.
+     */
+    private Class<?> streamViewType(String view) {
+        try {
+            return usuarioService.viewType(view);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+    }
+
+    /**
+     * Construye la respuesta de una búsqueda: 200 con el usuario o 404 con el mensaje indicado.
+     */
+    private static ResponseEntity<Object> found(Optional<?> user, String notFoundMessage) {
+        if (user.isPresent()) {
+            return ResponseEntity.ok(user.get());
+        }
+        return ResponseEntity.status(HttpStatus.NOT_FOUND).body(new ResponseException(notFoundMessage));
+    }
+
+    /**
+     * Escribe un usuario en el flujo de respuesta.
+     */
+    private void writeStreamed(SequenceWriter writer, Object user) {
+        try {
+            writer.write(user);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
         }
     }
 }
@@ -0,0 +1,44 @@
+package com.rsec.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Resultado del procesamiento de un elemento dentro de una operación por lotes.
+ * Permite informar el éxito o el error de cada elemento sin que un registro inválido
+ * haga fallar el lote completo.
+ */
+@AllArgsConstructor
+@NoArgsConstructor
+@Data
+public class BatchItemResult {
+
+    /**
+     * Posición del elemento en la solicitud original.
+     */
+    private int index;
+
+    /**
+     * Estado del elemento: `CREATED` o `FAILED`.
+     */
+    private String status;
+
+    /**
+     * Identificador asignado al usuario, si fue creado.
+     */
+    private Long id;
+
+    /**
+     * Mensaje descriptivo del error, si el elemento falló.
+     */
+    private String error;
+
+    public static BatchItemResult created(int index, Long id) {
+        return new BatchItemResult(index, "CREATED", id, null);
+    }
+
+    public static BatchItemResult failed(int index, String error) {
+        return new BatchItemResult(index, "FAILED", null, error);
+    }
+}
@@ -0,0 +1,22 @@
+package com.rsec.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Respuesta de una operación de creación por lotes.
+ * Incluye los totales y el resultado de cada elemento en el orden de la solicitud.
+ */
+@AllArgsConstructor
+@NoArgsConstructor
+@Data
+public class BatchResponse {
+
+    private int total;
+    private int created;
+    private int failed;
+    private List<BatchItemResult> results;
+}
@@ -0,0 +1,32 @@
+package com.rsec.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Resultado de un elemento en una operación masiva de descifrado o detokenización.
+ * Contiene el valor obtenido o el error del elemento, sin afectar al resto de la solicitud.
+ *
+ * @param <T> Tipo del valor obtenido.
+ */
+@AllArgsConstructor
+@NoArgsConstructor
+@Data
+public class BulkItemResult<T> {
+
+    /**
+     * Posición del elemento en la solicitud original.
+     */
+    private int index;
+
+    /**
+     * Valor obtenido, o `null` si el elemento falló.
+     */
+    private T value;
+
+    /**
+     * Mensaje descriptivo del error, o `null` si el elemento se procesó correctamente.
+     */
+    private String error;
+}
@@ -0,0 +1,28 @@
+package com.rsec.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Página de usuarios obtenida mediante paginación por cursor.
+ *
+ * @param <T> Vista de los usuarios: la entidad completa o la vista resumida.
+ */
+@AllArgsConstructor
+@NoArgsConstructor
+@Data
+public class UsuarioPage<T> {
+
+    /**
+     * Usuarios de la página, ordenados por identificador.
+     */
+    private List<T> items;
+
+    /**
+     * Cursor para solicitar la siguiente página (parámetro `after`), o `null` si no hay más usuarios.
+     */
+    private Long nextCursor;
+}
@@ -0,0 +1,115 @@
+package com.rsec.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.composite.CompositeMeterRegistry;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Métricas de las operaciones de protección de datos (cifrado, tokenización y enmascaramiento).
+ *
+ * Cada operación registra:
+ * <ul>
+ *     <li>`ciberapp.protection.duration`: latencia, con percentiles p50/p99 e histograma.</li>
+ *     <li>`ciberapp.protection.payload`: tamaño en bytes (o caracteres en el enmascaramiento) de los datos.</li>
+ *     <li>`ciberapp.protection.failures`: errores, por tipo de excepción.</li>
+ * </ul>
+ * Los medidores se registran una sola vez y se guardan en {@link Operation}, de modo que registrar
+ * una llamada no crea objetos: solo se usa `System.nanoTime()` y los medidores ya existentes.
+ */
+@Component
+public class ProtectionMetrics {
+
+    private final MeterRegistry registry;
+
+    public ProtectionMetrics(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    /**
+     * Crea métricas sin registro, para usar los servicios fuera del contexto de Spring
+     * (benchmarks y herramientas de línea de comandos).
+     *
+     * @return Métricas que no publican nada.
+     */
+    public static ProtectionMetrics noop() {
+        return new ProtectionMetrics(new CompositeMeterRegistry());
+    }
+
+    /**
+     * Obtiene los medidores de una operación. Debe llamarse al construir el servicio, no en cada llamada.
+     *
+     * @param name Nombre de la operación, por ejemplo `cipher.encrypt`.
+     * @return Los medidores de la operación.
+     */
+    public Operation operation(String name) {
+        Timer timer = Timer.builder("ciberapp.protection.duration")
+                .description("Latencia de las operaciones de protección de datos")
+                .tag("operation", name)
+                .publishPercentiles(0.5, 0.99)
+                .publishPercentileHistogram()
+                .register(registry);
+        DistributionSummary payload = DistributionSummary.builder("ciberapp.protection.payload")
+                .description("Tamaño de los datos procesados por las operaciones de protección")
+                .baseUnit("bytes")
+                .tag("operation", name)
+                .publishPercentiles(0.5, 0.99)
+                .register(registry);
+        return new Operation(registry, name, timer, payload);
+    }
+
+    /**
+     * Medidores de una operación.
+     */
+    public static final class Operation {
+
+        private final MeterRegistry registry;
+        private final String name;
+        private final Timer timer;
+        private final DistributionSummary payload;
+        private final Map<Class<?>, Counter> failures = new ConcurrentHashMap<>();
+
+        private Operation(MeterRegistry registry, String name, Timer timer, DistributionSummary payload) {
+            this.registry = registry;
+            this.name = name;
+            this.timer = timer;
+            this.payload = payload;
+        }
+
+        /**
+         * Registra una llamada exitosa.
+         *
+         * @param startNanos  Valor de `System.nanoTime()` al inicio de la llamada.
+         * @param payloadSize Tamaño de los datos procesados.
+         */
+        public void success(long startNanos, long payloadSize) {
+            timer.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+            payload.record(payloadSize);
+        }
+
+        /**
+         * Registra una llamada fallida. El contador de cada tipo de excepción se crea la primera vez.
+         *
+         * @param startNanos Valor de `System.nanoTime()` al inicio de la llamada.
+         * @param error      Excepción producida.
+         */
+        public void failure(long startNanos, Throwable error) {
+            timer.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+            Counter counter = failures.get(error.getClass());
+            if (counter == null) {
+                counter = failures.computeIfAbsent(error.getClass(), type -> Counter.builder("ciberapp.protection.failures")
+                        .description("Errores de las operaciones de protección de datos")
+                        .tag("operation", name)
+                        .tag("exception", type.getSimpleName())
+                        .register(registry));
+            }
+            counter.increment();
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.rsec.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+/**
+ * Punto de control de la importación masiva de usuarios.
+ * Se guarda en la misma transacción que cada lote de usuarios importados y después de sincronizar
+ * el archivo de rechazos, por lo que tras una interrupción la importación continúa desde la primera
+ * línea sin confirmar, sin duplicar usuarios ni rechazos.
+ */
+@Entity
+@Table(name = "import_checkpoint")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ImportCheckpoint {
+
+    /**
+     * Nombre del trabajo.
+     */
+    @Id
+    @Column(length = 64)
+    private String job;
+
+    /**
+     * Ruta del archivo importado, su formato y su tamaño al iniciar la importación.
+     */
+    @Column(length = 1024)
+    private String file;
+    @Column(length = 16)
+    private String format;
+    private long fileSize;
+
+    /**
+     * Posición en bytes y número de la última línea confirmada; la importación continúa desde `offset`.
+     */
+    private long offset;
+    private long line;
+
+    /**
+     * Usuarios importados y filas rechazadas en la ejecución actual.
+     */
+    private long imported;
+    private long rejected;
+
+    /**
+     * Tamaño del archivo de rechazos confirmado; al reanudar se descarta lo escrito después.
+     */
+    private long rejectsSize;
+
+    /**
+     * Indica si la importación terminó de leer el archivo.
+     */
+    private boolean completed;
+
+    private Instant startedAt;
+    private Instant updatedAt;
+}
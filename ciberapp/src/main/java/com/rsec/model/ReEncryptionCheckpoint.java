@@ -0,0 +1,51 @@
+package com.rsec.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+/**
+ * Punto de control del trabajo de re-cifrado tras una rotación de claves.
+ * Se guarda en la misma transacción que cada fragmento de usuarios re-cifrados, por lo que
+ * después de una caída el trabajo continúa desde el último fragmento confirmado.
+ */
+@Entity
+@Table(name = "reencryption_checkpoint")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReEncryptionCheckpoint {
+
+    /**
+     * Nombre del trabajo.
+     */
+    @Id
+    @Column(length = 64)
+    private String job;
+
+    /**
+     * Identificador del último usuario procesado.
+     */
+    private long lastId;
+
+    /**
+     * Usuarios procesados, re-cifrados y con error en la ejecución actual.
+     */
+    private long processed;
+    private long reEncrypted;
+    private long failed;
+
+    /**
+     * Indica si la ejecución terminó de recorrer la tabla.
+     */
+    private boolean completed;
+
+    private Instant startedAt;
+    private Instant updatedAt;
+}
@@ -1,9 +1,14 @@
 package com.rsec.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+
+import java.util.Base64;
 
 /**
  * Entidad que representa un usuario en el sistema.
@@ -13,24 +18,54 @@ import lombok.NoArgsConstructor;
  * @author marco vences
  */
 @Entity
+@Table(name = "usuario", indexes = {
+        @Index(name = "ux_usuario_username_bidx", columnList = "username_bidx", unique = true),
+        @Index(name = "ux_usuario_email_bidx", columnList = "email_bidx", unique = true)
+})
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = Usuario.CACHE_REGION)
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 public class Usuario {
 
+    /**
+     * Región de la caché de segundo nivel de Hibernate donde se guardan los usuarios
+     * (ver `EntityCacheConfig`).
+     */
+    public static final String CACHE_REGION = "usuario";
+
+    /**
+     * Longitud máxima de las columnas binarias. Cubre los tres campos con su tamaño máximo
+     * de columna (255 caracteres) codificados en UTF-8, más el IV, la cabecera y el tag.
+     */
+    public static final int MAX_BINARY_LENGTH = 4096;
+
     /**
      * Identificador único del usuario.
-     * Generado automáticamente por la base de datos.
+     * Se obtiene de una secuencia con optimizador "pooled": Hibernate reserva bloques de
+     * identificadores, lo que evita una consulta por inserción y permite agrupar las
+     * inserciones en batches JDBC (IDENTITY lo impide).
      */
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "usuario_seq")
+    @SequenceGenerator(name = "usuario_seq", sequenceName = "usuario_seq", allocationSize = 50)
     private Long id;
 
     /**
-     * Nombre de usuario.
-     * Debe ser único y no puede ser nulo. Esta restricción se aplica a nivel de base de datos.
+     * Versión del registro, incrementada por Hibernate en cada actualización.
+     * Se usa para el bloqueo optimista y para calcular el ETag de `GET /users/{id}`.
      */
-    @Column(nullable = false, unique = true)
+    @JsonIgnore
+    @Version
+    private Long version;
+
+    /**
+     * Nombre de usuario, enmascarado.
+     * No puede ser nulo. La unicidad se aplica sobre `usernameIndex`, ya que dos nombres
+     * distintos pueden producir el mismo valor enmascarado.
+     */
+    @Column(nullable = false)
     private String username;
 
     /**
@@ -41,15 +76,36 @@ public class Usuario {
     private String name;
 
     /**
-     * Correo electrónico del usuario.
-     * Debe ser único y no puede ser nulo. Esta restricción se aplica a nivel de base de datos.
+     * Correo electrónico del usuario, enmascarado.
+     * No puede ser nulo. La unicidad se aplica sobre `emailIndex`, ya que dos correos
+     * distintos pueden producir el mismo valor enmascarado.
      */
-    @Column(nullable = false, unique = true)
+    @Column(nullable = false)
     private String email;
 
     /**
-     * Datos sensibles cifrados asociados al usuario.
+     * Índice ciego del nombre de usuario: HMAC-SHA256 del valor original normalizado.
+     * Debe ser único; permite buscar por nombre de usuario con una sola consulta al índice,
+     * sin descifrar los datos.
+     */
+    @JsonIgnore
+    @Column(name = "username_bidx", length = 32)
+    private byte[] usernameIndex;
+
+    /**
+     * Índice ciego del correo electrónico: HMAC-SHA256 del valor original normalizado.
+     * Debe ser único; permite buscar por correo con una sola consulta al índice,
+     * sin descifrar los datos.
+     */
+    @JsonIgnore
+    @Column(name = "email_bidx", length = 32)
+    private byte[] emailIndex;
+
+    /**
+     * Datos sensibles cifrados asociados al usuario, en Base64.
      * Se almacenan en formato de gran objeto (LOB) para manejar cadenas de gran tamaño.
+     * Solo se utiliza en el modo de almacenamiento de texto y en filas aún no migradas;
+     * en el modo binario los datos se guardan en `cipherBytes`.
      */
     @Lob
     private String cipherData;
@@ -57,7 +113,58 @@ public class Usuario {
     /**
      * Token generado para el usuario.
      * Almacena información en formato de gran objeto (LOB).
+     * Solo se utiliza en el modo de almacenamiento de texto y en filas aún no migradas;
+     * en el modo binario el token se guarda en `tokenBytes`.
      */
     @Lob
     private String token;
+
+    /**
+     * Datos cifrados en binario (IV y texto cifrado), sin codificar en Base64.
+     */
+    @JsonIgnore
+    @Column(name = "cipher_bin", length = MAX_BINARY_LENGTH)
+    private byte[] cipherBytes;
+
+    /**
+     * Token en binario, sin codificar en Base64.
+     */
+    @JsonIgnore
+    @Column(name = "token_bin", length = MAX_BINARY_LENGTH)
+    private byte[] tokenBytes;
+
+    /**
+     * Obtiene los datos cifrados en Base64. En el modo binario la codificación se realiza
+     * únicamente aquí, al construir la respuesta HTTP.
+     *
+     * @return Datos cifrados en Base64, o `null` si el usuario no tiene datos cifrados.
+     */
+    public String getCipherData() {
+        if (cipherData != null || cipherBytes == null) {
+            return cipherData;
+        }
+        return Base64.getEncoder().encodeToString(cipherBytes);
+    }
+
+    /**
+     * Obtiene el token en texto. En el modo binario se codifica en Base64 URL-safe
+     * únicamente aquí, al construir la respuesta HTTP.
+     *
+     * @return El token, o `null` si el usuario no tiene token.
+     */
+    public String getToken() {
+        if (token != null || tokenBytes == null) {
+            return token;
+        }
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(tokenBytes);
+    }
+
+    /**
+     * Borra el identificador y la versión, por ejemplo los asignados en una transacción revertida,
+     * para que el usuario vuelva a insertarse como nuevo en lugar de fusionarse.
+     */
+    public void resetIdentity() {
+        this.id = null;
+        this.version = null;
+    }
 }
@@ -0,0 +1,15 @@
+package com.rsec.repository;
+
+import com.rsec.model.ImportCheckpoint;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.rest.core.annotation.RepositoryRestResource;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Repositorio de los puntos de control de la importación masiva de usuarios.
+ * No se expone mediante Spring Data REST: la importación se controla desde `/users/import`.
+ */
+@Repository
+@RepositoryRestResource(exported = false)
+public interface ImportCheckpointRepository extends JpaRepository<ImportCheckpoint, String> {
+}
@@ -0,0 +1,15 @@
+package com.rsec.repository;
+
+import com.rsec.model.ReEncryptionCheckpoint;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.rest.core.annotation.RepositoryRestResource;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Repositorio de los puntos de control del trabajo de re-cifrado.
+ * No se expone mediante Spring Data REST: el trabajo se controla desde `/diagnostics/reencryption`.
+ */
+@Repository
+@RepositoryRestResource(exported = false)
+public interface ReEncryptionCheckpointRepository extends JpaRepository<ReEncryptionCheckpoint, String> {
+}
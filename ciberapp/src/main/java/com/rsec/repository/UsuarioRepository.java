@@ -1,9 +1,20 @@
 package com.rsec.repository;
 
 import com.rsec.model.Usuario;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
 /**
  * Repositorio para la entidad `Usuario`.
  * Extiende la interfaz `JpaRepository` para proporcionar métodos estándar de persistencia
@@ -14,4 +25,98 @@ import org.springframework.stereotype.Repository;
 @Repository
 public interface UsuarioRepository extends JpaRepository<Usuario, Long> {
     // Los métodos básicos de persistencia son proporcionados automáticamente por JpaRepository.
+
+    /**
+     * Busca un usuario por su identificador, devolviendo la vista indicada.
+     * Con una proyección como {@link UsuarioSummary} solo se leen las columnas de la proyección.
+     *
+     * @param id   Identificador del usuario.
+     * @param type Clase de la vista: `Usuario` o una proyección.
+     * @param <T>  Tipo de la vista.
+     * @return El usuario, si existe.
+     */
+    <T> Optional<T> findProjectedById(Long id, Class<T> type);
+
+    /**
+     * Busca un usuario por el índice ciego de su nombre de usuario.
+     *
+     * @param usernameIndex Índice ciego calculado por `BlindIndexService`.
+     * @param type          Clase de la vista: `Usuario` o una proyección.
+     * @param <T>           Tipo de la vista.
+     * @return El usuario, si existe.
+     */
+    <T> Optional<T> findByUsernameIndex(byte[] usernameIndex, Class<T> type);
+
+    /**
+     * Busca un usuario por el índice ciego de su correo electrónico.
+     *
+     * @param emailIndex Índice ciego calculado por `BlindIndexService`.
+     * @param type       Clase de la vista: `Usuario` o una proyección.
+     * @param <T>        Tipo de la vista.
+     * @return El usuario, si existe.
+     */
+    <T> Optional<T> findByEmailIndex(byte[] emailIndex, Class<T> type);
+
+    /**
+     * Obtiene la siguiente página de usuarios usando paginación por cursor (keyset):
+     * los usuarios con identificador mayor que `id`, ordenados por identificador.
+     * A diferencia de `OFFSET`, el costo no crece con el número de páginas recorridas.
+     * Como también se usa para recorrer toda la tabla (re-cifrado), los usuarios leídos no se
+     * guardan en la caché de segundo nivel, para no desplazar los de `GET /users/{id}`.
+     *
+     * @param id    Último identificador de la página anterior.
+     * @param limit Número máximo de usuarios a devolver.
+     * @param type  Clase de la vista: `Usuario` o una proyección.
+     * @param <T>   Tipo de la vista.
+     * @return Usuarios de la página, ordenados por identificador.
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHE_MODE, value = "IGNORE"))
+    <T> List<T> findByIdGreaterThanOrderByIdAsc(Long id, Limit limit, Class<T> type);
+
+    /**
+     * Cuenta los usuarios con identificador mayor que `id`.
+     *
+     * @param id Último identificador procesado.
+     * @return Número de usuarios pendientes.
+     */
+    long countByIdGreaterThan(Long id);
+
+    /**
+     * Obtiene los usuarios que aún guardan los datos cifrados o el token como texto Base64,
+     * para migrarlos a las columnas binarias. Los usuarios leídos no se guardan en la caché de
+     * segundo nivel.
+     *
+     * @param id       Último identificador del fragmento anterior.
+     * @param pageable Tamaño del fragmento.
+     * @return Usuarios con datos en formato de texto, ordenados por identificador.
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHE_MODE, value = "IGNORE"))
+    @Query("select u from Usuario u where u.id > :id and (u.cipherData is not null or u.token is not null) order by u.id")
+    List<Usuario> findTextStoredAfter(@Param("id") Long id, Pageable pageable);
+
+    /**
+     * Recorre todos los usuarios ordenados por identificador, leyendo las filas de la base
+     * de datos en bloques de tamaño `fetchSize` en lugar de cargarlas todas en memoria.
+     * Debe consumirse dentro de una transacción y cerrarse al terminar. Los usuarios leídos no
+     * se guardan en la caché de segundo nivel.
+     *
+     * @return Flujo de usuarios.
+     */
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_MODE, value = "IGNORE")
+    })
+    @Query("select u from Usuario u order by u.id")
+    Stream<Usuario> streamAll();
+
+    /**
+     * Recorre la vista resumida de todos los usuarios ordenados por identificador. Solo se leen
+     * las columnas de {@link UsuarioSummary}; los datos cifrados y el token no se cargan.
+     * Debe consumirse dentro de una transacción y cerrarse al terminar.
+     *
+     * @return Flujo de resúmenes de usuario.
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("select u.id as id, u.username as username, u.name as name, u.email as email, u.version as version from Usuario u order by u.id")
+    Stream<UsuarioSummary> streamAllSummaries();
 }
@@ -0,0 +1,25 @@
+package com.rsec.repository;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+/**
+ * Vista resumida de un usuario: identificador y datos enmascarados.
+ * Se utiliza como proyección en `UsuarioRepository`, por lo que las consultas que la devuelven
+ * no leen las columnas de datos cifrados ni del token.
+ */
+public interface UsuarioSummary {
+
+    Long getId();
+
+    String getUsername();
+
+    String getName();
+
+    String getEmail();
+
+    /**
+     * Versión del registro; no se incluye en el JSON, solo se usa para calcular el ETag.
+     */
+    @JsonIgnore
+    Long getVersion();
+}
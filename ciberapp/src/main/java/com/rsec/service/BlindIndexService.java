@@ -0,0 +1,84 @@
+package com.rsec.service;
+
+import com.rsec.service.keys.KeyProvider;
+import com.rsec.service.keys.KeyPurpose;
+import org.springframework.stereotype.Service;
+import javax.crypto.SecretKey;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.util.Locale;
+
+/**
+ * Servicio para calcular índices ciegos (blind indexes) del nombre de usuario y del correo.
+ *
+ * Un índice ciego es el HMAC-SHA256 del valor original normalizado con una clave secreta propia.
+ * Al guardarse en una columna indexada permite buscar un usuario por su valor real con una sola
+ * consulta al índice, sin descifrar ningún registro y sin guardar el valor en claro. Sin la clave
+ * no es posible calcular el índice de un valor candidato, por lo que se guarda en el almacén de
+ * claves (`blind-index-1`) y no en la configuración.
+ *
+ * La clave no rota: los índices guardados no se recalculan, así que siempre se usa `blind-index-1`
+ * y el almacén de claves rechaza cualquier otro identificador.
+ */
+@Service
+public class BlindIndexService {
+
+    private static final byte USERNAME_DOMAIN = 'u';
+    private static final byte EMAIL_DOMAIN = 'e';
+    private static final int KEY_ID = 1;
+
+    private final CryptoEngine cryptoEngine;
+    private final KeyProvider keyProvider;
+
+    /**
+     * Constructor del servicio.
+     *
+     * @param cryptoEngine Motor criptográfico compartido.
+     * @param keyProvider  Proveedor de la clave HMAC (uso `blind-index`).
+     */
+    public BlindIndexService(CryptoEngine cryptoEngine, KeyProvider keyProvider) {
+        this.cryptoEngine = cryptoEngine;
+        this.keyProvider = keyProvider;
+    }
+
+    /**
+     * Calcula el índice ciego de un nombre de usuario. Se ignoran los espacios al inicio y al final.
+     *
+     * @param username Nombre de usuario en claro.
+     * @return El índice ciego de 32 bytes.
+     */
+    public byte[] usernameIndex(String username) {
+        return index(USERNAME_DOMAIN, username.strip());
+    }
+
+    /**
+     * Calcula el índice ciego de un correo electrónico. Se ignoran los espacios al inicio y al final
+     * y las diferencias entre mayúsculas y minúsculas.
+     *
+     * @param email Correo electrónico en claro.
+     * @return El índice ciego de 32 bytes.
+     */
+    public byte[] emailIndex(String email) {
+        return index(EMAIL_DOMAIN, email.strip().toLowerCase(Locale.ROOT));
+    }
+
+    /**
+     * Calcula el HMAC del valor precedido por un byte de dominio, para que un mismo texto
+     * produzca índices distintos como nombre de usuario y como correo.
+     */
+    private byte[] index(byte domain, String value) {
+        byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+        byte[] input = new byte[utf8.length + 1];
+        input[0] = domain;
+        System.arraycopy(utf8, 0, input, 1, utf8.length);
+        SecretKey key = keyProvider.key(KeyPurpose.BLIND_INDEX, KEY_ID);
+        if (key == null) {
+            throw new IllegalStateException("No existe la clave " + KeyPurpose.BLIND_INDEX.alias() + "-" + KEY_ID + ".");
+        }
+        try {
+            return cryptoEngine.hmacSha256(key, input);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Error al calcular el índice ciego", e);
+        }
+    }
+}
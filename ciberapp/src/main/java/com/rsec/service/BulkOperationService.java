@@ -0,0 +1,113 @@
+package com.rsec.service;
+
+import com.rsec.dto.BulkItemResult;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Servicio que ejecuta operaciones masivas (descifrado y detokenización) en paralelo.
+ *
+ * Cada elemento se procesa en un hilo virtual, o en un pool de hilos de plataforma si
+ * `ciberapp.bulk.virtual-threads` es `false`. Un semáforo global limita el número de
+ * elementos en proceso a `ciberapp.bulk.concurrency`, para todas las solicitudes a la vez.
+ * Los resultados se devuelven en el orden de entrada y un elemento con error no hace
+ * fallar la solicitud completa.
+ */
+@Service
+public class BulkOperationService {
+
+    private final ExecutorService executor;
+    private final Semaphore permits;
+    private final int maxItems;
+
+    /**
+     * Operación a aplicar sobre cada elemento.
+     *
+     * @param <T> Tipo del resultado.
+     */
+    @FunctionalInterface
+    public interface BulkFunction<T> {
+        T apply(String input) throws Exception;
+    }
+
+    public BulkOperationService(@Value("${ciberapp.bulk.virtual-threads:true}") boolean virtualThreads,
+                                @Value("${ciberapp.bulk.concurrency:0}") int concurrency,
+                                @Value("${ciberapp.bulk.max-items:10000}") int maxItems) {
+        int limit = concurrency > 0 ? concurrency : Runtime.getRuntime().availableProcessors() * 2;
+        this.executor = virtualThreads
+                ? Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("bulk-", 0).factory())
+                : Executors.newFixedThreadPool(limit);
+        this.permits = new Semaphore(limit);
+        this.maxItems = maxItems;
+    }
+
+    /**
+     * Aplica la operación a cada elemento en paralelo.
+     *
+     * @param inputs   Elementos de entrada.
+     * @param function Operación a aplicar.
+     * @param <T>      Tipo del resultado.
+     * @return Un resultado por elemento, en el mismo orden que la entrada.
+     */
+    public <T> List<BulkItemResult<T>> process(List<String> inputs, BulkFunction<T> function) {
+        if (inputs == null || inputs.isEmpty()) {
+            throw new IllegalArgumentException("La lista de elementos no puede estar vacía.");
+        }
+        if (inputs.size() > maxItems) {
+            throw new IllegalArgumentException("La solicitud excede el máximo de " + maxItems + " elementos.");
+        }
+
+        List<Future<T>> futures = new ArrayList<>(inputs.size());
+        try {
+            for (String input : inputs) {
+                permits.acquire(); // Espera si se alcanzó el límite global de concurrencia
+                try {
+                    futures.add(executor.submit(() -> {
+                        try {
+                            if (input == null || input.isEmpty()) {
+                                throw new IllegalArgumentException("El valor no puede estar vacío.");
+                            }
+                            return function.apply(input);
+                        } finally {
+                            permits.release();
+                        }
+                    }));
+                } catch (RuntimeException e) {
+                    permits.release();
+                    throw e;
+                }
+            }
+        } catch (InterruptedException e) {
+            futures.forEach(f -> f.cancel(true));
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("La operación masiva fue interrumpida.", e);
+        }
+
+        List<BulkItemResult<T>> results = new ArrayList<>(futures.size());
+        for (int i = 0; i < futures.size(); i++) {
+            try {
+                results.add(new BulkItemResult<>(i, futures.get(i).get(), null));
+            } catch (ExecutionException e) {
+                results.add(new BulkItemResult<>(i, null, e.getCause().getMessage()));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("La operación masiva fue interrumpida.", e);
+            }
+        }
+        return results;
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdown();
+    }
+}
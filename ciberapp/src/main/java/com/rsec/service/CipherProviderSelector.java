@@ -0,0 +1,261 @@
+package com.rsec.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.composite.CompositeMeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import javax.crypto.Cipher;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.security.GeneralSecurityException;
+import java.security.Provider;
+import java.security.Security;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Elige el proveedor JCE con el que `CipherService`, `StreamingCipherService` y `TokenService`
+ * ejecutan AES/GCM/NoPadding.
+ *
+ * Con `ciberapp.crypto.provider=auto` se mide al arrancar, durante `ciberapp.crypto.calibration.duration`
+ * por proveedor, el rendimiento de cifrar y descifrar bloques de `ciberapp.crypto.calibration.payload-size`
+ * con cada proveedor instalado que ofrezca la transformación, y se usa el más rápido. Con un nombre de
+ * proveedor (`SunJCE`, `BC`...) se usa ese y no se mide nada.
+ *
+ * AES-GCM es determinista para una clave, un IV y un AAD dados, así que un proveedor solo se acepta si
+ * produce exactamente el mismo texto cifrado que el proveedor de referencia (`BC`, con el que se cifraron
+ * los datos existentes) y descifra el de este. Así los datos guardados se siguen descifrando al cambiar
+ * de proveedor y no es necesario ningún cambio de formato.
+ */
+@Component
+public class CipherProviderSelector {
+
+    private static final Logger logger = LoggerFactory.getLogger(CipherProviderSelector.class);
+
+    public static final String AUTO = "auto";
+    private static final String REFERENCE_PROVIDER = "BC";
+    private static final int WARMUP_ROUNDS = 1;
+
+    /**
+     * Resultado de la calibración de un proveedor.
+     *
+     * @param provider         Nombre del proveedor.
+     * @param compatible       `true` si su texto cifrado coincide con el del proveedor de referencia.
+     * @param operationsPerSec Cifrados más descifrados por segundo; cero si no se midió.
+     * @param megabytesPerSec  Megabytes por segundo procesados; cero si no se midió.
+     * @param error            Motivo por el que se descartó, o `null`.
+     */
+    public record Calibration(String provider, boolean compatible, double operationsPerSec, double megabytesPerSec,
+                              String error) {
+    }
+
+    private final String mode;
+    private final String provider;
+    private final List<Calibration> calibrations;
+    private final Instant selectedAt = Instant.now();
+
+    /**
+     * Constructor del selector. Ejecuta la calibración si el modo es `auto`.
+     *
+     * @param cryptoEngine Motor criptográfico; se inyecta para que BouncyCastle ya esté registrado.
+     * @param mode         `auto` o el nombre del proveedor a usar.
+     * @param duration     Tiempo de medición de cada proveedor.
+     * @param payloadSize  Tamaño de los datos cifrados en cada operación de la medición.
+     * @param registry     Registro de métricas.
+     * @throws IllegalStateException Si el proveedor indicado no existe o no es compatible.
+     */
+    public CipherProviderSelector(CryptoEngine cryptoEngine,
+                                  @Value("${ciberapp.crypto.provider:auto}") String mode,
+                                  @Value("${ciberapp.crypto.calibration.duration:200ms}") Duration duration,
+                                  @Value("${ciberapp.crypto.calibration.payload-size:1KB}") DataSize payloadSize,
+                                  MeterRegistry registry) {
+        this.mode = mode.strip();
+        byte[] reference = referenceCiphertext();
+
+        List<Calibration> results = new ArrayList<>();
+        if (AUTO.equalsIgnoreCase(this.mode)) {
+            for (Provider candidate : Security.getProviders()) {
+                if (candidate.getService("Cipher", "AES") == null
+                        && candidate.getService("Cipher", CryptoEngine.TRANSFORMATION) == null) {
+                    continue;
+                }
+                results.add(calibrate(candidate.getName(), reference, duration, (int) payloadSize.toBytes()));
+            }
+            this.provider = results.stream()
+                    .filter(Calibration::compatible)
+                    .max((a, b) -> Double.compare(a.operationsPerSec(), b.operationsPerSec()))
+                    .map(Calibration::provider)
+                    .orElse(REFERENCE_PROVIDER);
+        } else {
+            String error = Security.getProvider(this.mode) == null
+                    ? "El proveedor no está instalado."
+                    : checkCompatibility(this.mode, reference);
+            if (error != null) {
+                throw new IllegalStateException("ciberapp.crypto.provider=" + this.mode + " no es utilizable: " + error);
+            }
+            results.add(new Calibration(this.mode, true, 0, 0, null));
+            this.provider = this.mode;
+        }
+        this.calibrations = Collections.unmodifiableList(results);
+
+        for (Calibration calibration : calibrations) {
+            if (calibration.compatible() && calibration.megabytesPerSec() > 0) {
+                Gauge.builder("ciberapp.crypto.provider.throughput", calibration, Calibration::megabytesPerSec)
+                        .description("MB/s de AES-GCM medidos al arrancar")
+                        .baseUnit("megabytes")
+                        .tag("provider", calibration.provider())
+                        .tag("selected", String.valueOf(calibration.provider().equals(provider)))
+                        .register(registry);
+            }
+        }
+        logger.info("Proveedor AES-GCM: {} (modo {}, calibración {})", provider, this.mode, calibrations);
+    }
+
+    /**
+     * Selector sin registro de métricas, con la duración y el tamaño de calibración por defecto,
+     * para los benchmarks y herramientas que crean los servicios sin Spring.
+     *
+     * @param cryptoEngine Motor criptográfico.
+     * @param mode         `auto` o el nombre del proveedor a usar.
+     * @return El selector, ya calibrado si el modo es `auto`.
+     */
+    public static CipherProviderSelector of(CryptoEngine cryptoEngine, String mode) {
+        return new CipherProviderSelector(cryptoEngine, mode, Duration.ofMillis(200), DataSize.ofKilobytes(1),
+                new CompositeMeterRegistry());
+    }
+
+    /**
+     * @return Nombre del proveedor JCE elegido.
+     */
+    public String provider() {
+        return provider;
+    }
+
+    /**
+     * @return Modo de selección, el proveedor elegido y el resultado de la calibración de cada proveedor.
+     */
+    public Map<String, Object> report() {
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("mode", mode);
+        body.put("provider", provider);
+        body.put("referenceProvider", REFERENCE_PROVIDER);
+        body.put("selectedAt", selectedAt.toString());
+        body.put("calibrations", calibrations);
+        return body;
+    }
+
+    private static Calibration calibrate(String name, byte[] reference, Duration duration, int payloadSize) {
+        String error = checkCompatibility(name, reference);
+        if (error != null) {
+            return new Calibration(name, false, 0, 0, error);
+        }
+        try {
+            Cipher cipher = Cipher.getInstance(CryptoEngine.TRANSFORMATION, name);
+            SecretKey key = vectorKey();
+            byte[] iv = new byte[CryptoEngine.IV_SIZE];
+            byte[] plaintext = new byte[payloadSize];
+            byte[] encrypted = new byte[payloadSize + CryptoEngine.TAG_SIZE / 8];
+            byte[] decrypted = new byte[payloadSize];
+
+            long measureNanos = duration.toNanos();
+            for (int round = 0; round <= WARMUP_ROUNDS; round++) {
+                long operations = 0;
+                long start = System.nanoTime();
+                long elapsed;
+                do {
+                    // Un IV distinto en cada operación, ya que GCM rechaza reutilizarlo al cifrar
+                    iv[0]++;
+                    if (iv[0] == 0) {
+                        iv[1]++;
+                    }
+                    cipher.init(Cipher.ENCRYPT_MODE, key, new GCMParameterSpec(CryptoEngine.TAG_SIZE, iv));
+                    int length = cipher.doFinal(plaintext, 0, payloadSize, encrypted, 0);
+                    cipher.init(Cipher.DECRYPT_MODE, key, new GCMParameterSpec(CryptoEngine.TAG_SIZE, iv));
+                    cipher.doFinal(encrypted, 0, length, decrypted, 0);
+                    operations += 2;
+                    elapsed = System.nanoTime() - start;
+                } while (elapsed < measureNanos);
+                if (round == WARMUP_ROUNDS) {
+                    double seconds = elapsed / 1e9;
+                    return new Calibration(name, true, operations / seconds,
+                            operations * (double) payloadSize / seconds / (1024 * 1024), null);
+                }
+            }
+            throw new IllegalStateException();
+        } catch (GeneralSecurityException | RuntimeException e) {
+            return new Calibration(name, false, 0, 0, e.toString());
+        }
+    }
+
+    /**
+     * Comprueba que el proveedor cifra igual que el de referencia y descifra su texto cifrado.
+     *
+     * @return `null` si es compatible, o el motivo por el que no lo es.
+     */
+    private static String checkCompatibility(String name, byte[] reference) {
+        try {
+            byte[] encrypted = vectorCipher(name, Cipher.ENCRYPT_MODE).doFinal(vectorPlaintext());
+            if (!Arrays.equals(encrypted, reference)) {
+                return "El texto cifrado no coincide con el de " + REFERENCE_PROVIDER + ".";
+            }
+            if (!Arrays.equals(vectorCipher(name, Cipher.DECRYPT_MODE).doFinal(reference), vectorPlaintext())) {
+                return "No descifra el texto cifrado de " + REFERENCE_PROVIDER + ".";
+            }
+            return null;
+        } catch (GeneralSecurityException | RuntimeException e) {
+            return e.toString();
+        }
+    }
+
+    private static byte[] referenceCiphertext() {
+        try {
+            return vectorCipher(REFERENCE_PROVIDER, Cipher.ENCRYPT_MODE).doFinal(vectorPlaintext());
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("El proveedor de referencia " + REFERENCE_PROVIDER + " no está disponible.", e);
+        }
+    }
+
+    /**
+     * Vector de prueba con los mismos tamaños que los datos reales: clave de 256 bits, IV de 12 bytes,
+     * tag de 128 bits y una cabecera autenticada. El texto en claro supera varios bloques AES para
+     * cubrir también el contador de GCM.
+     */
+    private static Cipher vectorCipher(String name, int mode) throws GeneralSecurityException {
+        byte[] iv = new byte[CryptoEngine.IV_SIZE];
+        for (int i = 0; i < iv.length; i++) {
+            iv[i] = (byte) (0xC0 + i);
+        }
+        Cipher cipher = Cipher.getInstance(CryptoEngine.TRANSFORMATION, name);
+        cipher.init(mode, vectorKey(), new GCMParameterSpec(CryptoEngine.TAG_SIZE, iv));
+        cipher.updateAAD(new byte[]{1, 1});
+        return cipher;
+    }
+
+    private static SecretKey vectorKey() {
+        byte[] key = new byte[32];
+        for (int i = 0; i < key.length; i++) {
+            key[i] = (byte) i;
+        }
+        return new SecretKeySpec(key, "AES");
+    }
+
+    private static byte[] vectorPlaintext() {
+        byte[] plaintext = new byte[100];
+        for (int i = 0; i < plaintext.length; i++) {
+            plaintext[i] = (byte) (i * 7);
+        }
+        return plaintext;
+    }
+}
@@ -1,45 +1,98 @@
 package com.rsec.service;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
-import org.bouncycastle.jce.provider.BouncyCastleProvider;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.rsec.metrics.ProtectionMetrics;
+import com.rsec.service.keys.ActiveKey;
+import com.rsec.service.keys.DataKeyService;
+import com.rsec.service.keys.KeyProvider;
+import com.rsec.service.keys.KeyPurpose;
 import org.springframework.stereotype.Service;
-import javax.crypto.Cipher;
-import javax.crypto.KeyGenerator;
 import javax.crypto.SecretKey;
-import javax.crypto.spec.GCMParameterSpec;
-import java.security.Security;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
 import java.util.Base64;
-import java.util.HashMap;
 import java.util.Map;
 
 /**
  * Servicio para el cifrado y descifrado de datos sensibles utilizando el algoritmo AES en modo GCM.
  * Utiliza el proveedor de seguridad BouncyCastle para proporcionar soporte avanzado de cifrado.
+ * Las claves se obtienen del {@link KeyProvider} (uso `cipher`): los datos nuevos se cifran con
+ * la clave activa y su identificador se escribe en la cabecera, de modo que cualquier nodo con
+ * el mismo almacén de claves puede descifrarlos, también después de una rotación.
+ * Las instancias de `Cipher`, el generador aleatorio y el `ObjectMapper` se obtienen del
+ * {@link CryptoEngine} compartido.
+ *
+ * Los nuevos datos cifrados tienen el formato `[versión (1 byte)][id de clave (1 byte)][IV][AES-GCM(campos)]`,
+ * con los campos en la representación canónica de {@link FieldCodec} y la cabecera autenticada como AAD.
+ * Los datos anteriores, `[IV][AES-GCM(JSON)]`, se siguen aceptando al descifrar. En ambos casos el
+ * descifrado devuelve el mismo JSON `{"username":...,"email":...,"name":...}`.
+ *
+ * Con `ciberapp.envelope.enabled=true` los datos nuevos se cifran por sobre (envelope encryption)
+ * con una clave de datos del {@link DataKeyService}, que viaja cifrada con la clave maestra:
+ * `[versión 2][longitud (1 byte)][clave de datos cifrada][IV][AES-GCM(campos)]`, con todo lo anterior
+ * al IV autenticado como AAD.
  *
  * @author marco vences
  */
 @Service
 public class CipherService {
 
+    private static final TypeReference<Map<String, String>> MAP_TYPE = new TypeReference<>() {};
+
+    private static final byte FORMAT_CANONICAL_V1 = 1; // Versión del formato con campos canónicos
+    private static final byte FORMAT_ENVELOPE_V2 = 2; // Versión del formato con cifrado por sobre
+    private static final int LEGACY_KEY_ID = 1; // Clave de los datos sin cabecera
+
     /**
-     * Clave secreta utilizada para las operaciones de cifrado y descifrado.
+     * Proveedor JCE de AES-GCM elegido por {@link CipherProviderSelector}.
      */
-    private final SecretKey secretKey;
+    private final String provider;
 
-    // Inicialización del proveedor de seguridad de BouncyCastle
-    static {
-        Security.addProvider(new BouncyCastleProvider());
-    }
+    /**
+     * Proveedor de las claves de cifrado y descifrado.
+     */
+    private final KeyProvider keyProvider;
+
+    /**
+     * Claves de datos del cifrado por sobre.
+     */
+    private final DataKeyService dataKeyService;
+
+    /**
+     * Motor criptográfico compartido.
+     */
+    private final CryptoEngine cryptoEngine;
+
+    /**
+     * Caché opcional de datos ya descifrados.
+     */
+    private final PlaintextCache plaintextCache;
+
+    /**
+     * Métricas de cifrado y descifrado.
+     */
+    private final ProtectionMetrics.Operation encryptMetrics;
+    private final ProtectionMetrics.Operation decryptMetrics;
 
     /**
-     * Constructor que genera una clave secreta para AES con un tamaño de 256 bits.
+     * Constructor del servicio.
      *
-     * @throws Exception Si ocurre algún error durante la generación de la clave.
+     * @param cryptoEngine   Motor criptográfico compartido.
+     * @param plaintextCache Caché opcional de resultados de descifrado.
+     * @param metrics        Métricas de las operaciones de protección.
+     * @param keyProvider    Proveedor de las claves de cifrado.
+     * @param dataKeyService Claves de datos del cifrado por sobre.
+     * @param providers      Selector del proveedor JCE de AES-GCM.
      */
-    public CipherService() throws Exception {
-        KeyGenerator keyGenerator = KeyGenerator.getInstance("AES", "BC");
-        keyGenerator.init(256); // Tamaño de la clave de 256 bits
-        this.secretKey = keyGenerator.generateKey();
+    public CipherService(CryptoEngine cryptoEngine, PlaintextCache plaintextCache, ProtectionMetrics metrics,
+                         KeyProvider keyProvider, DataKeyService dataKeyService, CipherProviderSelector providers) {
+        this.cryptoEngine = cryptoEngine;
+        this.provider = providers.provider();
+        this.plaintextCache = plaintextCache;
+        this.keyProvider = keyProvider;
+        this.dataKeyService = dataKeyService;
+        this.encryptMetrics = metrics.operation("cipher.encrypt");
+        this.decryptMetrics = metrics.operation("cipher.decrypt");
     }
 
     /**
@@ -52,35 +105,66 @@ public class CipherService {
      * @throws Exception Si ocurre algún error durante el proceso de cifrado.
      */
     public String encrypt(String username, String email, String name) throws Exception {
-        // Crear un mapa con los campos a cifrar
-        Map<String, String> dataMap = new HashMap<>();
-        dataMap.put("username", username);
-        dataMap.put("email", email);
-        dataMap.put("name", name);
-
-        // Convertir el mapa en un JSON
-        ObjectMapper objectMapper = new ObjectMapper();
-        String jsonData = objectMapper.writeValueAsString(dataMap);
-
-        // Generar un IV aleatorio (12 bytes recomendado para GCM)
-        byte[] iv = new byte[12];
-        new java.security.SecureRandom().nextBytes(iv);
-
-        // Inicializar el cifrado AES/GCM
-        Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding", "BC");
-        GCMParameterSpec spec = new GCMParameterSpec(128, iv); // 128 bits de tag size
-        cipher.init(Cipher.ENCRYPT_MODE, secretKey, spec);
-
-        // Cifrar los datos
-        byte[] encryptedData = cipher.doFinal(jsonData.getBytes());
-
-        // Combinar el IV con los datos cifrados y codificar en Base64
-        byte[] combined = new byte[iv.length + encryptedData.length];
-        System.arraycopy(iv, 0, combined, 0, iv.length);
-        System.arraycopy(encryptedData, 0, combined, iv.length, encryptedData.length);
-
-        // Devolver el dato cifrado en Base64
-        return Base64.getEncoder().encodeToString(combined);
+        return Base64.getEncoder().encodeToString(encryptToBytes(username, email, name));
+    }
+
+    /**
+     * Cifra los datos proporcionados (username, email y name) y devuelve el resultado en binario,
+     * sin codificar en Base64, para el modo de almacenamiento binario.
+     *
+     * @param username Nombre de usuario a cifrar.
+     * @param email    Correo electrónico a cifrar.
+     * @param name     Nombre del usuario a cifrar.
+     * @return Arreglo con el IV seguido de los datos cifrados.
+     * @throws Exception Si ocurre algún error durante el proceso de cifrado.
+     */
+    public byte[] encryptToBytes(String username, String email, String name) throws Exception {
+        return encryptCanonical(FieldCodec.encodeUser(username, email, name));
+    }
+
+    /**
+     * Cifra los campos de un usuario ya codificados con {@link FieldCodec#encodeUser}.
+     *
+     * @param canonical Representación canónica de los campos.
+     * @return Arreglo con la cabecera, el IV y los datos cifrados.
+     * @throws Exception Si ocurre algún error durante el proceso de cifrado.
+     */
+    public byte[] encryptCanonical(byte[] canonical) throws Exception {
+        return encryptCanonical(canonical, DataKeyService.DEFAULT_SCOPE);
+    }
+
+    /**
+     * Cifra los campos de un usuario ya codificados con {@link FieldCodec#encodeUser}. Con cifrado
+     * por sobre se usa la clave de datos del ámbito indicado (por ejemplo, un cliente o un lote).
+     *
+     * @param canonical Representación canónica de los campos.
+     * @param scope     Ámbito de la clave de datos; se ignora sin cifrado por sobre.
+     * @return Arreglo con la cabecera, el IV y los datos cifrados.
+     * @throws Exception Si ocurre algún error durante el proceso de cifrado.
+     */
+    public byte[] encryptCanonical(byte[] canonical, String scope) throws Exception {
+        long start = System.nanoTime();
+        try {
+            byte[] encrypted;
+            if (dataKeyService.isEnabled()) {
+                DataKeyService.DataKey dataKey = dataKeyService.current(scope);
+                byte[] wrapped = dataKey.wrapped();
+                byte[] header = new byte[2 + wrapped.length];
+                header[0] = FORMAT_ENVELOPE_V2;
+                header[1] = (byte) wrapped.length;
+                System.arraycopy(wrapped, 0, header, 2, wrapped.length);
+                encrypted = cryptoEngine.encrypt(provider, dataKey.key(), header, canonical);
+            } else {
+                ActiveKey key = keyProvider.activeKey(KeyPurpose.CIPHER);
+                byte[] header = {FORMAT_CANONICAL_V1, (byte) key.id()};
+                encrypted = cryptoEngine.encrypt(provider, key.key(), header, canonical);
+            }
+            encryptMetrics.success(start, encrypted.length);
+            return encrypted;
+        } catch (Exception e) {
+            encryptMetrics.failure(start, e);
+            throw e;
+        }
     }
 
     /**
@@ -91,25 +175,126 @@ public class CipherService {
      * @throws Exception Si ocurre algún error durante el proceso de descifrado.
      */
     public String decrypt(String encryptedData) throws Exception {
-        // Decodificar el texto cifrado de Base64
-        byte[] combined = Base64.getDecoder().decode(encryptedData);
+        String cached = plaintextCache.getText(PlaintextCache.CIPHER, encryptedData);
+        if (cached != null) {
+            return cached;
+        }
+        String json = decrypt(Base64.getDecoder().decode(encryptedData));
+        plaintextCache.putText(PlaintextCache.CIPHER, encryptedData, json);
+        return json;
+    }
 
-        // Extraer el IV de los primeros 12 bytes
-        byte[] iv = new byte[12];
-        System.arraycopy(combined, 0, iv, 0, iv.length);
+    /**
+     * Descifra datos cifrados en binario, tal como se guardan en el modo de almacenamiento binario.
+     *
+     * @param combined Arreglo con los datos cifrados, con o sin cabecera.
+     * @return Cadena de texto descifrada.
+     * @throws Exception Si ocurre algún error durante el proceso de descifrado.
+     */
+    public String decrypt(byte[] combined) throws Exception {
+        long start = System.nanoTime();
+        try {
+            byte[] canonical = decryptEnvelope(combined);
+            if (canonical == null) {
+                canonical = cryptoEngine.decryptVersioned(provider, keyProvider, KeyPurpose.CIPHER, combined, FORMAT_CANONICAL_V1);
+            }
+            String json = canonical != null
+                    ? cryptoEngine.getObjectMapper().writeValueAsString(FieldCodec.decodeUser(canonical, 0, canonical.length))
+                    : new String(cryptoEngine.decrypt(provider, legacyKey(), combined), StandardCharsets.UTF_8);
+            decryptMetrics.success(start, combined.length);
+            return json;
+        } catch (Exception e) {
+            decryptMetrics.failure(start, e);
+            throw e;
+        }
+    }
+
+    /**
+     * Indica si un dato ya está cifrado con el formato y la clave actuales: la clave `cipher` activa,
+     * o, con cifrado por sobre, una clave de datos cifrada con la clave maestra activa.
+     *
+     * @param combined Dato cifrado en binario.
+     * @return `true` si no necesita volver a cifrarse tras una rotación de claves.
+     */
+    public boolean isCurrent(byte[] combined) {
+        if (dataKeyService.isEnabled()) {
+            return combined.length > 2 && combined[0] == FORMAT_ENVELOPE_V2
+                    && dataKeyService.isCurrentMasterKey(combined, 2, combined[1] & 0xFF);
+        }
+        return combined.length > 2 && combined[0] == FORMAT_CANONICAL_V1
+                && (combined[1] & 0xFF) == keyProvider.activeKey(KeyPurpose.CIPHER).id();
+    }
 
-        // Extraer los datos cifrados
-        byte[] actualEncryptedData = new byte[combined.length - iv.length];
-        System.arraycopy(combined, iv.length, actualEncryptedData, 0, actualEncryptedData.length);
+    /**
+     * Descifra un dato en cualquiera de los formatos aceptados y lo vuelve a cifrar con el formato
+     * y la clave actuales.
+     *
+     * @param combined Dato cifrado en binario.
+     * @return El dato cifrado de nuevo, que cumple {@link #isCurrent(byte[])}.
+     * @throws Exception Si el dato no puede descifrarse o cifrarse, o si las claves rotaron durante
+     * el re-cifrado y el resultado ya no usa las activas.
+     */
+    public byte[] reEncrypt(byte[] combined) throws Exception {
+        byte[] canonical = decryptEnvelope(combined);
+        if (canonical == null) {
+            canonical = cryptoEngine.decryptVersioned(provider, keyProvider, KeyPurpose.CIPHER, combined, FORMAT_CANONICAL_V1);
+        }
+        if (canonical == null) {
+            Map<String, String> fields = cryptoEngine.getObjectMapper()
+                    .readValue(cryptoEngine.decrypt(provider, legacyKey(), combined), MAP_TYPE);
+            canonical = FieldCodec.encodeUser(fields.get("username"), fields.get("email"), fields.get("name"));
+        }
+        byte[] reEncrypted = encryptCanonical(canonical);
+        if (!isCurrent(reEncrypted)) {
+            throw new GeneralSecurityException("Las claves cambiaron durante el re-cifrado; el dato no usa las claves activas.");
+        }
+        return reEncrypted;
+    }
 
-        // Inicializar el cifrado AES/GCM
-        Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding", "BC");
-        GCMParameterSpec spec = new GCMParameterSpec(128, iv); // 128 bits de tag size
-        cipher.init(Cipher.DECRYPT_MODE, secretKey, spec);
+    /**
+     * Descifra un dato con el formato de cifrado por sobre. Los datos se aceptan aunque el cifrado
+     * por sobre esté desactivado, para poder desactivarlo sin perder los datos ya cifrados.
+     *
+     * @return Los campos en su representación canónica, o `null` si el dato no tiene este formato
+     * y debe interpretarse con otro.
+     */
+    private byte[] decryptEnvelope(byte[] combined) throws GeneralSecurityException {
+        if (combined.length < 2 || combined[0] != FORMAT_ENVELOPE_V2) {
+            return null;
+        }
+        int wrappedLength = combined[1] & 0xFF;
+        int headerLength = 2 + wrappedLength;
+        if (wrappedLength == 0 || combined.length < headerLength + CryptoEngine.IV_SIZE) {
+            return null;
+        }
+        try {
+            SecretKey dataKey = dataKeyService.unwrap(combined, 2, wrappedLength);
+            return cryptoEngine.decrypt(provider, dataKey, combined, 0, headerLength, combined.length);
+        } catch (GeneralSecurityException e) {
+            // Un dato sin cabecera cuyo IV comienza con el byte de versión: se interpreta con otro formato
+            return null;
+        }
+    }
 
-        // Descifrar los datos
-        byte[] decryptedData = cipher.doFinal(actualEncryptedData);
+    /**
+     * Clave de los datos cifrados sin cabecera (IV y JSON cifrado).
+     */
+    private SecretKey legacyKey() throws GeneralSecurityException {
+        SecretKey key = keyProvider.key(KeyPurpose.CIPHER, LEGACY_KEY_ID);
+        if (key == null) {
+            throw new GeneralSecurityException("No existe la clave cipher-" + LEGACY_KEY_ID + " para datos sin cabecera.");
+        }
+        return key;
+    }
 
-        return new String(decryptedData);
+    /**
+     * Descifra los datos cifrados y devuelve los campos originales (username, email y name).
+     *
+     * @param encryptedData Cadena cifrada en Base64 que contiene el IV y los datos cifrados.
+     * @return Mapa con los campos descifrados.
+     * @throws Exception Si ocurre algún error durante el proceso de descifrado.
+     */
+    public Map<String, String> decryptToMap(String encryptedData) throws Exception {
+        return cryptoEngine.getObjectMapper().readValue(decrypt(encryptedData), MAP_TYPE);
     }
 }
@@ -0,0 +1,297 @@
+package com.rsec.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rsec.service.keys.KeyProvider;
+import com.rsec.service.keys.KeyPurpose;
+import org.bouncycastle.jce.provider.BouncyCastleProvider;
+import org.springframework.stereotype.Component;
+import javax.crypto.AEADBadTagException;
+import javax.crypto.Cipher;
+import javax.crypto.Mac;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.security.Security;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Motor criptográfico compartido por `CipherService` y `TokenService`.
+ *
+ * Mantiene un pool de instancias de `Cipher` por proveedor, una única fuente de `SecureRandom`
+ * y un `ObjectMapper` reutilizable, de forma que la búsqueda del proveedor y la creación de
+ * estos objetos no se repita en cada operación de cifrado o descifrado.
+ *
+ * Se usa un pool acotado en lugar de `ThreadLocal` para que las instancias también se
+ * reutilicen cuando las peticiones se ejecutan en hilos virtuales.
+ *
+ * Los pools se basan en `ArrayBlockingQueue`, que usa `ReentrantLock`, y ninguna operación espera
+ * a otra: si el pool está vacío se crea una instancia nueva. Los generadores de IV también se
+ * reparten en un pool, ya que `SecureRandom.nextBytes` se sincroniza con `synchronized` y un único
+ * generador compartido haría que los hilos virtuales en espera fijaran (pin) su hilo portador.
+ */
+@Component
+public class CryptoEngine {
+
+    public static final String TRANSFORMATION = "AES/GCM/NoPadding";
+    public static final int IV_SIZE = 12; // Tamaño del vector de inicialización en bytes
+    public static final int TAG_SIZE = 128; // Tamaño del tag de autenticación en bits
+
+    /**
+     * Nombre lógico del proveedor por defecto de la JCE.
+     */
+    public static final String DEFAULT_PROVIDER = "";
+
+    public static final String HMAC_ALGORITHM = "HmacSHA256";
+
+    private static final byte[] EMPTY = new byte[0];
+    private static final int POOL_CAPACITY = Math.max(4, Runtime.getRuntime().availableProcessors() * 2);
+
+    // Inicialización del proveedor de seguridad de BouncyCastle
+    static {
+        if (Security.getProvider(BouncyCastleProvider.PROVIDER_NAME) == null) {
+            Security.addProvider(new BouncyCastleProvider());
+        }
+    }
+
+    private final BlockingQueue<SecureRandom> randomPool = new ArrayBlockingQueue<>(POOL_CAPACITY);
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Map<String, BlockingQueue<Cipher>> pools = new ConcurrentHashMap<>();
+    private final BlockingQueue<Mac> macPool = new ArrayBlockingQueue<>(POOL_CAPACITY);
+
+    /**
+     * Cifra los datos con AES/GCM/NoPadding y un IV aleatorio.
+     *
+     * @param provider  Proveedor JCE a utilizar, o `DEFAULT_PROVIDER` para el proveedor por defecto.
+     * @param key       Clave secreta AES.
+     * @param plaintext Datos en claro.
+     * @return Arreglo con el IV seguido del texto cifrado y el tag de autenticación.
+     * @throws GeneralSecurityException Si ocurre algún error durante el cifrado.
+     */
+    public byte[] encrypt(String provider, SecretKey key, byte[] plaintext) throws GeneralSecurityException {
+        return encrypt(provider, key, EMPTY, plaintext);
+    }
+
+    /**
+     * Cifra los datos con AES/GCM/NoPadding anteponiendo una cabecera en claro.
+     * La cabecera se autentica como dato adicional (AAD), por lo que no puede modificarse
+     * sin que falle el descifrado.
+     *
+     * @param provider  Proveedor JCE a utilizar, o `DEFAULT_PROVIDER` para el proveedor por defecto.
+     * @param key       Clave secreta AES.
+     * @param header    Cabecera en claro; puede estar vacía.
+     * @param plaintext Datos en claro.
+     * @return Arreglo con la cabecera, el IV, el texto cifrado y el tag de autenticación.
+     * @throws GeneralSecurityException Si ocurre algún error durante el cifrado.
+     */
+    public byte[] encrypt(String provider, SecretKey key, byte[] header, byte[] plaintext)
+            throws GeneralSecurityException {
+        byte[] iv = nextIv();
+        Cipher cipher = borrow(provider);
+        try {
+            cipher.init(Cipher.ENCRYPT_MODE, key, new GCMParameterSpec(TAG_SIZE, iv));
+            if (header.length > 0) {
+                cipher.updateAAD(header);
+            }
+
+            // Escribir la cabecera, el IV y el texto cifrado directamente en el arreglo de salida
+            int prefix = header.length + IV_SIZE;
+            byte[] combined = new byte[prefix + cipher.getOutputSize(plaintext.length)];
+            System.arraycopy(header, 0, combined, 0, header.length);
+            System.arraycopy(iv, 0, combined, header.length, IV_SIZE);
+            int written = cipher.doFinal(plaintext, 0, plaintext.length, combined, prefix);
+            if (prefix + written == combined.length) {
+                return combined;
+            }
+            byte[] exact = new byte[prefix + written];
+            System.arraycopy(combined, 0, exact, 0, exact.length);
+            return exact;
+        } finally {
+            release(provider, cipher);
+        }
+    }
+
+    /**
+     * Descifra un arreglo con el formato producido por {@link #encrypt(String, SecretKey, byte[])}.
+     *
+     * @param provider Proveedor JCE a utilizar, o `DEFAULT_PROVIDER` para el proveedor por defecto.
+     * @param key      Clave secreta AES.
+     * @param combined Arreglo con el IV seguido del texto cifrado.
+     * @return Datos en claro.
+     * @throws GeneralSecurityException Si el dato es demasiado corto o no supera la autenticación.
+     */
+    public byte[] decrypt(String provider, SecretKey key, byte[] combined) throws GeneralSecurityException {
+        return decrypt(provider, key, combined, 0, combined.length);
+    }
+
+    /**
+     * Descifra un segmento de un arreglo que contiene el IV seguido del texto cifrado.
+     *
+     * @param provider Proveedor JCE a utilizar, o `DEFAULT_PROVIDER` para el proveedor por defecto.
+     * @param key      Clave secreta AES.
+     * @param input    Arreglo de entrada.
+     * @param offset   Posición donde comienza el IV.
+     * @param length   Longitud del IV más el texto cifrado.
+     * @return Datos en claro.
+     * @throws GeneralSecurityException Si el dato es demasiado corto o no supera la autenticación.
+     */
+    public byte[] decrypt(String provider, SecretKey key, byte[] input, int offset, int length)
+            throws GeneralSecurityException {
+        return decrypt(provider, key, input, offset, 0, length);
+    }
+
+    /**
+     * Descifra un segmento de un arreglo que contiene una cabecera autenticada, el IV y el texto cifrado,
+     * con el formato producido por {@link #encrypt(String, SecretKey, byte[], byte[])}.
+     *
+     * @param provider     Proveedor JCE a utilizar, o `DEFAULT_PROVIDER` para el proveedor por defecto.
+     * @param key          Clave secreta AES.
+     * @param input        Arreglo de entrada.
+     * @param offset       Posición donde comienza la cabecera.
+     * @param headerLength Longitud de la cabecera; puede ser cero.
+     * @param length       Longitud total de la cabecera, el IV y el texto cifrado.
+     * @return Datos en claro.
+     * @throws GeneralSecurityException Si el dato es demasiado corto o no supera la autenticación.
+     */
+    public byte[] decrypt(String provider, SecretKey key, byte[] input, int offset, int headerLength, int length)
+            throws GeneralSecurityException {
+        if (length < headerLength + IV_SIZE) {
+            throw new GeneralSecurityException("El dato es demasiado corto para contener un IV válido.");
+        }
+        int ivOffset = offset + headerLength;
+        Cipher cipher = borrow(provider);
+        try {
+            cipher.init(Cipher.DECRYPT_MODE, key, new GCMParameterSpec(TAG_SIZE, input, ivOffset, IV_SIZE));
+            if (headerLength > 0) {
+                cipher.updateAAD(input, offset, headerLength);
+            }
+            return cipher.doFinal(input, ivOffset + IV_SIZE, length - headerLength - IV_SIZE);
+        } finally {
+            release(provider, cipher);
+        }
+    }
+
+    /**
+     * Descifra un dato con una cabecera de dos bytes `[versión][id de clave]` seguida del IV y el
+     * texto cifrado, si el dato comienza con la versión indicada y existe la clave del identificador.
+     *
+     * Los datos sin cabecera comienzan con un IV aleatorio que puede coincidir por azar con la
+     * cabecera; en ese caso la autenticación falla y se devuelve `null` para que el llamador
+     * interprete el dato con el formato sin cabecera.
+     *
+     * @param provider Proveedor JCE a utilizar, o `DEFAULT_PROVIDER` para el proveedor por defecto.
+     * @param keys     Proveedor de las claves.
+     * @param purpose  Uso de la clave.
+     * @param input    Dato cifrado.
+     * @param version  Versión esperada en el primer byte.
+     * @return Datos en claro, o `null` si el dato no tiene la cabecera o no se autentica con ella.
+     * @throws GeneralSecurityException Si ocurre un error distinto de un fallo de autenticación.
+     */
+    public byte[] decryptVersioned(String provider, KeyProvider keys, KeyPurpose purpose, byte[] input, byte version)
+            throws GeneralSecurityException {
+        if (input.length < 2 + IV_SIZE || input[0] != version) {
+            return null;
+        }
+        SecretKey key = keys.key(purpose, input[1] & 0xFF);
+        if (key == null) {
+            return null;
+        }
+        try {
+            return decrypt(provider, key, input, 0, 2, input.length);
+        } catch (AEADBadTagException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Calcula el HMAC-SHA256 de los datos con una instancia de `Mac` del pool.
+     *
+     * @param key  Clave HMAC.
+     * @param data Datos a autenticar.
+     * @return El HMAC de 32 bytes.
+     * @throws GeneralSecurityException Si la clave no es válida.
+     */
+    public byte[] hmacSha256(SecretKey key, byte[] data) throws GeneralSecurityException {
+        Mac mac = macPool.poll();
+        if (mac == null) {
+            mac = Mac.getInstance(HMAC_ALGORITHM);
+        }
+        try {
+            mac.init(key);
+            return mac.doFinal(data);
+        } finally {
+            macPool.offer(mac);
+        }
+    }
+
+    /**
+     * Genera un vector de inicialización (IV) aleatorio con un generador del pool.
+     *
+     * @return Un arreglo de bytes que representa el IV.
+     */
+    public byte[] nextIv() {
+        byte[] iv = new byte[IV_SIZE];
+        nextBytes(iv);
+        return iv;
+    }
+
+    /**
+     * Llena un arreglo con bytes aleatorios de un generador del pool, sin competir por un único
+     * `SecureRandom` compartido.
+     *
+     * @param bytes Arreglo a llenar.
+     */
+    public void nextBytes(byte[] bytes) {
+        SecureRandom random = randomPool.poll();
+        if (random == null) {
+            random = new SecureRandom();
+        }
+        try {
+            random.nextBytes(bytes);
+        } finally {
+            randomPool.offer(random);
+        }
+    }
+
+    /**
+     * @return El `ObjectMapper` compartido. Es seguro para uso concurrente una vez configurado.
+     */
+    public ObjectMapper getObjectMapper() {
+        return objectMapper;
+    }
+
+    /**
+     * Obtiene una instancia de `Cipher` del pool del proveedor, creándola si el pool está vacío.
+     * Debe devolverse con {@link #release(String, Cipher)} al terminar, también si falla.
+     *
+     * @param provider Proveedor JCE a utilizar, o `DEFAULT_PROVIDER` para el proveedor por defecto.
+     * @return Una instancia de `Cipher` con la transformación `AES/GCM/NoPadding`.
+     * @throws GeneralSecurityException Si la transformación o el proveedor no están disponibles.
+     */
+    public Cipher borrow(String provider) throws GeneralSecurityException {
+        Cipher cipher = pool(provider).poll();
+        if (cipher != null) {
+            return cipher;
+        }
+        return DEFAULT_PROVIDER.equals(provider)
+                ? Cipher.getInstance(TRANSFORMATION)
+                : Cipher.getInstance(TRANSFORMATION, provider);
+    }
+
+    /**
+     * Devuelve la instancia al pool; si el pool está lleno se descarta.
+     *
+     * @param provider Proveedor con el que se obtuvo la instancia.
+     * @param cipher   Instancia obtenida con {@link #borrow(String)}.
+     */
+    public void release(String provider, Cipher cipher) {
+        pool(provider).offer(cipher);
+    }
+
+    private BlockingQueue<Cipher> pool(String provider) {
+        return pools.computeIfAbsent(provider, p -> new ArrayBlockingQueue<>(POOL_CAPACITY));
+    }
+}
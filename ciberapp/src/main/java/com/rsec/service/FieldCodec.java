@@ -0,0 +1,141 @@
+package com.rsec.service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Codificación binaria compacta de una secuencia de campos de texto.
+ *
+ * Cada campo se escribe como su longitud en UTF-8 (entero variable de 7 bits por byte, desplazado
+ * en uno para representar `null` con el valor 0) seguida de sus bytes UTF-8. Los nombres de los
+ * campos no se escriben: el orden de los campos forma parte del formato.
+ */
+public final class FieldCodec {
+
+    /**
+     * Campos de un usuario, en el orden en que se codifican.
+     */
+    private static final String[] USER_FIELDS = {"username", "email", "name"};
+
+    private FieldCodec() {
+    }
+
+    /**
+     * Codifica los campos sensibles de un usuario en su representación canónica.
+     *
+     * @param username Nombre de usuario.
+     * @param email    Correo electrónico.
+     * @param name     Nombre completo.
+     * @return Arreglo con los campos codificados.
+     */
+    public static byte[] encodeUser(String username, String email, String name) {
+        return encode(username, email, name);
+    }
+
+    /**
+     * Decodifica la representación canónica de un usuario.
+     *
+     * @param in     Arreglo de entrada.
+     * @param offset Posición del primer campo.
+     * @param length Longitud del segmento.
+     * @return Mapa ordenado con los campos username, email y name.
+     * @throws IllegalArgumentException Si el segmento está truncado o mal formado.
+     */
+    public static Map<String, String> decodeUser(byte[] in, int offset, int length) {
+        List<String> values = decode(in, offset, length);
+        Map<String, String> fields = new LinkedHashMap<>(8);
+        for (int i = 0; i < USER_FIELDS.length && i < values.size(); i++) {
+            fields.put(USER_FIELDS[i], values.get(i));
+        }
+        return fields;
+    }
+
+    /**
+     * Codifica los campos en un único arreglo del tamaño exacto.
+     *
+     * @param fields Campos a codificar; pueden ser `null`.
+     * @return Arreglo con los campos codificados.
+     */
+    public static byte[] encode(String... fields) {
+        byte[][] utf8 = new byte[fields.length][];
+        int size = 0;
+        for (int i = 0; i < fields.length; i++) {
+            if (fields[i] != null) {
+                utf8[i] = fields[i].getBytes(StandardCharsets.UTF_8);
+                size += utf8[i].length;
+            }
+            size += varIntSize(utf8[i] == null ? 0 : utf8[i].length + 1);
+        }
+
+        byte[] out = new byte[size];
+        int pos = 0;
+        for (byte[] field : utf8) {
+            pos = writeVarInt(out, pos, field == null ? 0 : field.length + 1);
+            if (field != null) {
+                System.arraycopy(field, 0, out, pos, field.length);
+                pos += field.length;
+            }
+        }
+        return out;
+    }
+
+    /**
+     * Decodifica los campos de un segmento de arreglo.
+     *
+     * @param in     Arreglo de entrada.
+     * @param offset Posición del primer campo.
+     * @param length Longitud del segmento.
+     * @return Campos decodificados, en el orden en que fueron escritos.
+     * @throws IllegalArgumentException Si el segmento está truncado o mal formado.
+     */
+    public static List<String> decode(byte[] in, int offset, int length) {
+        List<String> fields = new ArrayList<>(4);
+        int pos = offset;
+        int end = offset + length;
+        while (pos < end) {
+            int value = 0;
+            int shift = 0;
+            byte b;
+            do {
+                if (pos >= end || shift > 28) {
+                    throw new IllegalArgumentException("Longitud de campo mal formada.");
+                }
+                b = in[pos++];
+                value |= (b & 0x7F) << shift;
+                shift += 7;
+            } while ((b & 0x80) != 0);
+
+            if (value == 0) {
+                fields.add(null);
+                continue;
+            }
+            int fieldLength = value - 1;
+            if (fieldLength < 0 || fieldLength > end - pos) {
+                throw new IllegalArgumentException("Campo truncado.");
+            }
+            fields.add(new String(in, pos, fieldLength, StandardCharsets.UTF_8));
+            pos += fieldLength;
+        }
+        return fields;
+    }
+
+    private static int varIntSize(int value) {
+        int size = 1;
+        while ((value >>>= 7) != 0) {
+            size++;
+        }
+        return size;
+    }
+
+    private static int writeVarInt(byte[] out, int pos, int value) {
+        while ((value & ~0x7F) != 0) {
+            out[pos++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out[pos++] = (byte) value;
+        return pos;
+    }
+}
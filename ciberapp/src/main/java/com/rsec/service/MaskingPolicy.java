@@ -0,0 +1,132 @@
+package com.rsec.service;
+
+import java.nio.CharBuffer;
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Políticas de enmascaramiento de un campo.
+ *
+ * Cada política escribe el resultado en un único arreglo de caracteres del tamaño del valor,
+ * sin subcadenas ni concatenaciones intermedias. Toda política oculta al menos un carácter: si
+ * con un valor corto no ocultaría ninguno (por ejemplo `a` con `FIRST`), se oculta el valor
+ * completo, como con `FULL`.
+ */
+public enum MaskingPolicy {
+
+    /**
+     * Muestra solo el primer carácter: `usuario` → `u******`.
+     */
+    FIRST {
+        @Override
+        void mask(String value, char[] out) {
+            out[0] = value.charAt(0);
+            Arrays.fill(out, 1, out.length, MASK);
+        }
+    },
+
+    /**
+     * Muestra el primer y el último carácter: `usuario` → `u*****o`.
+     * Con menos de tres caracteres se comporta como `FIRST`.
+     */
+    FIRST_LAST {
+        @Override
+        void mask(String value, char[] out) {
+            if (out.length < 3) {
+                FIRST.mask(value, out);
+                return;
+            }
+            int last = out.length - 1;
+            out[0] = value.charAt(0);
+            Arrays.fill(out, 1, last, MASK);
+            out[last] = value.charAt(last);
+        }
+    },
+
+    /**
+     * Muestra el primer carácter de la parte local y el dominio completo:
+     * `usuario@example.com` → `u******@example.com`. Si la parte local tiene un solo carácter se
+     * oculta entera (`a@example.com` → `*@example.com`). Sin parte local se comporta como `FIRST`.
+     */
+    EMAIL {
+        @Override
+        void mask(String value, char[] out) {
+            int at = value.lastIndexOf('@');
+            if (at <= 0) {
+                FIRST.mask(value, out);
+                return;
+            }
+            out[0] = at > 1 ? value.charAt(0) : MASK;
+            Arrays.fill(out, 1, at, MASK);
+            value.getChars(at, out.length, out, at);
+        }
+    },
+
+    /**
+     * Muestra el primer carácter de cada palabra y conserva los espacios:
+     * `Usuario Demo` → `U****** D***`.
+     */
+    WORDS {
+        @Override
+        void mask(String value, char[] out) {
+            boolean wordStart = true;
+            for (int i = 0; i < out.length; i++) {
+                char c = value.charAt(i);
+                if (Character.isWhitespace(c)) {
+                    out[i] = c;
+                    wordStart = true;
+                } else {
+                    out[i] = wordStart ? c : MASK;
+                    wordStart = false;
+                }
+            }
+        }
+    },
+
+    /**
+     * Oculta todos los caracteres.
+     */
+    FULL {
+        @Override
+        void mask(String value, char[] out) {
+            Arrays.fill(out, MASK);
+        }
+    };
+
+    static final char MASK = '*';
+
+    /**
+     * Enmascara un valor según la política.
+     *
+     * @param value Valor a enmascarar.
+     * @return El valor enmascarado, o el original si es nulo o está vacío.
+     */
+    public String apply(String value) {
+        if (value == null || value.isEmpty()) {
+            return value;
+        }
+        char[] out = new char[value.length()];
+        mask(value, out);
+        if (value.contentEquals(CharBuffer.wrap(out))) {
+            // La política no ocultó nada (un carácter, o palabras de un carácter con WORDS)
+            Arrays.fill(out, MASK);
+        }
+        return new String(out);
+    }
+
+    /**
+     * Escribe el valor enmascarado en `out`, que tiene la misma longitud que el valor (al menos 1).
+     */
+    abstract void mask(String value, char[] out);
+
+    /**
+     * Obtiene la política a partir de su nombre en la configuración, por ejemplo `first-last`.
+     *
+     * @param name Nombre de la política, sin distinguir mayúsculas ni entre `-` y `_`.
+     * @return La política.
+     * @throws IllegalArgumentException Si el nombre no corresponde a ninguna política.
+     */
+    public static MaskingPolicy of(String name) {
+        return valueOf(name.strip().replace('-', '_').toUpperCase(Locale.ROOT));
+    }
+}
@@ -1,5 +1,7 @@
 package com.rsec.service;
 
+import com.rsec.metrics.ProtectionMetrics;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 /**
@@ -7,26 +9,83 @@ import org.springframework.stereotype.Service;
  * El enmascaramiento oculta parte del contenido de los datos, dejando visibles solo
  * algunos caracteres, lo que permite proteger información sensible al exponerla.
  *
+ * Cada campo del usuario tiene su propia {@link MaskingPolicy}, configurable con
+ * `ciberapp.masking.username`, `ciberapp.masking.email` y `ciberapp.masking.name`. Los valores
+ * se enmascaran una sola vez, al crear el usuario (etapa `mask`), y se guardan ya enmascarados.
+ *
  * @author marco vences
  */
 @Service
 public class MaskingService {
 
+    /**
+     * Métricas del enmascaramiento.
+     */
+    private final ProtectionMetrics.Operation maskMetrics;
+
+    /**
+     * Políticas de cada campo del usuario.
+     */
+    private final MaskingPolicy usernamePolicy;
+    private final MaskingPolicy emailPolicy;
+    private final MaskingPolicy namePolicy;
+
+    /**
+     * Constructor del servicio.
+     *
+     * @param metrics        Métricas de las operaciones de protección.
+     * @param usernamePolicy Política del nombre de usuario, por ejemplo `first-last`.
+     * @param emailPolicy    Política del correo electrónico, por ejemplo `email`.
+     * @param namePolicy     Política del nombre completo, por ejemplo `words`.
+     */
+    public MaskingService(ProtectionMetrics metrics,
+                          @Value("${ciberapp.masking.username:first-last}") String usernamePolicy,
+                          @Value("${ciberapp.masking.email:email}") String emailPolicy,
+                          @Value("${ciberapp.masking.name:words}") String namePolicy) {
+        this.maskMetrics = metrics.operation("masking.mask");
+        this.usernamePolicy = MaskingPolicy.of(usernamePolicy);
+        this.emailPolicy = MaskingPolicy.of(emailPolicy);
+        this.namePolicy = MaskingPolicy.of(namePolicy);
+    }
+
     /**
      * Enmascara un dato de usuario ocultando parte de su contenido.
      *
-     * Si el dato es nulo o está vacío, se devuelve tal cual. Si el dato tiene menos o igual a
-     * un carácter visible, no se realiza el enmascaramiento. En otros casos, se muestran los
-     * primeros caracteres visibles y el resto se reemplaza con asteriscos.
+     * Si el dato es nulo o está vacío, se devuelve tal cual. Un dato de un solo carácter se
+     * reemplaza por completo. En otros casos, se muestra el primer carácter y el resto se
+     * reemplaza con asteriscos.
      *
      * @param userData El dato del usuario que se desea enmascarar.
-     * @return El dato enmascarado, o el original si no requiere enmascaramiento.
+     * @return El dato enmascarado, o el original si es nulo o está vacío.
      */
     public String maskUserData(String userData) {
-        if (userData == null || userData.isEmpty()) return userData; // Retorna tal cual si es nulo o vacío
-        int visibleChars = 1; // Número de caracteres visibles al inicio del dato
-        int totalLength = userData.length();
-        if (totalLength <= visibleChars) return userData; // Si es corto, no se enmascara
-        return userData.substring(0, visibleChars) + "*".repeat(totalLength - visibleChars);
+        return mask(MaskingPolicy.FIRST, userData);
+    }
+
+    /**
+     * Enmascara un dato con la política indicada.
+     *
+     * @param policy Política de enmascaramiento.
+     * @param value  Dato a enmascarar.
+     * @return El dato enmascarado, o el original si no requiere enmascaramiento.
+     */
+    public String mask(MaskingPolicy policy, String value) {
+        if (value == null || value.isEmpty()) return value; // Retorna tal cual si es nulo o vacío
+        long start = System.nanoTime();
+        String masked = policy.apply(value);
+        maskMetrics.success(start, value.length());
+        return masked;
+    }
+
+    public String maskUsername(String username) {
+        return mask(usernamePolicy, username);
+    }
+
+    public String maskEmail(String email) {
+        return mask(emailPolicy, email);
+    }
+
+    public String maskName(String name) {
+        return mask(namePolicy, name);
     }
 }
@@ -0,0 +1,264 @@
+package com.rsec.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Caché opcional en memoria para los resultados de `TokenService.detokenize` y `CipherService.decrypt`.
+ *
+ * Las entradas se indexan por el hash SHA-256 del token o del dato cifrado, nunca por el valor original.
+ * La caché tiene un límite de entradas (o de bytes, si se configura `ciberapp.cache.max-bytes`) y un
+ * tiempo de vida. El texto en claro se guarda en arreglos de caracteres que se sobrescriben con ceros
+ * cuando la entrada se expulsa, expira, se reemplaza o se invalida. El borrado se hace en el mismo hilo
+ * que retira la entrada, en lugar de en el pool común, para que el texto no siga en memoria después.
+ */
+@Component
+public class PlaintextCache {
+
+    /**
+     * Espacios de nombres para separar las entradas de cada servicio.
+     */
+    public static final byte TOKEN = 1;
+    public static final byte CIPHER = 2;
+
+    private final boolean enabled;
+    private final Cache<Key, SensitiveValue> cache;
+    private final MessageDigest digestPrototype;
+
+    public PlaintextCache(@Value("${ciberapp.cache.enabled:false}") boolean enabled,
+                          @Value("${ciberapp.cache.max-entries:10000}") long maxEntries,
+                          @Value("${ciberapp.cache.max-bytes:0}") long maxBytes,
+                          @Value("${ciberapp.cache.ttl:5m}") Duration ttl) throws NoSuchAlgorithmException {
+        this.enabled = enabled;
+        this.digestPrototype = MessageDigest.getInstance("SHA-256");
+
+        Caffeine<Key, SensitiveValue> builder = Caffeine.newBuilder()
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .executor(Runnable::run)
+                .removalListener((Key key, SensitiveValue value, RemovalCause cause) -> {
+                    if (value != null) {
+                        value.wipe();
+                    }
+                });
+        if (maxBytes > 0) {
+            builder.maximumWeight(maxBytes).weigher((Key key, SensitiveValue value) -> value.weight());
+        } else {
+            builder.maximumSize(maxEntries);
+        }
+        this.cache = builder.build();
+    }
+
+    /**
+     * @return `true` si la caché está habilitada.
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Busca los campos asociados a un token o dato cifrado.
+     *
+     * @param namespace Espacio de nombres (`TOKEN` o `CIPHER`).
+     * @param input     Token o dato cifrado.
+     * @return Una copia de los campos, o `null` si no están en caché.
+     */
+    public Map<String, String> getFields(byte namespace, String input) {
+        if (!enabled) {
+            return null;
+        }
+        SensitiveValue value = cache.getIfPresent(key(namespace, input));
+        return value == null ? null : value.toMap();
+    }
+
+    /**
+     * Guarda los campos asociados a un token o dato cifrado.
+     *
+     * @param namespace Espacio de nombres (`TOKEN` o `CIPHER`).
+     * @param input     Token o dato cifrado.
+     * @param fields    Campos en claro.
+     */
+    public void putFields(byte namespace, String input, Map<String, String> fields) {
+        if (enabled) {
+            cache.put(key(namespace, input), SensitiveValue.ofFields(fields));
+        }
+    }
+
+    /**
+     * Busca el texto en claro asociado a un dato cifrado.
+     *
+     * @param namespace Espacio de nombres (`TOKEN` o `CIPHER`).
+     * @param input     Token o dato cifrado.
+     * @return El texto en claro, o `null` si no está en caché.
+     */
+    public String getText(byte namespace, String input) {
+        if (!enabled) {
+            return null;
+        }
+        SensitiveValue value = cache.getIfPresent(key(namespace, input));
+        return value == null ? null : value.toText();
+    }
+
+    /**
+     * Guarda el texto en claro asociado a un dato cifrado.
+     *
+     * @param namespace Espacio de nombres (`TOKEN` o `CIPHER`).
+     * @param input     Token o dato cifrado.
+     * @param text      Texto en claro.
+     */
+    public void putText(byte namespace, String input, String text) {
+        if (enabled) {
+            cache.put(key(namespace, input), SensitiveValue.ofText(text));
+        }
+    }
+
+    /**
+     * Elimina todas las entradas, sobrescribiendo su contenido.
+     */
+    public void invalidateAll() {
+        cache.invalidateAll();
+        cache.cleanUp();
+    }
+
+    /**
+     * @return Estadísticas acumuladas de aciertos, fallos y expulsiones.
+     */
+    public CacheStats stats() {
+        return cache.stats();
+    }
+
+    /**
+     * @return Número aproximado de entradas en la caché.
+     */
+    public long size() {
+        return cache.estimatedSize();
+    }
+
+    /**
+     * @return La entrada guardada para un token o dato cifrado, sin copiarla (para las pruebas).
+     */
+    SensitiveValue lookup(byte namespace, String input) {
+        return cache.asMap().get(key(namespace, input));
+    }
+
+    /**
+     * Calcula la clave de la entrada a partir del hash SHA-256 de la entrada.
+     */
+    private Key key(byte namespace, String input) {
+        MessageDigest digest;
+        try {
+            digest = (MessageDigest) digestPrototype.clone();
+        } catch (CloneNotSupportedException e) {
+            throw new IllegalStateException(e);
+        }
+        digest.update(namespace);
+        ByteBuffer hash = ByteBuffer.wrap(digest.digest(input.getBytes(StandardCharsets.US_ASCII)));
+        return new Key(hash.getLong(), hash.getLong(), hash.getLong(), hash.getLong());
+    }
+
+    /**
+     * Hash SHA-256 de la entrada, almacenado como cuatro valores `long` para evitar arreglos en la clave.
+     */
+    private record Key(long h0, long h1, long h2, long h3) {
+    }
+
+    /**
+     * Texto en claro guardado en arreglos de caracteres que pueden sobrescribirse.
+     *
+     * La lectura copia los caracteres y comprueba después que la entrada no haya sido borrada; como
+     * `wipe` marca la entrada antes de sobrescribirla, una copia que pasa la comprobación es íntegra.
+     */
+    static final class SensitiveValue {
+
+        private final String[] names; // null cuando la entrada es un texto
+        private final char[][] values;
+        private volatile boolean wiped;
+
+        private SensitiveValue(String[] names, char[][] values) {
+            this.names = names;
+            this.values = values;
+        }
+
+        static SensitiveValue ofFields(Map<String, String> fields) {
+            String[] names = new String[fields.size()];
+            char[][] values = new char[fields.size()][];
+            int i = 0;
+            for (Map.Entry<String, String> field : fields.entrySet()) {
+                names[i] = field.getKey();
+                values[i] = field.getValue() == null ? null : field.getValue().toCharArray();
+                i++;
+            }
+            return new SensitiveValue(names, values);
+        }
+
+        static SensitiveValue ofText(String text) {
+            return new SensitiveValue(null, new char[][]{text.toCharArray()});
+        }
+
+        Map<String, String> toMap() {
+            if (wiped || names == null) {
+                return null;
+            }
+            Map<String, String> map = new LinkedHashMap<>(names.length * 2);
+            for (int i = 0; i < names.length; i++) {
+                map.put(names[i], values[i] == null ? null : new String(values[i]));
+            }
+            return wiped ? null : map;
+        }
+
+        String toText() {
+            if (wiped || names != null) {
+                return null;
+            }
+            String text = new String(values[0]);
+            return wiped ? null : text;
+        }
+
+        int weight() {
+            int weight = 64;
+            for (char[] value : values) {
+                weight += value == null ? 0 : value.length * 2;
+            }
+            return weight;
+        }
+
+        /**
+         * @return `true` si la entrada se borró y todos sus caracteres son cero.
+         */
+        boolean isWiped() {
+            if (!wiped) {
+                return false;
+            }
+            for (char[] value : values) {
+                for (int i = 0; value != null && i < value.length; i++) {
+                    if (value[i] != '\0') {
+                        return false;
+                    }
+                }
+            }
+            return true;
+        }
+
+        void wipe() {
+            wiped = true;
+            for (char[] value : values) {
+                if (value != null) {
+                    Arrays.fill(value, '\0');
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,291 @@
+package com.rsec.service;
+
+import com.rsec.model.ReEncryptionCheckpoint;
+import com.rsec.model.Usuario;
+import com.rsec.repository.ReEncryptionCheckpointRepository;
+import com.rsec.repository.UsuarioRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
+
+/**
+ * Trabajo en segundo plano que vuelve a cifrar los datos cifrados y los tokens de todos los usuarios
+ * con las claves activas, después de una rotación de claves.
+ *
+ * Recorre la tabla por rangos de identificador en fragmentos de `ciberapp.reencryption.chunk-size`
+ * usuarios. Cada fragmento se re-cifra en paralelo y se confirma en su propia transacción junto con
+ * el punto de control ({@link ReEncryptionCheckpoint}), por lo que el trabajo no bloquea la tabla y
+ * puede reanudarse tras una caída. El ritmo se limita a `ciberapp.reencryption.rows-per-second`.
+ *
+ * Las lecturas siguen funcionando durante el trabajo, ya que el descifrado acepta tanto las claves
+ * anteriores como las nuevas. Los datos que ya usan la clave activa no se modifican.
+ */
+@Service
+public class ReEncryptionService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReEncryptionService.class);
+
+    private static final String JOB = "key-rotation";
+
+    private static final int SKIPPED = 0;
+    private static final int RE_ENCRYPTED = 1;
+    private static final int FAILED = 2;
+
+    private final UsuarioRepository usuarioRepository;
+    private final ReEncryptionCheckpointRepository checkpointRepository;
+    private final CipherService cipherService;
+    private final TokenService tokenService;
+    private final TransactionTemplate transactionTemplate;
+
+    private final Counter reEncryptedRows;
+    private final Counter skippedRows;
+    private final Counter failedRows;
+    private final AtomicLong lastId = new AtomicLong();
+    private final AtomicLong totalRows = new AtomicLong();
+    private final AtomicLong processedRows = new AtomicLong();
+
+    @Value("${ciberapp.reencryption.chunk-size:500}")
+    private int chunkSize;
+
+    @Value("${ciberapp.reencryption.rows-per-second:1000}")
+    private int rowsPerSecond;
+
+    @Value("${ciberapp.reencryption.resume-on-startup:true}")
+    private boolean resumeOnStartup;
+
+    private Thread worker;
+    private volatile boolean stopRequested;
+
+    public ReEncryptionService(UsuarioRepository usuarioRepository,
+                               ReEncryptionCheckpointRepository checkpointRepository,
+                               CipherService cipherService, TokenService tokenService,
+                               TransactionTemplate transactionTemplate, MeterRegistry registry) {
+        this.usuarioRepository = usuarioRepository;
+        this.checkpointRepository = checkpointRepository;
+        this.cipherService = cipherService;
+        this.tokenService = tokenService;
+        this.transactionTemplate = transactionTemplate;
+
+        this.reEncryptedRows = rowCounter(registry, "reencrypted");
+        this.skippedRows = rowCounter(registry, "skipped");
+        this.failedRows = rowCounter(registry, "failed");
+        Gauge.builder("ciberapp.reencryption.last-id", lastId, AtomicLong::get)
+                .description("Identificador del último usuario procesado por el re-cifrado")
+                .register(registry);
+        Gauge.builder("ciberapp.reencryption.progress", this, ReEncryptionService::progress)
+                .description("Fracción de usuarios procesados en la ejecución actual del re-cifrado")
+                .register(registry);
+        Gauge.builder("ciberapp.reencryption.running", this, job -> job.isRunning() ? 1 : 0)
+                .description("1 si el re-cifrado está en ejecución")
+                .register(registry);
+    }
+
+    /**
+     * Reanuda al iniciar la aplicación una ejecución interrumpida, si `ciberapp.reencryption.resume-on-startup`
+     * es `true`.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void resumeOnStartup() {
+        if (resumeOnStartup && checkpointRepository.findById(JOB).map(c -> !c.isCompleted()).orElse(false)) {
+            logger.info("Se reanuda el re-cifrado interrumpido");
+            start(false);
+        }
+    }
+
+    /**
+     * Inicia el trabajo en un hilo en segundo plano.
+     *
+     * @param restart Si es `true`, empieza desde el primer usuario aunque exista una ejecución sin
+     *                terminar; si es `false`, continúa desde el último punto de control si lo hay.
+     * @return `false` si el trabajo ya estaba en ejecución.
+     */
+    public synchronized boolean start(boolean restart) {
+        if (isRunning()) {
+            return false;
+        }
+        stopRequested = false;
+        worker = Thread.ofVirtual().name("reencryption").start(() -> {
+            try {
+                run(restart);
+            } catch (RuntimeException e) {
+                logger.error("El re-cifrado se detuvo por un error; puede reanudarse desde el último punto de control", e);
+            }
+        });
+        return true;
+    }
+
+    /**
+     * Solicita que el trabajo se detenga al terminar el fragmento en curso.
+     */
+    public void stop() {
+        stopRequested = true;
+    }
+
+    public synchronized boolean isRunning() {
+        return worker != null && worker.isAlive();
+    }
+
+    /**
+     * @return Estado del trabajo y de su último punto de control.
+     */
+    public Map<String, Object> status() {
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("running", isRunning());
+        body.put("rowsPerSecond", rowsPerSecond);
+        body.put("progress", progress());
+        body.put("checkpoint", checkpointRepository.findById(JOB).orElse(null));
+        return body;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        stop();
+    }
+
+    private void run(boolean restart) {
+        ReEncryptionCheckpoint checkpoint = checkpointRepository.findById(JOB)
+                .filter(c -> !restart && !c.isCompleted())
+                .orElseGet(() -> new ReEncryptionCheckpoint(JOB, 0, 0, 0, 0, false, Instant.now(), Instant.now()));
+        lastId.set(checkpoint.getLastId());
+        processedRows.set(checkpoint.getProcessed());
+        totalRows.set(checkpoint.getProcessed() + usuarioRepository.countByIdGreaterThan(checkpoint.getLastId()));
+        logger.info("Re-cifrado iniciado desde el usuario {} ({} usuarios pendientes)",
+                checkpoint.getLastId(), totalRows.get() - processedRows.get());
+
+        long nanosPerRow = rowsPerSecond > 0 ? TimeUnit.SECONDS.toNanos(1) / rowsPerSecond : 0;
+        long next = System.nanoTime();
+        while (!stopRequested) {
+            Integer processed = transactionTemplate.execute(status -> processChunk(checkpoint));
+            if (processed == null || processed == 0) {
+                break;
+            }
+            if (nanosPerRow > 0) {
+                // Ritmo constante: no se acumula crédito por los fragmentos que tardaron más de lo previsto
+                next = Math.max(next, System.nanoTime()) + processed * nanosPerRow;
+                long wait = next - System.nanoTime();
+                if (wait > 0) {
+                    try {
+                        TimeUnit.NANOSECONDS.sleep(wait);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                }
+            }
+        }
+        logger.info("Re-cifrado {}: {} procesados, {} re-cifrados, {} con error",
+                checkpoint.isCompleted() ? "completado" : "detenido",
+                checkpoint.getProcessed(), checkpoint.getReEncrypted(), checkpoint.getFailed());
+    }
+
+    /**
+     * Re-cifra un fragmento y guarda el punto de control en la misma transacción.
+     *
+     * @return Número de usuarios del fragmento; cero si no quedan usuarios.
+     */
+    private int processChunk(ReEncryptionCheckpoint checkpoint) {
+        List<Usuario> users = usuarioRepository.findByIdGreaterThanOrderByIdAsc(
+                checkpoint.getLastId(), Limit.of(chunkSize), Usuario.class);
+        if (users.isEmpty()) {
+            checkpoint.setCompleted(true);
+            checkpoint.setUpdatedAt(Instant.now());
+            checkpointRepository.save(checkpoint);
+            return 0;
+        }
+
+        int[] outcomes = new int[users.size()];
+        IntStream.range(0, users.size()).parallel().forEach(i -> outcomes[i] = reEncrypt(users.get(i)));
+
+        long reEncrypted = 0;
+        long failed = 0;
+        for (int outcome : outcomes) {
+            if (outcome == RE_ENCRYPTED) {
+                reEncrypted++;
+            } else if (outcome == FAILED) {
+                failed++;
+            }
+        }
+        checkpoint.setLastId(users.get(users.size() - 1).getId());
+        checkpoint.setProcessed(checkpoint.getProcessed() + users.size());
+        checkpoint.setReEncrypted(checkpoint.getReEncrypted() + reEncrypted);
+        checkpoint.setFailed(checkpoint.getFailed() + failed);
+        checkpoint.setUpdatedAt(Instant.now());
+        checkpointRepository.save(checkpoint); // Los usuarios modificados se guardan al confirmar
+
+        reEncryptedRows.increment(reEncrypted);
+        failedRows.increment(failed);
+        skippedRows.increment(users.size() - reEncrypted - failed);
+        lastId.set(checkpoint.getLastId());
+        processedRows.set(checkpoint.getProcessed());
+        return users.size();
+    }
+
+    /**
+     * Re-cifra los datos cifrados y el token de un usuario si no usan las claves activas,
+     * conservando el modo de almacenamiento (binario o texto) de cada columna.
+     */
+    private int reEncrypt(Usuario user) {
+        try {
+            boolean changed = false;
+            if (user.getCipherBytes() != null) {
+                if (!cipherService.isCurrent(user.getCipherBytes())) {
+                    user.setCipherBytes(cipherService.reEncrypt(user.getCipherBytes()));
+                    changed = true;
+                }
+            } else if (user.getCipherData() != null) {
+                byte[] cipher = Base64.getDecoder().decode(user.getCipherData());
+                if (!cipherService.isCurrent(cipher)) {
+                    user.setCipherData(Base64.getEncoder().encodeToString(cipherService.reEncrypt(cipher)));
+                    changed = true;
+                }
+            }
+
+            if (user.getTokenBytes() != null) {
+                if (!tokenService.isCurrent(user.getTokenBytes())) {
+                    user.setTokenBytes(tokenService.reTokenize(user.getTokenBytes()));
+                    changed = true;
+                }
+            } else if (user.getToken() != null) {
+                byte[] token = TokenService.decodeToken(user.getToken());
+                if (!tokenService.isCurrent(token)) {
+                    user.setToken(tokenService.encodeToken(tokenService.reTokenize(token)));
+                    changed = true;
+                }
+            }
+            return changed ? RE_ENCRYPTED : SKIPPED;
+        } catch (Exception e) {
+            logger.warn("No se pudo re-cifrar el usuario {}", user.getId(), e);
+            return FAILED;
+        }
+    }
+
+    private double progress() {
+        long total = totalRows.get();
+        return total == 0 ? 0 : (double) processedRows.get() / total;
+    }
+
+    private static Counter rowCounter(MeterRegistry registry, String result) {
+        return Counter.builder("ciberapp.reencryption.rows")
+                .description("Usuarios procesados por el re-cifrado")
+                .tag("result", result)
+                .register(registry);
+    }
+}
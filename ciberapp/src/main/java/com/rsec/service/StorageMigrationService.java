@@ -0,0 +1,100 @@
+package com.rsec.service;
+
+import com.rsec.model.Usuario;
+import com.rsec.repository.UsuarioRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * Servicio que migra los usuarios guardados en el modo de texto (Base64 en columnas LOB)
+ * a las columnas binarias.
+ *
+ * La migración recorre la tabla por rangos de identificador en fragmentos, cada uno en su propia
+ * transacción, por lo que puede interrumpirse y volver a ejecutarse: solo procesa las filas que
+ * aún tienen datos en formato de texto. Las filas migradas y no migradas pueden leerse durante
+ * la migración, ya que `Usuario` prefiere el valor de texto si existe.
+ */
+@Service
+public class StorageMigrationService {
+
+    private static final Logger logger = LoggerFactory.getLogger(StorageMigrationService.class);
+
+    private final UsuarioRepository usuarioRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean migrateOnStartup;
+    private final int chunkSize;
+
+    /**
+     * Constructor del servicio.
+     *
+     * @param usuarioRepository   Repositorio de usuarios.
+     * @param transactionTemplate Plantilla de las transacciones de cada fragmento.
+     * @param migrateOnStartup    Si es `true`, la migración se ejecuta al iniciar la aplicación.
+     * @param chunkSize           Número de usuarios migrados en cada transacción.
+     */
+    public StorageMigrationService(UsuarioRepository usuarioRepository, TransactionTemplate transactionTemplate,
+                                   @Value("${ciberapp.storage.migrate-on-startup:false}") boolean migrateOnStartup,
+                                   @Value("${ciberapp.storage.migration-chunk-size:500}") int chunkSize) {
+        this.usuarioRepository = usuarioRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.migrateOnStartup = migrateOnStartup;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Ejecuta la migración al iniciar la aplicación si `ciberapp.storage.migrate-on-startup` es `true`.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void migrateOnStartup() {
+        if (migrateOnStartup) {
+            long migrated = migrateToBinary();
+            logger.info("Migración a almacenamiento binario completada: {} usuarios migrados", migrated);
+        }
+    }
+
+    /**
+     * Migra todos los usuarios con datos en formato de texto a las columnas binarias.
+     *
+     * @return Número de usuarios migrados.
+     */
+    public long migrateToBinary() {
+        long migrated = 0;
+        long lastId = 0;
+        while (true) {
+            long after = lastId;
+            List<Usuario> chunk = transactionTemplate.execute(status -> {
+                List<Usuario> users = usuarioRepository.findTextStoredAfter(after, PageRequest.of(0, chunkSize));
+                users.forEach(StorageMigrationService::moveToBinary);
+                return users; // Los cambios se guardan al confirmar la transacción
+            });
+            if (chunk == null || chunk.isEmpty()) {
+                return migrated;
+            }
+            migrated += chunk.size();
+            lastId = chunk.get(chunk.size() - 1).getId();
+        }
+    }
+
+    /**
+     * Decodifica los valores Base64 del usuario en las columnas binarias y vacía las columnas de texto.
+     */
+    private static void moveToBinary(Usuario user) {
+        if (user.getCipherData() != null && user.getCipherBytes() == null) {
+            user.setCipherBytes(Base64.getDecoder().decode(user.getCipherData()));
+        }
+        if (user.getToken() != null && user.getTokenBytes() == null) {
+            user.setTokenBytes(TokenService.decodeToken(user.getToken()));
+        }
+        user.setCipherData(null);
+        user.setToken(null);
+    }
+}
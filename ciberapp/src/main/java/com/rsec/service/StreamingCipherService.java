@@ -0,0 +1,270 @@
+package com.rsec.service;
+
+import com.rsec.metrics.ProtectionMetrics;
+import com.rsec.service.keys.ActiveKey;
+import com.rsec.service.keys.KeyProvider;
+import com.rsec.service.keys.KeyPurpose;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+
+import javax.crypto.Cipher;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.util.Arrays;
+
+/**
+ * Cifrado en streaming de datos de gran tamaño (por ejemplo, documentos adjuntos) con memoria constante.
+ *
+ * Los datos se dividen en segmentos de `ciberapp.streaming.segment-size` bytes y cada segmento se
+ * cifra y autentica por separado con AES-GCM. Formato:
+ * <pre>
+ * cabecera: [3][id de clave][tamaño de segmento: 4 bytes][sal: 16 bytes][prefijo de nonce: 7 bytes]
+ * segmentos: [segmento cifrado + tag de 16 bytes]...
+ * </pre>
+ * La clave de cada flujo se deriva de la clave `cipher` indicada en la cabecera y de la sal aleatoria
+ * (HMAC-SHA256), de modo que los nonces de flujos distintos nunca comparten clave. El nonce de cada
+ * segmento es `[prefijo][índice del segmento: 4 bytes][1 si es el último, 0 si no]` y la cabecera se
+ * autentica en todos los segmentos, por lo que no pueden reordenarse, eliminarse, truncarse ni
+ * mezclarse segmentos de otros flujos sin que falle el descifrado.
+ *
+ * Cada segmento se autentica antes de escribir su contenido en claro. Si un segmento posterior
+ * falla, el llamador ya habrá recibido los segmentos anteriores y debe descartar el resultado.
+ */
+@Service
+public class StreamingCipherService {
+
+    public static final byte FORMAT_STREAM_V1 = 3;
+
+    private static final int SALT_SIZE = 16;
+    private static final int NONCE_PREFIX_SIZE = 7;
+    private static final int HEADER_SIZE = 2 + 4 + SALT_SIZE + NONCE_PREFIX_SIZE;
+    private static final int TAG_BYTES = CryptoEngine.TAG_SIZE / 8;
+    private static final byte[] KEY_INFO = "ciberapp-stream-v1".getBytes(StandardCharsets.US_ASCII);
+
+    /**
+     * Tamaño máximo de segmento aceptado al descifrar, para que una cabecera manipulada no pueda
+     * forzar buffers arbitrariamente grandes.
+     */
+    private static final int MAX_SEGMENT_SIZE = 16 * 1024 * 1024;
+    private static final long MAX_SEGMENTS = 1L << 32;
+
+    private final CryptoEngine cryptoEngine;
+    private final String provider;
+    private final KeyProvider keyProvider;
+    private final int segmentSize;
+    private final ProtectionMetrics.Operation encryptMetrics;
+    private final ProtectionMetrics.Operation decryptMetrics;
+
+    /**
+     * Constructor del servicio.
+     *
+     * @param cryptoEngine Motor criptográfico compartido.
+     * @param keyProvider  Proveedor de las claves `cipher`.
+     * @param metrics      Métricas de las operaciones de protección.
+     * @param segmentSize  Tamaño de los segmentos en claro de los nuevos flujos cifrados.
+     * @param providers    Selector del proveedor JCE de AES-GCM.
+     * @throws IllegalArgumentException Si el tamaño de segmento está fuera de 1 KB a 16 MB.
+     */
+    public StreamingCipherService(CryptoEngine cryptoEngine, KeyProvider keyProvider, ProtectionMetrics metrics,
+                                  @Value("${ciberapp.streaming.segment-size:64KB}") DataSize segmentSize,
+                                  CipherProviderSelector providers) {
+        if (segmentSize.toBytes() < 1024 || segmentSize.toBytes() > MAX_SEGMENT_SIZE) {
+            throw new IllegalArgumentException("ciberapp.streaming.segment-size debe estar entre 1KB y 16MB.");
+        }
+        this.cryptoEngine = cryptoEngine;
+        this.provider = providers.provider();
+        this.keyProvider = keyProvider;
+        this.segmentSize = (int) segmentSize.toBytes();
+        this.encryptMetrics = metrics.operation("stream.encrypt");
+        this.decryptMetrics = metrics.operation("stream.decrypt");
+    }
+
+    /**
+     * Cifra todo el contenido de `in` y lo escribe en `out`. No cierra los canales.
+     *
+     * @param in  Datos en claro.
+     * @param out Destino del flujo cifrado.
+     * @return Número de bytes en claro cifrados.
+     * @throws IOException              Si falla la lectura o la escritura.
+     * @throws GeneralSecurityException Si falla el cifrado.
+     */
+    public long encrypt(ReadableByteChannel in, WritableByteChannel out) throws IOException, GeneralSecurityException {
+        long start = System.nanoTime();
+        try {
+            long total = doEncrypt(in, out);
+            encryptMetrics.success(start, total);
+            return total;
+        } catch (IOException | GeneralSecurityException | RuntimeException e) {
+            encryptMetrics.failure(start, e);
+            throw e;
+        }
+    }
+
+    /**
+     * Descifra un flujo producido por {@link #encrypt} y escribe el contenido en claro en `out`.
+     * La cabecera se valida antes de escribir nada. No cierra los canales.
+     *
+     * @param in  Flujo cifrado.
+     * @param out Destino de los datos en claro.
+     * @return Número de bytes en claro escritos.
+     * @throws IOException              Si falla la lectura o la escritura.
+     * @throws GeneralSecurityException Si la cabecera no es válida, la clave no existe o un segmento
+     *                                  no supera la autenticación.
+     */
+    public long decrypt(ReadableByteChannel in, WritableByteChannel out) throws IOException, GeneralSecurityException {
+        long start = System.nanoTime();
+        try {
+            long total = doDecrypt(in, out);
+            decryptMetrics.success(start, total);
+            return total;
+        } catch (IOException | GeneralSecurityException | RuntimeException e) {
+            decryptMetrics.failure(start, e);
+            throw e;
+        }
+    }
+
+    private long doEncrypt(ReadableByteChannel in, WritableByteChannel out) throws IOException, GeneralSecurityException {
+        ActiveKey active = keyProvider.activeKey(KeyPurpose.CIPHER);
+        byte[] random = new byte[SALT_SIZE + NONCE_PREFIX_SIZE];
+        cryptoEngine.nextBytes(random);
+        byte[] header = new byte[HEADER_SIZE];
+        ByteBuffer.wrap(header).put(FORMAT_STREAM_V1).put((byte) active.id()).putInt(segmentSize).put(random);
+        SecretKey streamKey = streamKey(active.key(), header);
+        writeFully(out, ByteBuffer.wrap(header));
+
+        // Un byte más que el segmento para saber, sin leer otro bloque, si el segmento es el último
+        ByteBuffer plain = ByteBuffer.allocate(segmentSize + 1);
+        ByteBuffer sealed = ByteBuffer.allocate(segmentSize + TAG_BYTES);
+        Cipher cipher = cryptoEngine.borrow(provider);
+        try {
+            long total = 0;
+            for (long index = 0; ; index++) {
+                checkSegmentIndex(index);
+                boolean last = fill(in, plain);
+                plain.flip();
+                int length = last ? plain.remaining() : segmentSize;
+                cipher.init(Cipher.ENCRYPT_MODE, streamKey, nonce(header, index, last));
+                cipher.updateAAD(header);
+                sealed.clear();
+                cipher.doFinal(plain.slice(plain.position(), length), sealed);
+                sealed.flip();
+                writeFully(out, sealed);
+                total += length;
+                plain.position(plain.position() + length).compact();
+                if (last) {
+                    return total;
+                }
+            }
+        } finally {
+            cryptoEngine.release(provider, cipher);
+        }
+    }
+
+    private long doDecrypt(ReadableByteChannel in, WritableByteChannel out) throws IOException, GeneralSecurityException {
+        ByteBuffer headerBuffer = ByteBuffer.allocate(HEADER_SIZE);
+        if (fill(in, headerBuffer) || headerBuffer.get(0) != FORMAT_STREAM_V1) {
+            throw new GeneralSecurityException("El flujo no tiene una cabecera de cifrado en streaming válida.");
+        }
+        byte[] header = headerBuffer.array();
+        int keyId = header[1] & 0xFF;
+        int storedSegmentSize = headerBuffer.getInt(2);
+        if (storedSegmentSize <= 0 || storedSegmentSize > MAX_SEGMENT_SIZE) {
+            throw new GeneralSecurityException("Tamaño de segmento no válido: " + storedSegmentSize);
+        }
+        SecretKey key = keyProvider.key(KeyPurpose.CIPHER, keyId);
+        if (key == null) {
+            throw new GeneralSecurityException("No existe la clave cipher-" + keyId + ".");
+        }
+        SecretKey streamKey = streamKey(key, header);
+
+        int sealedSize = storedSegmentSize + TAG_BYTES;
+        ByteBuffer sealed = ByteBuffer.allocate(sealedSize + 1);
+        ByteBuffer plain = ByteBuffer.allocate(storedSegmentSize);
+        Cipher cipher = cryptoEngine.borrow(provider);
+        try {
+            long total = 0;
+            for (long index = 0; ; index++) {
+                checkSegmentIndex(index);
+                boolean last = fill(in, sealed);
+                sealed.flip();
+                int length = last ? sealed.remaining() : sealedSize;
+                if (length < TAG_BYTES) {
+                    throw new GeneralSecurityException("El flujo cifrado está truncado.");
+                }
+                cipher.init(Cipher.DECRYPT_MODE, streamKey, nonce(header, index, last));
+                cipher.updateAAD(header);
+                plain.clear();
+                cipher.doFinal(sealed.slice(sealed.position(), length), plain);
+                plain.flip();
+                total += plain.remaining();
+                writeFully(out, plain);
+                sealed.position(sealed.position() + length).compact();
+                if (last) {
+                    return total;
+                }
+            }
+        } finally {
+            cryptoEngine.release(provider, cipher);
+        }
+    }
+
+    /**
+     * Deriva la clave AES-256 del flujo a partir de la clave `cipher` y la sal de la cabecera.
+     */
+    private SecretKey streamKey(SecretKey key, byte[] header) throws GeneralSecurityException {
+        byte[] input = new byte[SALT_SIZE + KEY_INFO.length];
+        System.arraycopy(header, 6, input, 0, SALT_SIZE);
+        System.arraycopy(KEY_INFO, 0, input, SALT_SIZE, KEY_INFO.length);
+        byte[] derived = cryptoEngine.hmacSha256(key, input);
+        try {
+            return new SecretKeySpec(derived, "AES");
+        } finally {
+            Arrays.fill(derived, (byte) 0);
+        }
+    }
+
+    /**
+     * Construye el nonce de un segmento: prefijo de la cabecera, índice y marca de último segmento.
+     */
+    private static GCMParameterSpec nonce(byte[] header, long index, boolean last) {
+        byte[] nonce = new byte[CryptoEngine.IV_SIZE];
+        System.arraycopy(header, HEADER_SIZE - NONCE_PREFIX_SIZE, nonce, 0, NONCE_PREFIX_SIZE);
+        ByteBuffer.wrap(nonce, NONCE_PREFIX_SIZE, 4).putInt((int) index);
+        nonce[CryptoEngine.IV_SIZE - 1] = (byte) (last ? 1 : 0);
+        return new GCMParameterSpec(CryptoEngine.TAG_SIZE, nonce);
+    }
+
+    private static void checkSegmentIndex(long index) throws GeneralSecurityException {
+        if (index >= MAX_SEGMENTS) {
+            throw new GeneralSecurityException("El flujo excede el número máximo de segmentos.");
+        }
+    }
+
+    /**
+     * Lee hasta llenar el buffer o llegar al final del canal.
+     *
+     * @return `true` si se llegó al final del canal.
+     */
+    private static boolean fill(ReadableByteChannel in, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (in.read(buffer) < 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void writeFully(WritableByteChannel out, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            out.write(buffer);
+        }
+    }
+}
@@ -1,12 +1,15 @@
 package com.rsec.service;
 
 import com.fasterxml.jackson.core.type.TypeReference;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.rsec.exceptions.TokenizationException;
+import com.rsec.metrics.ProtectionMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import com.rsec.service.keys.ActiveKey;
+import com.rsec.service.keys.KeyProvider;
+import com.rsec.service.keys.KeyPurpose;
 import org.springframework.stereotype.Service;
-import javax.crypto.Cipher;
-import javax.crypto.spec.GCMParameterSpec;
-import javax.crypto.spec.SecretKeySpec;
+import javax.crypto.SecretKey;
+import java.security.GeneralSecurityException;
 import java.util.Base64;
 import java.util.Map;
 
@@ -14,19 +17,84 @@ import java.util.Map;
 
 /**
  * Servicio para la generación y descifrado de tokens cifrados.
- * Los tokens son generados utilizando el algoritmo AES en modo GCM con un tamaño de clave de 128 bits
- * y un vector de inicialización (IV) para garantizar la seguridad de los datos sensibles.
+ * Los tokens son generados utilizando el algoritmo AES en modo GCM con las claves del
+ * {@link KeyProvider} (uso `token`) y un vector de inicialización (IV) para garantizar la
+ * seguridad de los datos sensibles.
+ * Las operaciones criptográficas se delegan en el {@link CryptoEngine} compartido.
+ *
+ * Se admiten dos formatos de token:
+ * <ul>
+ *     <li>Compacto: Base64 URL-safe sin relleno de
+ *     `[versión (1 byte)][id de clave (1 byte)][IV][AES-GCM(campos)]`, donde los campos se codifican
+ *     con {@link FieldCodec} en el orden username, email, name y la cabecera se autentica como AAD.
+ *     Es el único formato en que se generan tokens nuevos.</li>
+ *     <li>Heredado: Base64 estándar de `[IV][AES-GCM(JSON)]`, cifrado con `token-1`. Solo se acepta en
+ *     `detokenize`: `token-1` es la clave fija publicada antes del almacén de claves, por lo que un
+ *     token nuevo en este formato podría descifrarse o falsificarse. `ciberapp.token.format=legacy`
+ *     ya no se admite y el servicio no arranca con ese valor.</li>
+ * </ul>
  *
  * @author marco vences
  */
 @Service
 public class TokenService {
 
-    private static final String ALGORITHM = "AES";
-    private static final String TRANSFORMATION = "AES/GCM/NoPadding";
-    private static final int IV_SIZE = 12; // Tamaño del vector de inicialización en bytes
-    private static final int TAG_SIZE = 128; // Tamaño del tag de autenticación en bits
-    private static final byte[] SECRET_KEY = "1234567890123456".getBytes(); // Clave secreta para el cifrado
+    private static final TypeReference<Map<String, String>> MAP_TYPE = new TypeReference<>() {};
+
+    private static final byte FORMAT_COMPACT_V1 = 1; // Versión del formato compacto
+    private static final int LEGACY_KEY_ID = 1; // Clave de los tokens en formato heredado
+
+    /**
+     * Motor criptográfico compartido.
+     */
+    private final CryptoEngine cryptoEngine;
+
+    /**
+     * Caché opcional de tokens ya detokenizados.
+     */
+    private final PlaintextCache plaintextCache;
+
+    /**
+     * Proveedor JCE de AES-GCM elegido por {@link CipherProviderSelector}.
+     */
+    private final String provider;
+
+    /**
+     * Proveedor de las claves de los tokens.
+     */
+    private final KeyProvider keyProvider;
+
+    /**
+     * Métricas de tokenización y detokenización.
+     */
+    private final ProtectionMetrics.Operation tokenizeMetrics;
+    private final ProtectionMetrics.Operation detokenizeMetrics;
+
+    /**
+     * Constructor del servicio.
+     *
+     * @param cryptoEngine   Motor criptográfico compartido.
+     * @param plaintextCache Caché opcional de resultados de detokenización.
+     * @param metrics        Métricas de las operaciones de protección.
+     * @param keyProvider    Proveedor de las claves de los tokens.
+     * @param format         Formato de los nuevos tokens; solo se admite `compact`.
+     * @param providers      Selector del proveedor JCE de AES-GCM.
+     * @throws IllegalArgumentException Si el formato no es `compact`.
+     */
+    public TokenService(CryptoEngine cryptoEngine, PlaintextCache plaintextCache, ProtectionMetrics metrics,
+                        KeyProvider keyProvider, @Value("${ciberapp.token.format:compact}") String format,
+                        CipherProviderSelector providers) {
+        if (!"compact".equalsIgnoreCase(format.strip())) {
+            throw new IllegalArgumentException("ciberapp.token.format=" + format + " no es válido: los tokens nuevos "
+                    + "solo se generan en el formato compacto. Los tokens heredados se siguen aceptando al detokenizar.");
+        }
+        this.cryptoEngine = cryptoEngine;
+        this.provider = providers.provider();
+        this.plaintextCache = plaintextCache;
+        this.keyProvider = keyProvider;
+        this.tokenizeMetrics = metrics.operation("token.tokenize");
+        this.detokenizeMetrics = metrics.operation("token.detokenize");
+    }
 
     /**
      * Genera un token cifrado basado en el username, email y name proporcionados.
@@ -37,80 +105,167 @@ public class TokenService {
      * @return Token cifrado codificado en Base64.
      * @throws TokenizationException Si ocurre algún error durante la tokenización.
      */
-    public static String tokenize(String username, String email, String name) throws TokenizationException {
-        try {
-            // Crear un JSON con los datos
-            String json = String.format("{\"username\":\"%s\",\"email\":\"%s\",\"name\":\"%s\"}", username, email, name);
-
-            // Generar el IV
-            byte[] iv = generateIV();
-
-            // Inicializar el cifrado
-            Cipher cipher = Cipher.getInstance(TRANSFORMATION);
-            GCMParameterSpec parameterSpec = new GCMParameterSpec(TAG_SIZE, iv);
-            cipher.init(Cipher.ENCRYPT_MODE, new SecretKeySpec(SECRET_KEY, ALGORITHM), parameterSpec);
+    public String tokenize(String username, String email, String name) throws TokenizationException {
+        return encodeToken(tokenizeToBytes(username, email, name));
+    }
 
-            // Cifrar los datos
-            byte[] encryptedData = cipher.doFinal(json.getBytes());
+    /**
+     * Codifica un token en binario como texto en Base64 URL-safe sin relleno.
+     *
+     * @param token Token en binario.
+     * @return Token en texto.
+     */
+    public String encodeToken(byte[] token) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(token);
+    }
 
-            // Combinar IV y datos cifrados
-            byte[] combined = new byte[IV_SIZE + encryptedData.length];
-            System.arraycopy(iv, 0, combined, 0, IV_SIZE);
-            System.arraycopy(encryptedData, 0, combined, IV_SIZE, encryptedData.length);
+    /**
+     * Genera un token cifrado en binario, sin codificar en Base64, para el modo de almacenamiento binario.
+     *
+     * @param username Nombre de usuario.
+     * @param email    Correo electrónico.
+     * @param name     Nombre completo.
+     * @return Token en binario.
+     * @throws TokenizationException Si ocurre algún error durante la tokenización.
+     */
+    public byte[] tokenizeToBytes(String username, String email, String name) throws TokenizationException {
+        return tokenizeCanonical(FieldCodec.encodeUser(username, email, name));
+    }
 
-            // Codificar en Base64 y devolver
-            return Base64.getEncoder().encodeToString(combined);
+    /**
+     * Genera un token en binario a partir de los campos ya codificados con {@link FieldCodec#encodeUser}.
+     *
+     * @param canonical Representación canónica de los campos.
+     * @return Token en binario.
+     * @throws TokenizationException Si ocurre algún error durante la tokenización.
+     */
+    public byte[] tokenizeCanonical(byte[] canonical) throws TokenizationException {
+        long start = System.nanoTime();
+        try {
+            ActiveKey key = keyProvider.activeKey(KeyPurpose.TOKEN);
+            byte[] header = {FORMAT_COMPACT_V1, (byte) key.id()};
+            byte[] token = cryptoEngine.encrypt(provider, key.key(), header, canonical);
+            tokenizeMetrics.success(start, token.length);
+            return token;
         } catch (Exception e) {
+            tokenizeMetrics.failure(start, e);
             throw new TokenizationException("Error durante la tokenización", e);
         }
     }
 
     /**
      * Descifra un token cifrado para recuperar los datos originales.
+     * Acepta tanto el formato compacto como el formato heredado, en Base64 estándar o URL-safe.
      *
      * @param token Token cifrado codificado en Base64.
      * @return Mapa con las claves y valores recuperados del token (username, email, name).
      * @throws TokenizationException Si ocurre algún error durante la detokenización.
      */
-    public static Map<String, String> detokenize(String token) throws TokenizationException {
+    public Map<String, String> detokenize(String token) throws TokenizationException {
+        Map<String, String> cached = plaintextCache.getFields(PlaintextCache.TOKEN, token);
+        if (cached != null) {
+            return cached;
+        }
+        byte[] decoded;
         try {
-            byte[] decodedToken = Base64.getDecoder().decode(token);
-
-            // Validar longitud del token
-            if (decodedToken.length < IV_SIZE) {
-                throw new TokenizationException("El token es demasiado corto para contener un IV válido.", new Exception());
-            }
-
-            // Extraer IV y datos cifrados
-            byte[] iv = new byte[IV_SIZE];
-            byte[] encryptedBytes = new byte[decodedToken.length - IV_SIZE];
-            System.arraycopy(decodedToken, 0, iv, 0, IV_SIZE);
-            System.arraycopy(decodedToken, IV_SIZE, encryptedBytes, 0, encryptedBytes.length);
-
-            // Inicializar el descifrado
-            Cipher cipher = Cipher.getInstance(TRANSFORMATION);
-            GCMParameterSpec parameterSpec = new GCMParameterSpec(TAG_SIZE, iv);
-            cipher.init(Cipher.DECRYPT_MODE, new SecretKeySpec(SECRET_KEY, ALGORITHM), parameterSpec);
-
-            // Descifrar los datos
-            String json = new String(cipher.doFinal(encryptedBytes));
-
-            // Analizar el JSON para obtener los datos originales
-            ObjectMapper objectMapper = new ObjectMapper();
-            return objectMapper.readValue(json, new TypeReference<Map<String, String>>() {});
+            decoded = decodeToken(token);
+        } catch (IllegalArgumentException e) {
+            throw new TokenizationException("Error durante la detokenización", e);
+        }
+        Map<String, String> fields = detokenize(decoded);
+        plaintextCache.putFields(PlaintextCache.TOKEN, token, fields);
+        return fields;
+    }
+
+    /**
+     * Descifra un token en binario, en formato compacto o heredado.
+     *
+     * @param token Token en binario.
+     * @return Mapa con las claves y valores recuperados del token (username, email, name).
+     * @throws TokenizationException Si ocurre algún error durante la detokenización.
+     */
+    public Map<String, String> detokenize(byte[] token) throws TokenizationException {
+        long start = System.nanoTime();
+        try {
+            byte[] canonical = cryptoEngine.decryptVersioned(provider, keyProvider, KeyPurpose.TOKEN, token, FORMAT_COMPACT_V1);
+            Map<String, String> fields = canonical != null
+                    ? FieldCodec.decodeUser(canonical, 0, canonical.length)
+                    : detokenizeLegacy(token);
+            detokenizeMetrics.success(start, token.length);
+            return fields;
+        } catch (TokenizationException e) {
+            detokenizeMetrics.failure(start, e);
+            throw e;
         } catch (Exception e) {
+            detokenizeMetrics.failure(start, e);
             throw new TokenizationException("Error durante la detokenización", e);
         }
     }
 
     /**
-     * Genera un vector de inicialización (IV) aleatorio.
+     * Indica si un token ya está en el formato compacto con la clave `token` activa. Los tokens
+     * heredados nunca son actuales.
+     *
+     * @param token Token en binario.
+     * @return `true` si no necesita regenerarse tras una rotación de claves.
+     */
+    public boolean isCurrent(byte[] token) {
+        return token.length > 2 && token[0] == FORMAT_COMPACT_V1
+                && (token[1] & 0xFF) == keyProvider.activeKey(KeyPurpose.TOKEN).id();
+    }
+
+    /**
+     * Descifra un token en cualquiera de los formatos aceptados y lo genera de nuevo con el formato
+     * y la clave actuales.
+     *
+     * @param token Token en binario.
+     * @return El nuevo token en binario.
+     * @throws TokenizationException Si el token no puede descifrarse o generarse.
+     */
+    public byte[] reTokenize(byte[] token) throws TokenizationException {
+        Map<String, String> fields = detokenize(token);
+        return tokenizeCanonical(FieldCodec.encodeUser(fields.get("username"), fields.get("email"), fields.get("name")));
+    }
+
+    /**
+     * Decodifica un token en texto, aceptando Base64 estándar (tokens heredados) y URL-safe
+     * (tokens compactos y tokens guardados en binario), con o sin relleno.
      *
-     * @return Un arreglo de bytes que representa el IV.
+     * @param token Token en texto.
+     * @return Token en binario.
+     * @throws IllegalArgumentException Si el texto no es Base64 válido.
      */
-    private static byte[] generateIV() {
-        byte[] iv = new byte[IV_SIZE];
-        new java.security.SecureRandom().nextBytes(iv);
-        return iv;
+    public static byte[] decodeToken(String token) {
+        return token.indexOf('+') >= 0 || token.indexOf('/') >= 0
+                ? Base64.getDecoder().decode(token)
+                : Base64.getUrlDecoder().decode(token);
+    }
+
+    /**
+     * Descifra un token en el formato heredado (IV y JSON cifrado).
+     */
+    private Map<String, String> detokenizeLegacy(byte[] decodedToken) throws Exception {
+        // Validar longitud del token
+        if (decodedToken.length < CryptoEngine.IV_SIZE) {
+            throw new TokenizationException("El token es demasiado corto para contener un IV válido.", new Exception());
+        }
+
+        // Descifrar los datos
+        byte[] json = cryptoEngine.decrypt(provider, legacyKey(), decodedToken);
+
+        // Analizar el JSON para obtener los datos originales
+        return cryptoEngine.getObjectMapper().readValue(json, MAP_TYPE);
+    }
+
+    /**
+     * Clave de los tokens en formato heredado, que no llevan identificador de clave. Solo se usa
+     * para descifrar.
+     */
+    private SecretKey legacyKey() throws GeneralSecurityException {
+        SecretKey key = keyProvider.key(KeyPurpose.TOKEN, LEGACY_KEY_ID);
+        if (key == null) {
+            throw new GeneralSecurityException("No existe la clave token-" + LEGACY_KEY_ID + " para tokens heredados.");
+        }
+        return key;
     }
 }
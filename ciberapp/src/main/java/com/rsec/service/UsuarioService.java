@@ -0,0 +1,357 @@
+package com.rsec.service;
+
+import com.rsec.dto.BatchItemResult;
+import com.rsec.dto.BatchResponse;
+import com.rsec.dto.UsuarioPage;
+import com.rsec.model.Usuario;
+import com.rsec.repository.UsuarioRepository;
+import com.rsec.repository.UsuarioSummary;
+import com.rsec.service.keys.DataKeyService;
+import com.rsec.service.pipeline.DataProtectionPipeline;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * Servicio que aplica la protección de datos (cifrado, tokenización y enmascaramiento)
+ * a los usuarios y los persiste, de forma individual o por lotes.
+ */
+@Service
+public class UsuarioService {
+
+    private static final Logger logger = LoggerFactory.getLogger(UsuarioService.class);
+
+    /**
+     * Valores del parámetro `view` de los endpoints de consulta.
+     */
+    public static final String VIEW_FULL = "full";
+    public static final String VIEW_SUMMARY = "summary";
+
+    private final UsuarioRepository usuarioRepository;
+    private final DataProtectionPipeline protectionPipeline;
+    private final BlindIndexService blindIndexService;
+    private final DataKeyService dataKeyService;
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionTemplate readOnlyTransactionTemplate;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    /**
+     * Número de usuarios que se insertan en cada transacción. Coincide con el tamaño
+     * de lote JDBC de Hibernate para que cada fragmento se envíe en un solo batch.
+     */
+    @Value("${spring.jpa.properties.hibernate.jdbc.batch_size:50}")
+    private int chunkSize;
+
+    /**
+     * Número máximo de usuarios aceptados en una sola solicitud por lotes.
+     */
+    @Value("${ciberapp.batch.max-size:50000}")
+    private int maxBatchSize;
+
+    /**
+     * Número máximo de usuarios por página en la paginación por cursor.
+     */
+    @Value("${ciberapp.page.max-size:1000}")
+    private int maxPageSize;
+
+    public UsuarioService(UsuarioRepository usuarioRepository, DataProtectionPipeline protectionPipeline,
+                          BlindIndexService blindIndexService, DataKeyService dataKeyService,
+                          TransactionTemplate transactionTemplate) {
+        this.usuarioRepository = usuarioRepository;
+        this.protectionPipeline = protectionPipeline;
+        this.blindIndexService = blindIndexService;
+        this.dataKeyService = dataKeyService;
+        this.transactionTemplate = transactionTemplate;
+        this.readOnlyTransactionTemplate = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        this.readOnlyTransactionTemplate.setReadOnly(true);
+    }
+
+    /**
+     * Valida el usuario y reemplaza sus datos en claro por los datos cifrados, el token
+     * y los valores enmascarados, mediante las etapas del {@link DataProtectionPipeline}.
+     *
+     * @param user Usuario con los datos en claro.
+     * @return El mismo usuario, listo para ser persistido.
+     * @throws Exception Si el usuario es inválido u ocurre un error durante el cifrado o la tokenización.
+     */
+    public Usuario protect(Usuario user) throws Exception {
+        return protect(user, DataKeyService.DEFAULT_SCOPE);
+    }
+
+    /**
+     * Valida y protege un usuario cifrándolo con la clave de datos de un ámbito propio, por ejemplo
+     * el de un lote o una importación (ver {@link DataKeyService#newScope(String)}).
+     *
+     * @param user     Usuario con los datos en claro.
+     * @param keyScope Ámbito de la clave de datos; se ignora sin cifrado por sobre.
+     * @return El mismo usuario, listo para ser persistido.
+     * @throws Exception Si el usuario es inválido u ocurre un error durante el cifrado o la tokenización.
+     */
+    public Usuario protect(Usuario user, String keyScope) throws Exception {
+        if (user.getUsername() == null || user.getUsername().isEmpty() ||
+                user.getEmail() == null || user.getEmail().isEmpty()) {
+            throw new IllegalArgumentException("El username y el email no pueden estar vacíos.");
+        }
+        return protectionPipeline.protect(user, keyScope);
+    }
+
+    /**
+     * Protege y guarda un usuario.
+     *
+     * @param user Usuario con los datos en claro.
+     * @return El usuario guardado.
+     * @throws Exception Si el usuario es inválido u ocurre un error durante la protección.
+     */
+    public Usuario create(Usuario user) throws Exception {
+        return usuarioRepository.save(protect(user));
+    }
+
+    /**
+     * Obtiene la clase de la vista solicitada.
+     *
+     * @param view `full` (o `null`) para la entidad completa, `summary` para la vista resumida.
+     * @return `Usuario.class` o `UsuarioSummary.class`.
+     * @throws IllegalArgumentException Si la vista no es válida.
+     */
+    public Class<?> viewType(String view) {
+        if (view == null || VIEW_FULL.equalsIgnoreCase(view)) {
+            return Usuario.class;
+        }
+        if (VIEW_SUMMARY.equalsIgnoreCase(view)) {
+            return UsuarioSummary.class;
+        }
+        throw new IllegalArgumentException("Vista no válida: " + view + ". Valores permitidos: full, summary.");
+    }
+
+    /**
+     * Busca un usuario por su identificador.
+     *
+     * La vista completa se obtiene con `findById`, que consulta primero la caché de segundo nivel;
+     * la vista resumida se lee con una consulta que solo selecciona sus columnas.
+     *
+     * @param id   Identificador del usuario.
+     * @param type Clase de la vista: `Usuario` o `UsuarioSummary`.
+     * @param <T>  Tipo de la vista.
+     * @return El usuario, si existe.
+     */
+    public <T> Optional<T> findById(Long id, Class<T> type) {
+        if (type == Usuario.class) {
+            return usuarioRepository.findById(id).map(type::cast);
+        }
+        return usuarioRepository.findProjectedById(id, type);
+    }
+
+    /**
+     * Calcula el ETag de un usuario a partir de su identificador, su versión y la vista,
+     * sin serializarlo.
+     *
+     * @param user Usuario en la vista `Usuario` o `UsuarioSummary`.
+     * @return El ETag entre comillas, por ejemplo `"15-0-full"`.
+     */
+    public String etag(Object user) {
+        if (user instanceof Usuario u) {
+            return "\"" + u.getId() + "-" + u.getVersion() + "-" + VIEW_FULL + "\"";
+        }
+        UsuarioSummary summary = (UsuarioSummary) user;
+        return "\"" + summary.getId() + "-" + summary.getVersion() + "-" + VIEW_SUMMARY + "\"";
+    }
+
+    /**
+     * Busca un usuario por su nombre de usuario real mediante el índice ciego.
+     *
+     * @param username Nombre de usuario en claro.
+     * @param type     Clase de la vista: `Usuario` o `UsuarioSummary`.
+     * @param <T>      Tipo de la vista.
+     * @return El usuario, si existe.
+     */
+    public <T> Optional<T> findByUsername(String username, Class<T> type) {
+        return usuarioRepository.findByUsernameIndex(blindIndexService.usernameIndex(username), type);
+    }
+
+    /**
+     * Busca un usuario por su correo electrónico real mediante el índice ciego.
+     *
+     * @param email Correo electrónico en claro.
+     * @param type  Clase de la vista: `Usuario` o `UsuarioSummary`.
+     * @param <T>   Tipo de la vista.
+     * @return El usuario, si existe.
+     */
+    public <T> Optional<T> findByEmail(String email, Class<T> type) {
+        return usuarioRepository.findByEmailIndex(blindIndexService.emailIndex(email), type);
+    }
+
+    /**
+     * Crea un lote de usuarios.
+     *
+     * La protección de cada usuario se ejecuta en paralelo sobre todos los núcleos disponibles. Con
+     * cifrado por sobre, el lote se cifra con una clave de datos propia que no se reutiliza después.
+     * Después, los usuarios válidos se insertan en fragmentos de `chunkSize`, cada uno en su propia
+     * transacción para que Hibernate los envíe como un batch JDBC. Si un fragmento falla (por ejemplo,
+     * por una restricción de unicidad), sus usuarios se reintentan uno a uno para identificar
+     * exactamente qué elementos fallaron.
+     *
+     * @param users Usuarios con los datos en claro.
+     * @return El resultado de cada elemento, en el orden de la solicitud.
+     */
+    public BatchResponse createBatch(List<Usuario> users) {
+        if (users == null || users.isEmpty()) {
+            throw new IllegalArgumentException("El lote no puede estar vacío.");
+        }
+        if (users.size() > maxBatchSize) {
+            throw new IllegalArgumentException("El lote excede el máximo de " + maxBatchSize + " usuarios.");
+        }
+
+        BatchItemResult[] results = new BatchItemResult[users.size()];
+
+        // Proteger en paralelo; los errores se registran por elemento
+        String keyScope = dataKeyService.newScope("batch");
+        try {
+            IntStream.range(0, users.size()).parallel().forEach(i -> {
+                Usuario user = users.get(i);
+                if (user == null) {
+                    results[i] = BatchItemResult.failed(i, "El usuario no puede ser nulo.");
+                    return;
+                }
+                try {
+                    user.resetIdentity();
+                    protect(user, keyScope);
+                } catch (Exception e) {
+                    results[i] = BatchItemResult.failed(i, e.getMessage());
+                }
+            });
+        } finally {
+            dataKeyService.release(keyScope);
+        }
+
+        // Persistir los usuarios protegidos por fragmentos
+        List<Integer> chunk = new ArrayList<>(chunkSize);
+        for (int i = 0; i < users.size(); i++) {
+            if (results[i] != null) {
+                continue;
+            }
+            chunk.add(i);
+            if (chunk.size() == chunkSize) {
+                saveChunk(users, chunk, results);
+                chunk.clear();
+            }
+        }
+        if (!chunk.isEmpty()) {
+            saveChunk(users, chunk, results);
+        }
+
+        int created = (int) Arrays.stream(results).filter(r -> r.getId() != null).count();
+        return new BatchResponse(results.length, created, results.length - created, Arrays.asList(results));
+    }
+
+    /**
+     * Inserta un fragmento en una sola transacción; si falla, reintenta cada usuario por separado.
+     */
+    private void saveChunk(List<Usuario> users, List<Integer> chunk, BatchItemResult[] results) {
+        List<Usuario> entities = new ArrayList<>(chunk.size());
+        for (int index : chunk) {
+            entities.add(users.get(index));
+        }
+        try {
+            transactionTemplate.executeWithoutResult(status -> usuarioRepository.saveAll(entities));
+            for (int index : chunk) {
+                results[index] = BatchItemResult.created(index, users.get(index).getId());
+            }
+        } catch (RuntimeException e) {
+            logger.debug("Fallo el fragmento de {} usuarios, se reintenta individualmente", chunk.size(), e);
+            for (int index : chunk) {
+                Usuario user = users.get(index);
+                user.resetIdentity(); // El identificador y la versión de la transacción revertida ya no son válidos
+                try {
+                    Usuario saved = transactionTemplate.execute(status -> usuarioRepository.save(user));
+                    results[index] = BatchItemResult.created(index, saved.getId());
+                } catch (RuntimeException itemError) {
+                    user.resetIdentity();
+                    results[index] = BatchItemResult.failed(index, rootMessage(itemError));
+                }
+            }
+        }
+    }
+
+    /**
+     * Obtiene una página de usuarios mediante paginación por cursor.
+     *
+     * @param after Identificador del último usuario de la página anterior, o `null` para la primera página.
+     * @param size  Número de usuarios solicitados; se limita a `ciberapp.page.max-size`.
+     * @param type  Clase de la vista: `Usuario` o `UsuarioSummary`.
+     * @return La página con sus usuarios y el cursor de la siguiente página.
+     */
+    public UsuarioPage<?> findPage(Long after, int size, Class<?> type) {
+        if (type == UsuarioSummary.class) {
+            return findPage(after, size, UsuarioSummary.class, UsuarioSummary::getId);
+        }
+        return findPage(after, size, Usuario.class, Usuario::getId);
+    }
+
+    private <T> UsuarioPage<T> findPage(Long after, int size, Class<T> type, Function<T, Long> idOf) {
+        if (size <= 0) {
+            throw new IllegalArgumentException("El tamaño de página debe ser mayor que cero.");
+        }
+        int limit = Math.min(size, maxPageSize);
+        List<T> items = usuarioRepository.findByIdGreaterThanOrderByIdAsc(after == null ? 0L : after, Limit.of(limit), type);
+        Long nextCursor = items.size() < limit ? null : idOf.apply(items.get(items.size() - 1));
+        return new UsuarioPage<>(items, nextCursor);
+    }
+
+    /**
+     * Recorre todos los usuarios sin cargarlos en memoria a la vez.
+     *
+     * Las filas se leen en bloques desde la base de datos dentro de una transacción de solo lectura
+     * y cada entidad se separa del contexto de persistencia después de entregarla, de modo que el
+     * consumo de memoria no depende del tamaño de la tabla.
+     *
+     * @param consumer Acción a ejecutar sobre cada usuario, en orden de identificador.
+     */
+    public void forEachUser(Consumer<Usuario> consumer) {
+        readOnlyTransactionTemplate.executeWithoutResult(status -> {
+            try (Stream<Usuario> users = usuarioRepository.streamAll()) {
+                users.forEach(user -> {
+                    consumer.accept(user);
+                    entityManager.detach(user);
+                });
+            }
+        });
+    }
+
+    /**
+     * Recorre la vista resumida de todos los usuarios sin cargarlos en memoria a la vez.
+     * Solo se leen el identificador y los datos enmascarados.
+     *
+     * @param consumer Acción a ejecutar sobre cada usuario, en orden de identificador.
+     */
+    public void forEachSummary(Consumer<UsuarioSummary> consumer) {
+        readOnlyTransactionTemplate.executeWithoutResult(status -> {
+            try (Stream<UsuarioSummary> users = usuarioRepository.streamAllSummaries()) {
+                users.forEach(consumer);
+            }
+        });
+    }
+
+    private static String rootMessage(Throwable e) {
+        Throwable root = e;
+        while (root.getCause() != null && root.getCause() != root) {
+            root = root.getCause();
+        }
+        return root.getMessage();
+    }
+}
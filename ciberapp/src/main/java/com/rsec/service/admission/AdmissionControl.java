@@ -0,0 +1,168 @@
+package com.rsec.service.admission;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Control de admisión de los endpoints que consumen CPU en cifrado y serialización.
+ *
+ * Aplica dos límites, ambos sin bloqueos:
+ * <ul>
+ *     <li>Por cliente, un token bucket de `ciberapp.admission.rate-per-second` solicitudes por segundo
+ *     con ráfagas de hasta `ciberapp.admission.burst`. Se implementa como GCRA: el estado de cada
+ *     cliente es un único `long` (el instante teórico de la próxima solicitud) actualizado con CAS.</li>
+ *     <li>Global, como máximo `ciberapp.admission.max-concurrent` solicitudes en proceso a la vez,
+ *     con un contador atómico que se incrementa con CAS solo si no supera el límite.</li>
+ * </ul>
+ * Los estados de los clientes se guardan en una caché acotada (`ciberapp.admission.max-clients`); un
+ * cliente expulsado vuelve a empezar con el bucket lleno.
+ */
+@Service
+public class AdmissionControl {
+
+    /**
+     * Resultado de una solicitud de admisión.
+     */
+    public enum Result {
+        ADMITTED,
+        /** El cliente superó su tasa; debe responderse 429. */
+        RATE_LIMITED,
+        /** Se alcanzó el límite global de concurrencia; debe responderse 503. */
+        OVERLOADED
+    }
+
+    /**
+     * Decisión de admisión.
+     *
+     * @param result     Resultado.
+     * @param retryAfter Segundos tras los que el cliente puede reintentar; cero si se admitió.
+     */
+    public record Decision(Result result, long retryAfter) {
+
+        static final Decision ADMITTED = new Decision(Result.ADMITTED, 0);
+        static final Decision OVERLOADED = new Decision(Result.OVERLOADED, 1);
+
+        public boolean admitted() {
+            return result == Result.ADMITTED;
+        }
+    }
+
+    private final boolean enabled;
+    private final long emissionIntervalNanos;
+    private final long burstNanos;
+    private final int maxConcurrent;
+    private final Cache<String, AtomicLong> clients;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final Counter rateLimited;
+    private final Counter overloaded;
+
+    /**
+     * Constructor del servicio.
+     *
+     * @param enabled       Si es `false`, se admiten todas las solicitudes.
+     * @param ratePerSecond Solicitudes por segundo permitidas a cada cliente.
+     * @param burst         Solicitudes que un cliente puede hacer seguidas sin esperar.
+     * @param maxConcurrent Solicitudes en proceso a la vez; cero usa el doble de núcleos disponibles.
+     * @param maxClients    Número máximo de clientes con estado en memoria.
+     * @param registry      Registro de métricas.
+     */
+    public AdmissionControl(@Value("${ciberapp.admission.enabled:false}") boolean enabled,
+                            @Value("${ciberapp.admission.rate-per-second:50}") double ratePerSecond,
+                            @Value("${ciberapp.admission.burst:100}") int burst,
+                            @Value("${ciberapp.admission.max-concurrent:0}") int maxConcurrent,
+                            @Value("${ciberapp.admission.max-clients:100000}") long maxClients,
+                            MeterRegistry registry) {
+        if (ratePerSecond <= 0 || burst < 1) {
+            throw new IllegalArgumentException("ciberapp.admission.rate-per-second y burst deben ser positivos.");
+        }
+        this.enabled = enabled;
+        this.emissionIntervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / ratePerSecond);
+        this.burstNanos = emissionIntervalNanos * burst;
+        this.maxConcurrent = maxConcurrent > 0 ? maxConcurrent : Runtime.getRuntime().availableProcessors() * 2;
+        // Tras burstNanos sin solicitudes el bucket está lleno, igual que uno nuevo
+        this.clients = Caffeine.newBuilder()
+                .maximumSize(maxClients)
+                .expireAfterAccess(Duration.ofNanos(burstNanos).plusSeconds(1))
+                .build();
+        this.rateLimited = shedCounter(registry, "rate-limit");
+        this.overloaded = shedCounter(registry, "concurrency");
+        Gauge.builder("ciberapp.admission.in-flight", inFlight, AtomicInteger::get)
+                .description("Solicitudes admitidas en proceso")
+                .register(registry);
+        Gauge.builder("ciberapp.admission.clients", clients, Cache::estimatedSize)
+                .description("Clientes con estado de limitación de tasa")
+                .register(registry);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Intenta admitir una solicitud. Si se admite, debe llamarse a {@link #release()} al terminarla.
+     *
+     * Primero se reserva el lugar en el límite global y después se consume la tasa del cliente, de
+     * modo que una solicitud rechazada por saturación no gasta su token.
+     *
+     * @param clientId Identificador del cliente.
+     * @return La decisión; si no se admite, incluye el tiempo de espera sugerido.
+     */
+    public Decision tryAcquire(String clientId) {
+        return tryAcquire(clientId, System.nanoTime());
+    }
+
+    /**
+     * Igual que {@link #tryAcquire(String)}, con el instante actual indicado (para las pruebas).
+     */
+    Decision tryAcquire(String clientId, long now) {
+        while (true) {
+            int current = inFlight.get();
+            if (current >= maxConcurrent) {
+                overloaded.increment();
+                return Decision.OVERLOADED;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                break;
+            }
+        }
+
+        AtomicLong state = clients.get(clientId, id -> new AtomicLong(now - burstNanos));
+        while (true) {
+            long theoreticalArrival = state.get();
+            long next = Math.max(theoreticalArrival, now) + emissionIntervalNanos;
+            long allowedAt = next - burstNanos;
+            if (allowedAt - now > 0) {
+                release();
+                rateLimited.increment();
+                return new Decision(Result.RATE_LIMITED, Math.max(1, TimeUnit.NANOSECONDS.toSeconds(allowedAt - now + 999_999_999)));
+            }
+            if (state.compareAndSet(theoreticalArrival, next)) {
+                return Decision.ADMITTED;
+            }
+        }
+    }
+
+    /**
+     * Libera el lugar de una solicitud admitida.
+     */
+    public void release() {
+        inFlight.decrementAndGet();
+    }
+
+    private static Counter shedCounter(MeterRegistry registry, String reason) {
+        return Counter.builder("ciberapp.admission.shed")
+                .description("Solicitudes rechazadas por el control de admisión")
+                .tag("reason", reason)
+                .register(registry);
+    }
+}
@@ -0,0 +1,16 @@
+package com.rsec.service.audit;
+
+import java.time.Instant;
+
+/**
+ * Registro leído de la bitácora de auditoría.
+ *
+ * @param sequence    Número de secuencia del registro, creciente y sin huecos en toda la bitácora.
+ * @param timestamp   Momento en que se realizó la operación.
+ * @param operation   Operación auditada.
+ * @param success     `true` si la operación terminó sin error.
+ * @param subjectHash Hash SHA-256 en hexadecimal del dato cifrado o del token recibido.
+ */
+public record AuditEntry(long sequence, Instant timestamp, AuditOperation operation, boolean success,
+                         String subjectHash) {
+}
@@ -0,0 +1,148 @@
+package com.rsec.service.audit;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.zip.CRC32C;
+
+/**
+ * Formato de los segmentos de la bitácora de auditoría.
+ *
+ * Cada segmento es un archivo `audit-<primera secuencia>.log` con una cabecera de 64 bytes seguida de
+ * registros de 64 bytes:
+ * <pre>
+ * cabecera: [magic "CIBAUDIT": 8][versión: 4][tamaño de registro: 4][primera secuencia: 8][creado: 8][0...]
+ * registro: [magic 0xA5D1: 2][versión: 1][operación: 1][resultado: 1][0: 3][secuencia: 8][timestamp ms: 8]
+ *           [hash SHA-256 del dato: 32][0: 4][CRC32C de los 60 bytes anteriores: 4]
+ * </pre>
+ * El archivo se reserva completo al crearlo, por lo que el final de los registros es el primer
+ * registro con magic o CRC no válidos (ceros o un registro a medio escribir tras una caída).
+ */
+final class AuditLogFormat {
+
+    static final int HEADER_SIZE = 64;
+    static final int RECORD_SIZE = 64;
+    static final int HASH_SIZE = 32;
+
+    private static final long SEGMENT_MAGIC = 0x4349424155444954L; // "CIBAUDIT"
+    private static final int VERSION = 1;
+    private static final short RECORD_MAGIC = (short) 0xA5D1;
+    private static final int CRC_OFFSET = RECORD_SIZE - 4;
+    private static final String PREFIX = "audit-";
+    private static final String SUFFIX = ".log";
+    private static final MessageDigest DIGEST_PROTOTYPE;
+
+    static {
+        try {
+            DIGEST_PROTOTYPE = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private AuditLogFormat() {
+    }
+
+    /**
+     * Escribe un registro completo en `record`, un buffer de {@link #RECORD_SIZE} bytes.
+     */
+    static void encodeRecord(ByteBuffer record, long sequence, long timestamp, byte operation, boolean success,
+                             byte[] hashes, int hashOffset) {
+        record.clear();
+        record.putShort(RECORD_MAGIC).put((byte) VERSION).put(operation).put((byte) (success ? 1 : 0))
+                .put((byte) 0).put((byte) 0).put((byte) 0)
+                .putLong(sequence)
+                .putLong(timestamp)
+                .put(hashes, hashOffset, HASH_SIZE)
+                .putInt(0);
+        record.putInt(CRC_OFFSET, crc(record));
+        record.clear();
+    }
+
+    /**
+     * Interpreta un registro de {@link #RECORD_SIZE} bytes.
+     *
+     * @return El registro, o `null` si no es válido (fin de los registros del segmento).
+     */
+    static AuditEntry decodeRecord(ByteBuffer record) {
+        if (record.getShort(0) != RECORD_MAGIC || record.get(2) != VERSION
+                || record.getInt(CRC_OFFSET) != crc(record)) {
+            return null;
+        }
+        AuditOperation operation = AuditOperation.ofCode(record.get(3));
+        if (operation == null) {
+            return null;
+        }
+        byte[] hash = new byte[HASH_SIZE];
+        record.get(24, hash);
+        return new AuditEntry(record.getLong(8), Instant.ofEpochMilli(record.getLong(16)), operation,
+                record.get(4) == 1, HexFormat.of().formatHex(hash));
+    }
+
+    static void encodeHeader(ByteBuffer header, long firstSequence, long createdAt) {
+        header.clear();
+        header.putLong(SEGMENT_MAGIC).putInt(VERSION).putInt(RECORD_SIZE).putLong(firstSequence).putLong(createdAt);
+        while (header.hasRemaining()) {
+            header.put((byte) 0);
+        }
+        header.clear();
+    }
+
+    /**
+     * @return La primera secuencia del segmento.
+     * @throws IOException Si la cabecera no corresponde a un segmento de auditoría.
+     */
+    static long decodeHeader(ByteBuffer header, Path path) throws IOException {
+        if (header.getLong(0) != SEGMENT_MAGIC || header.getInt(8) != VERSION || header.getInt(12) != RECORD_SIZE) {
+            throw new IOException("El archivo no es un segmento de auditoría válido: " + path);
+        }
+        return header.getLong(16);
+    }
+
+    static String fileName(long firstSequence) {
+        return PREFIX + String.format("%020d", firstSequence) + SUFFIX;
+    }
+
+    /**
+     * @return Los segmentos del directorio, del más antiguo al más reciente.
+     */
+    static List<Path> segments(Path directory) throws IOException {
+        List<Path> segments = new ArrayList<>();
+        if (Files.notExists(directory)) {
+            return segments;
+        }
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, PREFIX + "*" + SUFFIX)) {
+            files.forEach(segments::add);
+        }
+        segments.sort(null); // La secuencia tiene ancho fijo, así que el orden alfabético es el cronológico
+        return segments;
+    }
+
+    /**
+     * @return El hash SHA-256 del dato auditado (dato cifrado o token), tal como se guarda en el registro.
+     */
+    static byte[] subjectHash(String subject) {
+        try {
+            // Clonar el prototipo evita buscar el proveedor en cada registro
+            MessageDigest digest = (MessageDigest) DIGEST_PROTOTYPE.clone();
+            return digest.digest(subject.getBytes(StandardCharsets.UTF_8));
+        } catch (CloneNotSupportedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static int crc(ByteBuffer record) {
+        CRC32C crc = new CRC32C();
+        crc.update(record.slice(0, CRC_OFFSET));
+        return (int) crc.getValue();
+    }
+}
@@ -0,0 +1,108 @@
+package com.rsec.service.audit;
+
+import java.io.IOException;
+import java.lang.foreign.Arena;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.function.Consumer;
+
+/**
+ * Lector de la bitácora de auditoría. Puede usarse mientras la aplicación escribe: cada segmento se
+ * mapea en solo lectura y la lectura termina en el primer registro incompleto.
+ *
+ * También es una herramienta de línea de comandos:
+ * <pre>
+ * java -cp ciberapp.jar -Dloader.main=com.rsec.service.audit.AuditLogReader \
+ *     org.springframework.boot.loader.launch.PropertiesLauncher \
+ *     audit [--from 2025-01-01T00:00:00Z] [--to ...] [--operation decrypt|detokenize]
+ *     [--outcome success|failure] [--subject dato-o-token] [--subject-hash hex] [--limit n]
+ * </pre>
+ * Escribe un objeto JSON por línea con los registros que cumplen los filtros.
+ */
+public final class AuditLogReader {
+
+    private final Path directory;
+
+    /**
+     * @param directory Directorio de los segmentos (`ciberapp.audit.directory`).
+     */
+    public AuditLogReader(Path directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Recorre los registros de todos los segmentos, del más antiguo al más reciente.
+     *
+     * @param query    Filtro y número máximo de registros.
+     * @param consumer Recibe los registros que cumplen el filtro.
+     * @return Número de registros entregados.
+     * @throws IOException Si un segmento no puede leerse.
+     */
+    public int read(AuditQuery query, Consumer<AuditEntry> consumer) throws IOException {
+        ByteBuffer record = ByteBuffer.allocate(AuditLogFormat.RECORD_SIZE);
+        int count = 0;
+        for (Path segment : AuditLogFormat.segments(directory)) {
+            try (Arena arena = Arena.ofConfined();
+                 FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ)) {
+                long size = Math.min(channel.size(), Integer.MAX_VALUE);
+                if (size < AuditLogFormat.HEADER_SIZE) {
+                    continue;
+                }
+                ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size, arena).asByteBuffer();
+                AuditLogFormat.decodeHeader(buffer.slice(0, AuditLogFormat.HEADER_SIZE), segment);
+                for (int offset = AuditLogFormat.HEADER_SIZE;
+                     offset + AuditLogFormat.RECORD_SIZE <= buffer.capacity();
+                     offset += AuditLogFormat.RECORD_SIZE) {
+                    buffer.get(offset, record.array());
+                    AuditEntry entry = AuditLogFormat.decodeRecord(record);
+                    if (entry == null) {
+                        break;
+                    }
+                    if (query.matches(entry)) {
+                        consumer.accept(entry);
+                        if (++count >= query.limit()) {
+                            return count;
+                        }
+                    }
+                }
+            }
+        }
+        return count;
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0 || args[0].startsWith("--")) {
+            System.err.println("Uso: AuditLogReader <directorio> [--from instante] [--to instante] "
+                    + "[--operation decrypt|detokenize] [--outcome success|failure] [--subject valor] "
+                    + "[--subject-hash hex] [--limit n]");
+            System.exit(2);
+        }
+        Instant from = null;
+        Instant to = null;
+        AuditOperation operation = null;
+        Boolean success = null;
+        String subjectHash = null;
+        int limit = Integer.MAX_VALUE;
+        for (int i = 1; i + 1 < args.length; i += 2) {
+            String value = args[i + 1];
+            switch (args[i]) {
+                case "--from" -> from = Instant.parse(value);
+                case "--to" -> to = Instant.parse(value);
+                case "--operation" -> operation = AuditOperation.of(value);
+                case "--outcome" -> success = "success".equalsIgnoreCase(value);
+                case "--subject" -> subjectHash = HexFormat.of().formatHex(AuditLogFormat.subjectHash(value));
+                case "--subject-hash" -> subjectHash = value;
+                case "--limit" -> limit = Integer.parseInt(value);
+                default -> throw new IllegalArgumentException("Opción desconocida: " + args[i]);
+            }
+        }
+        AuditQuery query = new AuditQuery(from, to, operation, success, subjectHash, limit);
+        new AuditLogReader(Path.of(args[0])).read(query, entry -> System.out.printf(
+                "{\"sequence\":%d,\"timestamp\":\"%s\",\"operation\":\"%s\",\"success\":%b,\"subjectHash\":\"%s\"}%n",
+                entry.sequence(), entry.timestamp(), entry.operation(), entry.success(), entry.subjectHash()));
+    }
+}
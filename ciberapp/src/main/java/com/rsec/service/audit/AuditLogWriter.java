@@ -0,0 +1,158 @@
+package com.rsec.service.audit;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * Escritor de la bitácora de auditoría: agrega registros a segmentos mapeados en memoria y crea un
+ * segmento nuevo cuando el actual se llena. No es seguro para uso concurrente; lo usa un único hilo.
+ *
+ * Al abrir, continúa el último segmento existente a partir de su último registro válido. Los segmentos
+ * se mapean con un `Arena` compartido, de modo que se desmapean al cerrarlos y no al recolectarse.
+ */
+final class AuditLogWriter implements Closeable {
+
+    private final Path directory;
+    private final int segmentSize;
+    private final int maxSegments;
+    private final ByteBuffer record = ByteBuffer.allocate(AuditLogFormat.RECORD_SIZE);
+
+    private Arena arena;
+    private MemorySegment mapped;
+    private ByteBuffer buffer;
+    private Path current;
+    private int position;
+    private long nextSequence;
+
+    /**
+     * @param directory   Directorio de los segmentos; se crea si no existe.
+     * @param segmentSize Tamaño de cada segmento en bytes.
+     * @param maxSegments Número máximo de segmentos conservados; cero los conserva todos.
+     * @throws IOException Si el directorio o el último segmento no pueden abrirse.
+     */
+    AuditLogWriter(Path directory, int segmentSize, int maxSegments) throws IOException {
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.maxSegments = maxSegments;
+        Files.createDirectories(directory);
+        List<Path> segments = AuditLogFormat.segments(directory);
+        if (segments.isEmpty()) {
+            openNew(0);
+        } else {
+            recover(segments.getLast());
+        }
+    }
+
+    /**
+     * Agrega un registro al segmento actual, creando uno nuevo si está lleno.
+     */
+    void append(long timestamp, byte operation, boolean success, byte[] hashes, int hashOffset) throws IOException {
+        if (position + AuditLogFormat.RECORD_SIZE > buffer.capacity()) {
+            rollover();
+        }
+        AuditLogFormat.encodeRecord(record, nextSequence, timestamp, operation, success, hashes, hashOffset);
+        buffer.put(position, record, 0, AuditLogFormat.RECORD_SIZE);
+        position += AuditLogFormat.RECORD_SIZE;
+        nextSequence++;
+    }
+
+    /**
+     * Escribe en disco las páginas modificadas del segmento actual.
+     */
+    void force() {
+        mapped.force();
+    }
+
+    /**
+     * @return Secuencia que recibirá el próximo registro.
+     */
+    long nextSequence() {
+        return nextSequence;
+    }
+
+    Path currentSegment() {
+        return current;
+    }
+
+    @Override
+    public void close() {
+        if (arena != null) {
+            mapped.force();
+            arena.close();
+            arena = null;
+        }
+    }
+
+    private void rollover() throws IOException {
+        close();
+        openNew(nextSequence);
+        if (maxSegments > 0) {
+            List<Path> segments = AuditLogFormat.segments(directory);
+            for (int i = 0; i < segments.size() - maxSegments; i++) {
+                Files.deleteIfExists(segments.get(i));
+            }
+        }
+    }
+
+    /**
+     * Crea un segmento con su cabecera en un archivo temporal y lo mueve a su nombre definitivo, de modo
+     * que ningún segmento visible queda sin cabecera tras una caída.
+     */
+    private void openNew(long firstSequence) throws IOException {
+        Path path = directory.resolve(AuditLogFormat.fileName(firstSequence));
+        Path temp = Files.createTempFile(directory, "audit", ".tmp");
+        ByteBuffer header = ByteBuffer.allocate(AuditLogFormat.HEADER_SIZE);
+        AuditLogFormat.encodeHeader(header, firstSequence, System.currentTimeMillis());
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+            channel.write(header);
+            channel.force(true);
+        }
+        Files.move(temp, path, StandardCopyOption.ATOMIC_MOVE);
+        map(path, segmentSize);
+        this.position = AuditLogFormat.HEADER_SIZE;
+        this.nextSequence = firstSequence;
+    }
+
+    /**
+     * Abre el último segmento y se sitúa después de su último registro válido.
+     */
+    private void recover(Path path) throws IOException {
+        long size = Math.max(Files.size(path), segmentSize);
+        map(path, (int) Math.min(size, Integer.MAX_VALUE));
+        long sequence = AuditLogFormat.decodeHeader(buffer.slice(0, AuditLogFormat.HEADER_SIZE), path);
+        int offset = AuditLogFormat.HEADER_SIZE;
+        while (offset + AuditLogFormat.RECORD_SIZE <= buffer.capacity()) {
+            buffer.get(offset, record.array());
+            AuditEntry entry = AuditLogFormat.decodeRecord(record);
+            if (entry == null) {
+                break;
+            }
+            sequence = entry.sequence() + 1;
+            offset += AuditLogFormat.RECORD_SIZE;
+        }
+        this.position = offset;
+        this.nextSequence = sequence;
+    }
+
+    private void map(Path path, int size) throws IOException {
+        Arena newArena = Arena.ofShared();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            this.mapped = channel.map(FileChannel.MapMode.READ_WRITE, 0, size, newArena);
+        } catch (IOException | RuntimeException e) {
+            newArena.close();
+            throw e;
+        }
+        this.arena = newArena;
+        this.buffer = mapped.asByteBuffer();
+        this.current = path;
+    }
+}
@@ -0,0 +1,45 @@
+package com.rsec.service.audit;
+
+import java.util.Locale;
+
+/**
+ * Operaciones registradas en la bitácora de auditoría. El código se guarda en un byte de cada registro
+ * y no debe cambiar.
+ */
+public enum AuditOperation {
+
+    DECRYPT(1),
+    DETOKENIZE(2);
+
+    private final byte code;
+
+    AuditOperation(int code) {
+        this.code = (byte) code;
+    }
+
+    public byte code() {
+        return code;
+    }
+
+    /**
+     * @param code Código guardado en el registro.
+     * @return La operación, o `null` si el código no corresponde a ninguna.
+     */
+    public static AuditOperation ofCode(byte code) {
+        for (AuditOperation operation : values()) {
+            if (operation.code == code) {
+                return operation;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @param name Nombre de la operación, sin distinguir mayúsculas, por ejemplo `decrypt`.
+     * @return La operación.
+     * @throws IllegalArgumentException Si el nombre no corresponde a ninguna operación.
+     */
+    public static AuditOperation of(String name) {
+        return valueOf(name.strip().toUpperCase(Locale.ROOT));
+    }
+}
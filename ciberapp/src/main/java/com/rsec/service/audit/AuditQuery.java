@@ -0,0 +1,28 @@
+package com.rsec.service.audit;
+
+import java.time.Instant;
+
+/**
+ * Filtro de una consulta a la bitácora de auditoría. Los campos nulos no filtran.
+ *
+ * @param from        Momento inicial, inclusive.
+ * @param to          Momento final, exclusive.
+ * @param operation   Operación.
+ * @param success     Resultado de la operación.
+ * @param subjectHash Hash SHA-256 en hexadecimal del dato cifrado o del token.
+ * @param limit       Número máximo de registros a devolver.
+ */
+public record AuditQuery(Instant from, Instant to, AuditOperation operation, Boolean success, String subjectHash,
+                         int limit) {
+
+    /**
+     * @return `true` si el registro cumple todos los filtros.
+     */
+    public boolean matches(AuditEntry entry) {
+        return (from == null || !entry.timestamp().isBefore(from))
+                && (to == null || entry.timestamp().isBefore(to))
+                && (operation == null || entry.operation() == operation)
+                && (success == null || entry.success() == success)
+                && (subjectHash == null || subjectHash.equalsIgnoreCase(entry.subjectHash()));
+    }
+}
@@ -0,0 +1,175 @@
+package com.rsec.service.audit;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Buffer circular sin bloqueos con varios productores y un único consumidor para los registros de auditoría.
+ *
+ * Los registros se guardan en arreglos de tipos primitivos preasignados, por lo que publicar un registro
+ * no crea objetos. Cada productor reserva una posición con un CAS sobre la secuencia de escritura, copia
+ * los campos y marca la posición como publicada con una escritura con semántica release; el consumidor
+ * lee las posiciones publicadas en orden con semántica acquire y libera el espacio al terminar cada lote.
+ *
+ * Si el buffer está lleno el productor espera (primero activamente y después con `parkNanos`) en lugar
+ * de descartar el registro, ya que la auditoría debe estar completa. La espera está acotada por el
+ * tiempo indicado en {@link #publish(long, byte, boolean, byte[], long)}, para que un consumidor
+ * detenido no bloquee a los productores indefinidamente.
+ */
+final class AuditRingBuffer {
+
+    private static final int SPINS_BEFORE_PARK = 64;
+    private static final long PARK_NANOS = 50_000;
+
+    private final int capacity;
+    private final int mask;
+    private final long[] timestamps;
+    private final byte[] operations;
+    private final boolean[] outcomes;
+    private final byte[] hashes;
+    private final AtomicLongArray published;
+    private final AtomicLong claimed = new AtomicLong();
+    private final AtomicLong consumed = new AtomicLong();
+    private final AtomicLong waits = new AtomicLong();
+
+    /**
+     * @param capacity Número de registros; se redondea a la siguiente potencia de dos.
+     */
+    AuditRingBuffer(int capacity) {
+        this.capacity = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        this.mask = this.capacity - 1;
+        this.timestamps = new long[this.capacity];
+        this.operations = new byte[this.capacity];
+        this.outcomes = new boolean[this.capacity];
+        this.hashes = new byte[this.capacity * AuditLogFormat.HASH_SIZE];
+        this.published = new AtomicLongArray(this.capacity);
+        for (int i = 0; i < this.capacity; i++) {
+            published.set(i, -1);
+        }
+    }
+
+    /**
+     * Publica un registro, esperando sin límite si el buffer está lleno.
+     *
+     * @param timestamp Momento de la operación en milisegundos.
+     * @param operation Código de la operación.
+     * @param success   Resultado de la operación.
+     * @param hash      Hash SHA-256 de 32 bytes del dato.
+     */
+    void publish(long timestamp, byte operation, boolean success, byte[] hash) {
+        publish(timestamp, operation, success, hash, Long.MAX_VALUE);
+    }
+
+    /**
+     * Publica un registro, esperando como máximo `timeoutNanos` si el buffer está lleno.
+     *
+     * @param timestamp    Momento de la operación en milisegundos.
+     * @param operation    Código de la operación.
+     * @param success      Resultado de la operación.
+     * @param hash         Hash SHA-256 de 32 bytes del dato.
+     * @param timeoutNanos Tiempo máximo de espera.
+     * @return `false` si el buffer siguió lleno durante todo el tiempo de espera y el registro no se publicó.
+     */
+    boolean publish(long timestamp, byte operation, boolean success, byte[] hash, long timeoutNanos) {
+        long sequence = claim(timeoutNanos);
+        if (sequence < 0) {
+            return false;
+        }
+        int index = (int) (sequence & mask);
+        timestamps[index] = timestamp;
+        operations[index] = operation;
+        outcomes[index] = success;
+        System.arraycopy(hash, 0, hashes, index * AuditLogFormat.HASH_SIZE, AuditLogFormat.HASH_SIZE);
+        published.setRelease(index, sequence);
+        return true;
+    }
+
+    /**
+     * Entrega al consumidor hasta `max` registros publicados, en orden. Solo debe llamarlo un hilo.
+     *
+     * Si el consumidor falla, se liberan solo los registros ya entregados y el que falló se vuelve
+     * a entregar en la siguiente llamada.
+     *
+     * @return Número de registros entregados.
+     */
+    int drain(Consumer consumer, int max) throws Exception {
+        long next = consumed.get();
+        int count = 0;
+        try {
+            while (count < max) {
+                int index = (int) (next & mask);
+                if (published.getAcquire(index) != next) {
+                    break;
+                }
+                consumer.accept(timestamps[index], operations[index], outcomes[index], hashes,
+                        index * AuditLogFormat.HASH_SIZE);
+                next++;
+                count++;
+            }
+        } finally {
+            if (count > 0) {
+                consumed.setRelease(next);
+            }
+        }
+        return count;
+    }
+
+    /**
+     * @return Registros publicados o reservados que aún no se han escrito.
+     */
+    long pending() {
+        return claimed.get() - consumed.get();
+    }
+
+    /**
+     * @return Veces que un productor tuvo que esperar porque el buffer estaba lleno.
+     */
+    long waits() {
+        return waits.get();
+    }
+
+    int capacity() {
+        return capacity;
+    }
+
+    /**
+     * Reserva la siguiente posición.
+     *
+     * @return La secuencia reservada, o -1 si no hubo espacio durante `timeoutNanos`.
+     */
+    private long claim(long timeoutNanos) {
+        int spins = 0;
+        boolean waited = false;
+        long start = 0;
+        while (true) {
+            long sequence = claimed.get();
+            if (sequence - consumed.get() < capacity) {
+                if (claimed.compareAndSet(sequence, sequence + 1)) {
+                    return sequence;
+                }
+                continue;
+            }
+            if (!waited) {
+                waits.incrementAndGet();
+                waited = true;
+                start = System.nanoTime();
+            } else if (System.nanoTime() - start >= timeoutNanos) {
+                return -1;
+            }
+            if (++spins < SPINS_BEFORE_PARK) {
+                Thread.onSpinWait();
+            } else {
+                LockSupport.parkNanos(PARK_NANOS);
+            }
+        }
+    }
+
+    /**
+     * Recibe los campos de un registro. El hash ocupa 32 bytes de `hashes` a partir de `hashOffset`.
+     */
+    @FunctionalInterface
+    interface Consumer {
+        void accept(long timestamp, byte operation, boolean success, byte[] hashes, int hashOffset) throws Exception;
+    }
+}
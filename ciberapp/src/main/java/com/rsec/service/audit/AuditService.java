@@ -0,0 +1,252 @@
+package com.rsec.service.audit;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Bitácora de auditoría de las operaciones de descifrado y detokenización.
+ *
+ * Los hilos de las solicitudes solo calculan el hash del dato y publican un registro de tamaño fijo en
+ * un {@link AuditRingBuffer} sin bloqueos; un único hilo escritor vacía el buffer por lotes en los
+ * segmentos mapeados en memoria de `ciberapp.audit.directory` y fuerza su escritura a disco cada
+ * `ciberapp.audit.force-interval`. Así la auditoría no añade una escritura síncrona a cada llamada.
+ *
+ * Los registros guardan el hash SHA-256 del dato cifrado o del token, nunca el valor, por lo que
+ * para buscar las operaciones sobre un dato hay que calcular su hash.
+ *
+ * Los errores de escritura se reintentan sin detener el escritor. Si aun así el escritor termina, o
+ * si el buffer sigue lleno durante `ciberapp.audit.publish-timeout`, los registros no se bloquean:
+ * se descartan y se cuentan en `ciberapp.audit.dropped`, y {@link #isAvailable()} devuelve `false`
+ * para que los controladores rechacen las operaciones auditadas con 503.
+ */
+@Service
+public class AuditService {
+
+    private static final Logger logger = LoggerFactory.getLogger(AuditService.class);
+
+    private static final long IDLE_WAIT_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+    private static final long RETRY_WAIT_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final boolean enabled;
+    private final Path directory;
+    private final int batchSize;
+    private final long forceIntervalNanos;
+    private final long publishTimeoutNanos;
+    private final AuditRingBuffer ringBuffer;
+    private final AuditLogWriter writer;
+    private final Thread writerThread;
+    private final Counter written;
+    private final Counter writeFailures;
+    private final Counter dropped;
+
+    private volatile boolean running = true;
+    private volatile boolean writerAlive;
+
+    /**
+     * Constructor del servicio.
+     *
+     * @param enabled       Si es `false`, no se registra nada.
+     * @param directory     Directorio de los segmentos de la bitácora.
+     * @param segmentSize   Tamaño de cada segmento; al llenarse se crea otro.
+     * @param maxSegments   Número máximo de segmentos conservados; cero los conserva todos.
+     * @param bufferSize    Capacidad del buffer circular en registros.
+     * @param batchSize     Número máximo de registros escritos por lote.
+     * @param forceInterval Intervalo máximo entre escrituras forzadas a disco.
+     * @param publishTimeout Tiempo máximo que una solicitud espera a que haya espacio en el buffer.
+     * @param registry      Registro de métricas.
+     * @throws IOException Si el directorio o el último segmento no pueden abrirse.
+     */
+    public AuditService(@Value("${ciberapp.audit.enabled:false}") boolean enabled,
+                        @Value("${ciberapp.audit.directory:audit}") Path directory,
+                        @Value("${ciberapp.audit.segment-size:64MB}") DataSize segmentSize,
+                        @Value("${ciberapp.audit.max-segments:0}") int maxSegments,
+                        @Value("${ciberapp.audit.buffer-size:65536}") int bufferSize,
+                        @Value("${ciberapp.audit.batch-size:1024}") int batchSize,
+                        @Value("${ciberapp.audit.force-interval:1s}") Duration forceInterval,
+                        @Value("${ciberapp.audit.publish-timeout:5s}") Duration publishTimeout,
+                        MeterRegistry registry) throws IOException {
+        if (segmentSize.toBytes() < 1024 * 1024 || segmentSize.toBytes() > 1024 * 1024 * 1024) {
+            throw new IllegalArgumentException("ciberapp.audit.segment-size debe estar entre 1MB y 1GB.");
+        }
+        this.enabled = enabled;
+        this.directory = directory;
+        this.batchSize = batchSize;
+        this.forceIntervalNanos = forceInterval.toNanos();
+        this.publishTimeoutNanos = publishTimeout.toNanos();
+        this.ringBuffer = new AuditRingBuffer(bufferSize);
+        this.written = Counter.builder("ciberapp.audit.records")
+                .description("Registros de auditoría escritos en la bitácora")
+                .register(registry);
+        this.writeFailures = Counter.builder("ciberapp.audit.write.failures")
+                .description("Errores al escribir la bitácora de auditoría")
+                .register(registry);
+        this.dropped = Counter.builder("ciberapp.audit.dropped")
+                .description("Registros de auditoría descartados porque el escritor no estaba disponible")
+                .register(registry);
+        FunctionCounter.builder("ciberapp.audit.backpressure", ringBuffer, AuditRingBuffer::waits)
+                .description("Veces que una solicitud esperó porque el buffer de auditoría estaba lleno")
+                .register(registry);
+        Gauge.builder("ciberapp.audit.pending", ringBuffer, AuditRingBuffer::pending)
+                .description("Registros de auditoría pendientes de escribir")
+                .register(registry);
+
+        if (enabled) {
+            this.writer = new AuditLogWriter(directory, (int) segmentSize.toBytes(), maxSegments);
+            this.writerAlive = true;
+            this.writerThread = Thread.ofPlatform().name("audit-writer").daemon().start(this::runWriter);
+            logger.info("Bitácora de auditoría en {} (siguiente secuencia {})",
+                    directory.toAbsolutePath(), writer.nextSequence());
+        } else {
+            this.writer = null;
+            this.writerThread = null;
+        }
+    }
+
+    /**
+     * Indica si las operaciones pueden auditarse: la bitácora está desactivada o su escritor sigue activo.
+     *
+     * @return `false` si el escritor terminó y los registros nuevos se descartarían.
+     */
+    public boolean isAvailable() {
+        return !enabled || writerAlive;
+    }
+
+    /**
+     * Registra una operación. Solo calcula el hash del dato y publica el registro en el buffer; la
+     * escritura en disco se hace en segundo plano. Si el escritor terminó, o el buffer sigue lleno
+     * durante `ciberapp.audit.publish-timeout`, el registro se descarta y se cuenta en lugar de
+     * bloquear la solicitud.
+     *
+     * @param operation Operación realizada.
+     * @param subject   Dato cifrado o token recibido; se guarda solo su hash.
+     * @param success   `true` si la operación terminó sin error.
+     */
+    public void record(AuditOperation operation, String subject, boolean success) {
+        if (!enabled || !running) {
+            return;
+        }
+        if (!writerAlive || !ringBuffer.publish(System.currentTimeMillis(), operation.code(), success,
+                AuditLogFormat.subjectHash(subject == null ? "" : subject), publishTimeoutNanos)) {
+            dropped.increment();
+            logger.error("Se descartó un registro de auditoría ({}): el escritor de la bitácora no está disponible", operation);
+        }
+    }
+
+    /**
+     * Consulta la bitácora. Los registros aún en el buffer no se incluyen.
+     *
+     * @param query Filtro y número máximo de registros.
+     * @return Registros que cumplen el filtro, del más antiguo al más reciente.
+     * @throws IOException Si un segmento no puede leerse.
+     */
+    public List<AuditEntry> query(AuditQuery query) throws IOException {
+        List<AuditEntry> entries = new ArrayList<>();
+        new AuditLogReader(directory).read(query, entries::add);
+        return entries;
+    }
+
+    /**
+     * @param subject Dato cifrado o token.
+     * @return El hash en hexadecimal con el que se guarda en la bitácora.
+     */
+    public String subjectHash(String subject) {
+        return HexFormat.of().formatHex(AuditLogFormat.subjectHash(subject));
+    }
+
+    /**
+     * @return Estado del buffer y del escritor.
+     */
+    public Map<String, Object> stats() {
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("enabled", enabled);
+        body.put("directory", directory.toAbsolutePath().toString());
+        body.put("bufferCapacity", ringBuffer.capacity());
+        body.put("pending", ringBuffer.pending());
+        body.put("backpressureWaits", ringBuffer.waits());
+        body.put("written", (long) written.count());
+        body.put("writerAlive", writerAlive);
+        body.put("dropped", (long) dropped.count());
+        if (writer != null) {
+            body.put("segment", String.valueOf(writer.currentSegment().getFileName()));
+        }
+        return body;
+    }
+
+    /**
+     * Detiene el escritor después de escribir los registros pendientes.
+     */
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        running = false;
+        if (writerThread != null) {
+            LockSupport.unpark(writerThread);
+            writerThread.join(TimeUnit.SECONDS.toMillis(10));
+        }
+    }
+
+    private void runWriter() {
+        long lastForce = System.nanoTime();
+        boolean dirty = false;
+        try {
+            while (running || ringBuffer.pending() > 0) {
+                int count;
+                try {
+                    count = ringBuffer.drain(writer::append, batchSize);
+                    if (count > 0) {
+                        written.increment(count);
+                        dirty = true;
+                    }
+                    long now = System.nanoTime();
+                    if (dirty && now - lastForce >= forceIntervalNanos) {
+                        writer.force();
+                        lastForce = now;
+                        dirty = false;
+                    }
+                } catch (Exception e) {
+                    // Los registros no escritos siguen en el buffer y los no forzados siguen marcados; se reintentan
+                    writeFailures.increment();
+                    logger.error("No se pudo escribir la bitácora de auditoría; se reintentará", e);
+                    if (!running) {
+                        break;
+                    }
+                    LockSupport.parkNanos(RETRY_WAIT_NANOS);
+                    continue;
+                }
+                if (count == 0) {
+                    LockSupport.parkNanos(IDLE_WAIT_NANOS);
+                }
+            }
+        } catch (Throwable e) {
+            logger.error("El escritor de la bitácora de auditoría se detuvo por un error inesperado", e);
+            throw e;
+        } finally {
+            writerAlive = false;
+            try {
+                writer.close();
+            } finally {
+                if (ringBuffer.pending() > 0) {
+                    logger.error("Se detuvo la bitácora de auditoría con {} registros sin escribir", ringBuffer.pending());
+                }
+            }
+        }
+    }
+}
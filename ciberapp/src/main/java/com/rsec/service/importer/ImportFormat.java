@@ -0,0 +1,51 @@
+package com.rsec.service.importer;
+
+import java.util.Locale;
+
+/**
+ * Formato de un archivo de importación de usuarios.
+ */
+public enum ImportFormat {
+
+    /**
+     * CSV con una primera línea de encabezado que nombra las columnas `username`, `email` y `name`
+     * (en cualquier orden; las demás se ignoran). Los campos pueden ir entre comillas dobles.
+     */
+    CSV,
+
+    /**
+     * Un objeto JSON por línea con los campos `username`, `email` y `name`.
+     */
+    NDJSON;
+
+    /**
+     * @param value Nombre del formato, sin distinguir mayúsculas.
+     * @return El formato.
+     * @throws IllegalArgumentException Si el formato no existe.
+     */
+    public static ImportFormat of(String value) {
+        try {
+            return valueOf(value.strip().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Formato no válido: " + value + ". Valores permitidos: csv, ndjson.");
+        }
+    }
+
+    /**
+     * Deduce el formato de la extensión del archivo: `.csv`, o `.ndjson`/`.jsonl` para NDJSON.
+     *
+     * @param fileName Nombre del archivo.
+     * @return El formato.
+     * @throws IllegalArgumentException Si la extensión no corresponde a ningún formato.
+     */
+    public static ImportFormat fromFileName(String fileName) {
+        String lower = fileName.toLowerCase(Locale.ROOT);
+        if (lower.endsWith(".csv")) {
+            return CSV;
+        }
+        if (lower.endsWith(".ndjson") || lower.endsWith(".jsonl")) {
+            return NDJSON;
+        }
+        throw new IllegalArgumentException("No se puede deducir el formato de " + fileName + "; indique format=csv o ndjson.");
+    }
+}
@@ -0,0 +1,60 @@
+package com.rsec.service.importer;
+
+import com.rsec.model.Usuario;
+
+/**
+ * Una fila del archivo de importación en su paso por las etapas del {@link ImportService}.
+ *
+ * El lector la crea con el usuario en claro o con el error de análisis; la etapa de protección
+ * reemplaza los datos del usuario por los protegidos o registra el error, y el escritor la guarda
+ * o la envía al archivo de rechazos. Cada etapa la modifica solo mientras la tiene, por lo que no
+ * necesita sincronización: las colas entre etapas publican los cambios.
+ */
+final class ImportRecord {
+
+    /**
+     * Marca de fin de las colas entre etapas.
+     */
+    static final ImportRecord END = new ImportRecord(-1, 0, 0, 0, null);
+
+    /**
+     * Número de orden de la fila en la ejecución actual, desde cero.
+     */
+    final long sequence;
+
+    /**
+     * Número de línea en el archivo, desde uno.
+     */
+    final long line;
+
+    /**
+     * Posición en bytes del inicio de la línea y del inicio de la siguiente.
+     */
+    final long offset;
+    final long end;
+
+    /**
+     * Texto de la línea, para el archivo de rechazos.
+     */
+    final String raw;
+
+    Usuario user;
+    String error;
+
+    ImportRecord(long sequence, long line, long offset, long end, String raw) {
+        this.sequence = sequence;
+        this.line = line;
+        this.offset = offset;
+        this.end = end;
+        this.raw = raw;
+    }
+
+    void reject(String error) {
+        this.user = null;
+        this.error = error == null ? "Error desconocido." : error;
+    }
+
+    boolean rejected() {
+        return error != null;
+    }
+}
@@ -0,0 +1,297 @@
+package com.rsec.service.importer;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rsec.model.Usuario;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Lee un archivo de importación línea a línea desde una posición en bytes y convierte cada línea en
+ * un {@link ImportRecord}. Las líneas se separan por bytes, no por caracteres, para conocer la posición
+ * exacta de cada una y poder reanudar desde ella.
+ *
+ * Una línea que no puede analizarse (UTF-8 inválido, CSV mal formado, JSON inválido o demasiado larga)
+ * se devuelve como rechazada, sin detener la lectura. Las líneas vacías se omiten.
+ */
+final class ImportRecordReader implements Closeable {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final FileChannel channel;
+    private final ImportFormat format;
+    private final int maxLineLength;
+    private final ObjectMapper objectMapper;
+    private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE).flip();
+    private final CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+            .onMalformedInput(CodingErrorAction.REPORT)
+            .onUnmappableCharacter(CodingErrorAction.REPORT);
+
+    private byte[] lineBytes = new byte[256];
+    private int lineLength;
+    private long position;
+    private long line;
+    private long sequence;
+    private boolean truncated;
+
+    /**
+     * Posiciones de las columnas `username`, `email` y `name` en el CSV.
+     */
+    private int usernameColumn = -1;
+    private int emailColumn = -1;
+    private int nameColumn = -1;
+
+    /**
+     * Abre el archivo y, para CSV, lee su encabezado.
+     *
+     * @param file          Archivo de importación.
+     * @param format        Formato del archivo.
+     * @param offset        Posición desde la que se lee: cero o el inicio de una línea.
+     * @param line          Número de la última línea leída antes de `offset`.
+     * @param maxLineLength Longitud máxima de una línea en bytes.
+     * @param objectMapper  Mapper de Jackson para NDJSON.
+     * @throws IOException              Si el archivo no puede leerse.
+     * @throws IllegalArgumentException Si `offset` no es el inicio de una línea o el encabezado CSV no es válido.
+     */
+    ImportRecordReader(Path file, ImportFormat format, long offset, long line, int maxLineLength,
+                       ObjectMapper objectMapper) throws IOException {
+        this.channel = FileChannel.open(file, StandardOpenOption.READ);
+        this.format = format;
+        this.maxLineLength = maxLineLength;
+        this.objectMapper = objectMapper;
+        try {
+            if (offset < 0 || offset > channel.size()) {
+                throw new IllegalArgumentException("La posición " + offset + " está fuera del archivo.");
+            }
+            if (format == ImportFormat.CSV) {
+                readHeader();
+            }
+            if (offset > 0) {
+                ByteBuffer previous = ByteBuffer.allocate(1);
+                if (channel.read(previous, offset - 1) != 1 || previous.get(0) != '\n') {
+                    throw new IllegalArgumentException("La posición " + offset + " no es el inicio de una línea.");
+                }
+                seek(offset);
+                this.line = line;
+            }
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * @return La siguiente fila, o `null` al llegar al final del archivo.
+     * @throws IOException Si falla la lectura.
+     */
+    ImportRecord next() throws IOException {
+        while (true) {
+            long start = position;
+            if (!readLine()) {
+                return null;
+            }
+            line++;
+            ImportRecord record = new ImportRecord(sequence, line, start, position, null);
+            if (truncated) {
+                sequence++;
+                record.reject("La línea supera el máximo de " + maxLineLength + " bytes.");
+                return record;
+            }
+            String text;
+            try {
+                text = decoder.decode(ByteBuffer.wrap(lineBytes, 0, lineLength)).toString();
+            } catch (CharacterCodingException e) {
+                sequence++;
+                record.reject("La línea no es UTF-8 válido.");
+                return record;
+            }
+            if (text.isBlank()) {
+                continue;
+            }
+            sequence++;
+            record = new ImportRecord(record.sequence, record.line, record.offset, record.end, text);
+            try {
+                record.user = format == ImportFormat.CSV ? parseCsv(text) : parseNdjson(text);
+            } catch (JsonProcessingException e) {
+                record.reject("JSON no válido: " + e.getOriginalMessage());
+            } catch (IllegalArgumentException | IOException e) {
+                record.reject(e.getMessage());
+            }
+            return record;
+        }
+    }
+
+    /**
+     * @return Posición en bytes del final de la última línea leída.
+     */
+    long position() {
+        return position;
+    }
+
+    /**
+     * @return Tamaño del archivo en bytes.
+     * @throws IOException Si no puede obtenerse.
+     */
+    long size() throws IOException {
+        return channel.size();
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private void readHeader() throws IOException {
+        if (!readLine() || truncated) {
+            throw new IllegalArgumentException("El CSV no tiene una línea de encabezado válida.");
+        }
+        line = 1;
+        List<String> columns = splitCsv(new String(lineBytes, 0, lineLength, StandardCharsets.UTF_8).replace("\uFEFF", ""));
+        for (int i = 0; i < columns.size(); i++) {
+            switch (columns.get(i).strip().toLowerCase(Locale.ROOT)) {
+                case "username" -> usernameColumn = i;
+                case "email" -> emailColumn = i;
+                case "name" -> nameColumn = i;
+                default -> {
+                    // Columna no utilizada
+                }
+            }
+        }
+        if (usernameColumn < 0 || emailColumn < 0) {
+            throw new IllegalArgumentException("El encabezado del CSV debe incluir las columnas username y email.");
+        }
+    }
+
+    private Usuario parseCsv(String text) {
+        List<String> fields = splitCsv(text);
+        int required = Math.max(usernameColumn, Math.max(emailColumn, nameColumn)) + 1;
+        if (fields.size() < required) {
+            throw new IllegalArgumentException("La fila tiene " + fields.size() + " columnas; se esperaban " + required + ".");
+        }
+        Usuario user = new Usuario();
+        user.setUsername(fields.get(usernameColumn));
+        user.setEmail(fields.get(emailColumn));
+        user.setName(nameColumn < 0 ? null : fields.get(nameColumn));
+        return user;
+    }
+
+    private Usuario parseNdjson(String text) throws IOException {
+        JsonNode node = objectMapper.readTree(text);
+        if (node == null || !node.isObject()) {
+            throw new IllegalArgumentException("La línea no es un objeto JSON.");
+        }
+        Usuario user = new Usuario();
+        user.setUsername(node.path("username").asText(null));
+        user.setEmail(node.path("email").asText(null));
+        user.setName(node.path("name").asText(null));
+        return user;
+    }
+
+    /**
+     * Separa una línea CSV (RFC 4180) en campos. Los campos entre comillas pueden contener comas y
+     * comillas duplicadas, pero no saltos de línea.
+     */
+    static List<String> splitCsv(String text) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (quoted) {
+                if (c != '"') {
+                    field.append(c);
+                } else if (i + 1 < text.length() && text.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else {
+                    quoted = false;
+                }
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else if (c == '"' && field.isEmpty()) {
+                quoted = true;
+            } else {
+                field.append(c);
+            }
+        }
+        if (quoted) {
+            throw new IllegalArgumentException("Campo entre comillas sin cerrar.");
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    /**
+     * Lee la siguiente línea en `lineBytes`, sin el salto de línea ni el retorno de carro final.
+     * Si supera `maxLineLength`, solo conserva el principio y marca `truncated`.
+     *
+     * @return `false` si no quedaban bytes.
+     */
+    private boolean readLine() throws IOException {
+        lineLength = 0;
+        truncated = false;
+        boolean any = false;
+        while (true) {
+            if (!buffer.hasRemaining()) {
+                buffer.clear();
+                int read = channel.read(buffer);
+                buffer.flip();
+                if (read <= 0) {
+                    return any;
+                }
+            }
+            any = true;
+            byte[] array = buffer.array();
+            int from = buffer.position();
+            int limit = buffer.limit();
+            int i = from;
+            while (i < limit && array[i] != '\n') {
+                i++;
+            }
+            append(array, from, i - from);
+            boolean found = i < limit;
+            buffer.position(found ? i + 1 : i);
+            position += (found ? i + 1 : i) - from;
+            if (found) {
+                if (lineLength > 0 && lineBytes[lineLength - 1] == '\r') {
+                    lineLength--;
+                }
+                return true;
+            }
+        }
+    }
+
+    private void append(byte[] array, int from, int length) {
+        int room = maxLineLength - lineLength;
+        if (length > room) {
+            truncated = true;
+            length = Math.max(0, room);
+        }
+        if (lineLength + length > lineBytes.length) {
+            lineBytes = Arrays.copyOf(lineBytes, Math.min(maxLineLength, Math.max(lineLength + length, lineBytes.length * 2)));
+        }
+        System.arraycopy(array, from, lineBytes, lineLength, length);
+        lineLength += length;
+    }
+
+    private void seek(long offset) throws IOException {
+        channel.position(offset);
+        buffer.clear().flip();
+        position = offset;
+    }
+}
@@ -0,0 +1,650 @@
+package com.rsec.service.importer;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rsec.model.ImportCheckpoint;
+import com.rsec.model.Usuario;
+import com.rsec.repository.ImportCheckpointRepository;
+import com.rsec.repository.UsuarioRepository;
+import com.rsec.service.UsuarioService;
+import com.rsec.service.keys.DataKeyService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Importación masiva de usuarios desde un archivo CSV o NDJSON de `ciberapp.import.directory`.
+ *
+ * El archivo se procesa en tres etapas unidas por colas acotadas de `ciberapp.import.queue-size`
+ * filas, por lo que la memoria utilizada no depende del tamaño del archivo y una etapa lenta frena
+ * a las anteriores:
+ * <ol>
+ *     <li>Un lector analiza el archivo línea a línea ({@link ImportRecordReader}).</li>
+ *     <li>`ciberapp.import.workers` hilos aplican la protección de datos de {@link UsuarioService#protect}
+ *     (cifrado, tokenización, índices ciegos y enmascaramiento). Con cifrado por sobre, cada ejecución
+ *     cifra con una clave de datos propia ({@link DataKeyService#newScope(String)}).</li>
+ *     <li>Un escritor restablece el orden del archivo y guarda los usuarios en lotes de
+ *     `ciberapp.import.batch-size`, cada uno en una transacción junto con el punto de control
+ *     ({@link ImportCheckpoint}).</li>
+ * </ol>
+ * Las filas que no pueden analizarse, protegerse o guardarse se escriben, con su número de línea y el
+ * motivo, en el archivo de rechazos `<archivo>.rejects.ndjson`, que se sincroniza a disco antes de cada
+ * punto de control. Si la importación se interrumpe, continúa desde la posición en bytes de la última
+ * fila confirmada.
+ */
+@Service
+public class ImportService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ImportService.class);
+
+    private static final String JOB = "bulk-import";
+    private static final String REJECTS_SUFFIX = ".rejects.ndjson";
+    private static final long IDLE_FLUSH_MILLIS = 200;
+
+    private final UsuarioService usuarioService;
+    private final DataKeyService dataKeyService;
+    private final UsuarioRepository usuarioRepository;
+    private final ImportCheckpointRepository checkpointRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final Path directory;
+    private final int workers;
+    private final int queueSize;
+    private final int batchSize;
+    private final int maxLineLength;
+    private final boolean resumeOnStartup;
+
+    private final Counter importedRows;
+    private final Counter rejectedRows;
+
+    private Thread worker;
+    private volatile boolean stopRequested;
+    private volatile Run current;
+
+    /**
+     * Estado de la ejecución en curso o de la última ejecución.
+     */
+    private static final class Run {
+        final Path file;
+        final ImportFormat format;
+        final Path rejectsFile;
+        final long fileSize;
+        final long startNanos = System.nanoTime();
+        final AtomicLong bytesRead = new AtomicLong();
+        final AtomicLong parsed = new AtomicLong();
+        final AtomicLong processedThisRun = new AtomicLong();
+        final BlockingQueue<ImportRecord> parsedQueue;
+        final BlockingQueue<ImportRecord> protectedQueue;
+        final String keyScope;
+        volatile ImportCheckpoint checkpoint;
+        volatile String error;
+
+        Run(Path file, ImportFormat format, long fileSize, ImportCheckpoint checkpoint, int queueSize, String keyScope) {
+            this.file = file;
+            this.format = format;
+            this.rejectsFile = rejectsFile(file);
+            this.fileSize = fileSize;
+            this.checkpoint = checkpoint;
+            this.bytesRead.set(checkpoint.getOffset());
+            this.parsedQueue = new ArrayBlockingQueue<>(queueSize);
+            this.protectedQueue = new ArrayBlockingQueue<>(queueSize);
+            this.keyScope = keyScope;
+        }
+    }
+
+    /**
+     * Constructor del servicio.
+     *
+     * @param usuarioService        Servicio que aplica la protección de datos.
+     * @param dataKeyService        Claves de datos del cifrado por sobre.
+     * @param usuarioRepository     Repositorio de usuarios.
+     * @param checkpointRepository  Repositorio de los puntos de control.
+     * @param transactionTemplate   Plantilla de las transacciones de cada lote.
+     * @param objectMapper          Mapper de Jackson para NDJSON y el archivo de rechazos.
+     * @param directory             Directorio desde el que se permiten importar archivos.
+     * @param workers               Hilos de la etapa de protección; cero usa todos los núcleos.
+     * @param queueSize             Capacidad de cada cola entre etapas.
+     * @param batchSize             Usuarios por transacción.
+     * @param maxLineLength         Longitud máxima de una línea.
+     * @param resumeOnStartup       Si se reanuda al arrancar una importación interrumpida.
+     * @param registry              Registro de métricas.
+     */
+    public ImportService(UsuarioService usuarioService, DataKeyService dataKeyService, UsuarioRepository usuarioRepository,
+                         ImportCheckpointRepository checkpointRepository, TransactionTemplate transactionTemplate,
+                         ObjectMapper objectMapper,
+                         @Value("${ciberapp.import.directory:import}") Path directory,
+                         @Value("${ciberapp.import.workers:0}") int workers,
+                         @Value("${ciberapp.import.queue-size:1000}") int queueSize,
+                         @Value("${ciberapp.import.batch-size:500}") int batchSize,
+                         @Value("${ciberapp.import.max-line-length:64KB}") DataSize maxLineLength,
+                         @Value("${ciberapp.import.resume-on-startup:true}") boolean resumeOnStartup,
+                         MeterRegistry registry) {
+        if (queueSize < 1 || batchSize < 1) {
+            throw new IllegalArgumentException("ciberapp.import.queue-size y batch-size deben ser positivos.");
+        }
+        this.usuarioService = usuarioService;
+        this.dataKeyService = dataKeyService;
+        this.usuarioRepository = usuarioRepository;
+        this.checkpointRepository = checkpointRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.objectMapper = objectMapper;
+        this.directory = directory.toAbsolutePath().normalize();
+        this.workers = workers > 0 ? workers : Runtime.getRuntime().availableProcessors();
+        this.queueSize = queueSize;
+        this.batchSize = batchSize;
+        this.maxLineLength = (int) Math.min(Integer.MAX_VALUE - 8, maxLineLength.toBytes());
+        this.resumeOnStartup = resumeOnStartup;
+
+        this.importedRows = rowCounter(registry, "imported");
+        this.rejectedRows = rowCounter(registry, "rejected");
+        Gauge.builder("ciberapp.import.progress", this, ImportService::progress)
+                .description("Fracción del archivo confirmada por la importación en curso")
+                .register(registry);
+        Gauge.builder("ciberapp.import.running", this, job -> job.isRunning() ? 1 : 0)
+                .description("1 si la importación está en ejecución")
+                .register(registry);
+        Gauge.builder("ciberapp.import.queue", this, job -> queued(job.current, false))
+                .description("Filas en espera de cada etapa de la importación")
+                .tag("stage", "protect")
+                .register(registry);
+        Gauge.builder("ciberapp.import.queue", this, job -> queued(job.current, true))
+                .description("Filas en espera de cada etapa de la importación")
+                .tag("stage", "write")
+                .register(registry);
+    }
+
+    /**
+     * Reanuda al iniciar la aplicación una importación interrumpida, si `ciberapp.import.resume-on-startup`
+     * es `true`.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void resumeOnStartup() {
+        if (!resumeOnStartup) {
+            return;
+        }
+        checkpointRepository.findById(JOB).filter(c -> !c.isCompleted()).ifPresent(checkpoint -> {
+            try {
+                logger.info("Se reanuda la importación interrumpida de {} desde el byte {}",
+                        checkpoint.getFile(), checkpoint.getOffset());
+                start(checkpoint.getFile(), checkpoint.getFormat(), false, null);
+            } catch (IOException | RuntimeException e) {
+                logger.error("No se pudo reanudar la importación de {}", checkpoint.getFile(), e);
+            }
+        });
+    }
+
+    /**
+     * Inicia la importación en segundo plano. El archivo, el formato y la posición se validan antes
+     * de volver.
+     *
+     * @param file    Archivo, relativo a `ciberapp.import.directory`.
+     * @param format  `csv` o `ndjson`; si es `null` se deduce de la extensión.
+     * @param restart Si es `true`, empieza desde el principio aunque exista una importación sin terminar
+     *                del mismo archivo; si es `false`, continúa desde su último punto de control.
+     * @param offset  Posición en bytes desde la que leer, que debe ser el inicio de una línea; si no es
+     *                `null`, reemplaza al punto de control y los rechazos se añaden al archivo existente.
+     * @return `false` si ya había una importación en ejecución.
+     * @throws IOException              Si el archivo no puede leerse.
+     * @throws IllegalArgumentException Si el archivo, el formato o la posición no son válidos.
+     * @throws IllegalStateException    Si el archivo cambió desde la importación interrumpida.
+     */
+    public synchronized boolean start(String file, String format, boolean restart, Long offset) throws IOException {
+        if (isRunning()) {
+            return false;
+        }
+        Path path = resolve(file);
+        ImportFormat importFormat = format == null || format.isBlank()
+                ? ImportFormat.fromFileName(path.getFileName().toString())
+                : ImportFormat.of(format);
+        long fileSize = Files.size(path);
+
+        ImportCheckpoint checkpoint = checkpointRepository.findById(JOB)
+                .filter(c -> !restart && offset == null && !c.isCompleted() && c.getFile().equals(path.toString()))
+                .orElse(null);
+        if (checkpoint != null && checkpoint.getFileSize() != fileSize) {
+            throw new IllegalStateException("El archivo cambió de tamaño desde la importación interrumpida ("
+                    + checkpoint.getFileSize() + " a " + fileSize + " bytes); use restart=true.");
+        }
+        if (checkpoint == null) {
+            Path rejects = rejectsFile(path);
+            long start = offset == null ? 0 : offset;
+            long line = offset == null ? 0 : countLines(path, start);
+            long rejectsSize = offset != null && Files.exists(rejects) ? Files.size(rejects) : 0;
+            checkpoint = new ImportCheckpoint(JOB, path.toString(), importFormat.name(), fileSize, start, line,
+                    0, 0, rejectsSize, false, Instant.now(), Instant.now());
+        } else {
+            importFormat = ImportFormat.of(checkpoint.getFormat());
+        }
+
+        ImportRecordReader reader = new ImportRecordReader(path, importFormat, checkpoint.getOffset(),
+                checkpoint.getLine(), maxLineLength, objectMapper);
+        FileChannel rejects;
+        try {
+            rejects = FileChannel.open(rejectsFile(path), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+            // Se descarta lo escrito después del último punto de control
+            rejects.truncate(checkpoint.getRejectsSize());
+            rejects.position(checkpoint.getRejectsSize());
+        } catch (IOException | RuntimeException e) {
+            reader.close();
+            throw e;
+        }
+
+        Run run = new Run(path, importFormat, fileSize, checkpoint, queueSize, dataKeyService.newScope("import"));
+        current = run;
+        stopRequested = false;
+        worker = Thread.ofVirtual().name("import").start(() -> {
+            try (reader; rejects) {
+                execute(run, reader, rejects);
+            } catch (IOException | RuntimeException e) {
+                run.error = rootMessage(e);
+                logger.error("La importación de {} se detuvo por un error; puede reanudarse desde el último punto de control",
+                        run.file, e);
+            } finally {
+                dataKeyService.release(run.keyScope);
+            }
+        });
+        return true;
+    }
+
+    /**
+     * Solicita que la importación se detenga. Las filas ya leídas se terminan de guardar antes.
+     */
+    public void stop() {
+        stopRequested = true;
+    }
+
+    public synchronized boolean isRunning() {
+        return worker != null && worker.isAlive();
+    }
+
+    /**
+     * @return Progreso de la importación en curso o de la última, y su punto de control.
+     */
+    public Map<String, Object> status() {
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("running", isRunning());
+        Run run = current;
+        if (run == null) {
+            body.put("checkpoint", checkpointRepository.findById(JOB).orElse(null));
+            return body;
+        }
+        ImportCheckpoint checkpoint = run.checkpoint;
+        double seconds = (System.nanoTime() - run.startNanos) / 1e9;
+        body.put("file", run.file.toString());
+        body.put("format", run.format.name().toLowerCase(Locale.ROOT));
+        body.put("rejectsFile", run.rejectsFile.toString());
+        body.put("fileSize", run.fileSize);
+        body.put("bytesRead", run.bytesRead.get());
+        body.put("bytesCommitted", checkpoint.getOffset());
+        body.put("progress", progress());
+        body.put("parsed", run.parsed.get());
+        body.put("imported", checkpoint.getImported());
+        body.put("rejected", checkpoint.getRejected());
+        body.put("rowsPerSecond", seconds > 0 ? run.processedThisRun.get() / seconds : 0);
+        body.put("workers", workers);
+        body.put("queued", Map.of("protect", queued(run, false), "write", queued(run, true)));
+        body.put("error", run.error);
+        body.put("checkpoint", checkpoint);
+        return body;
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        stop();
+        Thread thread = worker;
+        if (thread != null) {
+            thread.join(TimeUnit.SECONDS.toMillis(30));
+        }
+    }
+
+    private void execute(Run run, ImportRecordReader reader, FileChannel rejects) throws IOException {
+        logger.info("Importación de {} iniciada en el byte {} de {}", run.file, run.checkpoint.getOffset(), run.fileSize);
+        boolean[] endOfFile = new boolean[1];
+        Thread.ofPlatform().name("import-parser").daemon().start(() -> parse(run, reader, endOfFile));
+        for (int i = 0; i < workers; i++) {
+            Thread.ofPlatform().name("import-protect-" + i).daemon().start(() -> protect(run));
+        }
+        write(run, rejects);
+
+        ImportCheckpoint checkpoint = run.checkpoint;
+        if (endOfFile[0] && run.error == null) {
+            ImportCheckpoint completed = copy(checkpoint);
+            completed.setOffset(reader.position());
+            completed.setCompleted(true);
+            completed.setUpdatedAt(Instant.now());
+            checkpointRepository.save(completed);
+            run.checkpoint = completed;
+        }
+        logger.info("Importación de {} {}: {} importados, {} rechazados, byte {} de {}",
+                run.file, run.checkpoint.isCompleted() ? "completada" : "detenida",
+                run.checkpoint.getImported(), run.checkpoint.getRejected(), run.checkpoint.getOffset(), run.fileSize);
+    }
+
+    /**
+     * Etapa de lectura. Al terminar, o al solicitarse la detención, envía una marca de fin por cada
+     * hilo de protección.
+     */
+    private void parse(Run run, ImportRecordReader reader, boolean[] endOfFile) {
+        try {
+            while (!stopRequested) {
+                ImportRecord record = reader.next();
+                if (record == null) {
+                    // Se publica al escritor a través de las colas, con las marcas de fin
+                    endOfFile[0] = true;
+                    break;
+                }
+                putUninterruptibly(run.parsedQueue, record);
+                run.parsed.incrementAndGet();
+                run.bytesRead.set(reader.position());
+            }
+        } catch (IOException | RuntimeException e) {
+            run.error = rootMessage(e);
+            logger.error("Error al leer {}", run.file, e);
+        } finally {
+            for (int i = 0; i < workers; i++) {
+                putUninterruptibly(run.parsedQueue, ImportRecord.END);
+            }
+        }
+    }
+
+    /**
+     * Etapa de protección.
+     */
+    private void protect(Run run) {
+        while (true) {
+            ImportRecord record = takeUninterruptibly(run.parsedQueue);
+            if (record == ImportRecord.END) {
+                putUninterruptibly(run.protectedQueue, ImportRecord.END);
+                return;
+            }
+            if (!record.rejected()) {
+                try {
+                    usuarioService.protect(record.user, run.keyScope);
+                } catch (Exception e) {
+                    record.reject(e.getMessage());
+                }
+            }
+            putUninterruptibly(run.protectedQueue, record);
+        }
+    }
+
+    /**
+     * Etapa de escritura. Las filas llegan desordenadas desde los hilos de protección; se guardan en
+     * el orden del archivo para que el punto de control sea siempre el final de una fila confirmada
+     * con todas las anteriores. El búfer de reordenación no supera las filas en vuelo entre etapas.
+     * Si falla la escritura, las filas restantes se descartan sin confirmar.
+     */
+    private void write(Run run, FileChannel rejects) {
+        Map<Long, ImportRecord> pending = new HashMap<>();
+        List<ImportRecord> batch = new ArrayList<>(batchSize);
+        long next = 0;
+        int ends = 0;
+        boolean failed = false;
+        while (ends < workers) {
+            ImportRecord record = pollUninterruptibly(run.protectedQueue);
+            if (record == null || failed) {
+                if (!batch.isEmpty() && !failed) {
+                    failed = !flush(run, batch, rejects);
+                }
+                if (record == null) {
+                    continue;
+                }
+            }
+            if (record == ImportRecord.END) {
+                ends++;
+                continue;
+            }
+            if (failed) {
+                continue;
+            }
+            pending.put(record.sequence, record);
+            while ((record = pending.remove(next)) != null) {
+                next++;
+                batch.add(record);
+                if (batch.size() >= batchSize && !flush(run, batch, rejects)) {
+                    failed = true;
+                    break;
+                }
+            }
+        }
+        if (!failed && !batch.isEmpty()) {
+            flush(run, batch, rejects);
+        }
+    }
+
+    /**
+     * Guarda un lote y su punto de control en una transacción. Si falla, por ejemplo por un usuario
+     * duplicado, guarda cada fila por separado para rechazar solo las que fallan.
+     *
+     * @return `false` si no pudo guardarse; la importación se detiene.
+     */
+    private boolean flush(Run run, List<ImportRecord> batch, FileChannel rejects) {
+        try {
+            List<Usuario> users = new ArrayList<>(batch.size());
+            int rejected = 0;
+            for (ImportRecord record : batch) {
+                if (record.rejected()) {
+                    appendReject(rejects, record);
+                    rejected++;
+                } else {
+                    users.add(record.user);
+                }
+            }
+            if (rejected > 0) {
+                rejects.force(false);
+            }
+            ImportCheckpoint next = advance(run.checkpoint, batch.get(batch.size() - 1), users.size(), rejected, rejects.size());
+            try {
+                transactionTemplate.executeWithoutResult(status -> {
+                    usuarioRepository.saveAll(users);
+                    checkpointRepository.save(next);
+                });
+                committed(run, next, users.size(), rejected);
+            } catch (RuntimeException e) {
+                logger.debug("Falló el lote de {} filas, se reintenta fila a fila", batch.size(), e);
+                rejects.truncate(run.checkpoint.getRejectsSize());
+                rejects.position(run.checkpoint.getRejectsSize());
+                for (ImportRecord record : batch) {
+                    flushOne(run, record, rejects);
+                }
+            }
+            batch.clear();
+            return true;
+        } catch (IOException | RuntimeException e) {
+            run.error = rootMessage(e);
+            stopRequested = true;
+            logger.error("No se pudo guardar un lote de la importación de {}", run.file, e);
+            return false;
+        }
+    }
+
+    private void flushOne(Run run, ImportRecord record, FileChannel rejects) throws IOException {
+        if (!record.rejected()) {
+            record.user.resetIdentity(); // El identificador y la versión de la transacción revertida ya no son válidos
+            ImportCheckpoint next = advance(run.checkpoint, record, 1, 0, rejects.size());
+            try {
+                transactionTemplate.executeWithoutResult(status -> {
+                    usuarioRepository.save(record.user);
+                    checkpointRepository.save(next);
+                });
+                committed(run, next, 1, 0);
+                return;
+            } catch (RuntimeException e) {
+                record.reject(rootMessage(e));
+            }
+        }
+        appendReject(rejects, record);
+        rejects.force(false);
+        ImportCheckpoint next = advance(run.checkpoint, record, 0, 1, rejects.size());
+        checkpointRepository.save(next);
+        committed(run, next, 0, 1);
+    }
+
+    private void committed(Run run, ImportCheckpoint next, int imported, int rejected) {
+        run.checkpoint = next;
+        run.processedThisRun.addAndGet(imported + rejected);
+        importedRows.increment(imported);
+        rejectedRows.increment(rejected);
+    }
+
+    private void appendReject(FileChannel rejects, ImportRecord record) throws IOException {
+        Map<String, Object> entry = new LinkedHashMap<>();
+        entry.put("line", record.line);
+        entry.put("offset", record.offset);
+        entry.put("error", record.error);
+        entry.put("raw", record.raw);
+        byte[] json = objectMapper.writeValueAsBytes(entry);
+        ByteBuffer buffer = ByteBuffer.allocate(json.length + 1).put(json).put((byte) '\n').flip();
+        while (buffer.hasRemaining()) {
+            rejects.write(buffer);
+        }
+    }
+
+    private static ImportCheckpoint advance(ImportCheckpoint checkpoint, ImportRecord last, int imported, int rejected,
+                                            long rejectsSize) {
+        ImportCheckpoint next = copy(checkpoint);
+        next.setOffset(last.end);
+        next.setLine(last.line);
+        next.setImported(checkpoint.getImported() + imported);
+        next.setRejected(checkpoint.getRejected() + rejected);
+        next.setRejectsSize(rejectsSize);
+        next.setUpdatedAt(Instant.now());
+        return next;
+    }
+
+    private static ImportCheckpoint copy(ImportCheckpoint c) {
+        return new ImportCheckpoint(c.getJob(), c.getFile(), c.getFormat(), c.getFileSize(), c.getOffset(), c.getLine(),
+                c.getImported(), c.getRejected(), c.getRejectsSize(), c.isCompleted(), c.getStartedAt(), c.getUpdatedAt());
+    }
+
+
+    private Path resolve(String file) {
+        if (file == null || file.isBlank()) {
+            throw new IllegalArgumentException("Debe indicarse el archivo a importar.");
+        }
+        Path path = directory.resolve(file).toAbsolutePath().normalize();
+        if (!path.startsWith(directory)) {
+            throw new IllegalArgumentException("El archivo debe estar en " + directory + ".");
+        }
+        if (!Files.isRegularFile(path)) {
+            throw new IllegalArgumentException("No existe el archivo " + path + ".");
+        }
+        return path;
+    }
+
+    private static Path rejectsFile(Path file) {
+        return file.resolveSibling(file.getFileName() + REJECTS_SUFFIX);
+    }
+
+    /**
+     * Cuenta las líneas anteriores a una posición, para numerar las filas al empezar desde ella.
+     */
+    private static long countLines(Path file, long offset) throws IOException {
+        long lines = 0;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+            long position = 0;
+            while (position < offset) {
+                buffer.clear().limit((int) Math.min(buffer.capacity(), offset - position));
+                int read = channel.read(buffer, position);
+                if (read <= 0) {
+                    break;
+                }
+                for (int i = 0; i < read; i++) {
+                    if (buffer.get(i) == '\n') {
+                        lines++;
+                    }
+                }
+                position += read;
+            }
+        }
+        return lines;
+    }
+
+    private double progress() {
+        Run run = current;
+        return run == null || run.fileSize == 0 ? 0 : (double) run.checkpoint.getOffset() / run.fileSize;
+    }
+
+    private static int queued(Run run, boolean write) {
+        if (run == null) {
+            return 0;
+        }
+        return write ? run.protectedQueue.size() : run.parsedQueue.size();
+    }
+
+    private static <T> void putUninterruptibly(BlockingQueue<T> queue, T value) {
+        boolean interrupted = false;
+        while (true) {
+            try {
+                queue.put(value);
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static <T> T takeUninterruptibly(BlockingQueue<T> queue) {
+        while (true) {
+            try {
+                return queue.take();
+            } catch (InterruptedException e) {
+                // Las etapas terminan con las marcas de fin, no con interrupciones
+            }
+        }
+    }
+
+    private static <T> T pollUninterruptibly(BlockingQueue<T> queue) {
+        try {
+            return queue.poll(IDLE_FLUSH_MILLIS, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            return null;
+        }
+    }
+
+    private static String rootMessage(Throwable e) {
+        Throwable root = e instanceof UncheckedIOException ? e.getCause() : e;
+        while (root.getCause() != null && root.getCause() != root) {
+            root = root.getCause();
+        }
+        return root.getMessage();
+    }
+
+    private static Counter rowCounter(MeterRegistry registry, String result) {
+        return Counter.builder("ciberapp.import.rows")
+                .description("Filas procesadas por la importación masiva")
+                .tag("result", result)
+                .register(registry);
+    }
+}
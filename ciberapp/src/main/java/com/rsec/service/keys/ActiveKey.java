@@ -0,0 +1,12 @@
+package com.rsec.service.keys;
+
+import javax.crypto.SecretKey;
+
+/**
+ * Clave con la que se cifran los nuevos datos de un uso, junto con su identificador.
+ *
+ * @param id  Identificador de la clave (1 a 255), que se escribe en la cabecera de los datos cifrados.
+ * @param key Clave secreta.
+ */
+public record ActiveKey(int id, SecretKey key) {
+}
@@ -0,0 +1,249 @@
+package com.rsec.service.keys;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.crypto.KeyGenerator;
+import javax.crypto.SecretKey;
+import java.nio.ByteBuffer;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Claves de datos del cifrado por sobre (envelope encryption).
+ *
+ * Cada ámbito cifra con una clave de datos AES-256 propia, que viaja cifrada con la {@link MasterKey}
+ * junto a cada dato cifrado. Los usuarios creados de uno en uno usan el ámbito {@link #DEFAULT_SCOPE};
+ * cada lote de `POST /users/batch` y cada importación usan un ámbito propio ({@link #newScope}),
+ * que se libera al terminar. Para que la clave maestra se use pocas veces:
+ * <ul>
+ *     <li>La clave de datos de cada ámbito se reutiliza hasta `ciberapp.envelope.data-key.max-uses`
+ *     cifrados o durante `ciberapp.envelope.data-key.ttl`, lo que ocurra antes, y mientras esté
+ *     cifrada con la clave maestra activa; después se genera y se cifra una nueva. Así, tras una
+ *     rotación de la clave maestra los datos nuevos dejan de usar la anterior de inmediato.</li>
+ *     <li>Las claves de datos descifradas se guardan en una caché acotada
+ *     (`ciberapp.envelope.data-key.cache-size`) con el mismo tiempo de vida, indexada por la
+ *     clave cifrada.</li>
+ * </ul>
+ * Obtener la clave de cifrado actual solo incrementa un contador atómico; la generación de una
+ * nueva clave se serializa por ámbito, de modo que una clave agotada se reemplaza una sola vez.
+ */
+@Service
+public class DataKeyService {
+
+    /**
+     * Ámbito por defecto de las claves de datos.
+     */
+    public static final String DEFAULT_SCOPE = "default";
+
+    private final MasterKey masterKey;
+    private final boolean enabled;
+    private final long maxUses;
+    private final long ttlNanos;
+    private final SecureRandom secureRandom = new SecureRandom();
+    private final Cache<String, DataKey> encryptionKeys;
+    private final Cache<ByteBuffer, SecretKey> decryptionKeys;
+    private final AtomicLong wraps = new AtomicLong();
+    private final AtomicLong unwraps = new AtomicLong();
+
+    /**
+     * Constructor del servicio.
+     *
+     * @param masterKey Clave maestra.
+     * @param enabled   Si es `false`, `CipherService` cifra directamente con sus claves.
+     * @param maxUses   Número máximo de cifrados con una misma clave de datos.
+     * @param ttl       Tiempo de vida de una clave de datos, para cifrar y en la caché de descifrado.
+     * @param cacheSize Número máximo de claves de datos descifradas en caché.
+     */
+    public DataKeyService(MasterKey masterKey,
+                          @Value("${ciberapp.envelope.enabled:false}") boolean enabled,
+                          @Value("${ciberapp.envelope.data-key.max-uses:1000000}") long maxUses,
+                          @Value("${ciberapp.envelope.data-key.ttl:1h}") Duration ttl,
+                          @Value("${ciberapp.envelope.data-key.cache-size:1000}") long cacheSize) {
+        this.masterKey = masterKey;
+        this.enabled = enabled;
+        this.maxUses = maxUses;
+        this.ttlNanos = ttl.toNanos();
+        this.encryptionKeys = Caffeine.newBuilder()
+                .maximumSize(cacheSize)
+                .expireAfterWrite(ttl)
+                .build();
+        this.decryptionKeys = Caffeine.newBuilder()
+                .maximumSize(cacheSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * @return `true` si los nuevos datos cifrados usan cifrado por sobre.
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Crea un ámbito nuevo, que no comparte la clave de datos con ningún otro.
+     *
+     * @param prefix Prefijo descriptivo, por ejemplo `batch` o `import`.
+     * @return El nombre del ámbito; debe liberarse con {@link #release(String)} al terminar.
+     */
+    public String newScope(String prefix) {
+        return prefix + "-" + UUID.randomUUID();
+    }
+
+    /**
+     * Descarta la clave de datos de un ámbito que ya no se usará para cifrar. Los datos cifrados
+     * con ella siguen pudiendo descifrarse.
+     *
+     * @param scope Ámbito creado con {@link #newScope(String)}.
+     */
+    public void release(String scope) {
+        encryptionKeys.invalidate(scope);
+    }
+
+    /**
+     * Obtiene la clave de datos con la que cifrar en un ámbito y cuenta un uso.
+     *
+     * @param scope Ámbito de la clave, por ejemplo {@link #DEFAULT_SCOPE}.
+     * @return La clave de datos y su forma cifrada.
+     * @throws GeneralSecurityException Si no se puede generar o cifrar una nueva clave de datos.
+     */
+    public DataKey current(String scope) throws GeneralSecurityException {
+        while (true) {
+            DataKey key = encryptionKeys.getIfPresent(scope);
+            if (key != null && masterKey.isCurrent(key.wrapped, 0, key.wrapped.length) && key.tryUse(maxUses)) {
+                return key;
+            }
+            try {
+                // Solo se reemplaza la clave agotada; si otro hilo ya la reemplazó, se usa la suya
+                encryptionKeys.asMap().compute(scope, (s, existing) -> existing == null || existing == key
+                        ? newDataKey() : existing);
+            } catch (KeyGenerationException e) {
+                throw e.getCause();
+            }
+        }
+    }
+
+    /**
+     * Descifra una clave de datos, usando la caché si ya fue descifrada.
+     *
+     * @param input  Arreglo que contiene la clave cifrada.
+     * @param offset Posición de la clave cifrada.
+     * @param length Longitud de la clave cifrada.
+     * @return La clave de datos en claro.
+     * @throws GeneralSecurityException Si la clave no puede descifrarse.
+     */
+    public SecretKey unwrap(byte[] input, int offset, int length) throws GeneralSecurityException {
+        SecretKey cached = decryptionKeys.getIfPresent(ByteBuffer.wrap(input, offset, length));
+        if (cached != null) {
+            return cached;
+        }
+        SecretKey key = masterKey.unwrap(input, offset, length);
+        unwraps.incrementAndGet();
+        decryptionKeys.put(ByteBuffer.wrap(Arrays.copyOfRange(input, offset, offset + length)), key);
+        return key;
+    }
+
+    /**
+     * Indica si una clave de datos está cifrada con la clave maestra activa.
+     *
+     * @param input  Arreglo que contiene la clave cifrada.
+     * @param offset Posición de la clave cifrada.
+     * @param length Longitud de la clave cifrada.
+     * @return `true` si no necesita volver a cifrarse tras una rotación de la clave maestra.
+     */
+    public boolean isCurrentMasterKey(byte[] input, int offset, int length) {
+        return masterKey.isCurrent(input, offset, length);
+    }
+
+    /**
+     * @return Contadores de uso de la clave maestra y de la caché de claves de datos.
+     */
+    public Map<String, Object> stats() {
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("enabled", enabled);
+        body.put("wraps", wraps.get());
+        body.put("unwraps", unwraps.get());
+        body.put("activeScopes", encryptionKeys.estimatedSize());
+        body.put("cachedDataKeys", decryptionKeys.estimatedSize());
+        body.put("cacheHitRate", decryptionKeys.stats().hitRate());
+        return body;
+    }
+
+    /**
+     * Genera una clave de datos y la cifra con la clave maestra. La clave nueva se añade a la
+     * caché de descifrado para no tener que descifrarla en este nodo.
+     */
+    private DataKey newDataKey() {
+        try {
+            KeyGenerator generator = KeyGenerator.getInstance("AES");
+            generator.init(256, secureRandom);
+            SecretKey key = generator.generateKey();
+            byte[] wrapped = masterKey.wrap(key);
+            if (wrapped.length > 255) {
+                throw new GeneralSecurityException("La clave de datos cifrada excede 255 bytes.");
+            }
+            wraps.incrementAndGet();
+            decryptionKeys.put(ByteBuffer.wrap(wrapped.clone()), key);
+            return new DataKey(key, wrapped, System.nanoTime() + ttlNanos);
+        } catch (GeneralSecurityException e) {
+            throw new KeyGenerationException(e);
+        }
+    }
+
+    /**
+     * Transporta una `GeneralSecurityException` fuera de la función de `compute`.
+     */
+    private static final class KeyGenerationException extends RuntimeException {
+
+        KeyGenerationException(GeneralSecurityException cause) {
+            super(cause);
+        }
+
+        @Override
+        public synchronized GeneralSecurityException getCause() {
+            return (GeneralSecurityException) super.getCause();
+        }
+    }
+
+    /**
+     * Clave de datos en uso para cifrar, con su forma cifrada y su contador de usos.
+     */
+    public static final class DataKey {
+
+        private final SecretKey key;
+        private final byte[] wrapped;
+        private final long expiresAtNanos;
+        private final AtomicLong uses = new AtomicLong();
+
+        private DataKey(SecretKey key, byte[] wrapped, long expiresAtNanos) {
+            this.key = key;
+            this.wrapped = wrapped;
+            this.expiresAtNanos = expiresAtNanos;
+        }
+
+        public SecretKey key() {
+            return key;
+        }
+
+        /**
+         * @return La clave cifrada con la clave maestra. No debe modificarse.
+         */
+        public byte[] wrapped() {
+            return wrapped;
+        }
+
+        private boolean tryUse(long maxUses) {
+            return System.nanoTime() - expiresAtNanos < 0 && uses.incrementAndGet() <= maxUses;
+        }
+    }
+}
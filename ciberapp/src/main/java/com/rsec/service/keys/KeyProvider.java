@@ -0,0 +1,27 @@
+package com.rsec.service.keys;
+
+import javax.crypto.SecretKey;
+
+/**
+ * Fuente de las claves de cifrado.
+ *
+ * Cada uso tiene una clave activa, con la que se cifran los datos nuevos, y puede tener varias
+ * claves más para descifrar datos cifrados antes de una rotación. Las implementaciones deben
+ * responder sin bloqueos, ya que se consultan en cada operación de cifrado y descifrado.
+ */
+public interface KeyProvider {
+
+    /**
+     * @param purpose Uso de la clave.
+     * @return La clave activa del uso.
+     * @throws IllegalStateException Si el uso no tiene ninguna clave.
+     */
+    ActiveKey activeKey(KeyPurpose purpose);
+
+    /**
+     * @param purpose Uso de la clave.
+     * @param id      Identificador de la clave, leído de la cabecera de un dato cifrado.
+     * @return La clave, o `null` si no existe.
+     */
+    SecretKey key(KeyPurpose purpose, int id);
+}
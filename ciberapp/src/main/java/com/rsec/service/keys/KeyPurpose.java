@@ -0,0 +1,55 @@
+package com.rsec.service.keys;
+
+import java.util.Locale;
+
+/**
+ * Uso de una clave. Cada uso tiene su propio espacio de identificadores de clave.
+ *
+ * En el almacén de claves, el alias de una clave es `<uso>-<id>`, por ejemplo `cipher-2` o `blind-index-1`.
+ */
+public enum KeyPurpose {
+
+    /**
+     * Claves de `CipherService`.
+     */
+    CIPHER(true),
+
+    /**
+     * Claves de `TokenService`.
+     */
+    TOKEN(true),
+
+    /**
+     * Claves maestras que cifran las claves de datos del cifrado por sobre (envelope encryption).
+     * Solo son necesarias si `ciberapp.envelope.enabled` es `true`.
+     */
+    MASTER(false),
+
+    /**
+     * Clave HMAC de los índices ciegos de `BlindIndexService`. Solo existe `blind-index-1`: los índices
+     * guardados se calcularon con ella y nada los recalcula, por lo que una clave nueva dejaría de
+     * encontrar a los usuarios existentes y de detectar duplicados. El almacén de claves no se carga
+     * si tiene otro identificador.
+     */
+    BLIND_INDEX(true);
+
+    private final boolean required;
+
+    KeyPurpose(boolean required) {
+        this.required = required;
+    }
+
+    /**
+     * @return `true` si el almacén de claves debe tener al menos una clave de este uso.
+     */
+    public boolean required() {
+        return required;
+    }
+
+    /**
+     * @return Prefijo del alias de las claves de este uso.
+     */
+    public String alias() {
+        return name().toLowerCase(Locale.ROOT).replace('_', '-');
+    }
+}
@@ -0,0 +1,140 @@
+package com.rsec.service.keys;
+
+import javax.crypto.KeyGenerator;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.SecretKeySpec;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Conjunto inmutable de claves, indexado por uso e identificador.
+ *
+ * La búsqueda de una clave es un acceso a un arreglo; como el conjunto no cambia, puede
+ * compartirse entre hilos sin sincronización y reemplazarse completo al recargar las claves.
+ */
+public final class KeyRing implements KeyProvider {
+
+    /**
+     * Identificador máximo de una clave: se escribe en un byte de la cabecera.
+     */
+    public static final int MAX_KEY_ID = 255;
+
+    private static final KeyPurpose[] PURPOSES = KeyPurpose.values();
+
+    private final SecretKey[][] keys = new SecretKey[PURPOSES.length][MAX_KEY_ID + 1];
+    private final ActiveKey[] active = new ActiveKey[PURPOSES.length];
+
+    /**
+     * Crea el conjunto a partir de claves identificadas por su alias `<uso>-<id>`.
+     * La clave activa de cada uso es la de mayor identificador.
+     *
+     * @param aliases Claves por alias.
+     * @throws IllegalArgumentException Si un alias no tiene el formato `<uso>-<id>`.
+     */
+    public KeyRing(Map<String, SecretKey> aliases) {
+        for (Map.Entry<String, SecretKey> entry : aliases.entrySet()) {
+            KeyPurpose purpose = purposeOf(entry.getKey());
+            int id = idOf(entry.getKey());
+            keys[purpose.ordinal()][id] = new SecretKeySpec(entry.getValue().getEncoded(), "AES");
+        }
+        for (KeyPurpose purpose : PURPOSES) {
+            SecretKey[] byId = keys[purpose.ordinal()];
+            for (int id = MAX_KEY_ID; id > 0; id--) {
+                if (byId[id] != null) {
+                    active[purpose.ordinal()] = new ActiveKey(id, byId[id]);
+                    break;
+                }
+            }
+        }
+    }
+
+    /**
+     * Genera un conjunto con una clave AES-256 aleatoria para cada uso, con identificador 1.
+     * Útil para herramientas y benchmarks que no necesitan claves persistentes.
+     *
+     * @return El conjunto generado.
+     * @throws NoSuchAlgorithmException Si AES no está disponible.
+     */
+    public static KeyRing generate() throws NoSuchAlgorithmException {
+        KeyGenerator generator = KeyGenerator.getInstance("AES");
+        generator.init(256, new SecureRandom());
+        Map<String, SecretKey> aliases = new HashMap<>();
+        for (KeyPurpose purpose : PURPOSES) {
+            aliases.put(purpose.alias() + "-1", generator.generateKey());
+        }
+        return new KeyRing(aliases);
+    }
+
+    @Override
+    public ActiveKey activeKey(KeyPurpose purpose) {
+        ActiveKey key = active[purpose.ordinal()];
+        if (key == null) {
+            throw new IllegalStateException("No hay ninguna clave para el uso " + purpose.alias() + ".");
+        }
+        return key;
+    }
+
+    @Override
+    public SecretKey key(KeyPurpose purpose, int id) {
+        return id > 0 && id <= MAX_KEY_ID ? keys[purpose.ordinal()][id] : null;
+    }
+
+    /**
+     * @param purpose Uso de las claves.
+     * @return Identificadores de las claves del uso, en orden ascendente.
+     */
+    public List<Integer> ids(KeyPurpose purpose) {
+        List<Integer> ids = new ArrayList<>();
+        SecretKey[] byId = keys[purpose.ordinal()];
+        for (int id = 1; id <= MAX_KEY_ID; id++) {
+            if (byId[id] != null) {
+                ids.add(id);
+            }
+        }
+        return ids;
+    }
+
+    /**
+     * @param alias Alias con el formato `<uso>-<id>`.
+     * @return `true` si el alias corresponde a una clave de algún uso.
+     */
+    public static boolean isKeyAlias(String alias) {
+        try {
+            purposeOf(alias);
+            idOf(alias);
+            return true;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    private static KeyPurpose purposeOf(String alias) {
+        int dash = alias.lastIndexOf('-');
+        if (dash > 0) {
+            String prefix = alias.substring(0, dash);
+            for (KeyPurpose purpose : PURPOSES) {
+                if (purpose.alias().equalsIgnoreCase(prefix)) {
+                    return purpose;
+                }
+            }
+        }
+        throw new IllegalArgumentException("Alias de clave no válido: " + alias);
+    }
+
+    private static int idOf(String alias) {
+        int id;
+        try {
+            id = Integer.parseInt(alias.substring(alias.lastIndexOf('-') + 1));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Alias de clave no válido: " + alias, e);
+        }
+        if (id < 1 || id > MAX_KEY_ID) {
+            throw new IllegalArgumentException("El identificador de clave debe estar entre 1 y " + MAX_KEY_ID + ": " + alias);
+        }
+        return id;
+    }
+}
@@ -0,0 +1,240 @@
+package com.rsec.service.keys;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.KeyGenerator;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.GeneralSecurityException;
+import java.security.Key;
+import java.security.KeyStore;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Proveedor de claves respaldado por un almacén PKCS12 local (`ciberapp.keys.keystore`).
+ *
+ * Todos los nodos deben usar el mismo archivo (o una copia) para descifrar los datos de los demás.
+ * Las claves se guardan como entradas secretas con el alias `<uso>-<id>`; la clave activa de cada
+ * uso es la de mayor identificador, y las demás siguen disponibles para descifrar. Para rotar una
+ * clave basta con añadir una entrada con un identificador mayor.
+ *
+ * El archivo se vuelve a leer cuando cambia (se comprueba cada `ciberapp.keys.reload-interval`) o
+ * al llamar a {@link #reload()}. Las claves cargadas se publican como un {@link KeyRing} inmutable
+ * en un campo `volatile`, por lo que las operaciones de cifrado nunca esperan a una recarga.
+ * Si la recarga falla se conservan las claves anteriores.
+ */
+@Component
+public class KeyStoreKeyProvider implements KeyProvider {
+
+    private static final Logger logger = LoggerFactory.getLogger(KeyStoreKeyProvider.class);
+
+    private static final String KEYSTORE_TYPE = "PKCS12";
+    private static final int MIN_HMAC_KEY_SIZE = 32;
+    private static final int BLIND_INDEX_KEY_ID = 1;
+
+    /**
+     * Clave fija de `TokenService` previa al almacén de claves. Al crear el almacén se guarda
+     * como `token-1` para que los tokens ya emitidos sigan siendo válidos, pero como es pública
+     * nunca es la clave activa: los tokens nuevos se cifran con `token-2`, que es aleatoria, y un
+     * almacén cuya clave `token` activa sea esta no se carga.
+     */
+    private static final byte[] LEGACY_TOKEN_KEY = "1234567890123456".getBytes(StandardCharsets.UTF_8);
+
+    private final Path path;
+    private final char[] password;
+    private final ScheduledExecutorService reloader;
+
+    private volatile KeyRing ring;
+    private FileTime loadedModifiedTime;
+
+    /**
+     * Constructor del proveedor.
+     *
+     * @param path            Ruta del almacén PKCS12.
+     * @param password        Contraseña del almacén y de sus entradas.
+     * @param createIfMissing Si es `true` y el archivo no existe, se crea con una clave por uso.
+     * @param reloadInterval  Intervalo de comprobación de cambios en el archivo; cero la desactiva.
+     * @throws IOException              Si el archivo no puede leerse o crearse.
+     * @throws GeneralSecurityException Si el almacén no es válido.
+     */
+    public KeyStoreKeyProvider(@Value("${ciberapp.keys.keystore:ciberapp-keys.p12}") Path path,
+                               @Value("${ciberapp.keys.password}") String password,
+                               @Value("${ciberapp.keys.create-if-missing:false}") boolean createIfMissing,
+                               @Value("${ciberapp.keys.reload-interval:30s}") Duration reloadInterval)
+            throws IOException, GeneralSecurityException {
+        this.path = path;
+        this.password = password.toCharArray();
+        if (Files.notExists(path)) {
+            if (!createIfMissing) {
+                throw new IOException("No existe el almacén de claves " + path.toAbsolutePath());
+            }
+            create();
+        }
+        load();
+
+        if (reloadInterval.isZero() || reloadInterval.isNegative()) {
+            this.reloader = null;
+        } else {
+            this.reloader = Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform()
+                    .name("keystore-reload").daemon().factory());
+            long millis = reloadInterval.toMillis();
+            reloader.scheduleWithFixedDelay(this::reloadIfModified, millis, millis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @Override
+    public ActiveKey activeKey(KeyPurpose purpose) {
+        return ring.activeKey(purpose);
+    }
+
+    @Override
+    public SecretKey key(KeyPurpose purpose, int id) {
+        return ring.key(purpose, id);
+    }
+
+    /**
+     * Vuelve a leer el almacén de claves.
+     *
+     * @throws IOException              Si el archivo no puede leerse; se conservan las claves anteriores.
+     * @throws GeneralSecurityException Si el almacén no es válido; se conservan las claves anteriores.
+     */
+    public synchronized void reload() throws IOException, GeneralSecurityException {
+        load();
+    }
+
+    /**
+     * @return Para cada uso, la clave activa y los identificadores disponibles. No incluye material de claves.
+     */
+    public Map<String, Object> describe() {
+        KeyRing current = ring;
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("keystore", path.toAbsolutePath().toString());
+        for (KeyPurpose purpose : KeyPurpose.values()) {
+            Map<String, Object> keys = new LinkedHashMap<>();
+            keys.put("active", current.ids(purpose).isEmpty() ? null : current.activeKey(purpose).id());
+            keys.put("ids", current.ids(purpose));
+            body.put(purpose.alias(), keys);
+        }
+        return body;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (reloader != null) {
+            reloader.shutdownNow();
+        }
+    }
+
+    private synchronized void reloadIfModified() {
+        try {
+            if (!Files.getLastModifiedTime(path).equals(loadedModifiedTime)) {
+                load();
+            }
+        } catch (Exception e) {
+            logger.error("No se pudo recargar el almacén de claves {}; se conservan las claves anteriores", path, e);
+        }
+    }
+
+    private void load() throws IOException, GeneralSecurityException {
+        FileTime modified = Files.getLastModifiedTime(path);
+        KeyStore keyStore = KeyStore.getInstance(KEYSTORE_TYPE);
+        try (InputStream in = Files.newInputStream(path)) {
+            keyStore.load(in, password);
+        }
+
+        Map<String, SecretKey> keys = new HashMap<>();
+        for (String alias : Collections.list(keyStore.aliases())) {
+            if (!KeyRing.isKeyAlias(alias)) {
+                logger.warn("Se ignora la entrada {} del almacén de claves: el alias debe ser <uso>-<id>", alias);
+                continue;
+            }
+            Key key = keyStore.getKey(alias, password);
+            if (key instanceof SecretKey secretKey) {
+                keys.put(alias, secretKey);
+            }
+        }
+        KeyRing loaded = new KeyRing(keys);
+        KeyRing previous = ring;
+        for (KeyPurpose purpose : KeyPurpose.values()) {
+            // Una recarga no puede dejar sin claves a un uso obligatorio o que ya tenía claves
+            if ((purpose.required() || (previous != null && !previous.ids(purpose).isEmpty()))
+                    && loaded.ids(purpose).isEmpty()) {
+                throw new GeneralSecurityException("El almacén de claves no tiene ninguna clave " + purpose.alias() + "-<id>.");
+            }
+        }
+        for (int id : loaded.ids(KeyPurpose.BLIND_INDEX)) {
+            if (id != BLIND_INDEX_KEY_ID) {
+                // Los índices guardados no se recalculan: otra clave rompería las búsquedas y la unicidad
+                throw new GeneralSecurityException("La clave " + KeyPurpose.BLIND_INDEX.alias() + "-" + id
+                        + " no está permitida: los índices ciegos solo usan " + KeyPurpose.BLIND_INDEX.alias()
+                        + "-" + BLIND_INDEX_KEY_ID + " y no pueden rotarse.");
+            }
+            if (loaded.key(KeyPurpose.BLIND_INDEX, id).getEncoded().length < MIN_HMAC_KEY_SIZE) {
+                throw new GeneralSecurityException("La clave " + KeyPurpose.BLIND_INDEX.alias() + "-" + id
+                        + " debe tener al menos " + MIN_HMAC_KEY_SIZE + " bytes.");
+            }
+        }
+        if (MessageDigest.isEqual(loaded.activeKey(KeyPurpose.TOKEN).key().getEncoded(), LEGACY_TOKEN_KEY)) {
+            throw new GeneralSecurityException("La clave activa de los tokens es la clave heredada, que es pública. "
+                    + "Añada una clave token-<id> aleatoria con un identificador mayor.");
+        }
+
+        this.ring = loaded;
+        this.loadedModifiedTime = modified;
+        logger.info("Almacén de claves cargado: {}", describe());
+    }
+
+    /**
+     * Crea el almacén con claves aleatorias de 256 bits para `cipher-1`, `token-2` (la activa de los
+     * tokens), `master-1` y `blind-index-1`, y la clave heredada de los tokens como `token-1`, solo
+     * para detokenizar los tokens anteriores. El archivo se escribe en un temporal y se mueve al final.
+     */
+    private void create() throws IOException, GeneralSecurityException {
+        KeyGenerator generator = KeyGenerator.getInstance("AES");
+        generator.init(256, new SecureRandom());
+
+        KeyStore keyStore = KeyStore.getInstance(KEYSTORE_TYPE);
+        keyStore.load(null, password);
+        KeyStore.ProtectionParameter protection = new KeyStore.PasswordProtection(password);
+        keyStore.setEntry(KeyPurpose.CIPHER.alias() + "-1",
+                new KeyStore.SecretKeyEntry(generator.generateKey()), protection);
+        keyStore.setEntry(KeyPurpose.TOKEN.alias() + "-1",
+                new KeyStore.SecretKeyEntry(new SecretKeySpec(LEGACY_TOKEN_KEY, "AES")), protection);
+        keyStore.setEntry(KeyPurpose.TOKEN.alias() + "-2",
+                new KeyStore.SecretKeyEntry(generator.generateKey()), protection);
+        keyStore.setEntry(KeyPurpose.MASTER.alias() + "-1",
+                new KeyStore.SecretKeyEntry(generator.generateKey()), protection);
+        keyStore.setEntry(KeyPurpose.BLIND_INDEX.alias() + "-1",
+                new KeyStore.SecretKeyEntry(generator.generateKey()), protection);
+
+        Path parent = path.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+        Path temp = Files.createTempFile(parent, "keys", ".p12");
+        try (OutputStream out = Files.newOutputStream(temp)) {
+            keyStore.store(out, password);
+        }
+        Files.move(temp, path, StandardCopyOption.ATOMIC_MOVE);
+        logger.warn("Se creó el almacén de claves {}. Debe copiarse a todos los nodos y protegerse.", path.toAbsolutePath());
+    }
+}
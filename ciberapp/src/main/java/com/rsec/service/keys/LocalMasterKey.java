@@ -0,0 +1,62 @@
+package com.rsec.service.keys;
+
+import com.rsec.service.CryptoEngine;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.SecretKey;
+import javax.crypto.spec.SecretKeySpec;
+import java.security.GeneralSecurityException;
+import java.util.Arrays;
+
+/**
+ * Clave maestra local: cifra las claves de datos con AES-GCM y la clave `master-<id>` activa del
+ * {@link KeyProvider}. El resultado es `[id de clave maestra (1 byte)][IV][AES-GCM(clave de datos)]`,
+ * con el identificador autenticado como AAD, por lo que las claves de datos cifradas con una clave
+ * maestra anterior siguen pudiendo descifrarse tras una rotación.
+ */
+@Component
+public class LocalMasterKey implements MasterKey {
+
+    private final CryptoEngine cryptoEngine;
+    private final KeyProvider keyProvider;
+
+    public LocalMasterKey(CryptoEngine cryptoEngine, KeyProvider keyProvider) {
+        this.cryptoEngine = cryptoEngine;
+        this.keyProvider = keyProvider;
+    }
+
+    @Override
+    public byte[] wrap(SecretKey dataKey) throws GeneralSecurityException {
+        ActiveKey master = keyProvider.activeKey(KeyPurpose.MASTER);
+        byte[] encoded = dataKey.getEncoded();
+        try {
+            return cryptoEngine.encrypt(CryptoEngine.DEFAULT_PROVIDER, master.key(), new byte[]{(byte) master.id()}, encoded);
+        } finally {
+            Arrays.fill(encoded, (byte) 0);
+        }
+    }
+
+    @Override
+    public boolean isCurrent(byte[] wrapped, int offset, int length) {
+        return length > 0 && offset < wrapped.length
+                && (wrapped[offset] & 0xFF) == keyProvider.activeKey(KeyPurpose.MASTER).id();
+    }
+
+    @Override
+    public SecretKey unwrap(byte[] wrapped, int offset, int length) throws GeneralSecurityException {
+        if (length < 1) {
+            throw new GeneralSecurityException("Clave de datos cifrada vacía.");
+        }
+        int id = wrapped[offset] & 0xFF;
+        SecretKey master = keyProvider.key(KeyPurpose.MASTER, id);
+        if (master == null) {
+            throw new GeneralSecurityException("No existe la clave maestra master-" + id + ".");
+        }
+        byte[] encoded = cryptoEngine.decrypt(CryptoEngine.DEFAULT_PROVIDER, master, wrapped, offset, 1, length);
+        try {
+            return new SecretKeySpec(encoded, "AES");
+        } finally {
+            Arrays.fill(encoded, (byte) 0);
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.rsec.service.keys;
+
+import javax.crypto.SecretKey;
+import java.security.GeneralSecurityException;
+
+/**
+ * Clave maestra del cifrado por sobre (envelope encryption): cifra y descifra claves de datos.
+ *
+ * La implementación local, {@link LocalMasterKey}, usa las claves `master-<id>` del almacén de
+ * claves; otra implementación puede delegar en un servicio externo de gestión de claves sin
+ * cambiar el formato de los datos cifrados, siempre que el resultado de `wrap` incluya lo
+ * necesario para identificar la clave maestra al descifrar.
+ */
+public interface MasterKey {
+
+    /**
+     * Cifra una clave de datos.
+     *
+     * @param dataKey Clave de datos en claro.
+     * @return La clave de datos cifrada, de 255 bytes como máximo.
+     * @throws GeneralSecurityException Si ocurre un error durante el cifrado.
+     */
+    byte[] wrap(SecretKey dataKey) throws GeneralSecurityException;
+
+    /**
+     * Descifra una clave de datos.
+     *
+     * @param wrapped Arreglo que contiene la clave cifrada.
+     * @param offset  Posición de la clave cifrada.
+     * @param length  Longitud de la clave cifrada.
+     * @return La clave de datos en claro.
+     * @throws GeneralSecurityException Si la clave maestra no existe o la clave cifrada no es válida.
+     */
+    SecretKey unwrap(byte[] wrapped, int offset, int length) throws GeneralSecurityException;
+
+    /**
+     * Indica si una clave de datos está cifrada con la clave maestra activa.
+     *
+     * @param wrapped Arreglo que contiene la clave cifrada.
+     * @param offset  Posición de la clave cifrada.
+     * @param length  Longitud de la clave cifrada.
+     * @return `true` si no necesita volver a cifrarse tras una rotación de la clave maestra.
+     */
+    boolean isCurrent(byte[] wrapped, int offset, int length);
+}
@@ -0,0 +1,29 @@
+package com.rsec.service.pipeline;
+
+import com.rsec.service.BlindIndexService;
+import org.springframework.stereotype.Component;
+
+/**
+ * Etapa `blind-index`: calcula los índices ciegos del nombre de usuario y del correo
+ * con {@link BlindIndexService}.
+ */
+@Component
+public class BlindIndexStage implements ProtectionStage {
+
+    private final BlindIndexService blindIndexService;
+
+    public BlindIndexStage(BlindIndexService blindIndexService) {
+        this.blindIndexService = blindIndexService;
+    }
+
+    @Override
+    public String name() {
+        return "blind-index";
+    }
+
+    @Override
+    public void apply(ProtectionContext context) {
+        context.user().setUsernameIndex(blindIndexService.usernameIndex(context.username()));
+        context.user().setEmailIndex(blindIndexService.emailIndex(context.email()));
+    }
+}
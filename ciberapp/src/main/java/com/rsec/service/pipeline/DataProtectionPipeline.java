@@ -0,0 +1,92 @@
+package com.rsec.service.pipeline;
+
+import com.rsec.model.Usuario;
+import com.rsec.service.keys.DataKeyService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Aplica a un usuario las etapas de protección configuradas en `ciberapp.protection.stages`
+ * (por defecto `encrypt,tokenize,blind-index,mask`), en ese orden.
+ *
+ * Los campos en claro se codifican una sola vez en su representación canónica y todas las
+ * etapas trabajan a partir de ese mismo arreglo, en lugar de serializar el usuario por separado
+ * para el cifrado y la tokenización.
+ */
+@Service
+public class DataProtectionPipeline {
+
+    private final ProtectionStage[] stages;
+    private final boolean binaryStorage;
+
+    /**
+     * Constructor del pipeline.
+     *
+     * @param available    Etapas disponibles (todos los componentes que implementan {@link ProtectionStage}).
+     * @param stageNames   Nombres de las etapas a ejecutar, en orden.
+     * @param storageMode  Modo de almacenamiento: `binary` o `text`.
+     * @throws IllegalArgumentException Si una etapa configurada no existe o está repetida.
+     */
+    public DataProtectionPipeline(List<ProtectionStage> available,
+                                  @Value("${ciberapp.protection.stages:encrypt,tokenize,blind-index,mask}") List<String> stageNames,
+                                  @Value("${ciberapp.storage.mode:binary}") String storageMode) {
+        Map<String, ProtectionStage> byName = new HashMap<>();
+        for (ProtectionStage stage : available) {
+            if (byName.put(stage.name(), stage) != null) {
+                throw new IllegalArgumentException("Etapa de protección duplicada: " + stage.name());
+            }
+        }
+        this.stages = new ProtectionStage[stageNames.size()];
+        for (int i = 0; i < stages.length; i++) {
+            String name = stageNames.get(i).strip();
+            ProtectionStage stage = byName.remove(name);
+            if (stage == null) {
+                throw new IllegalArgumentException("Etapa de protección desconocida o repetida: " + name);
+            }
+            stages[i] = stage;
+        }
+        this.binaryStorage = !"text".equalsIgnoreCase(storageMode);
+    }
+
+    /**
+     * Aplica todas las etapas al usuario, con la clave de datos del ámbito por defecto.
+     *
+     * @param user Usuario con los datos en claro.
+     * @return El mismo usuario, con los datos protegidos.
+     * @throws Exception Si una etapa falla.
+     */
+    public Usuario protect(Usuario user) throws Exception {
+        return protect(user, DataKeyService.DEFAULT_SCOPE);
+    }
+
+    /**
+     * Aplica todas las etapas al usuario.
+     *
+     * @param user     Usuario con los datos en claro.
+     * @param keyScope Ámbito de la clave de datos del cifrado por sobre, por ejemplo el de un lote.
+     * @return El mismo usuario, con los datos protegidos.
+     * @throws Exception Si una etapa falla.
+     */
+    public Usuario protect(Usuario user, String keyScope) throws Exception {
+        ProtectionContext context = new ProtectionContext(user, binaryStorage, keyScope);
+        for (ProtectionStage stage : stages) {
+            stage.apply(context);
+        }
+        return user;
+    }
+
+    /**
+     * @return Nombres de las etapas configuradas, en orden de ejecución.
+     */
+    public List<String> stageNames() {
+        String[] names = new String[stages.length];
+        for (int i = 0; i < stages.length; i++) {
+            names[i] = stages[i].name();
+        }
+        return List.of(names);
+    }
+}
@@ -0,0 +1,38 @@
+package com.rsec.service.pipeline;
+
+import com.rsec.model.Usuario;
+import com.rsec.service.CipherService;
+import org.springframework.stereotype.Component;
+
+import java.util.Base64;
+
+/**
+ * Etapa `encrypt`: cifra la representación canónica de los campos con {@link CipherService},
+ * con la clave de datos del ámbito del contexto si el cifrado por sobre está activo.
+ */
+@Component
+public class EncryptStage implements ProtectionStage {
+
+    private final CipherService cipherService;
+
+    public EncryptStage(CipherService cipherService) {
+        this.cipherService = cipherService;
+    }
+
+    @Override
+    public String name() {
+        return "encrypt";
+    }
+
+    @Override
+    public void apply(ProtectionContext context) throws Exception {
+        byte[] encrypted = cipherService.encryptCanonical(context.canonical(), context.keyScope());
+        Usuario user = context.user();
+        if (context.binaryStorage()) {
+            user.setCipherBytes(encrypted);
+            user.setCipherData(null);
+        } else {
+            user.setCipherData(Base64.getEncoder().encodeToString(encrypted));
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package com.rsec.service.pipeline;
+
+import com.rsec.model.Usuario;
+import com.rsec.service.MaskingService;
+import org.springframework.stereotype.Component;
+
+/**
+ * Etapa `mask`: reemplaza los campos en claro del usuario por sus valores enmascarados
+ * con {@link MaskingService}, según la política configurada para cada campo.
+ */
+@Component
+public class MaskStage implements ProtectionStage {
+
+    private final MaskingService maskingService;
+
+    public MaskStage(MaskingService maskingService) {
+        this.maskingService = maskingService;
+    }
+
+    @Override
+    public String name() {
+        return "mask";
+    }
+
+    @Override
+    public void apply(ProtectionContext context) {
+        Usuario user = context.user();
+        user.setUsername(maskingService.maskUsername(context.username()));
+        user.setEmail(maskingService.maskEmail(context.email()));
+        user.setName(maskingService.maskName(context.name()));
+    }
+}
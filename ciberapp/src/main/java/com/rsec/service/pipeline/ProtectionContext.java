@@ -0,0 +1,77 @@
+package com.rsec.service.pipeline;
+
+import com.rsec.model.Usuario;
+import com.rsec.service.FieldCodec;
+
+/**
+ * Estado de la protección de un usuario a lo largo de las etapas del {@link DataProtectionPipeline}.
+ *
+ * Conserva los valores en claro tal como llegaron y su representación canónica
+ * ({@link FieldCodec#encodeUser}), que se calcula una sola vez y comparten todas las etapas.
+ */
+public final class ProtectionContext {
+
+    private final Usuario user;
+    private final String username;
+    private final String email;
+    private final String name;
+    private final boolean binaryStorage;
+    private final String keyScope;
+    private byte[] canonical;
+
+    ProtectionContext(Usuario user, boolean binaryStorage, String keyScope) {
+        this.user = user;
+        this.username = user.getUsername();
+        this.email = user.getEmail();
+        this.name = user.getName();
+        this.binaryStorage = binaryStorage;
+        this.keyScope = keyScope;
+    }
+
+    /**
+     * @return El usuario que se está protegiendo.
+     */
+    public Usuario user() {
+        return user;
+    }
+
+    public String username() {
+        return username;
+    }
+
+    public String email() {
+        return email;
+    }
+
+    public String name() {
+        return name;
+    }
+
+    /**
+     * @return `true` si los datos cifrados y el token se guardan en columnas binarias,
+     * `false` si se guardan como texto Base64.
+     */
+    public boolean binaryStorage() {
+        return binaryStorage;
+    }
+
+    /**
+     * @return Ámbito de la clave de datos del cifrado por sobre (`DataKeyService`).
+     */
+    public String keyScope() {
+        return keyScope;
+    }
+
+    /**
+     * Representación canónica de los campos en claro. Se calcula la primera vez que una
+     * etapa la solicita. Las etapas no deben modificar el arreglo devuelto.
+     *
+     * @return Los campos codificados con {@link FieldCodec#encodeUser}.
+     */
+    public byte[] canonical() {
+        if (canonical == null) {
+            canonical = FieldCodec.encodeUser(username, email, name);
+        }
+        return canonical;
+    }
+}
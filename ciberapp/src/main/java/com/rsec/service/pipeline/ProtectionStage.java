@@ -0,0 +1,27 @@
+package com.rsec.service.pipeline;
+
+/**
+ * Etapa del {@link DataProtectionPipeline}.
+ *
+ * Cada etapa es un componente de Spring con un nombre único; las etapas que se ejecutan, y su
+ * orden, se eligen con `ciberapp.protection.stages`. Para añadir una etapa basta con declarar
+ * un nuevo componente que implemente esta interfaz y añadir su nombre a la propiedad.
+ *
+ * Las etapas deben leer los datos en claro del {@link ProtectionContext}, no del usuario, ya que
+ * una etapa anterior puede haberlos reemplazado (por ejemplo, por los valores enmascarados).
+ */
+public interface ProtectionStage {
+
+    /**
+     * @return Nombre de la etapa en `ciberapp.protection.stages`.
+     */
+    String name();
+
+    /**
+     * Aplica la etapa al usuario del contexto.
+     *
+     * @param context Contexto de la protección en curso.
+     * @throws Exception Si ocurre un error; se interrumpe la protección del usuario.
+     */
+    void apply(ProtectionContext context) throws Exception;
+}
@@ -0,0 +1,36 @@
+package com.rsec.service.pipeline;
+
+import com.rsec.model.Usuario;
+import com.rsec.service.TokenService;
+import org.springframework.stereotype.Component;
+
+/**
+ * Etapa `tokenize`: genera el token a partir de la representación canónica de los campos
+ * con {@link TokenService}.
+ */
+@Component
+public class TokenizeStage implements ProtectionStage {
+
+    private final TokenService tokenService;
+
+    public TokenizeStage(TokenService tokenService) {
+        this.tokenService = tokenService;
+    }
+
+    @Override
+    public String name() {
+        return "tokenize";
+    }
+
+    @Override
+    public void apply(ProtectionContext context) throws Exception {
+        byte[] token = tokenService.tokenizeCanonical(context.canonical());
+        Usuario user = context.user();
+        if (context.binaryStorage()) {
+            user.setTokenBytes(token);
+            user.setToken(null);
+        } else {
+            user.setToken(tokenService.encodeToken(token));
+        }
+    }
+}
@@ -0,0 +1,19 @@
+-- Migración del almacenamiento de texto (Base64 en columnas LOB) al almacenamiento binario.
+-- Con H2 en memoria Hibernate genera el esquema al iniciar; este script es para bases de datos
+-- persistentes cuyo esquema se administra manualmente.
+
+-- 1. Agregar las columnas binarias acotadas.
+ALTER TABLE usuario ADD COLUMN IF NOT EXISTS cipher_bin VARBINARY(4096);
+ALTER TABLE usuario ADD COLUMN IF NOT EXISTS token_bin VARBINARY(4096);
+
+-- 2. Desplegar la aplicación con ciberapp.storage.mode=binary. Las filas nuevas se escriben en las
+--    columnas binarias y las existentes se siguen leyendo desde las columnas de texto.
+
+-- 3. Migrar las filas existentes por fragmentos con ciberapp.storage.migrate-on-startup=true
+--    (StorageMigrationService). Se puede repetir sin riesgo: solo procesa filas con datos de texto.
+
+-- 4. Comprobar que no quedan filas sin migrar. Las columnas de texto solo pueden eliminarse
+--    después de retirar los campos `cipherData` y `token` de la entidad `Usuario`.
+-- SELECT COUNT(*) FROM usuario WHERE cipher_data IS NOT NULL OR token IS NOT NULL;
+-- ALTER TABLE usuario DROP COLUMN cipher_data;
+-- ALTER TABLE usuario DROP COLUMN token;
@@ -1,11 +1,31 @@
 package com.rsec;
 
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
 
-@SpringBootTest
+import java.nio.file.Path;
+
+@SpringBootTest(properties = {
+        "ciberapp.keys.password=changeit",
+        "ciberapp.keys.create-if-missing=true",
+        "ciberapp.keys.reload-interval=0s",
+        "ciberapp.audit.enabled=false",
+        "ciberapp.admission.enabled=false"
+})
 class CiberappApplicationTests {
 
+    @TempDir
+    static Path keysDirectory;
+
+    @DynamicPropertySource
+    static void keystore(DynamicPropertyRegistry registry) {
+        // El almacén de claves se crea en un directorio temporal, no en el del módulo
+        registry.add("ciberapp.keys.keystore", () -> keysDirectory.resolve("ciberapp-keys.p12").toString());
+    }
+
     @Test
     void contextLoads() {
     }
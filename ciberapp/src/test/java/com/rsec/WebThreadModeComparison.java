@@ -0,0 +1,153 @@
+package com.rsec;
+
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.servlet.context.ServletWebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Comparación de carga entre los hilos de plataforma de Tomcat y los hilos virtuales
+ * (`spring.threads.virtual.enabled`).
+ *
+ * Arranca la aplicación en cada modo, crea algunos usuarios y lanza solicitudes con la concurrencia
+ * indicada (80 % `GET /users/{id}`, 20 % `POST /users`), e imprime el rendimiento y la latencia.
+ * Los argumentos con la forma `--clave=valor` se pasan a la aplicación, por ejemplo para usar una
+ * base de datos real en lugar de H2 en memoria, donde las llamadas JPA apenas bloquean.
+ *
+ * No forma parte de la suite de pruebas; se ejecuta manualmente desde el IDE o con
+ * `java -cp target/test-classes:target/classes:<dependencias> com.rsec.WebThreadModeComparison [concurrencia] [solicitudes] [--clave=valor...]`.
+ */
+public class WebThreadModeComparison {
+
+    private static final int SEED_USERS = 200;
+
+    public static void main(String[] args) throws Exception {
+        List<String> positional = new ArrayList<>();
+        List<String> properties = new ArrayList<>();
+        for (String arg : args) {
+            if (arg.startsWith("--")) {
+                properties.add(arg.substring(2));
+            } else {
+                positional.add(arg);
+            }
+        }
+        int concurrency = positional.size() > 0 ? Integer.parseInt(positional.get(0)) : 1000;
+        int requests = positional.size() > 1 ? Integer.parseInt(positional.get(1)) : 50_000;
+
+        for (boolean virtual : new boolean[]{false, true}) {
+            List<String> props = new ArrayList<>(properties);
+            props.add("server.port=0");
+            props.add("spring.threads.virtual.enabled=" + virtual);
+            props.add("spring.devtools.restart.enabled=false");
+            props.add("logging.level.root=WARN");
+            props.add("ciberapp.admission.enabled=false"); // Se mide el servidor, no el límite de tasa
+            if (properties.stream().noneMatch(p -> p.startsWith("spring.datasource.url="))) {
+                props.add("spring.datasource.url=jdbc:h2:mem:comparison" + virtual);
+            }
+
+            try (ConfigurableApplicationContext context = new SpringApplicationBuilder(CiberappApplication.class)
+                    .profiles("dev")
+                    // Como argumentos de línea de comandos, para que prevalezcan sobre application.properties
+                    .run(props.stream().map(p -> "--" + p).toArray(String[]::new))) {
+                int port = ((ServletWebServerApplicationContext) context).getWebServer().getPort();
+                String label = virtual ? "hilos virtuales" : "hilos de plataforma";
+                run(label, "http://localhost:" + port + "/users", concurrency, requests);
+            }
+        }
+    }
+
+    /**
+     * Crea los usuarios iniciales, calienta la aplicación y ejecuta la carga medida.
+     */
+    private static void run(String label, String baseUrl, int concurrency, int requests) throws Exception {
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+             HttpClient client = HttpClient.newBuilder()
+                     .executor(executor)
+                     .connectTimeout(Duration.ofSeconds(10))
+                     .build()) {
+            AtomicInteger sequence = new AtomicInteger();
+            for (int i = 0; i < SEED_USERS; i++) {
+                send(client, create(baseUrl, label, sequence.incrementAndGet()));
+            }
+
+            load(client, executor, baseUrl, label, sequence, concurrency, Math.max(1, requests / 10));
+            long start = System.nanoTime();
+            Result result = load(client, executor, baseUrl, label, sequence, concurrency, requests);
+            double seconds = (System.nanoTime() - start) / 1e9;
+
+            long[] latencies = result.latencies();
+            Arrays.sort(latencies);
+            System.out.printf("%-20s %,10.0f req/s  p50 %7.2f ms  p99 %7.2f ms  max %8.2f ms  errores %d (concurrencia %d)%n",
+                    label, requests / seconds,
+                    percentile(latencies, 0.50), percentile(latencies, 0.99),
+                    latencies[latencies.length - 1] / 1e6, result.errors(), concurrency);
+        }
+    }
+
+    /**
+     * Lanza `requests` solicitudes manteniendo como máximo `concurrency` en curso.
+     */
+    private static Result load(HttpClient client, ExecutorService executor, String baseUrl, String label,
+                               AtomicInteger sequence, int concurrency, int requests) throws InterruptedException {
+        Semaphore inFlight = new Semaphore(concurrency);
+        long[] latencies = new long[requests];
+        AtomicLong errors = new AtomicLong();
+        for (int i = 0; i < requests; i++) {
+            inFlight.acquire();
+            int index = i;
+            executor.execute(() -> {
+                try {
+                    HttpRequest request = ThreadLocalRandom.current().nextInt(10) < 8
+                            ? HttpRequest.newBuilder(URI.create(baseUrl + "/" + (1 + ThreadLocalRandom.current().nextInt(SEED_USERS)))).build()
+                            : create(baseUrl, label, sequence.incrementAndGet());
+                    long start = System.nanoTime();
+                    if (!send(client, request)) {
+                        errors.incrementAndGet();
+                    }
+                    latencies[index] = System.nanoTime() - start;
+                } catch (Exception e) {
+                    errors.incrementAndGet();
+                } finally {
+                    inFlight.release();
+                }
+            });
+        }
+        inFlight.acquire(concurrency); // Espera a que terminen todas las solicitudes
+        return new Result(latencies, errors.get());
+    }
+
+    private static HttpRequest create(String baseUrl, String label, int n) {
+        String user = label.replace(' ', '_') + "_" + n;
+        String body = "{\"username\":\"" + user + "\",\"email\":\"" + user + "@example.com\",\"name\":\"Usuario " + n + "\"}";
+        return HttpRequest.newBuilder(URI.create(baseUrl))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+    }
+
+    private static boolean send(HttpClient client, HttpRequest request) throws Exception {
+        HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+        return response.statusCode() < 400;
+    }
+
+    private static double percentile(long[] sorted, double p) {
+        return sorted[Math.min(sorted.length - 1, (int) (sorted.length * p))] / 1e6;
+    }
+
+    private record Result(long[] latencies, long errors) {
+    }
+}
@@ -0,0 +1,62 @@
+package com.rsec.service;
+
+import com.rsec.service.keys.RotatingKeys;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+/**
+ * Pruebas de {@link BlindIndexService}: índices deterministas, normalizados y separados por campo.
+ */
+class BlindIndexServiceTest {
+
+    private CryptoEngine engine;
+    private BlindIndexService service;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        engine = new CryptoEngine();
+        service = new BlindIndexService(engine, RotatingKeys.of("blind-index-1"));
+    }
+
+    @Test
+    void sameValueProducesSameIndex() {
+        byte[] index = service.usernameIndex("ana");
+        assertEquals(32, index.length);
+        assertArrayEquals(index, service.usernameIndex("ana"));
+        assertArrayEquals(index, service.usernameIndex("  ana "));
+        assertFalse(Arrays.equals(index, service.usernameIndex("Ana")));
+        assertFalse(Arrays.equals(index, service.usernameIndex("alb")));
+    }
+
+    @Test
+    void emailIgnoresCase() {
+        assertArrayEquals(service.emailIndex("ana@example.com"), service.emailIndex(" Ana@Example.COM "));
+        assertFalse(Arrays.equals(service.emailIndex("ana@example.com"), service.emailIndex("alb@example.com")));
+    }
+
+    @Test
+    void separatesUsernameAndEmailDomains() {
+        assertFalse(Arrays.equals(service.usernameIndex("ana@example.com"), service.emailIndex("ana@example.com")));
+    }
+
+    @Test
+    void alwaysUsesFirstKey() throws Exception {
+        RotatingKeys keys = RotatingKeys.of("blind-index-1");
+        BlindIndexService service = new BlindIndexService(engine, keys);
+        byte[] before = service.emailIndex("ana@example.com");
+        keys.add("blind-index-2");
+        assertArrayEquals(before, service.emailIndex("ana@example.com"));
+    }
+
+    @Test
+    void dependsOnKey() throws Exception {
+        BlindIndexService other = new BlindIndexService(engine, RotatingKeys.of("blind-index-1"));
+        assertFalse(Arrays.equals(service.emailIndex("ana@example.com"), other.emailIndex("ana@example.com")));
+    }
+}
@@ -0,0 +1,133 @@
+package com.rsec.service;
+
+import com.rsec.metrics.ProtectionMetrics;
+import com.rsec.service.keys.DataKeyService;
+import com.rsec.service.keys.KeyPurpose;
+import com.rsec.service.keys.LocalMasterKey;
+import com.rsec.service.keys.RotatingKeys;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Pruebas de {@link CipherService}: formatos de los datos cifrados y re-cifrado tras una rotación de claves.
+ */
+class CipherServiceTest {
+
+    private static final Map<String, String> USER = Map.of("username", "ana", "email", "ana@example.com", "name", "Ana Pérez");
+
+    private CryptoEngine engine;
+    private RotatingKeys keys;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        engine = new CryptoEngine();
+        keys = RotatingKeys.of("cipher-1", "token-1", "master-1");
+    }
+
+    @Test
+    void textAndBinaryFormatsRoundTrip() throws Exception {
+        CipherService service = cipherService(false);
+        String text = service.encrypt("ana", "ana@example.com", "Ana Pérez");
+        byte[] binary = Base64.getDecoder().decode(text);
+        assertEquals(1, binary[0]); // Versión del formato
+        assertEquals(1, binary[1]); // Identificador de la clave
+        assertEquals(USER, service.decryptToMap(text));
+        assertEquals(service.decrypt(text), service.decrypt(binary));
+        assertEquals("{\"username\":\"ana\",\"email\":\"ana@example.com\",\"name\":\"Ana Pérez\"}", service.decrypt(binary));
+
+        byte[] nullName = service.encryptToBytes("luis", "luis@example.com", null);
+        assertEquals("{\"username\":\"luis\",\"email\":\"luis@example.com\",\"name\":null}", service.decrypt(nullName));
+    }
+
+    @Test
+    void decryptsLegacyDataWithoutHeader() throws Exception {
+        CipherService service = cipherService(false);
+        String json = "{\"username\":\"ana\",\"email\":\"ana@example.com\",\"name\":\"Ana Pérez\"}";
+        byte[] legacy = engine.encrypt("SunJCE", keys.key(KeyPurpose.CIPHER, 1), json.getBytes(StandardCharsets.UTF_8));
+
+        assertEquals(json, service.decrypt(legacy));
+        assertEquals(USER, service.decryptToMap(Base64.getEncoder().encodeToString(legacy)));
+        assertFalse(service.isCurrent(legacy));
+
+        byte[] reEncrypted = service.reEncrypt(legacy);
+        assertTrue(service.isCurrent(reEncrypted));
+        assertEquals(json, service.decrypt(reEncrypted));
+    }
+
+    @Test
+    void rejectsTamperedData() throws Exception {
+        CipherService service = cipherService(false);
+        byte[] combined = service.encryptToBytes("ana", "ana@example.com", "Ana Pérez");
+
+        byte[] body = combined.clone();
+        body[body.length - 1] ^= 1;
+        assertThrows(GeneralSecurityException.class, () -> service.decrypt(body));
+
+        byte[] header = combined.clone();
+        header[1] = 2; // Clave inexistente
+        assertThrows(GeneralSecurityException.class, () -> service.decrypt(header));
+    }
+
+    @Test
+    void decryptsEnvelopeDataAfterDisablingEnvelope() throws Exception {
+        byte[] envelope = cipherService(true).encryptToBytes("ana", "ana@example.com", "Ana Pérez");
+        assertEquals(2, envelope[0]);
+
+        CipherService service = cipherService(false);
+        assertEquals(USER, service.decryptToMap(Base64.getEncoder().encodeToString(envelope)));
+        assertFalse(service.isCurrent(envelope));
+        assertArrayEquals(new byte[]{1, 1}, Arrays.copyOf(service.reEncrypt(envelope), 2));
+    }
+
+    @Test
+    void reEncryptAfterMasterKeyRotationUsesNewMasterKey() throws Exception {
+        CipherService service = cipherService(true);
+        byte[] before = service.encryptToBytes("ana", "ana@example.com", "Ana Pérez");
+        assertTrue(service.isCurrent(before));
+
+        keys.add("master-2");
+        assertFalse(service.isCurrent(before));
+        assertTrue(service.isCurrent(service.encryptToBytes("luis", "luis@example.com", "Luis")),
+                "Los datos nuevos deben dejar de usar la clave de datos cifrada con la clave maestra anterior");
+
+        byte[] after = service.reEncrypt(before);
+        assertTrue(service.isCurrent(after));
+        assertEquals(service.decrypt(before), service.decrypt(after));
+    }
+
+    @Test
+    void reEncryptAfterCipherKeyRotationUsesNewKey() throws Exception {
+        CipherService service = cipherService(false);
+        byte[] before = service.encryptToBytes("ana", "ana@example.com", "Ana Pérez");
+        assertTrue(service.isCurrent(before));
+
+        keys.add("cipher-2");
+        assertFalse(service.isCurrent(before));
+
+        byte[] after = service.reEncrypt(before);
+        assertTrue(service.isCurrent(after));
+        assertEquals(2, after[1]);
+        assertEquals(service.decrypt(before), service.decrypt(after));
+    }
+
+    private CipherService cipherService(boolean envelope) throws GeneralSecurityException {
+        PlaintextCache noCache = new PlaintextCache(false, 0, 0, Duration.ofMinutes(1));
+        DataKeyService dataKeys = new DataKeyService(new LocalMasterKey(engine, keys), envelope,
+                1_000_000, Duration.ofHours(1), 1000);
+        return new CipherService(engine, noCache, ProtectionMetrics.noop(), keys, dataKeys,
+                CipherProviderSelector.of(engine, "SunJCE"));
+    }
+}
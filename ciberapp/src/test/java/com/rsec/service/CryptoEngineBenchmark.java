@@ -0,0 +1,122 @@
+package com.rsec.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rsec.metrics.ProtectionMetrics;
+import com.rsec.service.keys.DataKeyService;
+import com.rsec.service.keys.KeyRing;
+import com.rsec.service.keys.LocalMasterKey;
+import javax.crypto.Cipher;
+import javax.crypto.KeyGenerator;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Comparación de rendimiento entre el cifrado anterior (un `Cipher`, un `SecureRandom` y un
+ * `ObjectMapper` nuevos en cada llamada) y el cifrado mediante {@link CryptoEngine}.
+ *
+ * No forma parte de la suite de pruebas; se ejecuta manualmente desde el IDE o con
+ * `java -cp target/test-classes:target/classes:<dependencias> com.rsec.service.CryptoEngineBenchmark [hilos] [segundos]`.
+ */
+public class CryptoEngineBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : Runtime.getRuntime().availableProcessors();
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+
+        CryptoEngine engine = new CryptoEngine();
+        KeyRing keys = KeyRing.generate();
+        PlaintextCache noCache = new PlaintextCache(false, 0, 0, Duration.ofMinutes(1));
+        CipherProviderSelector providers = CipherProviderSelector.of(engine,
+                System.getProperty("ciberapp.crypto.provider", CipherProviderSelector.AUTO));
+        CipherService cipherService = new CipherService(engine, noCache, ProtectionMetrics.noop(), keys,
+                new DataKeyService(new LocalMasterKey(engine, keys), false, 1_000_000, Duration.ofHours(1), 1000),
+                providers);
+        TokenService tokenService = new TokenService(engine, noCache, ProtectionMetrics.noop(), keys, "compact", providers);
+        DataKeyService dataKeys = new DataKeyService(new LocalMasterKey(engine, keys), true, 1_000_000, Duration.ofHours(1), 1000);
+        CipherService envelopeService = new CipherService(engine, noCache, ProtectionMetrics.noop(), keys, dataKeys, providers);
+        SecretKey legacyKey = KeyGenerator.getInstance("AES", "BC").generateKey();
+
+        Operation legacy = () -> legacyEncrypt(legacyKey, "usuario_demo", "usuario@example.com", "Usuario Demo");
+        Operation pooled = () -> cipherService.encrypt("usuario_demo", "usuario@example.com", "Usuario Demo");
+        Operation token = () -> tokenService.detokenize(
+                tokenService.tokenize("usuario_demo", "usuario@example.com", "Usuario Demo"));
+
+        // Calentamiento para que el JIT compile ambas rutas antes de medir
+        run("calentamiento (anterior)", legacy, threads, 2);
+        run("calentamiento (motor)", pooled, threads, 2);
+
+        double before = run("CipherService.encrypt anterior", legacy, threads, seconds);
+        double after = run("CipherService.encrypt con CryptoEngine", pooled, threads, seconds);
+        run("TokenService tokenize + detokenize con CryptoEngine", token, threads, seconds);
+        run("CipherService encrypt + decrypt por sobre", () -> envelopeService.decrypt(
+                envelopeService.encrypt("usuario_demo", "usuario@example.com", "Usuario Demo")), threads, seconds);
+        System.out.println("Claves de datos por sobre: " + dataKeys.stats());
+        System.out.printf("Mejora: x%.2f%n", after / before);
+    }
+
+    /**
+     * Reproduce la implementación de `CipherService.encrypt` previa a {@link CryptoEngine}.
+     */
+    private static String legacyEncrypt(SecretKey key, String username, String email, String name)
+            throws Exception {
+        Map<String, String> dataMap = new HashMap<>();
+        dataMap.put("username", username);
+        dataMap.put("email", email);
+        dataMap.put("name", name);
+        String jsonData = new ObjectMapper().writeValueAsString(dataMap);
+
+        byte[] iv = new byte[12];
+        new SecureRandom().nextBytes(iv);
+        Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding", "BC");
+        cipher.init(Cipher.ENCRYPT_MODE, key, new GCMParameterSpec(128, iv));
+        byte[] encryptedData = cipher.doFinal(jsonData.getBytes());
+
+        byte[] combined = new byte[iv.length + encryptedData.length];
+        System.arraycopy(iv, 0, combined, 0, iv.length);
+        System.arraycopy(encryptedData, 0, combined, iv.length, encryptedData.length);
+        return Base64.getEncoder().encodeToString(combined);
+    }
+
+    /**
+     * Ejecuta la operación en varios hilos durante el tiempo indicado e imprime las operaciones por segundo.
+     */
+    private static double run(String label, Operation operation, int threads, int seconds) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+        List<Future<Long>> results = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            results.add(executor.submit(() -> {
+                long count = 0;
+                while (System.nanoTime() < deadline) {
+                    operation.run();
+                    count++;
+                }
+                return count;
+            }));
+        }
+        long total = 0;
+        for (Future<Long> result : results) {
+            total += result.get();
+        }
+        executor.shutdown();
+        double opsPerSecond = total / (double) seconds;
+        System.out.printf("%-55s %,12.0f ops/s (%d hilos)%n", label, opsPerSecond, threads);
+        return opsPerSecond;
+    }
+
+    @FunctionalInterface
+    private interface Operation {
+        void run() throws Exception;
+    }
+}
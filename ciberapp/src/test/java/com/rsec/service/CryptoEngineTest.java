@@ -0,0 +1,107 @@
+package com.rsec.service;
+
+import org.junit.jupiter.api.Test;
+
+import javax.crypto.AEADBadTagException;
+import javax.crypto.KeyGenerator;
+import javax.crypto.SecretKey;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Pruebas de {@link CryptoEngine}: cifrado AES-GCM con cabecera autenticada y reutilización de los pools.
+ */
+class CryptoEngineTest {
+
+    private static final byte[] PLAINTEXT = "{\"username\":\"ana\"}".getBytes(StandardCharsets.UTF_8);
+
+    private final CryptoEngine engine = new CryptoEngine();
+
+    @Test
+    void encryptsAndDecryptsWithEachProvider() throws Exception {
+        SecretKey key = newKey();
+        for (String provider : new String[]{CryptoEngine.DEFAULT_PROVIDER, "SunJCE", "BC"}) {
+            byte[] combined = engine.encrypt(provider, key, PLAINTEXT);
+            assertEquals(CryptoEngine.IV_SIZE + PLAINTEXT.length + CryptoEngine.TAG_SIZE / 8, combined.length);
+            assertArrayEquals(PLAINTEXT, engine.decrypt(provider, key, combined));
+        }
+    }
+
+    @Test
+    void usesNewIvForEachEncryption() throws Exception {
+        SecretKey key = newKey();
+        byte[] first = engine.encrypt(CryptoEngine.DEFAULT_PROVIDER, key, PLAINTEXT);
+        byte[] second = engine.encrypt(CryptoEngine.DEFAULT_PROVIDER, key, PLAINTEXT);
+        assertFalse(Arrays.equals(Arrays.copyOf(first, CryptoEngine.IV_SIZE), Arrays.copyOf(second, CryptoEngine.IV_SIZE)));
+    }
+
+    @Test
+    void authenticatesHeader() throws Exception {
+        SecretKey key = newKey();
+        byte[] header = {1, 7};
+        byte[] combined = engine.encrypt(CryptoEngine.DEFAULT_PROVIDER, key, header, PLAINTEXT);
+        assertArrayEquals(header, Arrays.copyOf(combined, header.length));
+        assertArrayEquals(PLAINTEXT, engine.decrypt(CryptoEngine.DEFAULT_PROVIDER, key, combined, 0, header.length, combined.length));
+
+        combined[1] = 8;
+        assertThrows(AEADBadTagException.class,
+                () -> engine.decrypt(CryptoEngine.DEFAULT_PROVIDER, key, combined, 0, header.length, combined.length));
+    }
+
+    @Test
+    void rejectsTamperedCiphertextAndWrongKey() throws Exception {
+        SecretKey key = newKey();
+        byte[] combined = engine.encrypt(CryptoEngine.DEFAULT_PROVIDER, key, PLAINTEXT);
+        assertThrows(AEADBadTagException.class, () -> engine.decrypt(CryptoEngine.DEFAULT_PROVIDER, newKey(), combined));
+
+        combined[combined.length - 1] ^= 1;
+        assertThrows(AEADBadTagException.class, () -> engine.decrypt(CryptoEngine.DEFAULT_PROVIDER, key, combined));
+    }
+
+    @Test
+    void rejectsInputShorterThanIv() {
+        assertThrows(GeneralSecurityException.class,
+                () -> engine.decrypt(CryptoEngine.DEFAULT_PROVIDER, newKey(), new byte[CryptoEngine.IV_SIZE - 1]));
+    }
+
+    @Test
+    void sharesPooledCiphersBetweenThreads() throws Exception {
+        SecretKey key = newKey();
+        try (ExecutorService executor = Executors.newFixedThreadPool(8)) {
+            List<Future<?>> results = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                results.add(executor.submit(() -> {
+                    for (int i = 0; i < 500; i++) {
+                        byte[] plaintext = ("dato-" + i).getBytes(StandardCharsets.UTF_8);
+                        byte[] header = {(byte) i};
+                        byte[] combined = engine.encrypt(CryptoEngine.DEFAULT_PROVIDER, key, header, plaintext);
+                        assertArrayEquals(plaintext,
+                                engine.decrypt(CryptoEngine.DEFAULT_PROVIDER, key, combined, 0, 1, combined.length));
+                        assertEquals(32, engine.hmacSha256(key, plaintext).length);
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> result : results) {
+                result.get();
+            }
+        }
+    }
+
+    private static SecretKey newKey() throws GeneralSecurityException {
+        KeyGenerator generator = KeyGenerator.getInstance("AES");
+        generator.init(256);
+        return generator.generateKey();
+    }
+}
@@ -0,0 +1,61 @@
+package com.rsec.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Pruebas de la codificación canónica de los campos ({@link FieldCodec}).
+ */
+class FieldCodecTest {
+
+    @Test
+    void encodesLengthPrefixedUtf8Fields() {
+        assertArrayEquals(new byte[]{4, 'a', 'n', 'a', 0, 1}, FieldCodec.encode("ana", null, ""));
+    }
+
+    @Test
+    void roundTripsNullEmptyUnicodeAndLongFields() {
+        String[] fields = {null, "", "José Ñúñez 🙂", "x".repeat(200), "y".repeat(20_000)};
+        byte[] encoded = FieldCodec.encode(fields);
+        assertEquals(Arrays.asList(fields), FieldCodec.decode(encoded, 0, encoded.length));
+    }
+
+    @Test
+    void decodesSegmentOfLargerArray() {
+        byte[] encoded = FieldCodec.encode("ana", "ana@example.com");
+        byte[] padded = new byte[encoded.length + 4];
+        System.arraycopy(encoded, 0, padded, 2, encoded.length);
+        assertEquals(List.of("ana", "ana@example.com"), FieldCodec.decode(padded, 2, encoded.length));
+    }
+
+    @Test
+    void decodesUserFieldsInOrder() {
+        byte[] encoded = FieldCodec.encodeUser("ana", "ana@example.com", null);
+        Map<String, String> user = FieldCodec.decodeUser(encoded, 0, encoded.length);
+        assertEquals(List.of("username", "email", "name"), List.copyOf(user.keySet()));
+        assertEquals("ana", user.get("username"));
+        assertEquals("ana@example.com", user.get("email"));
+        assertEquals(null, user.get("name"));
+    }
+
+    @Test
+    void rejectsTruncatedField() {
+        byte[] encoded = FieldCodec.encode("ana@example.com");
+        assertThrows(IllegalArgumentException.class, () -> FieldCodec.decode(encoded, 0, encoded.length - 1));
+    }
+
+    @Test
+    void rejectsMalformedLength() {
+        byte[] unterminated = {(byte) 0x80, (byte) 0x80};
+        assertThrows(IllegalArgumentException.class, () -> FieldCodec.decode(unterminated, 0, unterminated.length));
+        byte[] overlong = {(byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 1};
+        assertThrows(IllegalArgumentException.class, () -> FieldCodec.decode(overlong, 0, overlong.length));
+    }
+}
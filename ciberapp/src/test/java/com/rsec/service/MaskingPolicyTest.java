@@ -0,0 +1,80 @@
+package com.rsec.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Pruebas de {@link MaskingPolicy}, en especial de los valores cortos, que nunca deben quedar sin ocultar.
+ */
+class MaskingPolicyTest {
+
+    @Test
+    void keepsNullAndEmptyValues() {
+        for (MaskingPolicy policy : MaskingPolicy.values()) {
+            assertNull(policy.apply(null));
+            assertEquals("", policy.apply(""));
+        }
+    }
+
+    @Test
+    void masksOneCharacterValuesWithEveryPolicy() {
+        for (MaskingPolicy policy : MaskingPolicy.values()) {
+            assertEquals("*", policy.apply("a"), policy.name());
+            assertEquals("*", policy.apply("@"), policy.name());
+        }
+    }
+
+    @Test
+    void masksTwoCharacterValues() {
+        assertEquals("a*", MaskingPolicy.FIRST.apply("ab"));
+        assertEquals("a*", MaskingPolicy.FIRST_LAST.apply("ab"));
+        assertEquals("a*", MaskingPolicy.EMAIL.apply("ab"));
+        assertEquals("a*", MaskingPolicy.WORDS.apply("ab"));
+        assertEquals("**", MaskingPolicy.FULL.apply("ab"));
+    }
+
+    @Test
+    void masksLongerValues() {
+        assertEquals("u******", MaskingPolicy.FIRST.apply("usuario"));
+        assertEquals("u*****o", MaskingPolicy.FIRST_LAST.apply("usuario"));
+        assertEquals("a*c", MaskingPolicy.FIRST_LAST.apply("abc"));
+        assertEquals("*******", MaskingPolicy.FULL.apply("usuario"));
+    }
+
+    @Test
+    void emailKeepsDomainAndHidesLocalPart() {
+        assertEquals("u******@example.com", MaskingPolicy.EMAIL.apply("usuario@example.com"));
+        assertEquals("a*@example.com", MaskingPolicy.EMAIL.apply("ab@example.com"));
+        assertEquals("*@example.com", MaskingPolicy.EMAIL.apply("a@example.com"));
+        assertEquals("*@", MaskingPolicy.EMAIL.apply("a@"));
+        // El dominio empieza en la última `@`
+        assertEquals("a****@example.com", MaskingPolicy.EMAIL.apply("abc@x@example.com"));
+    }
+
+    @Test
+    void emailWithoutLocalPartOrAtBehavesAsFirst() {
+        assertEquals("u******", MaskingPolicy.EMAIL.apply("usuario"));
+        assertEquals("@***********", MaskingPolicy.EMAIL.apply("@example.com"));
+    }
+
+    @Test
+    void wordsKeepsWhitespace() {
+        assertEquals("U****** D***", MaskingPolicy.WORDS.apply("Usuario Demo"));
+        assertEquals("A**   P****", MaskingPolicy.WORDS.apply("Ana   Pérez"));
+        assertEquals(" A** ", MaskingPolicy.WORDS.apply(" Ana "));
+        assertEquals("A**\tP****", MaskingPolicy.WORDS.apply("Ana\tPérez"));
+        // Sin ningún carácter oculto, el valor se oculta entero
+        assertEquals("*****", MaskingPolicy.WORDS.apply("A B C"));
+        assertEquals("***", MaskingPolicy.WORDS.apply("   "));
+    }
+
+    @Test
+    void parsesConfiguredNames() {
+        assertEquals(MaskingPolicy.FIRST_LAST, MaskingPolicy.of(" first-last "));
+        assertEquals(MaskingPolicy.EMAIL, MaskingPolicy.of("EMAIL"));
+        assertThrows(IllegalArgumentException.class, () -> MaskingPolicy.of("none"));
+    }
+}
@@ -0,0 +1,95 @@
+package com.rsec.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Pruebas de {@link PlaintextCache}: separación por espacio de nombres y borrado del texto en claro.
+ */
+class PlaintextCacheTest {
+
+    private static final Map<String, String> FIELDS = Map.of("username", "ana", "email", "ana@example.com");
+
+    @Test
+    void returnsCopiesSeparatedByNamespace() throws Exception {
+        PlaintextCache cache = new PlaintextCache(true, 100, 0, Duration.ofMinutes(5));
+        cache.putFields(PlaintextCache.TOKEN, "abc", FIELDS);
+        cache.putText(PlaintextCache.CIPHER, "abc", "{\"username\":\"ana\"}");
+
+        assertEquals(FIELDS, cache.getFields(PlaintextCache.TOKEN, "abc"));
+        assertEquals("{\"username\":\"ana\"}", cache.getText(PlaintextCache.CIPHER, "abc"));
+        assertNull(cache.getText(PlaintextCache.TOKEN, "abc"));
+        assertNull(cache.getFields(PlaintextCache.CIPHER, "abc"));
+        assertNull(cache.getFields(PlaintextCache.TOKEN, "otro"));
+    }
+
+    @Test
+    void disabledCacheStoresNothing() throws Exception {
+        PlaintextCache cache = new PlaintextCache(false, 100, 0, Duration.ofMinutes(5));
+        cache.putFields(PlaintextCache.TOKEN, "abc", FIELDS);
+        assertNull(cache.getFields(PlaintextCache.TOKEN, "abc"));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void wipesInvalidatedEntries() throws Exception {
+        PlaintextCache cache = new PlaintextCache(true, 100, 0, Duration.ofMinutes(5));
+        cache.putFields(PlaintextCache.TOKEN, "abc", FIELDS);
+        cache.putText(PlaintextCache.CIPHER, "def", "{\"username\":\"ana\"}");
+        PlaintextCache.SensitiveValue fields = cache.lookup(PlaintextCache.TOKEN, "abc");
+        PlaintextCache.SensitiveValue text = cache.lookup(PlaintextCache.CIPHER, "def");
+        assertFalse(fields.isWiped());
+
+        cache.invalidateAll();
+        assertTrue(fields.isWiped());
+        assertTrue(text.isWiped());
+        assertNull(fields.toMap());
+        assertNull(text.toText());
+        assertNull(cache.getFields(PlaintextCache.TOKEN, "abc"));
+    }
+
+    @Test
+    void wipesReplacedEntries() throws Exception {
+        PlaintextCache cache = new PlaintextCache(true, 100, 0, Duration.ofMinutes(5));
+        cache.putText(PlaintextCache.CIPHER, "abc", "primero");
+        PlaintextCache.SensitiveValue first = cache.lookup(PlaintextCache.CIPHER, "abc");
+
+        cache.putText(PlaintextCache.CIPHER, "abc", "segundo");
+        assertTrue(first.isWiped());
+        assertEquals("segundo", cache.getText(PlaintextCache.CIPHER, "abc"));
+    }
+
+    @Test
+    void wipesEvictedEntries() throws Exception {
+        PlaintextCache cache = new PlaintextCache(true, 2, 0, Duration.ofMinutes(5));
+        Map<String, PlaintextCache.SensitiveValue> stored = new LinkedHashMap<>();
+        for (int i = 0; i < 20; i++) {
+            cache.putText(PlaintextCache.CIPHER, "k" + i, "texto " + i);
+            PlaintextCache.SensitiveValue value = cache.lookup(PlaintextCache.CIPHER, "k" + i);
+            if (value != null) {
+                stored.put("k" + i, value);
+            }
+        }
+        assertTrue(cache.size() <= 2);
+
+        // La política de expulsión decide qué entradas se conservan; las expulsadas deben quedar borradas
+        int evicted = 0;
+        for (Map.Entry<String, PlaintextCache.SensitiveValue> entry : stored.entrySet()) {
+            if (cache.lookup(PlaintextCache.CIPHER, entry.getKey()) == entry.getValue()) {
+                assertFalse(entry.getValue().isWiped());
+            } else {
+                assertTrue(entry.getValue().isWiped());
+                evicted++;
+            }
+        }
+        assertTrue(evicted > 0);
+    }
+}
@@ -0,0 +1,177 @@
+package com.rsec.service;
+
+import com.rsec.model.ReEncryptionCheckpoint;
+import com.rsec.model.Usuario;
+import com.rsec.repository.ReEncryptionCheckpointRepository;
+import com.rsec.repository.UsuarioRepository;
+import com.rsec.service.keys.RotatingKeys;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Primary;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.nio.file.Path;
+import java.security.GeneralSecurityException;
+import java.util.List;
+import java.util.function.Predicate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Prueba de {@link ReEncryptionService} sobre H2: rota las claves `cipher` y `token`, detiene el
+ * trabajo a mitad y lo reanuda desde su punto de control.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:reencryption-test",
+        "ciberapp.keys.password=changeit",
+        "ciberapp.keys.create-if-missing=true",
+        "ciberapp.keys.reload-interval=0s",
+        "ciberapp.audit.enabled=false",
+        "ciberapp.admission.enabled=false",
+        "ciberapp.reencryption.chunk-size=" + ReEncryptionServiceTest.CHUNK,
+        "ciberapp.reencryption.rows-per-second=50",
+        "ciberapp.reencryption.resume-on-startup=false"
+})
+class ReEncryptionServiceTest {
+
+    static final int CHUNK = 10;
+    private static final int USERS = 60;
+    private static final String JOB = "key-rotation";
+
+    @TempDir
+    static Path keysDirectory;
+
+    @TestConfiguration
+    static class Keys {
+
+        /**
+         * Sustituye al almacén de claves en los servicios de cifrado para poder rotar las claves.
+         */
+        @Bean
+        @Primary
+        RotatingKeys rotatingKeys() throws GeneralSecurityException {
+            return RotatingKeys.of("cipher-1", "token-1", "master-1", "blind-index-1");
+        }
+    }
+
+    @Autowired
+    private RotatingKeys keys;
+
+    @Autowired
+    private ReEncryptionService reEncryptionService;
+
+    @Autowired
+    private ReEncryptionCheckpointRepository checkpointRepository;
+
+    @Autowired
+    private UsuarioRepository usuarioRepository;
+
+    @Autowired
+    private UsuarioService usuarioService;
+
+    @Autowired
+    private CipherService cipherService;
+
+    @Autowired
+    private TokenService tokenService;
+
+    @Autowired
+    private MeterRegistry registry;
+
+    @DynamicPropertySource
+    static void keystore(DynamicPropertyRegistry registry) {
+        registry.add("ciberapp.keys.keystore", () -> keysDirectory.resolve("ciberapp-keys.p12").toString());
+    }
+
+    @Test
+    void resumesAfterStopAndReEncryptsEveryRowOnce() throws Exception {
+        for (int i = 0; i < USERS; i++) {
+            Usuario user = new Usuario();
+            user.setUsername("user" + i);
+            user.setEmail("user" + i + "@example.com");
+            user.setName("Usuario " + i);
+            usuarioService.create(user);
+        }
+        assertEquals(USERS, countUsers(this::isCurrent));
+
+        keys.add("cipher-2");
+        keys.add("token-2");
+        assertEquals(0, countUsers(this::isCurrent));
+        double reEncryptedBefore = rows("reencrypted");
+        double skippedBefore = rows("skipped");
+
+        // Primera ejecución: se detiene tras unos fragmentos
+        assertTrue(reEncryptionService.start(true));
+        awaitCheckpoint(c -> c.getProcessed() >= 2 * CHUNK);
+        reEncryptionService.stop();
+        awaitStopped();
+
+        ReEncryptionCheckpoint stopped = checkpointRepository.findById(JOB).orElseThrow();
+        assertFalse(stopped.isCompleted());
+        assertTrue(stopped.getProcessed() < USERS, "El trabajo debía detenerse antes del final");
+        assertEquals(0, stopped.getProcessed() % CHUNK);
+        assertEquals(stopped.getProcessed(), stopped.getReEncrypted());
+        assertEquals(stopped.getProcessed(), countUsers(this::isCurrent));
+
+        // Segunda ejecución: continúa desde el punto de control
+        assertTrue(reEncryptionService.start(false));
+        awaitStopped();
+
+        ReEncryptionCheckpoint completed = checkpointRepository.findById(JOB).orElseThrow();
+        assertTrue(completed.isCompleted());
+        assertEquals(USERS, completed.getProcessed());
+        assertEquals(USERS, completed.getReEncrypted());
+        assertEquals(0, completed.getFailed());
+        // Un usuario procesado dos veces se habría contado como omitido al estar ya re-cifrado
+        assertEquals(USERS, rows("reencrypted") - reEncryptedBefore);
+        assertEquals(0, rows("skipped") - skippedBefore);
+
+        assertEquals(USERS, countUsers(this::isCurrent));
+        Usuario first = usuarioRepository.findAll().get(0);
+        assertTrue(cipherService.decrypt(first.getCipherBytes()).contains(first.getUsername()));
+        assertEquals(first.getUsername(), tokenService.detokenize(first.getTokenBytes()).get("username"));
+    }
+
+    private boolean isCurrent(Usuario user) {
+        return cipherService.isCurrent(user.getCipherBytes()) && tokenService.isCurrent(user.getTokenBytes());
+    }
+
+    private long countUsers(Predicate<Usuario> predicate) {
+        List<Usuario> users = usuarioRepository.findAll();
+        assertEquals(USERS, users.size());
+        return users.stream().filter(predicate).count();
+    }
+
+    private double rows(String result) {
+        return registry.get("ciberapp.reencryption.rows").tag("result", result).counter().count();
+    }
+
+    private void awaitCheckpoint(Predicate<ReEncryptionCheckpoint> condition) throws InterruptedException {
+        long deadline = System.nanoTime() + 30_000_000_000L;
+        while (!checkpointRepository.findById(JOB).filter(condition).isPresent()) {
+            if (System.nanoTime() > deadline) {
+                throw new AssertionError("El re-cifrado no avanzó a tiempo: " + reEncryptionService.status());
+            }
+            Thread.sleep(10);
+        }
+    }
+
+    private void awaitStopped() throws InterruptedException {
+        long deadline = System.nanoTime() + 30_000_000_000L;
+        while (reEncryptionService.isRunning()) {
+            if (System.nanoTime() > deadline) {
+                reEncryptionService.stop();
+                throw new AssertionError("El re-cifrado no terminó a tiempo: " + reEncryptionService.status());
+            }
+            Thread.sleep(10);
+        }
+    }
+}
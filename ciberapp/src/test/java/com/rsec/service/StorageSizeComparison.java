@@ -0,0 +1,97 @@
+package com.rsec.service;
+
+import com.rsec.metrics.ProtectionMetrics;
+import com.rsec.service.keys.DataKeyService;
+import com.rsec.service.keys.KeyRing;
+import com.rsec.service.keys.LocalMasterKey;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+/**
+ * Compara el espacio en disco que ocupan los datos cifrados y los tokens en H2 según el modo de
+ * almacenamiento: texto Base64 en columnas LOB (modo `text`) o bytes en columnas VARBINARY (modo `binary`).
+ *
+ * No forma parte de la suite de pruebas; se ejecuta manualmente con
+ * `java -cp target/test-classes:target/classes:<dependencias> com.rsec.service.StorageSizeComparison [filas]`.
+ */
+public class StorageSizeComparison {
+
+    public static void main(String[] args) throws Exception {
+        int rows = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+
+        CryptoEngine engine = new CryptoEngine();
+        KeyRing keys = KeyRing.generate();
+        PlaintextCache noCache = new PlaintextCache(false, 0, 0, Duration.ofMinutes(1));
+        CipherProviderSelector providers = CipherProviderSelector.of(engine,
+                System.getProperty("ciberapp.crypto.provider", CipherProviderSelector.AUTO));
+        CipherService cipherService = new CipherService(engine, noCache, ProtectionMetrics.noop(), keys,
+                new DataKeyService(new LocalMasterKey(engine, keys), false, 1_000_000, Duration.ofHours(1), 1000),
+                providers);
+        TokenService tokenService = new TokenService(engine, noCache, ProtectionMetrics.noop(), keys, "compact", providers);
+
+        Path dir = Files.createTempDirectory("ciberapp-storage");
+        try (Connection connection = DriverManager.getConnection("jdbc:h2:" + dir.resolve("storage") + ";DB_CLOSE_ON_EXIT=FALSE")) {
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("CREATE TABLE usuario_text (id BIGINT PRIMARY KEY, cipher_data CLOB, token CLOB)");
+                statement.execute("CREATE TABLE usuario_bin (id BIGINT PRIMARY KEY, cipher_bin VARBINARY(4096), token_bin VARBINARY(4096))");
+            }
+
+            try (PreparedStatement text = connection.prepareStatement("INSERT INTO usuario_text VALUES (?, ?, ?)");
+                 PreparedStatement bin = connection.prepareStatement("INSERT INTO usuario_bin VALUES (?, ?, ?)")) {
+                for (int i = 0; i < rows; i++) {
+                    String username = "usuario_" + i;
+                    String email = "usuario" + i + "@example.com";
+                    String name = "Nombre Apellido " + i;
+                    byte[] cipher = cipherService.encryptToBytes(username, email, name);
+                    byte[] token = tokenService.tokenizeToBytes(username, email, name);
+
+                    text.setLong(1, i);
+                    text.setString(2, Base64.getEncoder().encodeToString(cipher));
+                    text.setString(3, Base64.getUrlEncoder().withoutPadding().encodeToString(token));
+                    text.addBatch();
+
+                    bin.setLong(1, i);
+                    bin.setBytes(2, cipher);
+                    bin.setBytes(3, token);
+                    bin.addBatch();
+
+                    if (i % 1000 == 999) {
+                        text.executeBatch();
+                        bin.executeBatch();
+                    }
+                }
+                text.executeBatch();
+                bin.executeBatch();
+            }
+
+            long textBytes = diskSpace(connection, "USUARIO_TEXT");
+            long binBytes = diskSpace(connection, "USUARIO_BIN");
+            System.out.printf("Filas: %,d%n", rows);
+            System.out.printf("Modo text   (CLOB Base64): %,14d bytes (%,.1f bytes/fila)%n", textBytes, textBytes / (double) rows);
+            System.out.printf("Modo binary (VARBINARY):   %,14d bytes (%,.1f bytes/fila)%n", binBytes, binBytes / (double) rows);
+            System.out.printf("Reducción: %.1f%%%n", 100.0 * (textBytes - binBytes) / textBytes);
+        } finally {
+            try (Stream<Path> files = Files.walk(dir)) {
+                files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+            }
+        }
+    }
+
+    private static long diskSpace(Connection connection, String table) throws Exception {
+        try (Statement statement = connection.createStatement();
+             ResultSet result = statement.executeQuery("CALL DISK_SPACE_USED('" + table + "')")) {
+            result.next();
+            return result.getLong(1);
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package com.rsec.service;
+
+import com.rsec.metrics.ProtectionMetrics;
+import com.rsec.service.keys.RotatingKeys;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.channels.Channels;
+import java.security.GeneralSecurityException;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Pruebas de {@link StreamingCipherService}: ida y vuelta por segmentos y detección de segmentos
+ * reordenados, truncados o mezclados.
+ */
+class StreamingCipherServiceTest {
+
+    private static final int SEGMENT = 1024;
+    private static final int HEADER = 29;
+    private static final int SEALED = SEGMENT + 16;
+
+    private CryptoEngine engine;
+    private RotatingKeys keys;
+    private StreamingCipherService service;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        engine = new CryptoEngine();
+        keys = RotatingKeys.of("cipher-1");
+        service = new StreamingCipherService(engine, keys, ProtectionMetrics.noop(), DataSize.ofBytes(SEGMENT),
+                CipherProviderSelector.of(engine, "SunJCE"));
+    }
+
+    @Test
+    void roundTripsAnySize() throws Exception {
+        for (int size : new int[]{0, 1, SEGMENT - 1, SEGMENT, SEGMENT + 1, 3 * SEGMENT, 5000}) {
+            byte[] data = data(size);
+            byte[] sealed = encrypt(data);
+            assertEquals(StreamingCipherService.FORMAT_STREAM_V1, sealed[0]);
+            int segments = Math.max(1, (size + SEGMENT - 1) / SEGMENT);
+            assertEquals(HEADER + segments * 16 + size, sealed.length);
+            assertArrayEquals(data, decrypt(sealed));
+        }
+    }
+
+    @Test
+    void rejectsReorderedSegments() throws Exception {
+        byte[] sealed = encrypt(data(2500));
+        byte[] reordered = sealed.clone();
+        System.arraycopy(sealed, HEADER, reordered, HEADER + SEALED, SEALED);
+        System.arraycopy(sealed, HEADER + SEALED, reordered, HEADER, SEALED);
+        assertThrows(GeneralSecurityException.class, () -> decrypt(reordered));
+    }
+
+    @Test
+    void rejectsTruncatedStreams() throws Exception {
+        byte[] sealed = encrypt(data(2500));
+        // Sin el último segmento, el anterior no tiene la marca de último
+        assertThrows(GeneralSecurityException.class, () -> decrypt(Arrays.copyOf(sealed, HEADER + 2 * SEALED)));
+        assertThrows(GeneralSecurityException.class, () -> decrypt(Arrays.copyOf(sealed, sealed.length - 1)));
+        assertThrows(GeneralSecurityException.class, () -> decrypt(Arrays.copyOf(sealed, HEADER + 10)));
+        assertThrows(GeneralSecurityException.class, () -> decrypt(Arrays.copyOf(sealed, HEADER - 1)));
+    }
+
+    @Test
+    void marksOnlyTheLastSegment() throws Exception {
+        // Con un múltiplo del tamaño de segmento, el último segmento completo lleva la marca de último
+        byte[] sealed = encrypt(data(2 * SEGMENT));
+        assertEquals(HEADER + 2 * SEALED, sealed.length);
+        assertThrows(GeneralSecurityException.class, () -> decrypt(Arrays.copyOf(sealed, HEADER + SEALED)));
+
+        // Con datos añadidos al final, el último segmento deja de serlo
+        byte[] extended = Arrays.copyOf(sealed, sealed.length + 16);
+        assertThrows(GeneralSecurityException.class, () -> decrypt(extended));
+    }
+
+    @Test
+    void rejectsSegmentsFromOtherStreamsAndTamperedHeaders() throws Exception {
+        byte[] data = data(2500);
+        byte[] first = encrypt(data);
+        byte[] second = encrypt(data);
+        byte[] mixed = first.clone();
+        System.arraycopy(second, HEADER + SEALED, mixed, HEADER + SEALED, SEALED);
+        assertThrows(GeneralSecurityException.class, () -> decrypt(mixed));
+
+        byte[] salt = first.clone();
+        salt[10] ^= 1;
+        assertThrows(GeneralSecurityException.class, () -> decrypt(salt));
+
+        byte[] key = first.clone();
+        key[1] = 2; // Clave inexistente
+        assertThrows(GeneralSecurityException.class, () -> decrypt(key));
+    }
+
+    @Test
+    void decryptsWithPreviousKeyAfterRotation() throws Exception {
+        byte[] data = data(3000);
+        byte[] before = encrypt(data);
+        keys.add("cipher-2");
+        byte[] after = encrypt(data);
+        assertEquals(1, before[1]);
+        assertEquals(2, after[1]);
+        assertArrayEquals(data, decrypt(before));
+        assertArrayEquals(data, decrypt(after));
+    }
+
+    @Test
+    void rejectsInvalidSegmentSize() {
+        assertThrows(IllegalArgumentException.class, () -> new StreamingCipherService(engine, keys, ProtectionMetrics.noop(),
+                DataSize.ofBytes(100), CipherProviderSelector.of(engine, "SunJCE")));
+    }
+
+    private byte[] encrypt(byte[] data) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        assertEquals(data.length, service.encrypt(Channels.newChannel(new ByteArrayInputStream(data)), Channels.newChannel(out)));
+        return out.toByteArray();
+    }
+
+    private byte[] decrypt(byte[] sealed) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        service.decrypt(Channels.newChannel(new ByteArrayInputStream(sealed)), Channels.newChannel(out));
+        return out.toByteArray();
+    }
+
+    private static byte[] data(int size) {
+        byte[] data = new byte[size];
+        new Random(size).nextBytes(data);
+        return data;
+    }
+}
@@ -0,0 +1,130 @@
+package com.rsec.service;
+
+import com.rsec.exceptions.TokenizationException;
+import com.rsec.metrics.ProtectionMetrics;
+import com.rsec.service.keys.KeyPurpose;
+import com.rsec.service.keys.RotatingKeys;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Pruebas de {@link TokenService}: formato compacto, formato heredado y rotación de la clave `token`.
+ */
+class TokenServiceTest {
+
+    private static final Map<String, String> USER = Map.of("username", "ana", "email", "ana@example.com", "name", "Ana Pérez");
+
+    private CryptoEngine engine;
+    private RotatingKeys keys;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        engine = new CryptoEngine();
+        keys = RotatingKeys.of("token-1");
+    }
+
+    @Test
+    void compactTokenRoundTrip() throws Exception {
+        TokenService service = tokenService();
+        String token = service.tokenize("ana", "ana@example.com", "Ana Pérez");
+        assertTrue(token.matches("[A-Za-z0-9_-]+"), "El token compacto debe ser Base64 URL-safe sin relleno");
+
+        byte[] binary = TokenService.decodeToken(token);
+        assertEquals(1, binary[0]); // Versión del formato
+        assertEquals(1, binary[1]); // Identificador de la clave
+        assertEquals(USER, service.detokenize(token));
+        assertEquals(USER, service.detokenize(binary));
+    }
+
+    @Test
+    void compactTokenIsShorterThanLegacyToken() throws Exception {
+        String compact = tokenService().tokenize("ana", "ana@example.com", "Ana Pérez");
+        assertTrue(compact.length() < legacyToken().length());
+    }
+
+    @Test
+    void readsLegacyTokens() throws Exception {
+        String legacy = legacyToken();
+        byte[] decoded = Base64.getDecoder().decode(legacy);
+        assertArrayEquals(decoded, TokenService.decodeToken(legacy));
+
+        TokenService service = tokenService();
+        assertEquals(USER, service.detokenize(legacy));
+        assertFalse(service.isCurrent(decoded));
+
+        byte[] reTokenized = service.reTokenize(decoded);
+        assertEquals(1, reTokenized[0]);
+        assertTrue(service.isCurrent(reTokenized));
+        assertEquals(USER, service.detokenize(reTokenized));
+    }
+
+    @Test
+    void rejectsLegacyFormatForNewTokens() {
+        // token-1 es la clave fija publicada antes del almacén de claves: solo sirve para descifrar
+        assertThrows(IllegalArgumentException.class, () -> tokenService("legacy"));
+        assertThrows(IllegalArgumentException.class, () -> tokenService("json"));
+    }
+
+    @Test
+    void rejectsTamperedTokens() throws Exception {
+        TokenService service = tokenService();
+        byte[] token = service.tokenizeToBytes("ana", "ana@example.com", "Ana Pérez");
+
+        byte[] body = token.clone();
+        body[body.length - 1] ^= 1;
+        assertThrows(TokenizationException.class, () -> service.detokenize(body));
+
+        byte[] header = token.clone();
+        header[1] = 2; // Clave inexistente
+        assertThrows(TokenizationException.class, () -> service.detokenize(header));
+
+        assertThrows(TokenizationException.class, () -> service.detokenize("no es base64!"));
+        assertThrows(TokenizationException.class, () -> service.detokenize(new byte[5]));
+    }
+
+    @Test
+    void reTokenizesWithRotatedKey() throws Exception {
+        TokenService service = tokenService();
+        byte[] before = service.tokenizeToBytes("ana", "ana@example.com", "Ana Pérez");
+        assertTrue(service.isCurrent(before));
+
+        keys.add("token-2");
+        assertFalse(service.isCurrent(before));
+        assertEquals(USER, service.detokenize(before));
+
+        byte[] after = service.reTokenize(before);
+        assertEquals(2, after[1]);
+        assertTrue(service.isCurrent(after));
+        assertEquals(USER, service.detokenize(after));
+    }
+
+    /**
+     * Token en el formato heredado: Base64 estándar de `[IV][AES-GCM(JSON)]` con `token-1`.
+     */
+    private String legacyToken() throws Exception {
+        byte[] json = "{\"username\":\"ana\",\"email\":\"ana@example.com\",\"name\":\"Ana Pérez\"}"
+                .getBytes(StandardCharsets.UTF_8);
+        return Base64.getEncoder().encodeToString(engine.encrypt("SunJCE", keys.key(KeyPurpose.TOKEN, 1), json));
+    }
+
+    private TokenService tokenService() throws GeneralSecurityException {
+        return tokenService("compact");
+    }
+
+    private TokenService tokenService(String format) throws GeneralSecurityException {
+        return new TokenService(engine, new PlaintextCache(false, 0, 0, Duration.ofMinutes(1)), ProtectionMetrics.noop(),
+                keys, format, CipherProviderSelector.of(engine, "SunJCE"));
+    }
+}
@@ -0,0 +1,86 @@
+package com.rsec.service.admission;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Pruebas del limitador GCRA por cliente y del límite global de concurrencia de {@link AdmissionControl}.
+ */
+class AdmissionControlTest {
+
+    private static final long NOW = TimeUnit.SECONDS.toNanos(1_000);
+    private static final long INTERVAL = TimeUnit.MILLISECONDS.toNanos(100); // 10 solicitudes por segundo
+
+    @Test
+    void admitsBurstThenLimitsToRate() {
+        AdmissionControl control = admissionControl(5, 100);
+        for (int i = 0; i < 5; i++) {
+            assertAdmittedAndRelease(control, "a", NOW);
+        }
+        AdmissionControl.Decision limited = control.tryAcquire("a", NOW);
+        assertEquals(AdmissionControl.Result.RATE_LIMITED, limited.result());
+        assertTrue(limited.retryAfter() >= 1);
+
+        // Cada intervalo de emisión libera exactamente una solicitud más
+        assertAdmittedAndRelease(control, "a", NOW + INTERVAL);
+        assertEquals(AdmissionControl.Result.RATE_LIMITED, control.tryAcquire("a", NOW + INTERVAL).result());
+    }
+
+    @Test
+    void refillsBucketAfterIdlePeriod() {
+        AdmissionControl control = admissionControl(3, 100);
+        for (int i = 0; i < 3; i++) {
+            assertAdmittedAndRelease(control, "a", NOW);
+        }
+        assertEquals(AdmissionControl.Result.RATE_LIMITED, control.tryAcquire("a", NOW).result());
+
+        long later = NOW + TimeUnit.SECONDS.toNanos(10);
+        for (int i = 0; i < 3; i++) {
+            assertAdmittedAndRelease(control, "a", later);
+        }
+        assertEquals(AdmissionControl.Result.RATE_LIMITED, control.tryAcquire("a", later).result());
+    }
+
+    @Test
+    void limitsEachClientSeparately() {
+        AdmissionControl control = admissionControl(1, 100);
+        assertAdmittedAndRelease(control, "a", NOW);
+        assertEquals(AdmissionControl.Result.RATE_LIMITED, control.tryAcquire("a", NOW).result());
+        assertAdmittedAndRelease(control, "b", NOW);
+    }
+
+    @Test
+    void overloadDoesNotConsumeClientToken() {
+        AdmissionControl control = admissionControl(1, 1);
+        assertTrue(control.tryAcquire("a", NOW).admitted());
+
+        assertEquals(AdmissionControl.Decision.OVERLOADED, control.tryAcquire("b", NOW));
+        control.release();
+
+        // El rechazo por saturación no gastó el único token de b
+        assertAdmittedAndRelease(control, "b", NOW);
+    }
+
+    @Test
+    void rateLimitedRequestDoesNotKeepConcurrencySlot() {
+        AdmissionControl control = admissionControl(1, 1);
+        assertAdmittedAndRelease(control, "a", NOW);
+        assertEquals(AdmissionControl.Result.RATE_LIMITED, control.tryAcquire("a", NOW).result());
+        assertAdmittedAndRelease(control, "b", NOW);
+    }
+
+    private static AdmissionControl admissionControl(int burst, int maxConcurrent) {
+        return new AdmissionControl(true, 10, burst, maxConcurrent, 1000, new SimpleMeterRegistry());
+    }
+
+    private static void assertAdmittedAndRelease(AdmissionControl control, String clientId, long now) {
+        AdmissionControl.Decision decision = control.tryAcquire(clientId, now);
+        assertEquals(AdmissionControl.Result.ADMITTED, decision.result());
+        control.release();
+    }
+}
@@ -0,0 +1,159 @@
+package com.rsec.service.audit;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Pruebas de {@link AuditRingBuffer}: orden de entrega, reintento tras un fallo del consumidor,
+ * espera con el buffer lleno y publicación concurrente.
+ */
+class AuditRingBufferTest {
+
+    @Test
+    void roundsCapacityToPowerOfTwo() {
+        assertEquals(4, new AuditRingBuffer(4).capacity());
+        assertEquals(8, new AuditRingBuffer(5).capacity());
+        assertEquals(1024, new AuditRingBuffer(1000).capacity());
+    }
+
+    @Test
+    void drainsRecordsInOrderUpToMax() throws Exception {
+        AuditRingBuffer buffer = new AuditRingBuffer(8);
+        for (int i = 0; i < 5; i++) {
+            buffer.publish(1000 + i, (byte) i, i % 2 == 0, hash(i));
+        }
+        assertEquals(5, buffer.pending());
+
+        List<Long> timestamps = new ArrayList<>();
+        assertEquals(3, buffer.drain((timestamp, operation, success, hashes, offset) -> {
+            assertEquals(timestamp - 1000, operation);
+            assertEquals(operation % 2 == 0, success);
+            assertEquals(operation, hashes[offset]);
+            assertEquals(operation, hashes[offset + AuditLogFormat.HASH_SIZE - 1]);
+            timestamps.add(timestamp);
+        }, 3));
+        assertEquals(2, buffer.drain((timestamp, operation, success, hashes, offset) -> timestamps.add(timestamp), 10));
+        assertEquals(0, buffer.drain((timestamp, operation, success, hashes, offset) -> timestamps.add(timestamp), 10));
+        assertEquals(List.of(1000L, 1001L, 1002L, 1003L, 1004L), timestamps);
+        assertEquals(0, buffer.pending());
+    }
+
+    @Test
+    void redeliversRecordThatFailed() throws Exception {
+        AuditRingBuffer buffer = new AuditRingBuffer(8);
+        for (int i = 0; i < 3; i++) {
+            buffer.publish(i, (byte) 1, true, hash(i));
+        }
+
+        List<Long> delivered = new ArrayList<>();
+        assertThrows(IllegalStateException.class, () -> buffer.drain((timestamp, operation, success, hashes, offset) -> {
+            if (timestamp == 1) {
+                throw new IllegalStateException("disco lleno");
+            }
+            delivered.add(timestamp);
+        }, 10));
+        assertEquals(2, buffer.pending());
+
+        buffer.drain((timestamp, operation, success, hashes, offset) -> delivered.add(timestamp), 10);
+        assertEquals(List.of(0L, 1L, 2L), delivered);
+    }
+
+    @Test
+    void producerWaitsWhileBufferIsFull() throws Exception {
+        AuditRingBuffer buffer = new AuditRingBuffer(4);
+        for (int i = 0; i < 4; i++) {
+            buffer.publish(i, (byte) 1, true, hash(i));
+        }
+
+        CountDownLatch done = new CountDownLatch(1);
+        Thread producer = Thread.ofPlatform().start(() -> {
+            buffer.publish(4, (byte) 1, true, hash(4));
+            done.countDown();
+        });
+        assertFalse(done.await(100, TimeUnit.MILLISECONDS), "El registro no debe descartarse ni sobrescribir otro");
+        assertEquals(1, buffer.waits());
+
+        List<Long> delivered = new ArrayList<>();
+        buffer.drain((timestamp, operation, success, hashes, offset) -> delivered.add(timestamp), 1);
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        producer.join();
+        buffer.drain((timestamp, operation, success, hashes, offset) -> delivered.add(timestamp), 10);
+        assertEquals(List.of(0L, 1L, 2L, 3L, 4L), delivered);
+    }
+
+    @Test
+    void publishGivesUpAfterTimeoutWhileBufferIsFull() {
+        AuditRingBuffer buffer = new AuditRingBuffer(4);
+        for (int i = 0; i < 4; i++) {
+            assertTrue(buffer.publish(i, (byte) 1, true, hash(i), 0));
+        }
+
+        long start = System.nanoTime();
+        assertFalse(buffer.publish(4, (byte) 1, true, hash(4), TimeUnit.MILLISECONDS.toNanos(50)));
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(50));
+        assertEquals(4, buffer.pending());
+    }
+
+    @Test
+    void deliversEveryRecordFromConcurrentProducersOnce() throws Exception {
+        int producers = 4;
+        int perProducer = 20_000;
+        AuditRingBuffer buffer = new AuditRingBuffer(64);
+        long[] next = new long[producers];
+        long[] outOfOrder = new long[1];
+
+        try (ExecutorService executor = Executors.newFixedThreadPool(producers)) {
+            List<Future<?>> results = new ArrayList<>();
+            for (int p = 0; p < producers; p++) {
+                byte producer = (byte) p;
+                results.add(executor.submit(() -> {
+                    byte[] hash = hash(producer);
+                    for (int i = 0; i < perProducer; i++) {
+                        buffer.publish(i, producer, true, hash);
+                    }
+                }));
+            }
+
+            long received = 0;
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+            while (received < (long) producers * perProducer && System.nanoTime() < deadline) {
+                received += buffer.drain((timestamp, operation, success, hashes, offset) -> {
+                    // Cada productor publica en orden, por lo que sus registros deben llegar en orden. Los
+                    // errores se cuentan en lugar de lanzarse para no dejar a los productores esperando
+                    if (timestamp != next[operation] || hashes[offset] != operation) {
+                        outOfOrder[0]++;
+                    }
+                    next[operation]++;
+                }, 32);
+            }
+            for (Future<?> result : results) {
+                result.get();
+            }
+            assertEquals((long) producers * perProducer, received);
+        }
+        assertEquals(0, outOfOrder[0]);
+        for (long count : next) {
+            assertEquals(perProducer, count);
+        }
+        assertEquals(0, buffer.pending());
+    }
+
+    private static byte[] hash(int value) {
+        byte[] hash = new byte[AuditLogFormat.HASH_SIZE];
+        Arrays.fill(hash, (byte) value);
+        return hash;
+    }
+}
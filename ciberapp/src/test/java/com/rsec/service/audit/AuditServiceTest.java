@@ -0,0 +1,64 @@
+package com.rsec.service.audit;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Pruebas de {@link AuditService}: escritura en segundo plano y estado del escritor.
+ */
+class AuditServiceTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void writesRecordsBeforeShutdown() throws Exception {
+        AuditService service = service(true);
+        assertTrue(service.isAvailable());
+        service.record(AuditOperation.DECRYPT, "dato-1", true);
+        service.record(AuditOperation.DETOKENIZE, "token-1", false);
+        service.shutdown();
+
+        List<AuditEntry> entries = service.query(new AuditQuery(null, null, null, null, null, 10));
+        assertEquals(2, entries.size());
+        assertEquals(AuditOperation.DECRYPT, entries.get(0).operation());
+        assertEquals(service.subjectHash("dato-1"), entries.get(0).subjectHash());
+        assertTrue(entries.get(0).success());
+        assertEquals(AuditOperation.DETOKENIZE, entries.get(1).operation());
+        assertFalse(entries.get(1).success());
+        assertEquals(entries.get(0).sequence() + 1, entries.get(1).sequence());
+    }
+
+    @Test
+    void reportsStoppedWriter() throws Exception {
+        AuditService service = service(true);
+        service.shutdown();
+        assertFalse(service.isAvailable());
+        assertEquals(false, service.stats().get("writerAlive"));
+    }
+
+    @Test
+    void disabledServiceWritesNothing() throws Exception {
+        AuditService service = service(false);
+        assertTrue(service.isAvailable());
+        service.record(AuditOperation.DECRYPT, "dato-1", true);
+        service.shutdown();
+        assertFalse(Files.exists(dir.resolve("audit")));
+    }
+
+    private AuditService service(boolean enabled) throws Exception {
+        return new AuditService(enabled, dir.resolve("audit"), DataSize.ofMegabytes(1), 0, 1024, 64,
+                Duration.ofMillis(10), Duration.ofSeconds(1), new SimpleMeterRegistry());
+    }
+}
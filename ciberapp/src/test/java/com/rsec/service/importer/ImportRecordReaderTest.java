@@ -0,0 +1,195 @@
+package com.rsec.service.importer;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Pruebas de {@link ImportRecordReader}: separación de campos CSV, líneas rechazadas, líneas vacías
+ * y reanudación desde la posición de una fila.
+ */
+class ImportRecordReaderTest {
+
+    private static final int MAX_LINE = 64;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void splitsCsvFields() {
+        assertEquals(List.of("ana", "ana@example.com", "Ana"), ImportRecordReader.splitCsv("ana,ana@example.com,Ana"));
+        assertEquals(List.of("", "", ""), ImportRecordReader.splitCsv(",,"));
+        assertEquals(List.of(""), ImportRecordReader.splitCsv(""));
+        assertEquals(List.of("Pérez, Ana", "x"), ImportRecordReader.splitCsv("\"Pérez, Ana\",x"));
+        assertEquals(List.of("dice \"hola\"", ""), ImportRecordReader.splitCsv("\"dice \"\"hola\"\"\","));
+        assertEquals(List.of("", "b"), ImportRecordReader.splitCsv("\"\",b"));
+        // Una comilla en medio de un campo sin comillas es un carácter más
+        assertEquals(List.of("a\"b", "c"), ImportRecordReader.splitCsv("a\"b,c"));
+        assertThrows(IllegalArgumentException.class, () -> ImportRecordReader.splitCsv("\"sin cerrar,x"));
+    }
+
+    @Test
+    void readsCsvByHeaderColumns() throws Exception {
+        Path file = write("\uFEFFid,Email,name,USERNAME\r\n1,ana@example.com,\"Pérez, Ana\",ana\r\n2,beto@example.com,Beto\n");
+        List<ImportRecord> records = readAll(file, ImportFormat.CSV, 0, 0);
+
+        assertEquals(2, records.size());
+        ImportRecord first = records.get(0);
+        assertFalse(first.rejected());
+        assertEquals(2, first.line);
+        assertEquals("ana", first.user.getUsername());
+        assertEquals("ana@example.com", first.user.getEmail());
+        assertEquals("Pérez, Ana", first.user.getName());
+
+        // A la fila le falta la columna username
+        ImportRecord second = records.get(1);
+        assertTrue(second.rejected());
+        assertEquals("2,beto@example.com,Beto", second.raw);
+    }
+
+    @Test
+    void rejectsCsvWithoutRequiredColumns() throws Exception {
+        Path file = write("username,name\nana,Ana\n");
+        assertThrows(IllegalArgumentException.class,
+                () -> new ImportRecordReader(file, ImportFormat.CSV, 0, 0, MAX_LINE, objectMapper));
+    }
+
+    @Test
+    void rejectsInvalidNdjsonLines() throws Exception {
+        Path file = write("""
+                {"username":"ana","email":"ana@example.com","name":"Ana"}
+                {"username":
+                [1,2]
+                """);
+        List<ImportRecord> records = readAll(file, ImportFormat.NDJSON, 0, 0);
+
+        assertEquals(3, records.size());
+        assertEquals("ana", records.get(0).user.getUsername());
+        assertTrue(records.get(1).error.startsWith("JSON no válido"));
+        assertTrue(records.get(2).rejected());
+        assertEquals(List.of(0L, 1L, 2L), records.stream().map(r -> r.sequence).toList());
+    }
+
+    @Test
+    void skipsBlankLinesButCountsThem() throws Exception {
+        Path file = write("username,email\n\nana,ana@example.com\n   \r\n\nbeto,beto@example.com");
+        List<ImportRecord> records = readAll(file, ImportFormat.CSV, 0, 0);
+
+        assertEquals(2, records.size());
+        assertEquals(3, records.get(0).line);
+        assertEquals(6, records.get(1).line);
+        // Las líneas vacías no consumen números de orden
+        assertEquals(0, records.get(0).sequence);
+        assertEquals(1, records.get(1).sequence);
+        // La última línea no termina en salto de línea
+        assertEquals(Files.size(file), records.get(1).end);
+    }
+
+    @Test
+    void rejectsOverlongLinesAndContinues() throws Exception {
+        // La segunda línea ocupa varios búferes de lectura
+        String longName = "x".repeat(200_000);
+        Path file = write("username,email,name\nana,ana@example.com,Ana\nbeto,beto@example.com," + longName
+                + "\ncarla,carla@example.com,Carla\n");
+        List<ImportRecord> records = readAll(file, ImportFormat.CSV, 0, 0);
+
+        assertEquals(3, records.size());
+        ImportRecord overlong = records.get(1);
+        assertTrue(overlong.rejected());
+        assertNull(overlong.raw);
+        assertEquals(3, overlong.line);
+        assertEquals(records.get(0).end, overlong.offset);
+        assertEquals(records.get(2).offset, overlong.end);
+        assertEquals("carla", records.get(2).user.getUsername());
+        assertEquals(4, records.get(2).line);
+    }
+
+    @Test
+    void rejectsInvalidUtf8Lines() throws Exception {
+        ByteArrayOutputStream content = new ByteArrayOutputStream();
+        content.writeBytes("username,email\nana,ana@example.com\n".getBytes(StandardCharsets.UTF_8));
+        content.writeBytes(new byte[]{'b', 'e', (byte) 0xC3, '(', ',', 'b', '@', 'x', '\n'});
+        content.writeBytes("carla,carla@example.com\n".getBytes(StandardCharsets.UTF_8));
+        Path file = directory.resolve("users.csv");
+        Files.write(file, content.toByteArray());
+
+        List<ImportRecord> records = readAll(file, ImportFormat.CSV, 0, 0);
+
+        assertEquals(3, records.size());
+        assertEquals("La línea no es UTF-8 válido.", records.get(1).error);
+        assertEquals(3, records.get(1).line);
+        assertEquals("carla", records.get(2).user.getUsername());
+    }
+
+    @Test
+    void resumesFromTheEndOfEveryRecord() throws Exception {
+        Path file = write("username,email\nana,ana@example.com\n\nbeto,beto@example.com\nmal\ncarla,carla@example.com\n");
+        List<ImportRecord> all = readAll(file, ImportFormat.CSV, 0, 0);
+        assertEquals(4, all.size());
+
+        for (int i = 0; i < all.size(); i++) {
+            ImportRecord last = all.get(i);
+            List<ImportRecord> resumed = readAll(file, ImportFormat.CSV, last.end, last.line);
+            List<ImportRecord> expected = all.subList(i + 1, all.size());
+            assertEquals(expected.size(), resumed.size());
+            for (int j = 0; j < expected.size(); j++) {
+                assertEquals(expected.get(j).line, resumed.get(j).line);
+                assertEquals(expected.get(j).offset, resumed.get(j).offset);
+                assertEquals(expected.get(j).end, resumed.get(j).end);
+                assertEquals(expected.get(j).raw, resumed.get(j).raw);
+                assertEquals(expected.get(j).rejected(), resumed.get(j).rejected());
+                assertEquals(j, resumed.get(j).sequence);
+            }
+        }
+    }
+
+    @Test
+    void rejectsOffsetsThatAreNotLineStarts() throws Exception {
+        Path file = write("username,email\nana,ana@example.com\n");
+        long size = Files.size(file);
+        assertThrows(IllegalArgumentException.class,
+                () -> new ImportRecordReader(file, ImportFormat.CSV, 17, 1, MAX_LINE, objectMapper));
+        assertThrows(IllegalArgumentException.class,
+                () -> new ImportRecordReader(file, ImportFormat.CSV, size + 1, 2, MAX_LINE, objectMapper));
+        assertThrows(IllegalArgumentException.class,
+                () -> new ImportRecordReader(file, ImportFormat.CSV, -1, 0, MAX_LINE, objectMapper));
+
+        try (ImportRecordReader reader = new ImportRecordReader(file, ImportFormat.CSV, size, 2, MAX_LINE, objectMapper)) {
+            assertNull(reader.next());
+            assertEquals(size, reader.position());
+        }
+    }
+
+    private Path write(String content) throws IOException {
+        Path file = directory.resolve("users.txt");
+        Files.writeString(file, content, StandardCharsets.UTF_8);
+        return file;
+    }
+
+    private List<ImportRecord> readAll(Path file, ImportFormat format, long offset, long line) throws IOException {
+        List<ImportRecord> records = new ArrayList<>();
+        try (ImportRecordReader reader = new ImportRecordReader(file, format, offset, line, MAX_LINE, objectMapper)) {
+            ImportRecord record;
+            while ((record = reader.next()) != null) {
+                records.add(record);
+            }
+        }
+        return records;
+    }
+}
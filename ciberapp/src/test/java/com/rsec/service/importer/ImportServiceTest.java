@@ -0,0 +1,200 @@
+package com.rsec.service.importer;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rsec.model.ImportCheckpoint;
+import com.rsec.model.Usuario;
+import com.rsec.repository.ImportCheckpointRepository;
+import com.rsec.repository.UsuarioRepository;
+import com.rsec.service.UsuarioService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Pruebas de {@link ImportService} sobre H2: reanudación desde un punto de control y desde una
+ * posición indicada, con lotes pequeños y varios hilos de protección para que el escritor tenga
+ * que reordenar las filas y recurrir al guardado fila a fila.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:import-test",
+        "ciberapp.keys.password=changeit",
+        "ciberapp.keys.create-if-missing=true",
+        "ciberapp.keys.reload-interval=0s",
+        "ciberapp.audit.enabled=false",
+        "ciberapp.admission.enabled=false",
+        "ciberapp.import.workers=4",
+        "ciberapp.import.batch-size=2",
+        "ciberapp.import.resume-on-startup=false"
+})
+class ImportServiceTest {
+
+    private static final String JOB = "bulk-import";
+
+    @TempDir
+    static Path directory;
+
+    @Autowired
+    private ImportService importService;
+
+    @Autowired
+    private ImportCheckpointRepository checkpointRepository;
+
+    @Autowired
+    private UsuarioRepository usuarioRepository;
+
+    @Autowired
+    private UsuarioService usuarioService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @DynamicPropertySource
+    static void directories(DynamicPropertyRegistry registry) {
+        registry.add("ciberapp.keys.keystore", () -> directory.resolve("ciberapp-keys.p12").toString());
+        registry.add("ciberapp.import.directory", () -> directory.toString());
+    }
+
+    @Test
+    void resumesFromCheckpointWithoutRepeatingRows() throws Exception {
+        String committed = """
+                username,email,name
+                ana,ana@example.com,Ana
+                beto,beto@example.com,Beto
+                mal
+                carla,carla@example.com,Carla
+                """;
+        String pending = """
+                dani,dani@example.com,Dani
+                ana,otra@example.com,Ana Otra
+                incompleta,
+                elena,elena@example.com,Elena
+                fabi,fabi@example.com,Fabi
+                """;
+        Path file = directory.resolve("resume.csv");
+        Files.writeString(file, committed + pending, StandardCharsets.UTF_8);
+        long offset = committed.getBytes(StandardCharsets.UTF_8).length;
+
+        // Estado que dejó una ejecución interrumpida tras confirmar hasta la línea 5: sus usuarios,
+        // su rechazo confirmado y un rechazo escrito después del último punto de control
+        for (String username : List.of("ana", "beto", "carla")) {
+            usuarioService.create(user(username));
+        }
+        String committedReject = rejectLine(4, "mal");
+        Path rejects = directory.resolve("resume.csv.rejects.ndjson");
+        Files.writeString(rejects, committedReject + rejectLine(7, "sin confirmar"), StandardCharsets.UTF_8);
+        long rejectsSize = committedReject.getBytes(StandardCharsets.UTF_8).length;
+        checkpointRepository.save(new ImportCheckpoint(JOB, file.toAbsolutePath().normalize().toString(), "CSV",
+                Files.size(file), offset, 5, 3, 1, rejectsSize, false, Instant.now(), Instant.now()));
+        long usersBefore = usuarioRepository.count();
+
+        assertTrue(importService.start("resume.csv", null, false, null));
+        awaitCompletion();
+
+        ImportCheckpoint checkpoint = checkpointRepository.findById(JOB).orElseThrow();
+        assertTrue(checkpoint.isCompleted());
+        assertEquals(Files.size(file), checkpoint.getOffset());
+        assertEquals(10, checkpoint.getLine());
+        assertEquals(3 + 3, checkpoint.getImported());
+        assertEquals(1 + 2, checkpoint.getRejected());
+        assertEquals(Files.size(rejects), checkpoint.getRejectsSize());
+
+        // Solo se guardan las filas posteriores al punto de control
+        assertEquals(usersBefore + 3, usuarioRepository.count());
+        for (String username : List.of("dani", "elena", "fabi")) {
+            assertTrue(usuarioService.findByUsername(username, Usuario.class).isPresent(), username);
+        }
+
+        // El rechazo sin confirmar se descarta; el duplicado de la línea 7 se rechaza al guardar fila a fila
+        String content = Files.readString(rejects, StandardCharsets.UTF_8);
+        assertTrue(content.startsWith(committedReject));
+        assertFalse(content.contains("sin confirmar"));
+        assertEquals(List.of(4L, 7L, 8L), rejectedLines(rejects));
+    }
+
+    @Test
+    void startsFromOffsetNumberingLinesAndAppendingRejects() throws Exception {
+        String skipped = """
+                username,email,name
+                gema,gema@example.com,Gema
+                """;
+        String imported = """
+
+                hugo,hugo@example.com,Hugo
+                "sin cerrar,x@example.com,X
+                ines,ines@example.com,Ines
+                """;
+        Path file = directory.resolve("offset.csv");
+        Files.writeString(file, skipped + imported, StandardCharsets.UTF_8);
+        String previousReject = rejectLine(1, "anterior");
+        Path rejects = directory.resolve("offset.csv.rejects.ndjson");
+        Files.writeString(rejects, previousReject, StandardCharsets.UTF_8);
+
+        assertTrue(importService.start("offset.csv", "csv", false, (long) skipped.getBytes(StandardCharsets.UTF_8).length));
+        awaitCompletion();
+
+        ImportCheckpoint checkpoint = checkpointRepository.findById(JOB).orElseThrow();
+        assertTrue(checkpoint.isCompleted());
+        assertEquals(6, checkpoint.getLine());
+        assertEquals(2, checkpoint.getImported());
+        assertEquals(1, checkpoint.getRejected());
+
+        assertFalse(usuarioService.findByUsername("gema", Usuario.class).isPresent());
+        assertTrue(usuarioService.findByUsername("hugo", Usuario.class).isPresent());
+        assertTrue(usuarioService.findByUsername("ines", Usuario.class).isPresent());
+
+        // Los números de línea cuentan las líneas anteriores a la posición indicada
+        assertTrue(Files.readString(rejects, StandardCharsets.UTF_8).startsWith(previousReject));
+        assertEquals(List.of(1L, 5L), rejectedLines(rejects));
+    }
+
+    private void awaitCompletion() throws InterruptedException {
+        long deadline = System.nanoTime() + 30_000_000_000L;
+        while (importService.isRunning()) {
+            if (System.nanoTime() > deadline) {
+                importService.stop();
+                throw new AssertionError("La importación no terminó a tiempo: " + importService.status());
+            }
+            Thread.sleep(20);
+        }
+        assertNull(importService.status().get("error"));
+    }
+
+    private String rejectLine(long line, String raw) throws Exception {
+        return objectMapper.writeValueAsString(Map.of("line", line, "offset", 0, "error", "prueba", "raw", raw)) + "\n";
+    }
+
+    private List<Long> rejectedLines(Path rejects) throws Exception {
+        return Files.readAllLines(rejects, StandardCharsets.UTF_8).stream()
+                .map(line -> {
+                    try {
+                        return objectMapper.readTree(line).path("line").asLong();
+                    } catch (Exception e) {
+                        throw new AssertionError("Línea de rechazos no válida: " + line, e);
+                    }
+                })
+                .toList();
+    }
+
+    private static Usuario user(String username) {
+        Usuario user = new Usuario();
+        user.setUsername(username);
+        user.setEmail(username + "@example.com");
+        user.setName(username);
+        return user;
+    }
+}
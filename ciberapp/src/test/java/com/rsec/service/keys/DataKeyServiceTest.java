@@ -0,0 +1,121 @@
+package com.rsec.service.keys;
+
+import com.rsec.service.CryptoEngine;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.crypto.SecretKey;
+import java.security.GeneralSecurityException;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Pruebas de {@link DataKeyService} y {@link LocalMasterKey}: reutilización de las claves de datos,
+ * ámbitos y rotación de la clave maestra.
+ */
+class DataKeyServiceTest {
+
+    private CryptoEngine engine;
+    private RotatingKeys keys;
+    private LocalMasterKey masterKey;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        engine = new CryptoEngine();
+        keys = RotatingKeys.of("master-1");
+        masterKey = new LocalMasterKey(engine, keys);
+    }
+
+    @Test
+    void masterKeyWrapsAndUnwrapsDataKeys() throws Exception {
+        SecretKey dataKey = dataKeyService(10).current(DataKeyService.DEFAULT_SCOPE).key();
+        byte[] wrapped = masterKey.wrap(dataKey);
+        assertEquals(1, wrapped[0]); // Identificador de la clave maestra
+        assertTrue(masterKey.isCurrent(wrapped, 0, wrapped.length));
+        assertArrayEquals(dataKey.getEncoded(), masterKey.unwrap(wrapped, 0, wrapped.length).getEncoded());
+
+        byte[] tampered = wrapped.clone();
+        tampered[tampered.length - 1] ^= 1;
+        assertThrows(GeneralSecurityException.class, () -> masterKey.unwrap(tampered, 0, tampered.length));
+
+        byte[] unknown = wrapped.clone();
+        unknown[0] = 9;
+        assertThrows(GeneralSecurityException.class, () -> masterKey.unwrap(unknown, 0, unknown.length));
+    }
+
+    @Test
+    void reusesDataKeyUpToMaxUses() throws Exception {
+        DataKeyService service = dataKeyService(3);
+        DataKeyService.DataKey first = service.current(DataKeyService.DEFAULT_SCOPE);
+        assertSame(first, service.current(DataKeyService.DEFAULT_SCOPE));
+        assertSame(first, service.current(DataKeyService.DEFAULT_SCOPE));
+
+        DataKeyService.DataKey second = service.current(DataKeyService.DEFAULT_SCOPE);
+        assertNotSame(first, second);
+        assertEquals(2L, service.stats().get("wraps"));
+
+        // Las claves generadas en este nodo se descifran sin usar la clave maestra
+        assertArrayEquals(first.key().getEncoded(), service.unwrap(first.wrapped(), 0, first.wrapped().length).getEncoded());
+        assertEquals(0L, service.stats().get("unwraps"));
+    }
+
+    @Test
+    void unwrapsDataKeysFromOtherNodesOnce() throws Exception {
+        DataKeyService.DataKey key = dataKeyService(10).current(DataKeyService.DEFAULT_SCOPE);
+        DataKeyService other = dataKeyService(10);
+        byte[] input = new byte[key.wrapped().length + 3];
+        System.arraycopy(key.wrapped(), 0, input, 3, key.wrapped().length);
+
+        assertArrayEquals(key.key().getEncoded(), other.unwrap(input, 3, key.wrapped().length).getEncoded());
+        assertArrayEquals(key.key().getEncoded(), other.unwrap(key.wrapped(), 0, key.wrapped().length).getEncoded());
+        assertEquals(1L, other.stats().get("unwraps"));
+    }
+
+    @Test
+    void scopesDoNotShareDataKeys() throws Exception {
+        DataKeyService service = dataKeyService(1_000);
+        String scope = service.newScope("batch");
+        assertTrue(scope.startsWith("batch-"));
+        assertNotEquals(scope, service.newScope("batch"));
+
+        DataKeyService.DataKey shared = service.current(DataKeyService.DEFAULT_SCOPE);
+        DataKeyService.DataKey scoped = service.current(scope);
+        assertNotSame(shared, scoped);
+        assertSame(scoped, service.current(scope));
+
+        service.release(scope);
+        assertNotSame(scoped, service.current(scope));
+        assertSame(shared, service.current(DataKeyService.DEFAULT_SCOPE));
+        // Los datos cifrados con la clave liberada siguen pudiendo descifrarse
+        assertArrayEquals(scoped.key().getEncoded(), service.unwrap(scoped.wrapped(), 0, scoped.wrapped().length).getEncoded());
+    }
+
+    @Test
+    void replacesDataKeyAfterMasterKeyRotation() throws Exception {
+        DataKeyService service = dataKeyService(1_000);
+        DataKeyService.DataKey before = service.current(DataKeyService.DEFAULT_SCOPE);
+        assertTrue(service.isCurrentMasterKey(before.wrapped(), 0, before.wrapped().length));
+
+        keys.add("master-2");
+        assertFalse(service.isCurrentMasterKey(before.wrapped(), 0, before.wrapped().length));
+        DataKeyService.DataKey after = service.current(DataKeyService.DEFAULT_SCOPE);
+        assertNotSame(before, after);
+        assertEquals(2, after.wrapped()[0]);
+
+        // La clave maestra anterior sigue disponible para descifrar
+        DataKeyService other = dataKeyService(1_000);
+        assertArrayEquals(before.key().getEncoded(), other.unwrap(before.wrapped(), 0, before.wrapped().length).getEncoded());
+    }
+
+    private DataKeyService dataKeyService(long maxUses) {
+        return new DataKeyService(masterKey, true, maxUses, Duration.ofHours(1), 10);
+    }
+}
@@ -0,0 +1,168 @@
+package com.rsec.service.keys;
+
+import com.rsec.metrics.ProtectionMetrics;
+import com.rsec.service.CipherProviderSelector;
+import com.rsec.service.CipherService;
+import com.rsec.service.CryptoEngine;
+import com.rsec.service.PlaintextCache;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.crypto.SecretKey;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.GeneralSecurityException;
+import java.security.KeyStore;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Pruebas de {@link KeyStoreKeyProvider}: creación del almacén, rotación y recarga de las claves.
+ */
+class KeyStoreKeyProviderTest {
+
+    private static final String PASSWORD = "secreto";
+    private static final byte[] LEGACY_TOKEN_KEY = "1234567890123456".getBytes(StandardCharsets.UTF_8);
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void failsWhenKeystoreIsMissing() {
+        assertThrows(IOException.class, () -> provider(false));
+    }
+
+    @Test
+    void createsKeystoreWithRandomActiveTokenKey() throws Exception {
+        KeyStoreKeyProvider provider = provider(true);
+        assertTrue(Files.exists(keystore()));
+        for (KeyPurpose purpose : List.of(KeyPurpose.CIPHER, KeyPurpose.MASTER, KeyPurpose.BLIND_INDEX)) {
+            assertEquals(1, provider.activeKey(purpose).id());
+            assertEquals(32, provider.activeKey(purpose).key().getEncoded().length);
+        }
+
+        // La clave heredada solo sirve para leer los tokens anteriores
+        assertEquals(2, provider.activeKey(KeyPurpose.TOKEN).id());
+        assertArrayEquals(LEGACY_TOKEN_KEY, provider.key(KeyPurpose.TOKEN, 1).getEncoded());
+        assertFalse(Arrays.equals(LEGACY_TOKEN_KEY, provider.activeKey(KeyPurpose.TOKEN).key().getEncoded()));
+
+        // Un segundo nodo con el mismo archivo obtiene las mismas claves
+        KeyStoreKeyProvider other = provider(false);
+        assertArrayEquals(provider.activeKey(KeyPurpose.CIPHER).key().getEncoded(),
+                other.activeKey(KeyPurpose.CIPHER).key().getEncoded());
+    }
+
+    @Test
+    void reloadActivatesNewKeyAndKeepsOldOnes() throws Exception {
+        KeyStoreKeyProvider provider = provider(true);
+        SecretKey previous = provider.activeKey(KeyPurpose.CIPHER).key();
+
+        SecretKey rotated = new SecretKeySpec(new byte[32], "AES");
+        update(keyStore -> keyStore.setEntry("cipher-2", new KeyStore.SecretKeyEntry(rotated),
+                new KeyStore.PasswordProtection(PASSWORD.toCharArray())));
+        assertEquals(1, provider.activeKey(KeyPurpose.CIPHER).id());
+
+        provider.reload();
+        assertEquals(2, provider.activeKey(KeyPurpose.CIPHER).id());
+        assertArrayEquals(rotated.getEncoded(), provider.activeKey(KeyPurpose.CIPHER).key().getEncoded());
+        assertArrayEquals(previous.getEncoded(), provider.key(KeyPurpose.CIPHER, 1).getEncoded());
+    }
+
+    @Test
+    void decryptsDataWithOldKeyAfterReload() throws Exception {
+        KeyStoreKeyProvider provider = provider(true);
+        CryptoEngine engine = new CryptoEngine();
+        CipherService service = new CipherService(engine, new PlaintextCache(false, 0, 0, Duration.ofMinutes(1)),
+                ProtectionMetrics.noop(), provider,
+                new DataKeyService(new LocalMasterKey(engine, provider), false, 1_000_000, Duration.ofHours(1), 1000),
+                CipherProviderSelector.of(engine, "SunJCE"));
+        byte[] before = service.encryptToBytes("ana", "ana@example.com", "Ana Pérez");
+
+        update(keyStore -> keyStore.setEntry("cipher-2", new KeyStore.SecretKeyEntry(new SecretKeySpec(new byte[32], "AES")),
+                new KeyStore.PasswordProtection(PASSWORD.toCharArray())));
+        provider.reload();
+
+        byte[] after = service.encryptToBytes("ana", "ana@example.com", "Ana Pérez");
+        assertEquals(1, before[1]);
+        assertEquals(2, after[1]);
+        assertEquals(service.decrypt(before), service.decrypt(after));
+        assertFalse(service.isCurrent(before));
+    }
+
+    @Test
+    void failedReloadKeepsPreviousKeys() throws Exception {
+        KeyStoreKeyProvider provider = provider(true);
+        SecretKey previous = provider.activeKey(KeyPurpose.CIPHER).key();
+
+        update(keyStore -> keyStore.deleteEntry("cipher-1"));
+        assertThrows(GeneralSecurityException.class, provider::reload);
+        assertArrayEquals(previous.getEncoded(), provider.activeKey(KeyPurpose.CIPHER).key().getEncoded());
+
+        byte[] blindIndexKey = provider.key(KeyPurpose.BLIND_INDEX, 1).getEncoded();
+        update(keyStore -> keyStore.setEntry("blind-index-1", new KeyStore.SecretKeyEntry(new SecretKeySpec(new byte[16], "AES")),
+                new KeyStore.PasswordProtection(PASSWORD.toCharArray())));
+        assertThrows(GeneralSecurityException.class, provider::reload);
+        assertArrayEquals(blindIndexKey, provider.key(KeyPurpose.BLIND_INDEX, 1).getEncoded());
+    }
+
+    @Test
+    void refusesBlindIndexKeyRotation() throws Exception {
+        KeyStoreKeyProvider provider = provider(true);
+
+        // Los índices guardados no se recalculan, por lo que una clave blind-index nueva no se acepta
+        update(keyStore -> keyStore.setEntry("blind-index-2", new KeyStore.SecretKeyEntry(new SecretKeySpec(new byte[32], "AES")),
+                new KeyStore.PasswordProtection(PASSWORD.toCharArray())));
+        assertThrows(GeneralSecurityException.class, provider::reload);
+        assertEquals(1, provider.activeKey(KeyPurpose.BLIND_INDEX).id());
+        assertThrows(GeneralSecurityException.class, () -> provider(false));
+    }
+
+    @Test
+    void refusesLegacyTokenKeyAsActiveKey() throws Exception {
+        KeyStoreKeyProvider provider = provider(true);
+
+        // La clave heredada de los tokens es pública: puede descifrar tokens anteriores, pero no ser la activa
+        update(keyStore -> keyStore.deleteEntry("token-2"));
+        assertThrows(GeneralSecurityException.class, provider::reload);
+        assertEquals(2, provider.activeKey(KeyPurpose.TOKEN).id());
+        assertThrows(GeneralSecurityException.class, () -> provider(false));
+    }
+
+    private KeyStoreKeyProvider provider(boolean createIfMissing) throws IOException, GeneralSecurityException {
+        return new KeyStoreKeyProvider(keystore(), PASSWORD, createIfMissing, Duration.ZERO);
+    }
+
+    private Path keystore() {
+        return dir.resolve("keys.p12");
+    }
+
+    /**
+     * Modifica el almacén de claves en disco, como lo haría un operador con `keytool`.
+     */
+    private void update(KeyStoreChange change) throws Exception {
+        KeyStore keyStore = KeyStore.getInstance("PKCS12");
+        try (InputStream in = Files.newInputStream(keystore())) {
+            keyStore.load(in, PASSWORD.toCharArray());
+        }
+        change.apply(keyStore);
+        try (OutputStream out = Files.newOutputStream(keystore())) {
+            keyStore.store(out, PASSWORD.toCharArray());
+        }
+    }
+
+    private interface KeyStoreChange {
+        void apply(KeyStore keyStore) throws GeneralSecurityException;
+    }
+}
@@ -0,0 +1,52 @@
+package com.rsec.service.keys;
+
+import javax.crypto.KeyGenerator;
+import javax.crypto.SecretKey;
+import java.security.GeneralSecurityException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Claves para las pruebas que pueden rotarse durante una prueba, como al recargar el almacén de claves.
+ */
+public final class RotatingKeys implements KeyProvider {
+
+    private final Map<String, SecretKey> aliases = new HashMap<>();
+    private volatile KeyRing ring = new KeyRing(Map.of());
+
+    /**
+     * @param aliases Alias `<uso>-<id>` de las claves iniciales, generadas al azar.
+     * @return Las claves.
+     * @throws GeneralSecurityException Si AES no está disponible.
+     */
+    public static RotatingKeys of(String... aliases) throws GeneralSecurityException {
+        RotatingKeys keys = new RotatingKeys();
+        for (String alias : aliases) {
+            keys.add(alias);
+        }
+        return keys;
+    }
+
+    /**
+     * Agrega una clave AES-256 aleatoria; si su identificador es el mayor de su uso, pasa a ser la activa.
+     *
+     * @param alias Alias `<uso>-<id>`.
+     * @throws GeneralSecurityException Si AES no está disponible.
+     */
+    public void add(String alias) throws GeneralSecurityException {
+        KeyGenerator generator = KeyGenerator.getInstance("AES");
+        generator.init(256);
+        aliases.put(alias, generator.generateKey());
+        ring = new KeyRing(aliases);
+    }
+
+    @Override
+    public ActiveKey activeKey(KeyPurpose purpose) {
+        return ring.activeKey(purpose);
+    }
+
+    @Override
+    public SecretKey key(KeyPurpose purpose, int id) {
+        return ring.key(purpose, id);
+    }
+}